@@ -0,0 +1,153 @@
+package com.mcd.wallet.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcd.wallet.controller.WalletController;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.SyncMonitor;
+import com.mcd.wallet.service.TransactionIndex;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.wallet.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response rendering of {@code /api/wallet/transactions}, {@code /balance} and {@code /summary} through
+ * {@link WalletController}, against synthetic wallets with 10k/100k confirmed transactions: JSON, CBOR, and a
+ * poll that revalidates with the current ETag (304).
+ * Bodies are written to an in-memory buffer; the returned size keeps the work from being eliminated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ApiSerializationBenchmark {
+
+    @Param({"10000", "100000"})
+    private int txCount;
+
+    private WalletController controller;
+    private ObjectMapper objectMapper;
+    private Instant midpoint;
+    private ByteArrayOutputStream buffer;
+    private String transactionsETag;
+
+    @Setup
+    public void setup() {
+        Wallet wallet = SyntheticWallets.withConfirmedTransactions(txCount);
+        TransactionIndex transactionIndex = new TransactionIndex();
+        transactionIndex.bind(wallet);
+        WalletSnapshot snapshot = WalletSnapshot.of(wallet, transactionIndex.size());
+
+        // Sem @PostConstruct: nenhum WalletAppKit é iniciado, só o snapshot é servido
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BlockchainService blockchainService = new BlockchainService(SyntheticWallets.PARAMS,
+                new Context(SyntheticWallets.PARAMS), transactionIndex, null, null, null, null, null, new SyncMonitor(meterRegistry), meterRegistry,
+                new DefaultResourceLoader(), "", "", List.of(), true, null, "bloom", false) {
+            @Override
+            public WalletSnapshot getSnapshot() {
+                return snapshot;
+            }
+
+            @Override
+            public boolean isWalletReady() {
+                return true;
+            }
+        };
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        controller = new WalletController(blockchainService, transactionIndex, null, null, objectMapper, Runnable::run, meterRegistry,
+                Duration.ofMinutes(30));
+        midpoint = Instant.ofEpochMilli(SyntheticWallets.BASE_TIME_MILLIS + txCount / 2 * 1000L);
+        buffer = new ByteArrayOutputStream(1 << 20);
+        ServletWebRequest first = request(null, null);
+        controller.getTransactions(100, null, null, null, first);
+        transactionsETag = first.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Benchmark
+    public int transactionsFirstPage(PageSize pageSize) throws IOException {
+        return render(controller.getTransactions(pageSize.limit, null, null, null, request(null, null)).getBody());
+    }
+
+    @Benchmark
+    public int transactionsFirstPageCbor(PageSize pageSize) throws IOException {
+        return render(controller.getTransactions(pageSize.limit, null, null, null,
+                request(MediaType.APPLICATION_CBOR_VALUE, null)).getBody());
+    }
+
+    @Benchmark
+    public int transactionsTimeRange(PageSize pageSize) throws IOException {
+        return render(controller.getTransactions(pageSize.limit, null, null, midpoint, request(null, null)).getBody());
+    }
+
+    @Benchmark
+    public int transactionsNotModified(PageSize pageSize) {
+        ServletWebRequest request = request(null, transactionsETag);
+        controller.getTransactions(pageSize.limit, null, null, null, request);
+        return request.getResponse().getStatus();
+    }
+
+    @Benchmark
+    public String balance() {
+        return controller.getBalance(request(null, null));
+    }
+
+    @Benchmark
+    public byte[] summary() throws IOException {
+        return objectMapper.writeValueAsBytes(controller.getSummary(request(null, null)).getBody());
+    }
+
+    private int render(StreamingResponseBody body) throws IOException {
+        buffer.reset();
+        body.writeTo(buffer);
+        return buffer.size();
+    }
+
+    private static ServletWebRequest request(String accept, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/wallet/transactions");
+        if (accept != null) {
+            request.addHeader(HttpHeaders.ACCEPT, accept);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    /**
+     * Page size, only used by the {@code /transactions} benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class PageSize {
+
+        @Param({"100", "1000"})
+        private int limit;
+    }
+}
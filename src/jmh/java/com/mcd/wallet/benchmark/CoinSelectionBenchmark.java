@@ -0,0 +1,92 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.UtxoIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+import org.bitcoinj.wallet.DefaultCoinSelector;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coin selection latency against the number of confirmed UTXOs (values 10 000 + i sat), paying 50 000 sat.
+ * {@code select*}: the selector call alone. {@code completeTx*}: {@link Wallet#completeTx} end to end
+ * (candidate scan, fee iterations and signing), as the payment batcher runs it.
+ * {@code *Default}: bitcoinj's {@link DefaultCoinSelector}. {@code *Indexed}: {@link UtxoIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoinSelectionBenchmark {
+
+    private static final Coin AMOUNT = Coin.valueOf(50_000);
+
+    @Param({"1000", "10000", "100000"})
+    private int utxoCount;
+
+    private Wallet wallet;
+    private UtxoIndex utxoIndex;
+    private List<TransactionOutput> candidates;
+    private Address recipient;
+
+    @Setup
+    public void setup() {
+        wallet = SyntheticWallets.withConfirmedTransactions(utxoCount);
+        utxoIndex = new UtxoIndex(new SimpleMeterRegistry());
+        utxoIndex.bind(wallet);
+        candidates = wallet.calculateAllSpendCandidates(true, true);
+        recipient = Address.fromKey(SyntheticWallets.PARAMS, new ECKey(), Script.ScriptType.P2PKH);
+    }
+
+    @Benchmark
+    public CoinSelection selectDefault(SyntheticWallets.BitcoinjContext context) {
+        return DefaultCoinSelector.get().select(AMOUNT, candidates);
+    }
+
+    @Benchmark
+    public CoinSelection selectIndexed(SyntheticWallets.BitcoinjContext context) {
+        return utxoIndex.select(AMOUNT, candidates);
+    }
+
+    @Benchmark
+    public Transaction completeTxDefault(SyntheticWallets.BitcoinjContext context) throws InsufficientMoneyException {
+        return completeTx(DefaultCoinSelector.get());
+    }
+
+    @Benchmark
+    public Transaction completeTxIndexed(SyntheticWallets.BitcoinjContext context) throws InsufficientMoneyException {
+        return completeTx(utxoIndex);
+    }
+
+    private Transaction completeTx(CoinSelector coinSelector) throws InsufficientMoneyException {
+        SendRequest request = SendRequest.to(recipient, AMOUNT);
+        request.feePerKb = Transaction.REFERENCE_DEFAULT_MIN_TX_FEE;
+        request.coinSelector = coinSelector;
+        wallet.completeTx(request);
+        return request.tx;
+    }
+}
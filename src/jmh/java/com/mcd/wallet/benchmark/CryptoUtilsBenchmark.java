@@ -0,0 +1,41 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.config.CryptoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wallet encryption key derivation (PBKDF2-HMAC-SHA256, 65 536 iterations).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoUtilsBenchmark {
+
+    private final char[] password = "correct horse battery staple".toCharArray();
+    private byte[] salt;
+
+    @Setup
+    public void setup() {
+        salt = Base64.getDecoder().decode(CryptoUtils.generateSalt());
+    }
+
+    @Benchmark
+    public byte[] deriveKey() throws Exception {
+        return CryptoUtils.deriveKey(password, salt);
+    }
+}
@@ -0,0 +1,87 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.impl.KeyDerivationServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.script.Script;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Address derivation with and without the account-level xpub cache.
+ * {@code uncached} uses a zero-sized cache, i.e. the master key and hardened path are rebuilt on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyDerivationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyDerivationBenchmark.class);
+
+    @Param({"1", "20", "100", "1000"})
+    private int count;
+
+    private byte[] seed;
+    private KeyDerivationServiceImpl uncachedService;
+    private KeyDerivationServiceImpl cachedService;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        seed = new byte[64];
+        new SecureRandom().nextBytes(seed);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        uncachedService = new KeyDerivationServiceImpl(TestNet3Params.get(), 0, executor, new SimpleMeterRegistry());
+        cachedService = new KeyDerivationServiceImpl(TestNet3Params.get(), 1024, executor, new SimpleMeterRegistry());
+        cachedService.deriveAddresses(seed, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        log.info("Account key cache: {}", cachedService.accountKeyCacheStats());
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<Address> uncached() {
+        return uncachedService.deriveAddresses(seed, count);
+    }
+
+    @Benchmark
+    public List<Address> cached() {
+        return cachedService.deriveAddresses(seed, count);
+    }
+
+    @Benchmark
+    public List<Address> cachedIncrementalRange() {
+        return cachedService.deriveAddresses(seed, 10_000, count);
+    }
+
+    @Benchmark
+    public void cachedParallelStream(Blackhole blackhole) {
+        cachedService.streamAddresses(seed, 0, count, Script.ScriptType.P2WPKH, blackhole::consume);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.impl.KeyDerivationServiceImpl;
+import com.mcd.wallet.service.impl.WalletProvisioningServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.script.Script;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk wallet provisioning throughput; the score is in wallets/s (one operation = one wallet).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProvisioningBenchmark {
+
+    private static final int BATCH_SIZE = 256;
+
+    private ThreadPoolExecutor seedExecutor;
+    private ExecutorService derivationExecutor;
+    private WalletProvisioningServiceImpl provisioningService;
+
+    @Setup
+    public void setup() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        seedExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(64));
+        derivationExecutor = Executors.newFixedThreadPool(threads);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeyDerivationServiceImpl keyDerivationService =
+                new KeyDerivationServiceImpl(TestNet3Params.get(), 1024, derivationExecutor, meterRegistry);
+        provisioningService = new WalletProvisioningServiceImpl(keyDerivationService, seedExecutor, meterRegistry,
+                Duration.ofSeconds(5));
+    }
+
+    @TearDown
+    public void tearDown() {
+        seedExecutor.shutdownNow();
+        derivationExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void provision(Blackhole blackhole) {
+        provisioningService.provision(BATCH_SIZE, "", Script.ScriptType.P2WPKH, blackhole::consume);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.impl.WalletServiceImpl;
+import com.mcd.wallet.service.model.DerivedSeed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BIP-39 mnemonic generation and seed derivation through {@link WalletServiceImpl}, including the
+ * hop to the seed pool. {@code deriveSeedBatch} derives {@link #BATCH_SIZE} seeds per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeedDerivationBenchmark {
+
+    private static final int BATCH_SIZE = 64;
+
+    private ThreadPoolExecutor seedExecutor;
+    private WalletServiceImpl walletService;
+    private String mnemonic;
+    private List<String> mnemonics;
+
+    @Setup
+    public void setup() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        seedExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(64));
+        walletService = new WalletServiceImpl(seedExecutor, new SimpleMeterRegistry());
+        mnemonic = walletService.generateMnemonic();
+        mnemonics = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mnemonics.add(walletService.generateMnemonic());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        seedExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public String generateMnemonic() {
+        return walletService.generateMnemonic();
+    }
+
+    @Benchmark
+    public byte[] deriveSeed() {
+        return walletService.deriveSeed(mnemonic, "");
+    }
+
+    @Benchmark
+    public List<DerivedSeed> deriveSeedBatch() {
+        return walletService.deriveSeeds(mnemonics, "");
+    }
+}
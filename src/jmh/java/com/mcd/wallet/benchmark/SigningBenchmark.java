@@ -0,0 +1,95 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.TransactionSigningService;
+import com.mcd.wallet.service.impl.TransactionSigningServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing latency of one P2PKH transaction against its input count, as a consolidation produces it.
+ * {@code bitcoinjSigner}: {@link Wallet#signTransaction} (one transaction copy per sighash).
+ * {@code signingService}: {@link TransactionSigningService#signInputs} with {@code signingThreads} pool threads
+ * plus the calling thread. Every operation starts from blank scriptSigs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int inputCount;
+
+    @Param({"1", "4"})
+    private int signingThreads;
+
+    private Wallet wallet;
+    private Transaction tx;
+    private ThreadPoolExecutor signingExecutor;
+    private TransactionSigningService signingService;
+
+    @Setup
+    public void setup() {
+        wallet = SyntheticWallets.withConfirmedTransactions(inputCount);
+        tx = new Transaction(SyntheticWallets.PARAMS);
+        List<TransactionOutput> candidates = wallet.calculateAllSpendCandidates(true, true);
+        candidates.forEach(tx::addInput);
+        tx.addOutput(Coin.valueOf(5_000L * inputCount),
+                Address.fromKey(SyntheticWallets.PARAMS, new ECKey(), Script.ScriptType.P2PKH));
+        signingExecutor = new ThreadPoolExecutor(signingThreads, signingThreads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        signingService = new TransactionSigningServiceImpl(SyntheticWallets.PARAMS, signingExecutor,
+                new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        signingExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public Transaction bitcoinjSigner(SyntheticWallets.BitcoinjContext context) {
+        clearSignatures();
+        wallet.signTransaction(SendRequest.forTx(tx));
+        return tx;
+    }
+
+    @Benchmark
+    public int signingService(SyntheticWallets.BitcoinjContext context) {
+        clearSignatures();
+        return signingService.signInputs(tx, wallet, null);
+    }
+
+    private void clearSignatures() {
+        for (TransactionInput input : tx.getInputs()) {
+            input.clearScriptBytes();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mcd.wallet.benchmark;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * Builds in-memory regtest wallets holding a given number of confirmed incoming transactions.
+ */
+public final class SyntheticWallets {
+
+    public static final NetworkParameters PARAMS = RegTestParams.get();
+
+    /**
+     * Update time of transaction 0; transaction {@code i} is {@code i} seconds later.
+     */
+    public static final long BASE_TIME_MILLIS = 1_700_000_000_000L;
+
+    private SyntheticWallets() {
+    }
+
+    public static Wallet withConfirmedTransactions(int txCount) {
+        Context.propagate(new Context(PARAMS));
+        Wallet wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        Address address = wallet.currentReceiveAddress();
+        for (int i = 0; i < txCount; i++) {
+            Transaction tx = new Transaction(PARAMS);
+            byte[] prevTxSeed = ByteBuffer.allocate(4).putInt(i).array();
+            tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                    new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(prevTxSeed))));
+            tx.addOutput(Coin.valueOf(10_000L + i), address);
+            tx.setUpdateTime(new Date(BASE_TIME_MILLIS + i * 1000L));
+            tx.getConfidence().setAppearedAtChainHeight(1 + i / 100);
+            wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+        }
+        return wallet;
+    }
+
+    /**
+     * Sets a bitcoinj {@link Context} on each JMH worker thread; add it as a benchmark method parameter.
+     */
+    @State(Scope.Thread)
+    public static class BitcoinjContext {
+
+        @Setup
+        public void propagate() {
+            Context.propagate(new Context(PARAMS));
+        }
+    }
+}
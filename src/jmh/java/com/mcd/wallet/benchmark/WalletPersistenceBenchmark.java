@@ -0,0 +1,186 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.WalletJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wallet persistence cost: full-file autosave (the previous behavior) against the append-only journal.
+ * {@code snapshotPerEvent}/{@code journalPerEvent}: durable write of one confirmed deposit; the {@code bytes}
+ * counter divided by {@code events} is the write amplification.
+ * {@code restartFromSnapshot}/{@code restartFromJournal}: time until the wallet is loaded again, the latter
+ * replaying {@code journalEvents} blocks recorded after the last snapshot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalletPersistenceBenchmark {
+
+    @State(Scope.Thread)
+    public static class Events {
+
+        @Param({"1000", "10000"})
+        private int txCount;
+
+        private File directory;
+        private Wallet wallet;
+        private File walletFile;
+        private WalletJournal journal;
+        private Transaction tx;
+        private StoredBlock block;
+
+        @Setup
+        public void setup() throws Exception {
+            directory = Files.createTempDirectory("wallet-persistence").toFile();
+            wallet = SyntheticWallets.withConfirmedTransactions(txCount);
+            walletFile = new File(directory, "wallet.wallet");
+            wallet.saveToFile(walletFile);
+            journal = newJournal();
+            journal.start(wallet, walletFile, new File(directory, "wallet.journal"));
+
+            Block next = SyntheticWallets.PARAMS.getGenesisBlock().createNextBlock(wallet.currentReceiveAddress());
+            tx = next.getTransactions().get(0);
+            block = new StoredBlock(next.cloneAsHeader(), next.getWork(), 1);
+        }
+
+        @TearDown
+        public void tearDown() {
+            journal.close(false);
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Written {
+
+        public long bytes;
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            events = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Restart {
+
+        @Param({"1000", "10000"})
+        private int txCount;
+
+        @Param({"100"})
+        private int journalEvents;
+
+        private File directory;
+        private File walletFile;
+        private File journalFile;
+        private File fullWalletFile;
+        private byte[] snapshotBytes;
+        private byte[] journalBytes;
+        private WalletJournal journal;
+
+        @Setup
+        public void setup() throws Exception {
+            directory = Files.createTempDirectory("wallet-restart").toFile();
+            walletFile = new File(directory, "wallet.wallet");
+            journalFile = new File(directory, "wallet.journal");
+            fullWalletFile = new File(directory, "full.wallet");
+
+            Wallet wallet = SyntheticWallets.withConfirmedTransactions(txCount);
+            wallet.saveToFile(walletFile);
+            WalletJournal recorder = newJournal();
+            recorder.start(wallet, walletFile, journalFile);
+            BlockChain chain = new BlockChain(SyntheticWallets.PARAMS, wallet, new MemoryBlockStore(SyntheticWallets.PARAMS));
+            recorder.follow(chain);
+            Block tip = SyntheticWallets.PARAMS.getGenesisBlock();
+            for (int i = 0; i < journalEvents; i++) {
+                tip = tip.createNextBlock(wallet.currentReceiveAddress());
+                chain.add(tip);
+            }
+            recorder.close(false);
+            // Com autosave o arquivo já estaria completo: é o baseline
+            wallet.saveToFile(fullWalletFile);
+
+            snapshotBytes = Files.readAllBytes(walletFile.toPath());
+            journalBytes = Files.readAllBytes(journalFile.toPath());
+            journal = newJournal();
+        }
+
+        @Setup(Level.Invocation)
+        public void crash() throws IOException {
+            Files.write(walletFile.toPath(), snapshotBytes);
+            Files.write(journalFile.toPath(), journalBytes);
+        }
+
+        @TearDown
+        public void tearDown() {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public void snapshotPerEvent(Events state, Written written) throws IOException {
+        state.wallet.saveToFile(state.walletFile);
+        written.bytes += state.walletFile.length();
+        written.events++;
+    }
+
+    @Benchmark
+    public void journalPerEvent(Events state, Written written) throws IOException {
+        long before = state.journal.size();
+        state.journal.recordInBlock(state.tx, state.block, 0);
+        state.journal.recordBestBlock(state.block);
+        state.journal.flush();
+        written.bytes += state.journal.size() - before;
+        written.events++;
+    }
+
+    @Benchmark
+    public Wallet restartFromSnapshot(Restart state) throws Exception {
+        return Wallet.loadFromFile(state.fullWalletFile);
+    }
+
+    @Benchmark
+    public Wallet restartFromJournal(Restart state) throws Exception {
+        state.journal.recover(SyntheticWallets.PARAMS, state.walletFile, state.journalFile);
+        return Wallet.loadFromFile(state.walletFile);
+    }
+
+    private static WalletJournal newJournal() {
+        // Flush só quando o benchmark pede
+        return new WalletJournal(Context.get(), new SimpleMeterRegistry(), Duration.ofHours(1),
+                DataSize.ofGigabytes(1));
+    }
+}
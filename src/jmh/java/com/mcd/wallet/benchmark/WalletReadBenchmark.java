@@ -0,0 +1,81 @@
+package com.mcd.wallet.benchmark;
+
+import com.mcd.wallet.service.model.WalletSnapshot;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.wallet.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance read throughput while a "sync" thread keeps recomputing wallet state under the wallet lock,
+ * as BlockchainService does for every block/transaction event.
+ * {@code walletLock}: readers call {@link Wallet#getBalance()} (old /balance behavior).
+ * {@code snapshot}: readers do one volatile read of the published {@link WalletSnapshot}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalletReadBenchmark {
+
+    @Param({"1000", "10000"})
+    private int txCount;
+
+    private Wallet wallet;
+    private volatile WalletSnapshot snapshot;
+
+    @Setup
+    public void setup() {
+        wallet = SyntheticWallets.withConfirmedTransactions(txCount);
+        snapshot = WalletSnapshot.of(wallet, txCount);
+    }
+
+    @Benchmark
+    @Group("walletLock")
+    @GroupThreads(3)
+    public Coin walletLockRead(SyntheticWallets.BitcoinjContext context) {
+        return wallet.getBalance();
+    }
+
+    @Benchmark
+    @Group("walletLock")
+    @GroupThreads(1)
+    public WalletSnapshot walletLockSync(SyntheticWallets.BitcoinjContext context) {
+        return publish();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public Coin snapshotRead(SyntheticWallets.BitcoinjContext context) {
+        return snapshot.availableBalance();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public WalletSnapshot snapshotSync(SyntheticWallets.BitcoinjContext context) {
+        return publish();
+    }
+
+    private WalletSnapshot publish() {
+        WalletSnapshot next = WalletSnapshot.of(wallet, txCount);
+        snapshot = next;
+        return next;
+    }
+}
@@ -3,6 +3,7 @@ package com.mcd.wallet.config;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.RegTestParams;
 import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.core.Context;
 import org.bitcoinj.core.NetworkParameters;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -26,5 +27,12 @@ public class BitcoinConfig {
                 return TestNet3Params.get();
         }
     }
-}
 
+    /**
+     * Single bitcoinj context shared by the WalletAppKit and every application thread that touches the wallet.
+     */
+    @Bean
+    public Context bitcoinContext(NetworkParameters networkParameters) {
+        return new Context(networkParameters);
+    }
+}
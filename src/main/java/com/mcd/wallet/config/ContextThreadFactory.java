@@ -0,0 +1,33 @@
+package com.mcd.wallet.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bitcoinj.core.Context;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Daemon threads that run with the application's bitcoinj {@link Context}.
+ * Unlike bitcoinj's ContextPropagatingThreadFactory it does not depend on the thread that happens to
+ * trigger thread creation (e.g. a request thread submitting the first task) having a context.
+ */
+public class ContextThreadFactory implements ThreadFactory {
+
+    private final Context context;
+    private final ThreadFactory delegate;
+
+    public ContextThreadFactory(Context context, String nameFormat) {
+        this.context = context;
+        this.delegate = new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build();
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        return delegate.newThread(() -> {
+            Context.propagate(context);
+            runnable.run();
+        });
+    }
+}
@@ -15,7 +15,11 @@ public class CryptoUtils {
 
     public static byte[] deriveKey(char[] password, byte[] salt) throws Exception {
         PBEKeySpec spec = new PBEKeySpec(password, salt, 65536, 256); // PBKDF2 with 65536 iterations
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        return factory.generateSecret(spec).getEncoded();
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            return factory.generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword(); // o spec guarda uma cópia da senha
+        }
     }
 }
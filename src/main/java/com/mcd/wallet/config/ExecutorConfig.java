@@ -0,0 +1,95 @@
+package com.mcd.wallet.config;
+
+import org.bitcoinj.core.Context;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${wallet.derivation.threads:0}")
+    private int derivationThreads;
+
+    @Value("${wallet.signing.threads:0}")
+    private int signingThreads;
+
+    @Value("${bitcoin.filters.threads:0}")
+    private int filterThreads;
+
+    @Value("${wallet.seed.threads:0}")
+    private int seedThreads;
+
+    @Value("${wallet.seed.queue-capacity:64}")
+    private int seedQueueCapacity;
+
+    @Value("${wallet.executor.threads:16}")
+    private int walletThreads;
+
+    @Value("${wallet.executor.queue-capacity:100}")
+    private int walletQueueCapacity;
+
+    /**
+     * CPU-bound pool for bulk address derivation. Defaults to one thread per core.
+     */
+    @Bean(destroyMethod = "shutdownNow", defaultCandidate = false)
+    public ExecutorService derivationExecutor(Context bitcoinContext) {
+        int threads = derivationThreads > 0 ? derivationThreads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads, new ContextThreadFactory(bitcoinContext, "address-derivation-%d"));
+    }
+
+    /**
+     * CPU-bound pool for transaction input signing. Defaults to one thread per core; the thread that asks for the
+     * signatures works on a share of the inputs too.
+     */
+    @Bean(destroyMethod = "shutdownNow", defaultCandidate = false)
+    public ThreadPoolExecutor signingExecutor(Context bitcoinContext) {
+        int threads = signingThreads > 0 ? signingThreads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ContextThreadFactory(bitcoinContext, "input-signing-%d"));
+    }
+
+    /**
+     * CPU-bound pool for matching wallet scripts against compact block filters. Defaults to one thread per core;
+     * the sync thread matches a share of each batch too.
+     */
+    @Bean(destroyMethod = "shutdownNow", defaultCandidate = false)
+    public ThreadPoolExecutor filterExecutor(Context bitcoinContext) {
+        int threads = filterThreads > 0 ? filterThreads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ContextThreadFactory(bitcoinContext, "filter-matching-%d"));
+    }
+
+    /**
+     * Bounded pool for blocking bitcoinj wallet/peer calls, kept off the (virtual) request threads and the
+     * common ForkJoinPool. When all threads are busy and the queue is full, submissions fail immediately with
+     * {@link java.util.concurrent.RejectedExecutionException}, which the API answers with 503.
+     */
+    @Bean(destroyMethod = "shutdown", defaultCandidate = false)
+    public ThreadPoolExecutor walletExecutor(Context bitcoinContext) {
+        return new ThreadPoolExecutor(walletThreads, walletThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(walletQueueCapacity),
+                new ContextThreadFactory(bitcoinContext, "wallet-io-%d"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Core-sized pool for BIP-39 seed derivation (PBKDF2). The bounded queue is the admission control:
+     * when it is full, new derivations are rejected (503) instead of piling up behind the CPU.
+     */
+    @Bean(destroyMethod = "shutdownNow", defaultCandidate = false)
+    public ThreadPoolExecutor seedExecutor(Context bitcoinContext) {
+        int threads = seedThreads > 0 ? seedThreads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(seedQueueCapacity),
+                new ContextThreadFactory(bitcoinContext, "seed-derivation-%d"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
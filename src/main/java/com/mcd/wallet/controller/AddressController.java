@@ -0,0 +1,158 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.AccountDiscoveryResponse;
+import com.mcd.wallet.controller.dto.BulkAddressRequest;
+import com.mcd.wallet.controller.dto.DiscoverAccountsRequest;
+import com.mcd.wallet.service.AccountDiscoveryService;
+import com.mcd.wallet.service.KeyDerivationService;
+import com.mcd.wallet.service.WalletService;
+import com.mcd.wallet.service.impl.WalletServiceImpl;
+import org.bitcoinj.script.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/addresses")
+public class AddressController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddressController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final WalletService walletService;
+    private final KeyDerivationService keyDerivationService;
+    private final AccountDiscoveryService accountDiscoveryService;
+    private final int maxBulkCount;
+
+    public AddressController(WalletService walletService,
+                             KeyDerivationService keyDerivationService,
+                             AccountDiscoveryService accountDiscoveryService,
+                             @Value("${wallet.derivation.bulk-max-count:1000000}") int maxBulkCount) {
+        this.walletService = walletService;
+        this.keyDerivationService = keyDerivationService;
+        this.accountDiscoveryService = accountDiscoveryService;
+        this.maxBulkCount = maxBulkCount;
+    }
+
+    /**
+     * Streams {@code count} addresses as NDJSON ({"index":n,"address":"..."} per line), in index order.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<StreamingResponseBody> deriveBulk(@RequestBody BulkAddressRequest request) {
+        if (request.mnemonic() == null || request.mnemonic().isEmpty()) {
+            throw ApiException.badRequest("MNEMONIC_INVALID", "Mnemonic cannot be empty");
+        }
+
+        int fromIndex = request.fromIndex() != null ? request.fromIndex() : 0;
+        int count = request.count() != null ? request.count() : 0;
+        if (fromIndex < 0 || count <= 0 || count > maxBulkCount) {
+            throw ApiException.badRequest("RANGE_INVALID", "count must be between 1 and " + maxBulkCount
+                    + " and fromIndex must not be negative");
+        }
+
+        Script.ScriptType scriptType = parseScriptType(request.scriptType());
+        if (scriptType == null) {
+            throw ApiException.badRequest("SCRIPT_TYPE_INVALID", "scriptType must be P2PKH or P2WPKH");
+        }
+
+        byte[] seed;
+        try {
+            String passphrase = request.passphrase() != null ? request.passphrase() : "";
+            seed = walletService.deriveSeed(request.mnemonic(), passphrase);
+        } catch (WalletServiceImpl.WalletException e) {
+            throw ApiException.badRequest("MNEMONIC_INVALID", "Invalid mnemonic");
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                // Endereços são base58/bech32: não precisam de escape JSON
+                keyDerivationService.streamAddresses(seed, fromIndex, count, scriptType, derived -> {
+                    try {
+                        writer.write("{\"index\":");
+                        writer.write(Integer.toString(derived.index()));
+                        writer.write(",\"address\":\"");
+                        writer.write(derived.address().toString());
+                        writer.write("\"}\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+            } catch (UncheckedIOException e) {
+                logger.debug("Bulk address stream aborted by client: {}", e.getMessage());
+            }
+        };
+
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Restore-time discovery: which accounts and receive/change chains of the mnemonic were used, per script type
+     * (default P2PKH, P2WPKH and P2TR), scanning blocks from {@code fromHeight} (default 0).
+     */
+    @PostMapping("/discover")
+    public AccountDiscoveryResponse discover(@RequestBody DiscoverAccountsRequest request) {
+        if (request.mnemonic() == null || request.mnemonic().isEmpty()) {
+            throw ApiException.badRequest("MNEMONIC_INVALID", "Mnemonic cannot be empty");
+        }
+        int fromHeight = request.fromHeight() != null ? request.fromHeight() : 0;
+        if (fromHeight < 0) {
+            throw ApiException.badRequest("RANGE_INVALID", "fromHeight must not be negative");
+        }
+
+        List<Script.ScriptType> scriptTypes = new ArrayList<>();
+        List<String> requested = request.scriptTypes() != null && !request.scriptTypes().isEmpty()
+                ? request.scriptTypes() : List.of("P2PKH", "P2WPKH", "P2TR");
+        for (String value : requested) {
+            // P2TR só aqui: o índice de depósitos guarda hash160, que não cobre taproot
+            Script.ScriptType scriptType = "P2TR".equalsIgnoreCase(value) ? Script.ScriptType.P2TR : parseScriptType(value);
+            if (scriptType == null) {
+                throw ApiException.badRequest("SCRIPT_TYPE_INVALID", "scriptTypes must be P2PKH, P2WPKH or P2TR");
+            }
+            if (!scriptTypes.contains(scriptType)) {
+                scriptTypes.add(scriptType);
+            }
+        }
+
+        byte[] seed;
+        try {
+            String passphrase = request.passphrase() != null ? request.passphrase() : "";
+            seed = walletService.deriveSeed(request.mnemonic(), passphrase);
+        } catch (WalletServiceImpl.WalletException e) {
+            throw ApiException.badRequest("MNEMONIC_INVALID", "Invalid mnemonic");
+        }
+        try {
+            return AccountDiscoveryResponse.from(accountDiscoveryService.discover(seed, scriptTypes, fromHeight));
+        } finally {
+            Arrays.fill(seed, (byte) 0);
+        }
+    }
+
+    static Script.ScriptType parseScriptType(String value) {
+        if (value == null || value.isEmpty()) {
+            return Script.ScriptType.P2PKH;
+        }
+        return switch (value.toUpperCase()) {
+            case "P2PKH" -> Script.ScriptType.P2PKH;
+            case "P2WPKH" -> Script.ScriptType.P2WPKH;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.mcd.wallet.controller;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Request failure rendered as an {@link com.mcd.wallet.controller.dto.ErrorResponse} by {@link ApiExceptionHandler}.
+ * Used by endpoints whose success type is not {@code ResponseEntity<?>} (e.g. streamed responses).
+ */
+public class ApiException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final String code;
+
+    public ApiException(HttpStatus status, String code, String message) {
+        super(message);
+        this.status = status;
+        this.code = code;
+    }
+
+    public static ApiException badRequest(String code, String message) {
+        return new ApiException(HttpStatus.BAD_REQUEST, code, message);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
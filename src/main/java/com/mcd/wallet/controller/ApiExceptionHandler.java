@@ -0,0 +1,45 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.ErrorResponse;
+import com.mcd.wallet.service.WalletLockedException;
+import com.mcd.wallet.service.WalletNotReadyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(ApiException.class)
+    public ResponseEntity<ErrorResponse> handleApiException(ApiException e) {
+        return ResponseEntity.status(e.getStatus())
+                .body(new ErrorResponse(e.getCode(), e.getMessage()));
+    }
+
+    // Pool de operações bloqueantes saturado: falhar rápido em vez de enfileirar sem limite
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecution(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse("SERVICE_BUSY", "Server is busy, try again later"));
+    }
+
+    // Carteira ainda carregando: endpoints de derivação já respondem, os que dependem da cadeia não
+    @ExceptionHandler(WalletNotReadyException.class)
+    public ResponseEntity<ErrorResponse> handleWalletNotReady(WalletNotReadyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(new ErrorResponse("SYNCING", e.getMessage()));
+    }
+
+    // Carteira criptografada sem sessão desbloqueada: o cliente precisa chamar /unlock
+    @ExceptionHandler(WalletLockedException.class)
+    public ResponseEntity<ErrorResponse> handleWalletLocked(WalletLockedException e) {
+        return ResponseEntity.status(HttpStatus.LOCKED)
+                .body(new ErrorResponse("WALLET_LOCKED", e.getMessage()));
+    }
+}
@@ -0,0 +1,95 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.BulkAddressRequest;
+import com.mcd.wallet.controller.dto.WatchedAddressResponse;
+import com.mcd.wallet.controller.dto.WatchedAddressesResponse;
+import com.mcd.wallet.service.WalletService;
+import com.mcd.wallet.service.WatchedAddressIndex;
+import com.mcd.wallet.service.impl.WalletServiceImpl;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.script.Script;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+
+@RestController
+@RequestMapping("/api/deposits")
+public class DepositController {
+
+    private final WalletService walletService;
+    private final WatchedAddressIndex watchedAddressIndex;
+    private final NetworkParameters params;
+    private final int maxWatchCount;
+
+    public DepositController(WalletService walletService,
+                             WatchedAddressIndex watchedAddressIndex,
+                             NetworkParameters params,
+                             @Value("${wallet.derivation.bulk-max-count:1000000}") int maxWatchCount) {
+        this.walletService = walletService;
+        this.watchedAddressIndex = watchedAddressIndex;
+        this.params = params;
+        this.maxWatchCount = maxWatchCount;
+    }
+
+    /**
+     * Derives a range of receive addresses and adds them to the watched-address index.
+     */
+    @PostMapping("/watch")
+    public WatchedAddressesResponse watch(@RequestBody BulkAddressRequest request) {
+        if (request.mnemonic() == null || request.mnemonic().isEmpty()) {
+            throw ApiException.badRequest("MNEMONIC_INVALID", "Mnemonic cannot be empty");
+        }
+
+        int fromIndex = request.fromIndex() != null ? request.fromIndex() : 0;
+        int count = request.count() != null ? request.count() : 0;
+        if (fromIndex < 0 || count <= 0 || count > maxWatchCount) {
+            throw ApiException.badRequest("RANGE_INVALID", "count must be between 1 and " + maxWatchCount
+                    + " and fromIndex must not be negative");
+        }
+
+        Script.ScriptType scriptType = AddressController.parseScriptType(request.scriptType());
+        if (scriptType == null) {
+            throw ApiException.badRequest("SCRIPT_TYPE_INVALID", "scriptType must be P2PKH or P2WPKH");
+        }
+
+        byte[] seed;
+        try {
+            String passphrase = request.passphrase() != null ? request.passphrase() : "";
+            seed = walletService.deriveSeed(request.mnemonic(), passphrase);
+        } catch (WalletServiceImpl.WalletException e) {
+            throw ApiException.badRequest("MNEMONIC_INVALID", "Invalid mnemonic");
+        }
+
+        try {
+            int added = watchedAddressIndex.watch(seed, fromIndex, count, scriptType);
+            return new WatchedAddressesResponse(added, watchedAddressIndex.size(), watchedAddressIndex.memoryBytes(),
+                    watchedAddressIndex.isFilterMatchAll());
+        } finally {
+            Arrays.fill(seed, (byte) 0);
+        }
+    }
+
+    @GetMapping("/watch/{address}")
+    public WatchedAddressResponse watchedAddress(@PathVariable String address) {
+        Address parsed;
+        try {
+            parsed = Address.fromString(params, address);
+        } catch (AddressFormatException e) {
+            throw ApiException.badRequest("ADDRESS_INVALID", "Invalid bitcoin address");
+        }
+        int derivationIndex = watchedAddressIndex.indexOf(parsed);
+        if (derivationIndex < 0) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "ADDRESS_NOT_WATCHED", "Address is not watched");
+        }
+        return new WatchedAddressResponse(parsed.toString(), derivationIndex);
+    }
+}
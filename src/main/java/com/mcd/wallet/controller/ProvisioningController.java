@@ -0,0 +1,83 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.ProvisionWalletsRequest;
+import com.mcd.wallet.service.WalletProvisioningService;
+import org.bitcoinj.script.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/wallets")
+public class ProvisioningController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvisioningController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final WalletProvisioningService provisioningService;
+    private final int maxProvisionCount;
+
+    public ProvisioningController(WalletProvisioningService provisioningService,
+                                  @Value("${wallet.provisioning.max-count:10000}") int maxProvisionCount) {
+        this.provisioningService = provisioningService;
+        this.maxProvisionCount = maxProvisionCount;
+    }
+
+    /**
+     * Creates {@code count} new wallets and streams them as NDJSON ({"mnemonic":"...","address":"..."} per line).
+     * The response carries secrets: it is marked no-store and its content is never logged.
+     */
+    @PostMapping("/provision")
+    public ResponseEntity<StreamingResponseBody> provision(@RequestBody ProvisionWalletsRequest request) {
+        int count = request.count() != null ? request.count() : 0;
+        if (count <= 0 || count > maxProvisionCount) {
+            throw ApiException.badRequest("COUNT_INVALID", "count must be between 1 and " + maxProvisionCount);
+        }
+
+        Script.ScriptType scriptType = AddressController.parseScriptType(request.scriptType());
+        if (scriptType == null) {
+            throw ApiException.badRequest("SCRIPT_TYPE_INVALID", "scriptType must be P2PKH or P2WPKH");
+        }
+        String passphrase = request.passphrase() != null ? request.passphrase() : "";
+
+        StreamingResponseBody body = outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                // Palavras BIP-39 (a-z) e endereços base58/bech32: não precisam de escape JSON
+                provisioningService.provision(count, passphrase, scriptType, wallet -> {
+                    try {
+                        writer.write("{\"mnemonic\":\"");
+                        writer.write(wallet.mnemonic());
+                        writer.write("\",\"address\":\"");
+                        writer.write(wallet.receiveAddress().toString());
+                        writer.write("\"}\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+            } catch (UncheckedIOException e) {
+                logger.debug("Wallet provisioning stream aborted by client: {}", e.getMessage());
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .cacheControl(CacheControl.noStore())
+                .body(body);
+    }
+}
@@ -0,0 +1,59 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.PsbtSignRequest;
+import com.mcd.wallet.controller.dto.PsbtSignResponse;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.TransactionSigningService;
+import com.mcd.wallet.service.WalletKeySession;
+import com.mcd.wallet.service.model.PsbtSignResult;
+import org.bitcoinj.wallet.Wallet;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Base64;
+
+/**
+ * Signs externally built transactions with the service wallet's keys.
+ */
+@RestController
+@RequestMapping("/api/wallet/psbt")
+public class PsbtController {
+
+    private final BlockchainService blockchainService;
+    private final WalletKeySession keySession;
+    private final TransactionSigningService signingService;
+
+    public PsbtController(BlockchainService blockchainService, WalletKeySession keySession,
+                          TransactionSigningService signingService) {
+        this.blockchainService = blockchainService;
+        this.keySession = keySession;
+        this.signingService = signingService;
+    }
+
+    /**
+     * Takes a base64 BIP-174 PSBT and returns it with a partial signature on every SIGHASH_ALL input that spends a
+     * wallet P2PKH, P2PK or P2WPKH output; the UTXO records must be present. Finalizing and broadcasting are left
+     * to the caller. 423 while an encrypted wallet is locked.
+     */
+    @PostMapping("/sign")
+    public PsbtSignResponse sign(@RequestBody PsbtSignRequest request) {
+        if (request.psbt() == null || request.psbt().isBlank()) {
+            throw ApiException.badRequest("PSBT_INVALID", "PSBT cannot be empty");
+        }
+        byte[] psbt;
+        try {
+            psbt = Base64.getDecoder().decode(request.psbt().trim());
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("PSBT_INVALID", "PSBT must be base64");
+        }
+        Wallet wallet = blockchainService.requireWalletAppKit().wallet();
+        try {
+            PsbtSignResult result = keySession.withKey(key -> signingService.signPsbt(psbt, wallet, key));
+            return PsbtSignResponse.from(result);
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("PSBT_INVALID", e.getMessage());
+        }
+    }
+}
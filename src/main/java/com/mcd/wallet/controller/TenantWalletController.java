@@ -0,0 +1,141 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.ManagedWalletResponse;
+import com.mcd.wallet.controller.dto.SendBitcoinRequest;
+import com.mcd.wallet.controller.dto.WalletSummaryResponse;
+import com.mcd.wallet.service.WalletRegistry;
+import com.mcd.wallet.service.model.ManagedWallet;
+import com.mcd.wallet.service.model.TransactionRecord;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.wallet.Wallet;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Per-tenant wallet API, routed by wallet id. Wallets are loaded on demand by {@link WalletRegistry} and pinned
+ * while a call uses them; calls that take the wallet lock run on the bounded wallet executor.
+ */
+@RestController
+@RequestMapping("/api/wallets")
+public class TenantWalletController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final WalletRegistry walletRegistry;
+    private final Executor walletExecutor;
+
+    public TenantWalletController(WalletRegistry walletRegistry, @Qualifier("walletExecutor") Executor walletExecutor) {
+        this.walletRegistry = walletRegistry;
+        this.walletExecutor = walletExecutor;
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<ManagedWalletResponse>> createWallet() {
+        return CompletableFuture.supplyAsync(
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(ManagedWalletResponse.from(walletRegistry.create())),
+                walletExecutor);
+    }
+
+    @GetMapping("/{walletId}")
+    public CompletableFuture<ManagedWalletResponse> getWallet(@PathVariable String walletId) {
+        return withWallet(walletId, ManagedWalletResponse::from);
+    }
+
+    @GetMapping("/{walletId}/balance")
+    public CompletableFuture<String> getBalance(@PathVariable String walletId) {
+        return withWallet(walletId,
+                managed -> managed.wallet().getBalance(Wallet.BalanceType.AVAILABLE).toFriendlyString());
+    }
+
+    @GetMapping("/{walletId}/summary")
+    public CompletableFuture<WalletSummaryResponse> getSummary(@PathVariable String walletId) {
+        return withWallet(walletId, managed -> {
+            Wallet wallet = managed.wallet();
+            return WalletSummaryResponse.from(WalletSnapshot.of(wallet, wallet.getTransactions(false).size()));
+        });
+    }
+
+    @GetMapping("/{walletId}/receive-address")
+    public CompletableFuture<String> getReceiveAddress(@PathVariable String walletId) {
+        return withWallet(walletId, managed -> managed.wallet().freshReceiveAddress().toString());
+    }
+
+    /**
+     * Newest {@code limit} transactions of the wallet.
+     */
+    @GetMapping("/{walletId}/transactions")
+    public CompletableFuture<List<TransactionRecord>> getTransactions(@PathVariable String walletId,
+                                                                      @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw ApiException.badRequest("LIMIT_INVALID", "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return withWallet(walletId, managed -> {
+            Wallet wallet = managed.wallet();
+            return wallet.getRecentTransactions(limit, false).stream()
+                    .map(tx -> TransactionRecord.of(wallet, tx))
+                    .toList();
+        });
+    }
+
+    /**
+     * Sends a single payment from the tenant wallet right away and returns its transaction id.
+     */
+    @PostMapping("/{walletId}/send")
+    public CompletableFuture<Map<String, String>> send(@PathVariable String walletId,
+                                                       @Valid @RequestBody SendBitcoinRequest request) {
+        Coin value = parseAmount(request.amount());
+        return withWallet(walletId, managed -> {
+            Address toAddress;
+            try {
+                toAddress = Address.fromString(managed.wallet().getNetworkParameters(), request.address());
+            } catch (IllegalArgumentException e) {
+                throw ApiException.badRequest("ADDRESS_INVALID", "Invalid bitcoin address");
+            }
+            try {
+                Wallet.SendResult result = walletRegistry.send(managed, toAddress, value);
+                return Map.of("txId", result.tx.getTxId().toString());
+            } catch (InsufficientMoneyException e) {
+                throw ApiException.badRequest("INSUFFICIENT_FUNDS", "Insufficient wallet balance");
+            }
+        });
+    }
+
+    // Carteira fixada durante a ação: não é descarregada no meio de um envio
+    private <T> CompletableFuture<T> withWallet(String walletId, Function<ManagedWallet, T> action) {
+        return walletRegistry.withWallet(walletId, action, walletExecutor)
+                .thenApply(result -> result.orElseThrow(
+                        () -> new ApiException(HttpStatus.NOT_FOUND, "WALLET_NOT_FOUND", "Unknown wallet id")));
+    }
+
+    private static Coin parseAmount(String amount) {
+        Coin value;
+        try {
+            value = Coin.parseCoin(amount == null ? "" : amount);
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("AMOUNT_INVALID", "Invalid amount format");
+        }
+        if (value.isLessThan(Transaction.MIN_NONDUST_OUTPUT)) {
+            throw ApiException.badRequest("AMOUNT_INVALID", "Amount is below the dust limit");
+        }
+        return value;
+    }
+}
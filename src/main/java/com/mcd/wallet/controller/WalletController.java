@@ -2,26 +2,51 @@ package com.mcd.wallet.controller;
 
 import com.mcd.wallet.controller.dto.ErrorResponse;
 import com.mcd.wallet.controller.dto.SendBitcoinRequest;
-import com.mcd.wallet.controller.dto.TransactionResponse;
+import com.mcd.wallet.controller.dto.PaymentResponse;
+import com.mcd.wallet.controller.dto.WalletSummaryResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.InsufficientFundsException;
+import com.mcd.wallet.service.PaymentService;
+import com.mcd.wallet.service.TransactionIndex;
+import com.mcd.wallet.service.WalletEventStream;
+import com.mcd.wallet.service.WalletLockedException;
+import com.mcd.wallet.service.WalletNotReadyException;
+import com.mcd.wallet.service.model.Payment;
+import com.mcd.wallet.service.model.TransactionRecord;
+import com.mcd.wallet.service.model.WalletEvent;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Coin;
-import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.TransactionOutput;
 import org.bitcoinj.wallet.Wallet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
-import java.util.List;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/wallet")
@@ -29,29 +54,218 @@ public class WalletController {
 
     private static final Logger logger = LoggerFactory.getLogger(WalletController.class);
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Duration EVENT_KEEPALIVE = Duration.ofSeconds(15);
+
     private final BlockchainService blockchainService;
+    private final TransactionIndex transactionIndex;
+    private final WalletEventStream walletEventStream;
+    private final PaymentService paymentService;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final Executor walletExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Duration eventStreamTimeout;
 
     @Autowired
-    public WalletController(BlockchainService blockchainService) {
+    public WalletController(BlockchainService blockchainService, TransactionIndex transactionIndex,
+                            WalletEventStream walletEventStream, PaymentService paymentService,
+                            ObjectMapper objectMapper, @Qualifier("walletExecutor") Executor walletExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${wallet.events.stream-timeout:30m}") Duration eventStreamTimeout) {
         this.blockchainService = blockchainService;
+        this.transactionIndex = transactionIndex;
+        this.walletEventStream = walletEventStream;
+        this.paymentService = paymentService;
+        this.objectMapper = objectMapper;
+        // Mesmos módulos e configuração do mapper JSON, só o formato de saída muda
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.walletExecutor = walletExecutor;
+        this.meterRegistry = meterRegistry;
+        this.eventStreamTimeout = eventStreamTimeout;
     }
 
+    /**
+     * Available balance. Read endpoints carry the wallet state version as a strong ETag; a matching
+     * {@code If-None-Match} gets 304 without rendering anything.
+     */
     @GetMapping("/balance")
-    public String getBalance() {
-        Wallet wallet = blockchainService.getWalletAppKit().wallet();
-        return wallet.getBalance().toFriendlyString();
+    public String getBalance(ServletWebRequest request) {
+        WalletSnapshot snapshot = readySnapshot();
+        if (notModified(request, blockchainService.stateTag(snapshot))) {
+            return null;
+        }
+        return snapshot.availableBalance().toFriendlyString();
+    }
+
+    /**
+     * Issues a fresh receive address. Takes the wallet lock (and may extend the key chain), so it runs on the
+     * bounded wallet executor; 503 when that executor is saturated.
+     */
+    @GetMapping("/receive-address")
+    public CompletableFuture<String> getReceiveAddress() {
+        return CompletableFuture.supplyAsync(
+                () -> blockchainService.requireWalletAppKit().wallet().freshReceiveAddress().toString(),
+                walletExecutor);
+    }
+
+    /**
+     * Wallet summary as JSON, or CBOR when {@code application/cbor} is accepted at least as strongly as JSON.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<WalletSummaryResponse> getSummary(ServletWebRequest request) {
+        WalletSnapshot snapshot = readySnapshot();
+        MediaType mediaType = negotiate(request);
+        if (notModified(request, snapshot, mediaType)) {
+            return null;
+        }
+        return ResponseEntity.ok().contentType(mediaType).body(WalletSummaryResponse.from(snapshot));
     }
 
+    /**
+     * Newest-first page of wallet transactions: {"items":[...],"nextCursor":"..."}, as JSON or, when
+     * {@code application/cbor} is accepted at least as strongly as JSON, the same structure in CBOR.
+     * Pass {@code nextCursor} back as {@code cursor} for the next page; it is null on the last page.
+     */
     @GetMapping("/transactions")
-    public List<String> getTransactions() {
-        Wallet wallet = blockchainService.getWalletAppKit().wallet();
-        return wallet.getTransactions(false).stream()
-                .map(tx -> "TXID: " + tx.getTxId() + " | Valor: " + tx.getValue(wallet).toFriendlyString())
-                .collect(Collectors.toList());
+    public ResponseEntity<StreamingResponseBody> getTransactions(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            ServletWebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw ApiException.badRequest("LIMIT_INVALID", "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // Versão lida antes da página: o índice só pode estar à frente dela, nunca atrás
+        WalletSnapshot snapshot = readySnapshot();
+        MediaType mediaType = negotiate(request);
+        if (notModified(request, snapshot, mediaType)) {
+            return null;
+        }
+
+        TransactionIndex.Page page;
+        try {
+            page = transactionIndex.page(cursor, from, to, limit);
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("CURSOR_INVALID", "Invalid cursor");
+        }
+
+        ObjectMapper mapper = mediaType.equals(MediaType.APPLICATION_CBOR) ? cborMapper : objectMapper;
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator json = mapper.getFactory().createGenerator(outputStream)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                json.writeStartObject();
+                json.writeArrayFieldStart("items");
+                for (TransactionRecord txRecord : page.items()) {
+                    json.writeObject(txRecord);
+                }
+                json.writeEndArray();
+                json.writeStringField("nextCursor", page.nextCursor());
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    // JSON por padrão; CBOR só se pedido explicitamente com qualidade >= à do JSON (curingas contam como JSON)
+    private static MediaType negotiate(ServletWebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        double cbor = 0;
+        double json = 0;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                    cbor = Math.max(cbor, type.getQualityValue());
+                } else if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    json = Math.max(json, type.getQualityValue());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        return cbor > 0 && cbor >= json ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON;
     }
 
+    // Cada representação tem seu próprio ETag forte; Vary avisa caches de que a escolha depende do Accept
+    private boolean notModified(ServletWebRequest request, WalletSnapshot snapshot, MediaType mediaType) {
+        request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String tag = blockchainService.stateTag(snapshot);
+        return notModified(request, mediaType.equals(MediaType.APPLICATION_CBOR) ? tag + "-cbor" : tag);
+    }
+
+    private static boolean notModified(ServletWebRequest request, String etag) {
+        // Sem isso o Spring Security responde no-store e nenhum cliente HTTP guardaria a resposta para revalidar
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return request.checkNotModified(etag);
+    }
+
+    /**
+     * Server-sent events: {@code balance}, {@code transaction} (new, sent or first confirmation) and
+     * {@code deposit} (watched address paid). A reconnecting client sends {@code Last-Event-ID} (or the
+     * {@code lastEventId} parameter) and receives the events it missed; {@code reset} means they are gone and the
+     * client should reload {@code /summary} and {@code /transactions}. Slow clients are disconnected and resume
+     * the same way.
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventIdHeader,
+                                   @RequestParam(required = false) Long lastEventId) {
+        WalletEventStream.Subscription subscription =
+                walletEventStream.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        SseEmitter emitter = new SseEmitter(eventStreamTimeout.toMillis());
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        // Uma virtual thread por assinante: bloqueia na fila e no socket sem ocupar o pool da carteira
+        Thread.ofVirtual().name("wallet-events").start(() -> pushEvents(subscription, emitter));
+        return emitter;
+    }
+
+    private void pushEvents(WalletEventStream.Subscription subscription, SseEmitter emitter) {
+        try {
+            while (!subscription.isClosed()) {
+                WalletEvent event = subscription.poll(EVENT_KEEPALIVE);
+                if (event != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.id()))
+                            .name(event.type())
+                            .data(event.data(), MediaType.APPLICATION_JSON));
+                } else if (!subscription.isClosed()) {
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectou ou o emitter expirou
+            subscription.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscription.close();
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Queues the payout and returns 202 with its payment id; it is sent with the next batch transaction.
+     * Poll {@code /payments/{id}} for the outcome.
+     */
     @PostMapping("/send")
     public ResponseEntity<?> sendTransaction(@Valid @RequestBody SendBitcoinRequest request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ResponseEntity<?> response = submitPayment(request);
+        sample.stop(Timer.builder("wallet.send.request")
+                .description("Validation and queueing of a send request")
+                .tag("status", Integer.toString(response.getStatusCode().value()))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        return response;
+    }
+
+    private ResponseEntity<?> submitPayment(SendBitcoinRequest request) {
         try {
             // Input validation
             if (request.address() == null || request.address().isEmpty()) {
@@ -64,7 +278,7 @@ public class WalletController {
                         .body(new ErrorResponse("AMOUNT_INVALID", "Amount cannot be empty"));
             }
 
-            Wallet wallet = blockchainService.getWalletAppKit().wallet();
+            Wallet wallet = blockchainService.requireWalletAppKit().wallet();
 
             // Parse and validate amount
             Coin value;
@@ -88,40 +302,48 @@ public class WalletController {
                         .body(new ErrorResponse("ADDRESS_INVALID", "Invalid bitcoin address"));
             }
 
-            // Check balance
-            if (wallet.getBalance().isLessThan(value)) {
+            // O limite de dust depende do tipo de script do destino
+            if (new TransactionOutput(wallet.getNetworkParameters(), null, value, toAddress).isDust()) {
                 return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("INSUFFICIENT_FUNDS", "Insufficient wallet balance"));
+                        .body(new ErrorResponse("AMOUNT_INVALID", "Amount is below the dust limit"));
             }
 
-            // Send with timeout
-            CompletableFuture<Wallet.SendResult> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return wallet.sendCoins(blockchainService.getWalletAppKit().peerGroup(), toAddress, value);
-                } catch (InsufficientMoneyException e) {
-                    throw new CompletionException(e);
-                }
-            });
-
-            Wallet.SendResult result = future.get(30, TimeUnit.SECONDS);
+            // Saldo reservado na fila: pagamentos já enfileirados contam contra o saldo disponível
+            Payment payment = paymentService.submit(toAddress, value);
+            return ResponseEntity.accepted().body(PaymentResponse.from(payment));
 
-            return ResponseEntity.ok(new TransactionResponse(
-                    result.tx.getTxId().toString(),
-                    value.toFriendlyString()
-            ));
+        } catch (InsufficientFundsException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("INSUFFICIENT_FUNDS", e.getMessage()));
 
-        } catch (TimeoutException e) {
-            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
-                    .body(new ErrorResponse("TIMEOUT", "Transaction timed out"));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorResponse("QUEUE_FULL", "Too many pending payments, try again later"));
+        } catch (WalletNotReadyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorResponse("SYNCING", e.getMessage()));
+        } catch (WalletLockedException e) {
+            return ResponseEntity.status(HttpStatus.LOCKED)
+                    .body(new ErrorResponse("WALLET_LOCKED", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error processing transaction", e);
-            if (e instanceof CompletionException ce && ce.getCause() instanceof InsufficientMoneyException) {
-                return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("INSUFFICIENT_FUNDS", "Insufficient wallet balance"));
-            }
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ErrorResponse("INTERNAL_ERROR", "An internal error occurred"));
         }
 
     }
+
+    private WalletSnapshot readySnapshot() {
+        if (!blockchainService.isWalletReady()) {
+            throw new WalletNotReadyException();
+        }
+        return blockchainService.getSnapshot();
+    }
+
+    @GetMapping("/payments/{paymentId}")
+    public PaymentResponse getPayment(@PathVariable String paymentId) {
+        return paymentService.find(paymentId)
+                .map(PaymentResponse::from)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "PAYMENT_NOT_FOUND", "Unknown payment id"));
     }
+}
@@ -0,0 +1,93 @@
+package com.mcd.wallet.controller;
+
+import com.mcd.wallet.controller.dto.WalletLockResponse;
+import com.mcd.wallet.controller.dto.WalletPasswordRequest;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.WalletKeySession;
+import org.bitcoinj.crypto.KeyCrypterException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Encryption of the service wallet's keys and the unlocked-key session used to sign sends.
+ */
+@RestController
+@RequestMapping("/api/wallet")
+public class WalletKeyController {
+
+    private final BlockchainService blockchainService;
+    private final WalletKeySession keySession;
+
+    public WalletKeyController(BlockchainService blockchainService, WalletKeySession keySession) {
+        this.blockchainService = blockchainService;
+        this.keySession = keySession;
+    }
+
+    @GetMapping("/lock")
+    public WalletLockResponse getLockState() {
+        blockchainService.requireWalletAppKit();
+        return lockState();
+    }
+
+    /**
+     * Encrypts the wallet's private keys with the password; sends are refused until {@code /unlock}.
+     */
+    @PostMapping("/encrypt")
+    public WalletLockResponse encrypt(@RequestBody WalletPasswordRequest request) throws IOException {
+        String password = requirePassword(request);
+        try {
+            keySession.encrypt(password);
+        } catch (IllegalStateException e) {
+            throw new ApiException(HttpStatus.CONFLICT, "WALLET_ENCRYPTED", e.getMessage());
+        }
+        return lockState();
+    }
+
+    /**
+     * Derives the key once and keeps it for {@code ttlSeconds} (server default and cap apply); sends sign with it.
+     */
+    @PostMapping("/unlock")
+    public WalletLockResponse unlock(@RequestBody WalletPasswordRequest request) {
+        String password = requirePassword(request);
+        Duration ttl = request.ttlSeconds() != null ? Duration.ofSeconds(request.ttlSeconds()) : null;
+        blockchainService.requireWalletAppKit();
+        if (!keySession.isEncrypted()) {
+            throw new ApiException(HttpStatus.CONFLICT, "WALLET_NOT_ENCRYPTED", "Wallet is not encrypted");
+        }
+        try {
+            keySession.unlock(password, ttl);
+        } catch (KeyCrypterException.InvalidCipherText e) {
+            throw new ApiException(HttpStatus.UNAUTHORIZED, "PASSWORD_INVALID", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("TTL_INVALID", e.getMessage());
+        }
+        return lockState();
+    }
+
+    @PostMapping("/lock")
+    public WalletLockResponse lock() {
+        blockchainService.requireWalletAppKit();
+        keySession.lock();
+        return lockState();
+    }
+
+    private WalletLockResponse lockState() {
+        Instant unlockedUntil = keySession.unlockedUntil().orElse(null);
+        return new WalletLockResponse(keySession.isEncrypted(), keySession.isLocked(), unlockedUntil);
+    }
+
+    private static String requirePassword(WalletPasswordRequest request) {
+        if (request.password() == null || request.password().isEmpty()) {
+            throw ApiException.badRequest("PASSWORD_INVALID", "Password cannot be empty");
+        }
+        return request.password();
+    }
+}
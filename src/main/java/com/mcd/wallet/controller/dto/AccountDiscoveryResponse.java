@@ -0,0 +1,28 @@
+package com.mcd.wallet.controller.dto;
+
+import com.mcd.wallet.service.model.DiscoveredChain;
+import com.mcd.wallet.service.model.DiscoveryResult;
+
+import java.util.List;
+
+public record AccountDiscoveryResponse(List<Chain> chains, int passes, long scriptsChecked, int scannedFromHeight,
+                                       long elapsedMillis) {
+
+    public static AccountDiscoveryResponse from(DiscoveryResult result) {
+        return new AccountDiscoveryResponse(
+                result.chains().stream().map(Chain::from).toList(),
+                result.passes(),
+                result.scriptsChecked(),
+                result.scannedFromHeight(),
+                result.elapsed().toMillis()
+        );
+    }
+
+    public record Chain(String scriptType, String path, int account, int chain, int usedCount, int lastUsedIndex) {
+
+        static Chain from(DiscoveredChain chain) {
+            return new Chain(chain.scriptType().name(), chain.path(), chain.account(), chain.chain(),
+                    chain.usedCount(), chain.lastUsedIndex());
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.mcd.wallet.controller.dto;
+
+public record BulkAddressRequest(String mnemonic, String passphrase, Integer fromIndex, Integer count,
+                                 String scriptType) {
+}
@@ -0,0 +1,6 @@
+package com.mcd.wallet.controller.dto;
+
+import java.util.List;
+
+public record DiscoverAccountsRequest(String mnemonic, String passphrase, List<String> scriptTypes, Integer fromHeight) {
+}
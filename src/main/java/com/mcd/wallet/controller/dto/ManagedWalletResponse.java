@@ -0,0 +1,15 @@
+package com.mcd.wallet.controller.dto;
+
+import com.mcd.wallet.service.model.ManagedWallet;
+
+public record ManagedWalletResponse(String walletId, String receiveAddress, int lastBlockHeight, boolean stale) {
+
+    public static ManagedWalletResponse from(ManagedWallet managed) {
+        return new ManagedWalletResponse(
+                managed.id(),
+                managed.wallet().currentReceiveAddress().toString(),
+                managed.wallet().getLastBlockSeenHeight(),
+                managed.stale()
+        );
+    }
+}
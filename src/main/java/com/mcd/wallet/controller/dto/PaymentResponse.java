@@ -0,0 +1,23 @@
+package com.mcd.wallet.controller.dto;
+
+import com.mcd.wallet.service.model.Payment;
+
+import java.time.Instant;
+
+public record PaymentResponse(String paymentId, String address, String amount, String status, String txId,
+                              Integer outputIndex, String error, Instant createdAt, Instant updatedAt) {
+
+    public static PaymentResponse from(Payment payment) {
+        return new PaymentResponse(
+                payment.id(),
+                payment.address().toString(),
+                payment.amount().toPlainString(),
+                payment.status().name(),
+                payment.txId(),
+                payment.outputIndex(),
+                payment.error(),
+                payment.createdAt(),
+                payment.updatedAt()
+        );
+    }
+}
@@ -0,0 +1,4 @@
+package com.mcd.wallet.controller.dto;
+
+public record ProvisionWalletsRequest(Integer count, String passphrase, String scriptType) {
+}
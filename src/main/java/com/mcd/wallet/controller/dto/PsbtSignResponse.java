@@ -0,0 +1,13 @@
+package com.mcd.wallet.controller.dto;
+
+import com.mcd.wallet.service.model.PsbtSignResult;
+
+import java.util.Base64;
+import java.util.List;
+
+public record PsbtSignResponse(String psbt, List<Integer> signedInputs) {
+
+    public static PsbtSignResponse from(PsbtSignResult result) {
+        return new PsbtSignResponse(Base64.getEncoder().encodeToString(result.psbt()), result.signedInputs());
+    }
+}
@@ -1,4 +0,0 @@
-package com.mcd.wallet.controller.dto;
-
-public record TransactionResponse(String txId, String amount) {
-}
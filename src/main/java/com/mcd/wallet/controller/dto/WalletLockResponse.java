@@ -0,0 +1,6 @@
+package com.mcd.wallet.controller.dto;
+
+import java.time.Instant;
+
+public record WalletLockResponse(boolean encrypted, boolean locked, Instant unlockedUntil) {
+}
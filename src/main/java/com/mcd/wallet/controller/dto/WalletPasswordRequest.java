@@ -0,0 +1,4 @@
+package com.mcd.wallet.controller.dto;
+
+public record WalletPasswordRequest(String password, Long ttlSeconds) {
+}
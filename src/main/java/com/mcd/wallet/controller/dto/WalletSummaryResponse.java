@@ -0,0 +1,20 @@
+package com.mcd.wallet.controller.dto;
+
+import com.mcd.wallet.service.model.WalletSnapshot;
+
+import java.time.Instant;
+
+public record WalletSummaryResponse(String availableBalance, String estimatedBalance, int txCount, int utxoCount,
+                                    int lastBlockHeight, Instant updatedAt) {
+
+    public static WalletSummaryResponse from(WalletSnapshot snapshot) {
+        return new WalletSummaryResponse(
+                snapshot.availableBalance().toPlainString(),
+                snapshot.estimatedBalance().toPlainString(),
+                snapshot.txCount(),
+                snapshot.utxoCount(),
+                snapshot.lastBlockHeight(),
+                snapshot.updatedAt()
+        );
+    }
+}
@@ -0,0 +1,4 @@
+package com.mcd.wallet.controller.dto;
+
+public record WatchedAddressResponse(String address, int derivationIndex) {
+}
@@ -0,0 +1,4 @@
+package com.mcd.wallet.controller.dto;
+
+public record WatchedAddressesResponse(int added, int watched, long memoryBytes, boolean filterMatchAll) {
+}
@@ -0,0 +1,18 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.DiscoveryResult;
+import org.bitcoinj.script.Script;
+
+import java.util.List;
+
+public interface AccountDiscoveryService {
+
+    /**
+     * Restore-time discovery: finds the used accounts and receive/change chains of {@code seed} for each script
+     * type (BIP-44 P2PKH, BIP-84 P2WPKH, BIP-86 P2TR), stopping each chain after {@code wallet.discovery.gap-limit}
+     * unused addresses and each script type after {@code wallet.discovery.account-lookahead} unused accounts.
+     * The chain data is read once by the {@link ScriptActivitySource}; all open chains are then probed together,
+     * in memory, one derivation pass per round.
+     */
+    DiscoveryResult discover(byte[] seed, List<Script.ScriptType> scriptTypes, int fromHeight);
+}
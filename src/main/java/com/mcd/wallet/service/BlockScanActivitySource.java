@@ -0,0 +1,111 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.ScriptActivity;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.BlockStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link ScriptActivitySource} that walks the local SPV block store back to {@code fromHeight} and downloads
+ * those full blocks from the download peer, pipelined, once per discovery, keeping the fingerprint of every
+ * output script. The header store only keeps the most recent blocks, so older history is out of reach of this
+ * source; the range actually scanned is reported in the result.
+ */
+@Service
+public class BlockScanActivitySource implements ScriptActivitySource {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockScanActivitySource.class);
+
+    private static final int BLOCKS_IN_FLIGHT = 32;
+    private static final long BLOCK_TIMEOUT_SECONDS = 60;
+
+    private final BlockchainService blockchainService;
+
+    public BlockScanActivitySource(BlockchainService blockchainService) {
+        this.blockchainService = blockchainService;
+    }
+
+    @Override
+    public ScriptActivity scan(int fromHeight) {
+        WalletAppKit kit = blockchainService.requireWalletAppKit();
+        List<Sha256Hash> hashes = new ArrayList<>();
+        int scannedFrom = blockHashes(kit.store(), fromHeight, hashes);
+        Peer peer = kit.peerGroup().getDownloadPeer();
+        if (peer == null) {
+            throw new IllegalStateException("No peer connected to download blocks from");
+        }
+
+        long start = System.nanoTime();
+        long[] fingerprints = new long[4096];
+        int count = 0;
+        Deque<Future<Block>> inFlight = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < hashes.size() || !inFlight.isEmpty()) {
+                while (next < hashes.size() && inFlight.size() < BLOCKS_IN_FLIGHT) {
+                    inFlight.add(peer.getBlock(hashes.get(next++)));
+                }
+                Block block = inFlight.poll().get(BLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                for (Transaction tx : block.getTransactions()) {
+                    for (TransactionOutput output : tx.getOutputs()) {
+                        if (count == fingerprints.length) {
+                            fingerprints = Arrays.copyOf(fingerprints, count * 2);
+                        }
+                        fingerprints[count++] = ScriptActivity.fingerprint(output.getScriptBytes());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Block scan interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Block download failed during scan", e);
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        log.debug("Scanned {} blocks from height {} ({} outputs) in {} ms", hashes.size(), scannedFrom, count,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new ScriptActivity(fingerprints, count, scannedFrom);
+    }
+
+    // Hashes de fromHeight até a ponta, do mais antigo para o mais novo; devolve a altura do primeiro
+    private int blockHashes(BlockStore store, int fromHeight, List<Sha256Hash> hashes) {
+        int scannedFrom;
+        try {
+            StoredBlock cursor = store.getChainHead();
+            scannedFrom = cursor.getHeight() + 1;
+            while (cursor != null && cursor.getHeight() >= Math.max(fromHeight, 1)) {
+                hashes.add(cursor.getHeader().getHash());
+                scannedFrom = cursor.getHeight();
+                cursor = cursor.getPrev(store);
+            }
+        } catch (BlockStoreException e) {
+            throw new IllegalStateException("Block store unreadable", e);
+        }
+        if (scannedFrom > Math.max(fromHeight, 1)) {
+            log.warn("Block store only reaches back to height {}; requested {}", scannedFrom, fromHeight);
+        }
+        Collections.reverse(hashes);
+        return scannedFrom;
+    }
+}
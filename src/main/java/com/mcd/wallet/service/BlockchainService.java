@@ -1,83 +1,438 @@
 package com.mcd.wallet.service;
 
+import com.mcd.wallet.service.model.BalanceChange;
+import com.mcd.wallet.service.model.ChainEvent;
+import com.mcd.wallet.service.model.TransactionRecord;
+import com.mcd.wallet.service.model.WalletEvent;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.bitcoinj.core.CheckpointManager;
+import org.bitcoinj.core.Context;
 import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerAddress;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
 import org.bitcoinj.core.listeners.DownloadProgressTracker;
 import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.KeyChainGroupStructure;
+import org.bitcoinj.wallet.Wallet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
 import java.io.File;
-import java.net.InetAddress;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class BlockchainService {
 
     private final NetworkParameters params;
+    private final Context context;
+    private final TransactionIndex transactionIndex;
+    private final UtxoIndex utxoIndex;
+    private final WatchedAddressIndex watchedAddressIndex;
+    private final WalletJournal walletJournal;
+    private final WalletEventStream walletEventStream;
+    private final ChainEventBus chainEventBus;
+    private final SyncMonitor syncMonitor;
+    private final ResourceLoader resourceLoader;
+    private final File dataDirectory;
+    private final String checkpoints;
+    private final List<String> peers;
+    private final boolean bloomFiltering;
+    private final CompactFilterSync compactFilterSync;
+    private final boolean compactFilters;
+    private final boolean journalEnabled;
     private WalletAppKit kit;
+    private volatile Wallet wallet;
+    // Altura da confirmação já publicada por transação; só acessado na user thread do bitcoinj
+    private final Map<Sha256Hash, Integer> confirmationsPublished = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Sha256Hash, Integer> eldest) {
+            return size() > CONFIRMATIONS_TRACKED;
+        }
+    };
+    private volatile WalletSnapshot snapshot = WalletSnapshot.EMPTY;
+    private volatile boolean walletReady;
+    private volatile long walletReadyMillis = -1;
+    private final AtomicBoolean snapshotRefreshPending = new AtomicBoolean();
+    // Distingue versões deste processo das de um processo anterior (a versão recomeça do zero)
+    private final String stateEpoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    // Só acessados pela thread chain-events
+    private int blocksSinceProgressLog;
+    private long lastProgressLogNanos = System.nanoTime();
     private static final Logger log = LoggerFactory.getLogger(BlockchainService.class);
+    private static final Duration PROGRESS_LOG_INTERVAL = Duration.ofSeconds(10);
+    private static final int CONFIRMATIONS_TRACKED = 4096;
 
-    public BlockchainService(NetworkParameters params) {
+    public BlockchainService(NetworkParameters params, Context context, TransactionIndex transactionIndex, UtxoIndex utxoIndex,
+                             WatchedAddressIndex watchedAddressIndex, WalletJournal walletJournal, WalletEventStream walletEventStream, ChainEventBus chainEventBus,
+                             SyncMonitor syncMonitor, MeterRegistry meterRegistry, ResourceLoader resourceLoader,
+                             @Value("${bitcoin.data-directory:}") String dataDirectory,
+                             @Value("${bitcoin.checkpoints:}") String checkpoints,
+                             @Value("${bitcoin.peers:}") List<String> peers,
+                             @Value("${bitcoin.bloom-filtering:true}") boolean bloomFiltering,
+                             CompactFilterSync compactFilterSync,
+                             @Value("${bitcoin.sync-mode:bloom}") String syncMode,
+                             @Value("${wallet.journal.enabled:true}") boolean journalEnabled) {
         this.params = params;
+        this.context = context;
+        this.transactionIndex = transactionIndex;
+        this.utxoIndex = utxoIndex;
+        this.watchedAddressIndex = watchedAddressIndex;
+        this.walletJournal = walletJournal;
+        this.walletEventStream = walletEventStream;
+        this.chainEventBus = chainEventBus;
+        this.syncMonitor = syncMonitor;
+        this.resourceLoader = resourceLoader;
+        this.dataDirectory = new File(dataDirectory.isEmpty() ? "./wallet-data-" + params.getId() : dataDirectory);
+        this.checkpoints = checkpoints;
+        this.peers = peers;
+        this.bloomFiltering = bloomFiltering;
+        this.compactFilterSync = compactFilterSync;
+        this.compactFilters = switch (syncMode) {
+            case "bloom" -> false;
+            case "filters" -> true;
+            default -> throw new IllegalArgumentException("Unknown bitcoin.sync-mode: " + syncMode + " (bloom or filters)");
+        };
+        this.journalEnabled = journalEnabled;
+        Gauge.builder("wallet.transactions", this, service -> service.getSnapshot().txCount())
+                .description("Transactions in the wallet")
+                .register(meterRegistry);
+        Gauge.builder("wallet.utxos", this, service -> service.getSnapshot().utxoCount())
+                .description("Unspent outputs owned by the wallet")
+                .register(meterRegistry);
+        TimeGauge.builder("application.wallet.ready.time", this, TimeUnit.MILLISECONDS, service -> service.walletReadyMillis)
+                .description("Time since JVM start until the wallet balance was first available (-1 while starting)")
+                .register(meterRegistry);
     }
 
     public WalletAppKit getWalletAppKit() {
         return kit;
     }
 
+    /**
+     * The kit, once the wallet is loaded and its first snapshot published.
+     *
+     * @throws WalletNotReadyException while the wallet service is still starting
+     */
+    public WalletAppKit requireWalletAppKit() {
+        if (!walletReady) {
+            throw new WalletNotReadyException();
+        }
+        return kit;
+    }
+
+    public boolean isWalletReady() {
+        return walletReady;
+    }
+
+    /**
+     * Writes the full wallet file now, for changes the journal does not record (e.g. key encryption).
+     *
+     * @throws IOException when the wallet file was not written
+     */
+    public void saveWallet() throws IOException {
+        if (!walletReady) {
+            throw new WalletNotReadyException();
+        }
+        if (journalEnabled) {
+            walletJournal.compact();
+        } else {
+            wallet.saveToFile(new File(dataDirectory, "wallet.wallet"));
+        }
+    }
+
+    public File getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * Latest wallet read model; a single volatile read, never blocks on the wallet lock.
+     */
+    public WalletSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Validator of the wallet state in {@code snapshot}: changes whenever a new snapshot is published and on
+     * every restart, so it can be served as a strong ETag.
+     */
+    public String stateTag(WalletSnapshot snapshot) {
+        return stateEpoch + "-" + snapshot.version();
+    }
+
+    /**
+     * Starts the WalletAppKit in the background and returns right away: the application context (and the
+     * derivation endpoints) don't wait for the wallet file, the block store or peers. Chain-dependent calls
+     * get {@link WalletNotReadyException} until {@link #isWalletReady()}.
+     */
     @PostConstruct
-    public void start() {
-        File walletDir = new File("./wallet-data-" + params.getId());
+    public void start() throws IOException {
+        File walletFile = new File(dataDirectory, "wallet.wallet");
+        File journalFile = new File(dataDirectory, "wallet.journal");
+        kit = new WalletAppKit(context, Script.ScriptType.P2PKH, KeyChainGroupStructure.DEFAULT, dataDirectory, "wallet") {
+            @Override
+            protected void startUp() throws Exception {
+                // Journal de um desligamento não limpo: aplicado ao snapshot antes da carteira ser carregada
+                walletJournal.recover(params, walletFile, journalFile);
+                super.startUp();
+            }
+
+            @Override
+            protected void setupAutoSave(Wallet wallet) {
+                if (!journalEnabled) {
+                    super.setupAutoSave(wallet);
+                }
+            }
+
+            @Override
+            protected PeerGroup createPeerGroup() {
+                return compactFilters ? compactFilterSync.createPeerGroup(vChain) : super.createPeerGroup();
+            }
 
-        kit = new WalletAppKit(params, walletDir, "wallet") {
             @Override
             protected void onSetupCompleted() {
+                if (journalEnabled) {
+                    try {
+                        walletJournal.start(wallet(), walletFile, journalFile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (compactFilters) {
+                        walletJournal.follow(compactFilterSync);
+                    } else {
+                        walletJournal.follow(chain());
+                    }
+                }
+                if (compactFilters) {
+                    compactFilterSync.start(wallet(), chain(), peerGroup()); // blocos só pelos filtros compactos
+                } else if (!bloomFiltering) {
+                    peerGroup().setBloomFilteringEnabled(false);
+                }
                 log.info("Wallet setup complete ({})", params.getId());
             }
         };
 
         kit.setBlockingStartup(false);
+        InputStream checkpointStream = openCheckpoints();
+        if (checkpointStream != null) {
+            kit.setCheckpoints(checkpointStream); // só usado quando o block store ainda não existe
+        }
+        PeerAddress[] peerNodes = peers.stream()
+                .filter(peer -> !peer.isBlank())
+                .map(this::peerAddress)
+                .toArray(PeerAddress[]::new);
+        if (peerNodes.length > 0) {
+            kit.setPeerNodes(peerNodes); // em vez da descoberta por DNS
+        }
+        kit.addListener(new com.google.common.util.concurrent.Service.Listener() {
+            @Override
+            public void running() {
+                onWalletLoaded();
+            }
+
+            @Override
+            public void failed(com.google.common.util.concurrent.Service.State from, Throwable failure) {
+                log.error("Wallet service failed to start", failure);
+            }
+        }, MoreExecutors.directExecutor());
         kit.startAsync();
-        kit.awaitRunning();
 
-        String networkName = params.getId().contains("test") ? "testnet"
-                : params.getId().contains("regtest") ? "regtest"
+        String networkName = params.getId().contains("regtest") ? "regtest"
+                : params.getId().contains("test") ? "testnet"
                 : "mainnet";
+        log.info("Starting wallet service for Bitcoin {} in the background", networkName);
+        log.info("Wallet data directory: {}", dataDirectory.getAbsolutePath());
+    }
+
+    private void onWalletLoaded() {
+        Context.propagate(context);
+        log.info("Syncing with Bitcoin {}...", params.getId());
 
-        log.info("Syncing with Bitcoin {}...", networkName);
-        log.info("Wallet data directory: {}", walletDir.getAbsolutePath());
+        // Endereços de depósito observados fora da carteira (entram no filtro antes do download)
+        watchedAddressIndex.addMatchListener(match -> walletEventStream.publish(WalletEvent.DEPOSIT, match));
+        watchedAddressIndex.bind(kit.chain(), kit.peerGroup());
 
         // Listener de progresso de sincronização
         kit.peerGroup().startBlockChainDownload(new DownloadProgressTracker() {
+            @Override
+            protected void progress(double pct, int blocksSoFar, Date date) {
+                syncMonitor.onProgress(pct);
+                super.progress(pct, blocksSoFar, date);
+            }
+
             @Override
             public void doneDownload() {
+                syncMonitor.onDownloadDone();
                 log.info("Blockchain sync complete!");
             }
         });
 
-        // Log de peers conectados
-        kit.peerGroup().addConnectedEventListener((peer, peerCount) -> {
-            log.info("Connected to peer: {} | Total peers: {}", peer.getAddress(), peerCount);
+        // Os listeners do bitcoinj só publicam no barramento; logs e métricas rodam na thread chain-events
+        chainEventBus.subscribe(ChainEvent.BlocksDownloaded.class, this::onBlocksDownloaded);
+        chainEventBus.subscribe(ChainEvent.PeerConnected.class, event -> {
+            syncMonitor.onPeerCountChanged(event.peerCount());
+            log.info("Connected to peer: {} | Total peers: {}", event.address(), event.peerCount());
         });
+        chainEventBus.subscribe(ChainEvent.PeerDisconnected.class,
+                event -> syncMonitor.onPeerCountChanged(event.peerCount()));
+        chainEventBus.subscribe(ChainEvent.CoinsReceived.class, event -> log.info("Coins received! TX: {} | New balance: {}",
+                event.txId(), event.newBalance().toFriendlyString()));
+        chainEventBus.subscribe(ChainEvent.CoinsSent.class, event -> log.info("Coins sent! TX: {} | New balance: {}",
+                event.txId(), event.newBalance().toFriendlyString()));
 
-        // Listener para novos blocos recebidos
-        kit.peerGroup().addBlocksDownloadedEventListener((peer, block, filteredBlock, blocksLeft) -> {
-            log.info("New block received! Hash: {} | Blocks left: {}", block.getHashAsString(), blocksLeft);
-        });
+        kit.peerGroup().addConnectedEventListener(Threading.SAME_THREAD, (peer, peerCount) ->
+                chainEventBus.publish(new ChainEvent.PeerConnected(peer.getAddress().toString(), peerCount)));
+        kit.peerGroup().addDisconnectedEventListener(Threading.SAME_THREAD, (peer, peerCount) ->
+                chainEventBus.publish(new ChainEvent.PeerDisconnected(peer.getAddress().toString(), peerCount)));
+        kit.peerGroup().addBlocksDownloadedEventListener(Threading.SAME_THREAD, (peer, block, filteredBlock, blocksLeft) ->
+                chainEventBus.blockDownloaded(block.getHashAsString(), blocksLeft));
+
+        // No modo filters os blocos chegam à carteira pela thread filter-sync, não pelos eventos de download
+        if (compactFilters) {
+            compactFilterSync.addSyncListener(height -> requestSnapshotRefresh());
+        }
+
+        bindWallet(kit.wallet());
+    }
+
+    /**
+     * Follows {@code wallet}: its events feed the stream and the indexes, and every change republishes the
+     * snapshot. Separate from {@link #onWalletLoaded()} so the snapshot can be exercised without a running kit.
+     */
+    void bindWallet(Wallet wallet) {
+        this.wallet = wallet;
 
         // Listener para transações recebidas
-        kit.wallet().addCoinsReceivedEventListener((wallet, tx, prevBalance, newBalance) -> {
-            log.info("Coins received! TX: {} | New balance: {}", tx.getHashAsString(), newBalance.toFriendlyString());
+        wallet.addCoinsReceivedEventListener((w, tx, prevBalance, newBalance) -> {
+            chainEventBus.publish(new ChainEvent.CoinsReceived(tx.getTxId().toString(), newBalance));
+            publishIfPending(w, tx);
+            requestSnapshotRefresh();
         });
 
         // Listener para transações enviadas
-        kit.wallet().addCoinsSentEventListener((wallet, tx, prevBalance, newBalance) -> {
-            log.info("Coins sent! TX: {} | New balance: {}", tx.getHashAsString(), newBalance.toFriendlyString());
+        wallet.addCoinsSentEventListener((w, tx, prevBalance, newBalance) -> {
+            chainEventBus.publish(new ChainEvent.CoinsSent(tx.getTxId().toString(), newBalance));
+            publishIfPending(w, tx);
+            requestSnapshotRefresh();
         });
+
+        // Reorganizações e mudanças de confiança também alteram saldo e altura
+        wallet.addReorganizeEventListener(w -> requestSnapshotRefresh());
+        // Novo melhor bloco: a altura do wallet muda mesmo sem transação nossa nele
+        wallet.addChangeEventListener(w -> requestSnapshotRefresh());
+        wallet.addTransactionConfidenceEventListener((w, tx) -> {
+            // Só a primeira confirmação vira evento; as demais mudam apenas a profundidade. O bitcoinj avisa
+            // profundidade 1 mais de uma vez (recebimento no bloco e novo melhor bloco): publica uma vez por altura
+            TransactionConfidence confidence = tx.getConfidence();
+            if (confidence.getDepthInBlocks() == 1) {
+                Integer height = confidence.getAppearedAtChainHeight();
+                if (!height.equals(confirmationsPublished.put(tx.getTxId(), height))) {
+                    walletEventStream.publish(WalletEvent.TRANSACTION, TransactionRecord.of(w, tx));
+                }
+            }
+            requestSnapshotRefresh();
+        });
+
+        // Índice de transações ordenado por data de atualização
+        transactionIndex.bind(wallet);
+        utxoIndex.bind(wallet);
+        requestSnapshotRefresh();
+    }
+
+    // Transação que já chegou num bloco vira evento uma vez só, pelo listener de confiança (profundidade 1)
+    private void publishIfPending(Wallet wallet, Transaction tx) {
+        if (tx.getConfidence().getConfidenceType() != TransactionConfidence.ConfidenceType.BUILDING) {
+            walletEventStream.publish(WalletEvent.TRANSACTION, TransactionRecord.of(wallet, tx));
+        }
+    }
+
+    /**
+     * Runs on the chain-events thread. During the initial download blocks are logged as one summary line per
+     * {@link #PROGRESS_LOG_INTERVAL}; once in sync ({@code blocksLeft == 0}) every new block is logged.
+     */
+    private void onBlocksDownloaded(ChainEvent.BlocksDownloaded event) {
+        syncMonitor.onBlocksDownloaded(event.count(), event.blocksLeft());
+        requestSnapshotRefresh();
+        blocksSinceProgressLog += event.count();
+        long now = System.nanoTime();
+        if (event.blocksLeft() == 0 || now - lastProgressLogNanos >= PROGRESS_LOG_INTERVAL.toNanos()) {
+            log.info("Received {} block(s) in {} ms | Last block: {} | Blocks left: {}", blocksSinceProgressLog,
+                    (now - lastProgressLogNanos) / 1_000_000, event.lastHash(), event.blocksLeft());
+            blocksSinceProgressLog = 0;
+            lastProgressLogNanos = now;
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot on bitcoinj's user thread. Bursts of events (e.g. confidence changes for every
+     * transaction on each new block) collapse into a single rebuild.
+     */
+    private void requestSnapshotRefresh() {
+        if (snapshotRefreshPending.compareAndSet(false, true)) {
+            Threading.USER_THREAD.execute(() -> {
+                snapshotRefreshPending.set(false);
+                Context.propagate(context);
+                WalletSnapshot previous = snapshot;
+                // Versão só avança aqui, depois dos listeners do TransactionIndex: um ETag nunca nomeia dados mais antigos
+                snapshot = WalletSnapshot.of(wallet, transactionIndex.size(), utxoIndex.size(), previous.version() + 1);
+                if (walletReady && balanceChanged(previous, snapshot)) {
+                    walletEventStream.publish(WalletEvent.BALANCE, BalanceChange.of(snapshot));
+                }
+                if (!walletReady) {
+                    walletReadyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+                    walletReady = true;
+                    log.info("Wallet balance available {} ms after JVM start", walletReadyMillis);
+                }
+            });
+        }
+    }
+
+    private static boolean balanceChanged(WalletSnapshot previous, WalletSnapshot current) {
+        return !previous.availableBalance().equals(current.availableBalance())
+                || !previous.estimatedBalance().equals(current.estimatedBalance());
+    }
+
+    // vazio: checkpoints da rede embutidos no bitcoinj (nenhum em regtest); "none": desativa; senão: recurso Spring
+    private InputStream openCheckpoints() throws IOException {
+        if (checkpoints.isEmpty()) {
+            return CheckpointManager.openStream(params);
+        }
+        if (checkpoints.equalsIgnoreCase("none")) {
+            return null;
+        }
+        return resourceLoader.getResource(checkpoints).getInputStream();
+    }
+
+    private PeerAddress peerAddress(String hostAndPort) {
+        HostAndPort peer = HostAndPort.fromString(hostAndPort).withDefaultPort(params.getPort());
+        return new PeerAddress(params, new InetSocketAddress(peer.getHost(), peer.getPort()));
     }
 
     @PreDestroy
@@ -88,6 +443,9 @@ public class BlockchainService {
                 kit.stopAsync();
                 kit.awaitTerminated(30, TimeUnit.SECONDS);
                 boolean terminated = kit.state() == com.google.common.util.concurrent.Service.State.TERMINATED;
+                if (journalEnabled) {
+                    walletJournal.close(terminated); // parada limpa: o kit acabou de salvar o snapshot completo
+                }
                 if (terminated) {
                     log.info("Serviço finalizado.");
                 } else {
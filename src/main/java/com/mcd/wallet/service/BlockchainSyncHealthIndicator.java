@@ -0,0 +1,33 @@
+package com.mcd.wallet.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/health} component "blockchainSync": {@code SYNCING} while the chain is being downloaded,
+ * {@code UP} once in sync. SYNCING maps to HTTP 200 (see {@code management.endpoint.health.status}).
+ */
+@Component
+public class BlockchainSyncHealthIndicator implements HealthIndicator {
+
+    public static final Status SYNCING = new Status("SYNCING", "Downloading blocks");
+
+    private final SyncMonitor syncMonitor;
+
+    public BlockchainSyncHealthIndicator(SyncMonitor syncMonitor) {
+        this.syncMonitor = syncMonitor;
+    }
+
+    @Override
+    public Health health() {
+        boolean inSync = syncMonitor.isInSync();
+        return Health.status(inSync ? Status.UP : SYNCING)
+                .withDetail("state", inSync ? "in sync" : "syncing")
+                .withDetail("blocksLeft", syncMonitor.blocksLeft())
+                .withDetail("blocksPerSecond", syncMonitor.blocksPerSecond())
+                .withDetail("peers", syncMonitor.connectedPeers())
+                .build();
+    }
+}
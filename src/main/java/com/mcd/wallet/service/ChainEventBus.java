@@ -0,0 +1,163 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.config.ContextThreadFactory;
+import com.mcd.wallet.service.model.ChainEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bitcoinj.core.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Moves listener work off bitcoinj's threads. Listeners registered with {@code Threading.SAME_THREAD} only
+ * publish here (a non-blocking offer into a bounded ring of {@code wallet.chain-events.capacity} slots); a
+ * single {@code chain-events} thread delivers the events to the subscribers in order.
+ * <p>
+ * Block downloads are coalesced: however many blocks arrive while the dispatcher is busy, subscribers get one
+ * {@link ChainEvent.BlocksDownloaded} carrying their count. When the ring is full other events are dropped
+ * (and counted) rather than blocking the peer thread.
+ */
+@Service
+public class ChainEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainEventBus.class);
+
+    // Marca na fila: "há blocos acumulados", lidos de pendingBlocks/latestBlock na entrega
+    private static final Object BLOCKS = new Object();
+
+    private final Context context;
+    private final ArrayBlockingQueue<Object> ring;
+    private final List<Subscriber<?>> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger pendingBlocks = new AtomicInteger();
+    private final AtomicBoolean blocksQueued = new AtomicBoolean();
+    private final Counter dropped;
+    private final Counter delivered;
+    private volatile LatestBlock latestBlock;
+    private ExecutorService dispatcher;
+
+    public ChainEventBus(Context context, MeterRegistry meterRegistry,
+                         @Value("${wallet.chain-events.capacity:4096}") int capacity) {
+        this.context = context;
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.dropped = Counter.builder("wallet.chain.events.dropped")
+                .description("Chain events dropped because the event ring was full")
+                .register(meterRegistry);
+        this.delivered = Counter.builder("wallet.chain.events.delivered")
+                .description("Chain events delivered to subscribers (coalesced block batches count once)")
+                .register(meterRegistry);
+        Gauge.builder("wallet.chain.events.backlog", ring, ArrayBlockingQueue::size)
+                .description("Chain events waiting for the dispatcher")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadExecutor(new ContextThreadFactory(context, "chain-events"));
+        dispatcher.execute(this::dispatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+            try {
+                dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Registers {@code consumer} for events of {@code type}; it runs on the dispatcher thread.
+     */
+    public <E extends ChainEvent> void subscribe(Class<E> type, Consumer<? super E> consumer) {
+        subscribers.add(new Subscriber<>(type, consumer));
+    }
+
+    /**
+     * Queues {@code event} without blocking; false (and counted) when the ring is full.
+     */
+    public boolean publish(ChainEvent event) {
+        if (!ring.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records a downloaded block; merged with the others not yet delivered. A repeat of the last hash is ignored.
+     */
+    public void blockDownloaded(String hash, int blocksLeft) {
+        LatestBlock previous = latestBlock;
+        if (previous != null && previous.hash().equals(hash)) {
+            // O PeerGroup do bitcoinj registra o listener duas vezes num peer que conecta durante o registro
+            return;
+        }
+        latestBlock = new LatestBlock(hash, blocksLeft);
+        pendingBlocks.incrementAndGet();
+        if (blocksQueued.compareAndSet(false, true) && !ring.offer(BLOCKS)) {
+            blocksQueued.set(false); // anel cheio: o próximo bloco tenta de novo, a contagem não se perde
+        }
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Object next;
+            try {
+                next = ring.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next == BLOCKS) {
+                blocksQueued.set(false);
+                int count = pendingBlocks.getAndSet(0);
+                if (count == 0) {
+                    continue; // já entregues junto com a marca anterior
+                }
+                LatestBlock latest = latestBlock;
+                next = new ChainEvent.BlocksDownloaded(count, latest.hash(), latest.blocksLeft());
+            }
+            deliver((ChainEvent) next);
+        }
+    }
+
+    private void deliver(ChainEvent event) {
+        for (Subscriber<?> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                log.error("Chain event subscriber failed on {}", event, e);
+            }
+        }
+        delivered.increment();
+    }
+
+    private record LatestBlock(String hash, int blocksLeft) {
+    }
+
+    private record Subscriber<E extends ChainEvent>(Class<E> type, Consumer<? super E> consumer) {
+
+        void accept(ChainEvent event) {
+            if (type.isInstance(event)) {
+                consumer.accept(type.cast(event));
+            }
+        }
+    }
+}
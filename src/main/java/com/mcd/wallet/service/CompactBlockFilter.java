@@ -0,0 +1,197 @@
+package com.mcd.wallet.service;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.core.VarInt;
+import org.bitcoinj.script.ScriptOpCodes;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * BIP-158 basic block filter: a Golomb-Rice coded set (P = 19, M = 784931) of the output scripts a block creates
+ * and the scripts its inputs spend, each hashed with SipHash-2-4 keyed by the block hash. Matching hashes the
+ * query scripts with the same key, sorts them and walks both sorted sequences once, so the cost is one hash per
+ * query script plus one pass over the filter.
+ */
+public final class CompactBlockFilter {
+
+    private static final int P = 19;
+    private static final long M = 784931;
+
+    private final Sha256Hash blockHash;
+    private final byte[] encoded;
+
+    /**
+     * @param encoded the {@code filter} field of a {@code cfilter} message: CompactSize N followed by the coded set
+     */
+    public CompactBlockFilter(Sha256Hash blockHash, byte[] encoded) {
+        this.blockHash = blockHash;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Basic filter of {@code block}. {@code spentScripts} are the scriptPubKeys of the outputs its inputs spend,
+     * which the block itself does not carry; OP_RETURN and empty scripts are left out as BIP-158 requires.
+     */
+    public static CompactBlockFilter build(Block block, Collection<byte[]> spentScripts) {
+        Set<ByteBuffer> elements = new LinkedHashSet<>();
+        for (Transaction tx : block.getTransactions()) {
+            for (TransactionOutput output : tx.getOutputs()) {
+                byte[] script = output.getScriptBytes();
+                if (script.length > 0 && (script[0] & 0xff) != ScriptOpCodes.OP_RETURN) {
+                    elements.add(ByteBuffer.wrap(script));
+                }
+            }
+        }
+        for (byte[] script : spentScripts) {
+            if (script.length > 0) {
+                elements.add(ByteBuffer.wrap(script));
+            }
+        }
+        Sha256Hash blockHash = block.getHash();
+        int n = elements.size();
+        long[] values = new long[n];
+        HashFunction sipHash = sipHash(blockHash);
+        int i = 0;
+        for (ByteBuffer element : elements) {
+            values[i++] = hashToRange(sipHash, Arrays.copyOfRange(element.array(), element.position(), element.limit()), n * M);
+        }
+        Arrays.sort(values);
+
+        BitWriter writer = new BitWriter();
+        long previous = 0;
+        for (long value : values) {
+            long delta = value - previous;
+            previous = value;
+            for (long q = delta >>> P; q > 0; q--) {
+                writer.write(1, 1);
+            }
+            writer.write(0, 1);
+            writer.write(delta & ((1L << P) - 1), P);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new VarInt(n).encode());
+        out.writeBytes(writer.toByteArray());
+        return new CompactBlockFilter(blockHash, out.toByteArray());
+    }
+
+    public Sha256Hash blockHash() {
+        return blockHash;
+    }
+
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    /**
+     * Whether any of {@code scripts} is in the set. False positives happen with probability about 1/M per script;
+     * a script that is in the block always matches.
+     *
+     * @throws IllegalArgumentException when the encoding is truncated
+     */
+    public boolean matchesAny(List<byte[]> scripts) {
+        VarInt count = new VarInt(encoded, 0);
+        long n = count.longValue();
+        if (n == 0 || scripts.isEmpty()) {
+            return false;
+        }
+        HashFunction sipHash = sipHash(blockHash);
+        long range = n * M;
+        long[] queries = new long[scripts.size()];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = hashToRange(sipHash, scripts.get(i), range);
+        }
+        Arrays.sort(queries);
+
+        BitReader reader = new BitReader(encoded, count.getOriginalSizeInBytes());
+        long value = 0;
+        int next = 0;
+        for (long i = 0; i < n; i++) {
+            long quotient = 0;
+            while (reader.read(1) == 1) {
+                quotient++;
+            }
+            value += quotient << P | reader.read(P);
+            while (queries[next] < value) {
+                if (++next == queries.length) {
+                    return false;
+                }
+            }
+            if (queries[next] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Chave SipHash: os 16 primeiros bytes do hash do bloco na ordem interna (little-endian)
+    private static HashFunction sipHash(Sha256Hash blockHash) {
+        byte[] key = blockHash.getReversedBytes();
+        return Hashing.sipHash24(Utils.readInt64(key, 0), Utils.readInt64(key, 8));
+    }
+
+    private static long hashToRange(HashFunction sipHash, byte[] element, long range) {
+        return Math.unsignedMultiplyHigh(sipHash.hashBytes(element).asLong(), range);
+    }
+
+    private static final class BitWriter {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int current;
+        private int used;
+
+        void write(long value, int bits) {
+            for (int bit = bits - 1; bit >= 0; bit--) {
+                current = current << 1 | (int) (value >>> bit & 1);
+                if (++used == 8) {
+                    out.write(current);
+                    current = 0;
+                    used = 0;
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            if (used > 0) {
+                out.write(current << (8 - used));
+                current = 0;
+                used = 0;
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static final class BitReader {
+
+        private final byte[] bytes;
+        private long position;
+
+        BitReader(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.position = (long) offset * 8;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++, position++) {
+                int index = (int) (position >>> 3);
+                if (index >= bytes.length) {
+                    throw new IllegalArgumentException("Truncated compact block filter");
+                }
+                value = value << 1 | (bytes[index] >>> (7 - (position & 7)) & 1);
+            }
+            return value;
+        }
+    }
+}
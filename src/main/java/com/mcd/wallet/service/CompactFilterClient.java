@@ -0,0 +1,255 @@
+package com.mcd.wallet.service;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.GetDataMessage;
+import org.bitcoinj.core.Message;
+import org.bitcoinj.core.MessageSerializer;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Pong;
+import org.bitcoinj.core.ProtocolException;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.core.VarInt;
+import org.bitcoinj.core.VersionAck;
+import org.bitcoinj.core.VersionMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocking BIP-157 client on a connection of its own to the download peer: bitcoinj 0.16 has no
+ * {@code getcfilters}/{@code cfilter} messages (unknown commands lose their payload), so filters and the blocks
+ * they select are requested here while the {@link org.bitcoinj.core.PeerGroup} keeps downloading headers.
+ * Not thread-safe; used only by the filter sync thread.
+ */
+class CompactFilterClient implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactFilterClient.class);
+
+    /** BIP-157 service bit: the peer serves compact block filters. */
+    static final long NODE_COMPACT_FILTERS = 1 << 6;
+    /** BIP-157 caps one {@code getcfilters} request at 1000 blocks. */
+    static final int MAX_FILTERS_PER_REQUEST = 1000;
+
+    private static final int BASIC_FILTER = 0;
+    private static final int HEADER_LENGTH = 24; // magic, comando, tamanho, checksum
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    private final NetworkParameters params;
+    private final MessageSerializer serializer;
+    private final InetSocketAddress address;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private long bytesReceived;
+
+    private record Frame(String command, byte[] payload) {
+    }
+
+    private CompactFilterClient(NetworkParameters params, InetSocketAddress address, Socket socket) throws IOException {
+        this.params = params;
+        this.serializer = params.getDefaultSerializer();
+        this.address = address;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Connects and completes the version handshake without asking for transaction relay.
+     *
+     * @throws ProtocolException when the peer does not advertise {@link #NODE_COMPACT_FILTERS}
+     */
+    static CompactFilterClient connect(NetworkParameters params, InetSocketAddress address, int bestHeight)
+            throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            CompactFilterClient client = new CompactFilterClient(params, address, socket);
+            client.handshake(bestHeight);
+            return client;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    InetSocketAddress address() {
+        return address;
+    }
+
+    boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    /**
+     * Protocol bytes read from this connection, headers included.
+     */
+    long bytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Basic filters of {@code blockHashes}, consecutive blocks of the best chain starting at {@code startHeight}.
+     *
+     * @throws ProtocolException when the peer answers with other blocks or other filter types
+     */
+    List<CompactBlockFilter> getFilters(int startHeight, List<Sha256Hash> blockHashes) throws IOException {
+        if (blockHashes.size() > MAX_FILTERS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_FILTERS_PER_REQUEST + " filters per request");
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(37);
+        payload.write(BASIC_FILTER);
+        Utils.uint32ToByteStreamLE(startHeight, payload);
+        payload.writeBytes(blockHashes.get(blockHashes.size() - 1).getReversedBytes());
+        send("getcfilters", payload.toByteArray());
+
+        List<CompactBlockFilter> filters = new ArrayList<>(blockHashes.size());
+        while (filters.size() < blockHashes.size()) {
+            byte[] bytes = next("cfilter").payload();
+            if (bytes.length < 34 || bytes[0] != BASIC_FILTER) {
+                throw new ProtocolException("Unexpected cfilter from " + address);
+            }
+            Sha256Hash blockHash = Sha256Hash.wrapReversed(Arrays.copyOfRange(bytes, 1, 33));
+            Sha256Hash expected = blockHashes.get(filters.size());
+            if (!blockHash.equals(expected)) {
+                throw new ProtocolException("Expected the filter of " + expected + " but got " + blockHash);
+            }
+            VarInt length = new VarInt(bytes, 33);
+            int offset = 33 + length.getOriginalSizeInBytes();
+            if (length.longValue() != bytes.length - offset) {
+                throw new ProtocolException("Truncated cfilter for " + blockHash);
+            }
+            filters.add(new CompactBlockFilter(blockHash, Arrays.copyOfRange(bytes, offset, bytes.length)));
+        }
+        return filters;
+    }
+
+    /**
+     * Full blocks (with witnesses), in the order asked.
+     *
+     * @throws ProtocolException when the peer answers {@code notfound}
+     */
+    List<Block> getBlocks(List<Sha256Hash> blockHashes) throws IOException {
+        GetDataMessage getData = new GetDataMessage(params);
+        for (Sha256Hash hash : blockHashes) {
+            getData.addBlock(hash, true);
+        }
+        send(getData);
+
+        Map<Sha256Hash, Block> received = new HashMap<>(blockHashes.size() * 2);
+        while (received.size() < blockHashes.size()) {
+            Frame frame = next("block", "notfound");
+            if (frame.command().equals("notfound")) {
+                throw new ProtocolException(address + " does not have the requested blocks");
+            }
+            Block block = serializer.makeBlock(frame.payload());
+            received.put(block.getHash(), block);
+        }
+        List<Block> blocks = new ArrayList<>(blockHashes.size());
+        for (Sha256Hash hash : blockHashes) {
+            Block block = received.get(hash);
+            if (block == null) {
+                throw new ProtocolException(address + " sent a block that was not requested");
+            }
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void handshake(int bestHeight) throws IOException {
+        VersionMessage version = new VersionMessage(params, bestHeight);
+        version.localServices = 0;
+        version.relayTxesBeforeFilter = false; // só filtros e blocos nesta conexão
+        send(version);
+        boolean versionReceived = false;
+        boolean acknowledged = false;
+        while (!versionReceived || !acknowledged) {
+            Frame frame = next("version", "verack");
+            if (frame.command().equals("verack")) {
+                acknowledged = true;
+                continue;
+            }
+            VersionMessage remote = new VersionMessage(params, frame.payload());
+            if ((remote.localServices & NODE_COMPACT_FILTERS) == 0) {
+                throw new ProtocolException(address + " does not serve compact block filters ("
+                        + VersionMessage.toStringServices(remote.localServices) + ")");
+            }
+            versionReceived = true;
+            send(new VersionAck());
+        }
+        log.info("Compact filter connection to {} established", address);
+    }
+
+    // Lê até chegar um dos comandos esperados; responde pings e descarta o resto (inv, sendheaders, feefilter...)
+    private Frame next(String... commands) throws IOException {
+        while (true) {
+            Frame frame = read();
+            for (String command : commands) {
+                if (command.equals(frame.command())) {
+                    return frame;
+                }
+            }
+            if (frame.command().equals("ping") && frame.payload().length >= 8) {
+                send(new Pong(Utils.readInt64(frame.payload(), 0)));
+            }
+        }
+    }
+
+    private Frame read() throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        in.readFully(header);
+        if (Utils.readUint32BE(header, 0) != params.getPacketMagic()) {
+            throw new ProtocolException("Wrong network magic from " + address);
+        }
+        int commandLength = 0;
+        while (commandLength < 12 && header[4 + commandLength] != 0) {
+            commandLength++;
+        }
+        String command = new String(header, 4, commandLength, StandardCharsets.US_ASCII);
+        long size = Utils.readUint32(header, 16);
+        if (size > Message.MAX_SIZE) {
+            throw new ProtocolException("Message of " + size + " bytes from " + address);
+        }
+        byte[] payload = new byte[(int) size];
+        in.readFully(payload);
+        byte[] checksum = Sha256Hash.hashTwice(payload);
+        if (!Arrays.equals(checksum, 0, 4, header, 20, 24)) {
+            throw new ProtocolException("Checksum mismatch in " + command + " from " + address);
+        }
+        bytesReceived += HEADER_LENGTH + size;
+        return new Frame(command, payload);
+    }
+
+    private void send(Message message) throws IOException {
+        serializer.serialize(message, out);
+        out.flush();
+    }
+
+    private void send(String command, byte[] payload) throws IOException {
+        serializer.serialize(command, payload, out);
+        out.flush();
+    }
+}
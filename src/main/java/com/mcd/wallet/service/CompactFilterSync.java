@@ -0,0 +1,613 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.config.ContextThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockLocator;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.GetHeadersMessage;
+import org.bitcoinj.core.HeadersMessage;
+import org.bitcoinj.core.InventoryItem;
+import org.bitcoinj.core.InventoryMessage;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerAddress;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.ProtocolException;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.VersionMessage;
+import org.bitcoinj.core.listeners.NewBestBlockListener;
+import org.bitcoinj.core.listeners.TransactionReceivedInBlockListener;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.DeterministicKeyChain;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * BIP-157/158 sync mode ({@code bitcoin.sync-mode=filters}): the peer group downloads headers only, and this
+ * service walks the new best-chain blocks in batches of 1000, fetches their basic filters, matches every wallet
+ * and watched-address script against them locally (in parallel across blocks on the {@code filterExecutor})
+ * and downloads just the blocks that match. Their transactions go to the wallet and the watched-address index,
+ * then every block advances the wallet's last seen block, so the wallet ends up where a bloom sync would leave it
+ * without telling the peer which scripts it cares about. {@link WalletRegistry} tenant wallets are matched and fed
+ * the same way once {@link #addWallet added}; each skips the blocks it has already seen.
+ * <p>
+ * Filters are trusted as served (no {@code cfheaders} chain check) and the mempool is not followed: payments
+ * show up once mined.
+ */
+@Service
+public class CompactFilterSync {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactFilterSync.class);
+
+    private static final int BLOCKS_PER_REQUEST = 16;
+    // Abaixo disso o repasse entre threads custa mais que o casamento
+    private static final int MIN_FILTERS_PER_TASK = 32;
+    private static final long KEY_TIME_MARGIN_SECONDS = TimeUnit.DAYS.toSeconds(7);
+    private static final long RETRY_SECONDS = 15;
+    private static final int LOCATOR_BLOCKS = 10;
+
+    private final NetworkParameters params;
+    private final Context context;
+    private final WatchedAddressIndex watchedAddressIndex;
+    private final ThreadPoolExecutor filterExecutor;
+    private final Counter filterCounter;
+    private final Counter matchCounter;
+    private final Counter byteCounter;
+    private final Timer batchTimer;
+
+    private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+    private final List<TransactionReceivedInBlockListener> transactionListeners = new CopyOnWriteArrayList<>();
+    private final List<NewBestBlockListener> bestBlockListeners = new CopyOnWriteArrayList<>();
+    private final List<Wallet> tenantWallets = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private volatile ScheduledExecutorService syncThread;
+    private volatile boolean stopped;
+    private Wallet wallet;
+    private AbstractBlockChain chain;
+    private PeerGroup peerGroup;
+
+    // Só a thread de sync usa a conexão; stop() a fecha para destravar uma leitura em curso
+    private volatile CompactFilterClient client;
+    private long clientBytesCounted;
+
+    public CompactFilterSync(NetworkParameters params, Context context, WatchedAddressIndex watchedAddressIndex,
+                             @Qualifier("filterExecutor") ThreadPoolExecutor filterExecutor,
+                             MeterRegistry meterRegistry) {
+        this.params = params;
+        this.context = context;
+        this.watchedAddressIndex = watchedAddressIndex;
+        this.filterExecutor = filterExecutor;
+        this.filterCounter = Counter.builder("wallet.filters.downloaded")
+                .description("Compact block filters downloaded")
+                .register(meterRegistry);
+        this.matchCounter = Counter.builder("wallet.filters.matched")
+                .description("Blocks whose filter matched a wallet script and were downloaded")
+                .register(meterRegistry);
+        this.byteCounter = Counter.builder("wallet.filters.received")
+                .description("Bytes received on the compact filter connection")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("wallet.filters.batch")
+                .description("Filter download, matching and block download of one batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Peer group for filters mode: headers only (fast catch-up pinned past every block), no transaction relay,
+     * and only peers advertising {@code NODE_COMPACT_FILTERS}.
+     */
+    public PeerGroup createPeerGroup(AbstractBlockChain chain) {
+        return new HeadersOnlyPeerGroup(params, chain);
+    }
+
+    /**
+     * Takes the wallet off the chain and starts feeding it from filtered blocks. Call once the kit has built the
+     * chain and the peer group, before the block chain download starts.
+     */
+    public synchronized void start(Wallet wallet, AbstractBlockChain chain, PeerGroup peerGroup) {
+        this.wallet = wallet;
+        this.chain = chain;
+        this.peerGroup = peerGroup;
+        chain.removeWallet(wallet);
+        peerGroup.setBloomFilteringEnabled(false);
+        syncThread = Executors.newSingleThreadScheduledExecutor(new ContextThreadFactory(context, "filter-sync"));
+        chain.addNewBestBlockListener(Threading.SAME_THREAD, block -> wakeUp());
+        peerGroup.addConnectedEventListener(Threading.SAME_THREAD, (peer, peerCount) -> wakeUp());
+        log.info("Compact block filter sync started from block {} (height {})", wallet.getLastBlockSeenHash(),
+                wallet.getLastBlockSeenHeight());
+        wakeUp();
+    }
+
+    /**
+     * Whether {@link #start} ran, i.e. the chain only carries headers and wallets must be fed from here.
+     */
+    public boolean isStarted() {
+        return syncThread != null;
+    }
+
+    /**
+     * Also matches and feeds {@code wallet} (a tenant wallet, not attached to the chain). Blocks at or below its
+     * last seen height are skipped, so it may have caught up past the sync.
+     */
+    public void addWallet(Wallet wallet) {
+        tenantWallets.add(wallet);
+    }
+
+    public void removeWallet(Wallet wallet) {
+        tenantWallets.remove(wallet);
+    }
+
+    /**
+     * Called on the sync thread with the height the wallet reached after each batch of filtered blocks.
+     */
+    public void addSyncListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Called on the sync thread for every transaction of a downloaded block, after the wallet got it.
+     */
+    public void addTransactionReceivedListener(TransactionReceivedInBlockListener listener) {
+        transactionListeners.add(listener);
+    }
+
+    /**
+     * Called on the sync thread for every block the wallet advanced to, filtered out or not.
+     */
+    public void addNewBestBlockListener(NewBestBlockListener listener) {
+        bestBlockListeners.add(listener);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        if (syncThread != null) {
+            closeClient();
+            syncThread.shutdownNow();
+            try {
+                syncThread.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Acordadas coalescidas: enquanto uma rodada está na fila, novos blocos não enfileiram outra
+    private void wakeUp() {
+        if (!stopped && wakeupPending.compareAndSet(false, true)) {
+            syncThread.execute(this::runSync);
+        }
+    }
+
+    private void runSync() {
+        wakeupPending.set(false);
+        try {
+            sync();
+        } catch (Exception e) {
+            if (stopped) {
+                return;
+            }
+            log.warn("Compact filter sync failed, retrying in {} s: {}", RETRY_SECONDS, e.toString());
+            closeClient();
+            syncThread.schedule(this::wakeUp, RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void sync() throws IOException, BlockStoreException {
+        Peer peer = peerGroup.getDownloadPeer();
+        if (peer == null) {
+            return; // a conexão do próximo peer acorda a sync de novo
+        }
+        BlockStore store = chain.getBlockStore();
+        List<StoredBlock> pending = pendingBlocks(store, chain.getChainHead());
+        if (pending.isEmpty()) {
+            return;
+        }
+        CompactFilterClient filterClient = client(peer);
+        for (int from = 0; from < pending.size() && !stopped; from += CompactFilterClient.MAX_FILTERS_PER_REQUEST) {
+            List<StoredBlock> batch = pending.subList(from,
+                    Math.min(pending.size(), from + CompactFilterClient.MAX_FILTERS_PER_REQUEST));
+            long started = System.nanoTime();
+            int downloaded = syncBatch(filterClient, batch);
+            batchTimer.record(Duration.ofNanos(System.nanoTime() - started));
+            byteCounter.increment(filterClient.bytesReceived() - clientBytesCounted);
+            clientBytesCounted = filterClient.bytesReceived();
+            int height = batch.get(batch.size() - 1).getHeight();
+            log.info("Filtered blocks {} to {}: {} downloaded", batch.get(0).getHeight(), height, downloaded);
+            listeners.forEach(listener -> listener.accept(height));
+        }
+    }
+
+    /**
+     * Best-chain blocks after the wallet's last seen block, oldest first; undoes the wallet's blocks that left the
+     * best chain first. A wallet that has seen no block starts a week before its earliest key.
+     */
+    private List<StoredBlock> pendingBlocks(BlockStore store, StoredBlock head) throws BlockStoreException {
+        Sha256Hash lastSeenHash = wallet.getLastBlockSeenHash();
+        StoredBlock lastSeen = lastSeenHash == null ? null : store.get(lastSeenHash);
+        int fromHeight = -1;
+        long fromTime = Long.MIN_VALUE;
+        if (lastSeen != null) {
+            StoredBlock fork = forkPoint(store, head, lastSeen);
+            if (fork == null) {
+                log.warn("No common ancestor of block {} and the chain head in the block store", lastSeenHash);
+                fromHeight = Math.min(head.getHeight(), wallet.getLastBlockSeenHeight());
+            } else {
+                if (!fork.equals(lastSeen)) {
+                    rewind(store, wallet, lastSeen, fork);
+                    rewindTenants(store, head);
+                }
+                fromHeight = fork.getHeight();
+            }
+        } else if (lastSeenHash != null) {
+            log.warn("Block {} last seen by the wallet is no longer in the block store, resuming after height {}",
+                    lastSeenHash, wallet.getLastBlockSeenHeight());
+            fromHeight = wallet.getLastBlockSeenHeight();
+        } else {
+            fromTime = wallet.getEarliestKeyCreationTime() - KEY_TIME_MARGIN_SECONDS;
+        }
+
+        List<StoredBlock> pending = new ArrayList<>();
+        StoredBlock cursor = head;
+        while (cursor != null && cursor.getHeight() > fromHeight && cursor.getHeader().getTimeSeconds() >= fromTime) {
+            pending.add(cursor);
+            cursor = cursor.getPrev(store);
+        }
+        if (cursor == null && fromHeight >= 0 && !pending.isEmpty()) {
+            log.warn("Block store does not reach back to height {}: filtering from height {}", fromHeight + 1,
+                    pending.get(pending.size() - 1).getHeight());
+        }
+        Collections.reverse(pending);
+        return pending;
+    }
+
+    private static StoredBlock forkPoint(BlockStore store, StoredBlock head, StoredBlock lastSeen)
+            throws BlockStoreException {
+        StoredBlock a = head;
+        StoredBlock b = lastSeen;
+        while (a != null && b != null && !a.equals(b)) {
+            if (a.getHeight() >= b.getHeight()) {
+                a = a.getPrev(store);
+            } else {
+                b = b.getPrev(store);
+            }
+        }
+        return a == null || b == null ? null : a;
+    }
+
+    // Só numa reorganização: cada carteira de tenant volta ao próprio ponto de fork
+    private void rewindTenants(BlockStore store, StoredBlock head) throws BlockStoreException {
+        for (Wallet tenant : tenantWallets) {
+            Sha256Hash hash = tenant.getLastBlockSeenHash();
+            StoredBlock tenantLastSeen = hash == null ? null : store.get(hash);
+            StoredBlock fork = tenantLastSeen == null ? null : forkPoint(store, head, tenantLastSeen);
+            if (fork != null && !fork.equals(tenantLastSeen)) {
+                rewind(store, tenant, tenantLastSeen, fork);
+            }
+        }
+    }
+
+    // Blocos da carteira que saíram da melhor cadeia: o wallet desfaz as confirmações até o ponto de fork
+    private static void rewind(BlockStore store, Wallet wallet, StoredBlock lastSeen, StoredBlock fork)
+            throws BlockStoreException {
+        List<StoredBlock> oldBlocks = new ArrayList<>();
+        for (StoredBlock block = lastSeen; !block.equals(fork); block = block.getPrev(store)) {
+            oldBlocks.add(block);
+        }
+        log.info("Reorganize: rolling the wallet back {} blocks to {} (height {})", oldBlocks.size(),
+                fork.getHeader().getHash(), fork.getHeight());
+        wallet.reorganize(fork, oldBlocks, List.of());
+        wallet.setLastBlockSeenHash(fork.getHeader().getHash());
+        wallet.setLastBlockSeenHeight(fork.getHeight());
+        wallet.setLastBlockSeenTimeSecs(fork.getHeader().getTimeSeconds());
+    }
+
+    private int syncBatch(CompactFilterClient filterClient, List<StoredBlock> batch) throws IOException {
+        List<Sha256Hash> hashes = new ArrayList<>(batch.size());
+        for (StoredBlock block : batch) {
+            hashes.add(block.getHeader().getHash());
+        }
+        List<CompactBlockFilter> filters = filterClient.getFilters(batch.get(0).getHeight(), hashes);
+        filterCounter.increment(filters.size());
+
+        int scriptsVersion = scriptsVersion();
+        boolean[] matched = match(filters, walletScripts(), 0);
+        Map<Sha256Hash, Block> fetched = new HashMap<>();
+        int downloaded = 0;
+        for (int i = 0; i < batch.size() && !stopped; i++) {
+            StoredBlock stored = batch.get(i);
+            if (matched[i]) {
+                Block block = fetched.remove(hashes.get(i));
+                if (block == null) {
+                    fetched.putAll(fetchMatched(filterClient, batch, matched, i));
+                    block = fetched.remove(hashes.get(i));
+                }
+                apply(block, stored);
+                downloaded++;
+                // Transações recebidas podem ter estendido o lookahead: os filtros restantes são casados de novo
+                int version = scriptsVersion();
+                if (version != scriptsVersion && i + 1 < batch.size()) {
+                    scriptsVersion = version;
+                    matched = match(filters, walletScripts(), i + 1);
+                }
+            }
+            wallet.notifyNewBestBlock(stored);
+            for (NewBestBlockListener listener : bestBlockListeners) {
+                listener.notifyNewBestBlock(stored);
+            }
+            for (Wallet tenant : tenantWallets) {
+                if (stored.getHeight() > tenant.getLastBlockSeenHeight()) {
+                    tenant.notifyNewBestBlock(stored);
+                }
+            }
+        }
+        matchCounter.increment(downloaded);
+        return downloaded;
+    }
+
+    // Próximos blocos casados a partir de {@code from}, numa só requisição
+    private Map<Sha256Hash, Block> fetchMatched(CompactFilterClient filterClient, List<StoredBlock> batch,
+                                                boolean[] matched, int from) throws IOException {
+        List<StoredBlock> wanted = new ArrayList<>(BLOCKS_PER_REQUEST);
+        for (int i = from; i < batch.size() && wanted.size() < BLOCKS_PER_REQUEST; i++) {
+            if (matched[i]) {
+                wanted.add(batch.get(i));
+            }
+        }
+        List<Sha256Hash> hashes = new ArrayList<>(wanted.size());
+        wanted.forEach(stored -> hashes.add(stored.getHeader().getHash()));
+        List<Block> blocks = filterClient.getBlocks(hashes);
+        Map<Sha256Hash, Block> byHash = new HashMap<>(blocks.size() * 2);
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            block.verify(wanted.get(i).getHeight(), EnumSet.noneOf(Block.VerifyFlag.class));
+            byHash.put(block.getHash(), block);
+        }
+        return byHash;
+    }
+
+    private void apply(Block block, StoredBlock stored) {
+        List<Transaction> transactions = block.getTransactions();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction tx = transactions.get(i);
+            watchedAddressIndex.match(tx, stored.getHeight());
+            wallet.receiveFromBlock(tx, stored, AbstractBlockChain.NewBlockType.BEST_CHAIN, i);
+            for (TransactionReceivedInBlockListener listener : transactionListeners) {
+                listener.receiveFromBlock(tx, stored, AbstractBlockChain.NewBlockType.BEST_CHAIN, i);
+            }
+            for (Wallet tenant : tenantWallets) {
+                if (stored.getHeight() > tenant.getLastBlockSeenHeight()) {
+                    tenant.receiveFromBlock(tx, stored, AbstractBlockChain.NewBlockType.BEST_CHAIN, i);
+                }
+            }
+        }
+    }
+
+    // filtros[from..] casados em paralelo; a thread de sync fica com o primeiro pedaço
+    private boolean[] match(List<CompactBlockFilter> filters, List<byte[]> scripts, int from) {
+        boolean[] matched = new boolean[filters.size()];
+        int count = filters.size() - from;
+        int tasks = Math.min(filterExecutor.getMaximumPoolSize() + 1,
+                (count + MIN_FILTERS_PER_TASK - 1) / MIN_FILTERS_PER_TASK);
+        if (tasks <= 1) {
+            matchRange(filters, scripts, matched, from, filters.size());
+            return matched;
+        }
+        int chunk = (count + tasks - 1) / tasks;
+        List<Future<?>> futures = new ArrayList<>(tasks - 1);
+        try {
+            for (int start = from + chunk; start < filters.size(); start += chunk) {
+                int rangeStart = start;
+                int rangeEnd = Math.min(filters.size(), start + chunk);
+                futures.add(filterExecutor.submit(() -> matchRange(filters, scripts, matched, rangeStart, rangeEnd)));
+            }
+            matchRange(filters, scripts, matched, from, Math.min(filters.size(), from + chunk));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Filter matching interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Filter matching failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return matched;
+    }
+
+    private static void matchRange(List<CompactBlockFilter> filters, List<byte[]> scripts, boolean[] matched,
+                                   int from, int to) {
+        for (int i = from; i < to; i++) {
+            matched[i] = filters.get(i).matchesAny(scripts);
+        }
+    }
+
+    /**
+     * Output scripts that can pay or be spent by the wallet or a tenant wallet: every leaf key (issued and
+     * lookahead) in the script type of its chain plus P2PK, imported keys in every single-key form, watched scripts
+     * and watched addresses.
+     */
+    private List<byte[]> walletScripts() {
+        List<byte[]> scripts = new ArrayList<>();
+        addScripts(wallet, scripts);
+        for (Wallet tenant : tenantWallets) {
+            addScripts(tenant, scripts);
+        }
+        watchedAddressIndex.forEachHash(hash -> {
+            scripts.add(ScriptBuilder.createP2PKHOutputScript(hash.clone()).getProgram());
+            scripts.add(ScriptBuilder.createP2WPKHOutputScript(hash.clone()).getProgram());
+        });
+        return scripts;
+    }
+
+    private static void addScripts(Wallet wallet, List<byte[]> scripts) {
+        for (DeterministicKeyChain keyChain : wallet.getActiveKeyChains()) {
+            boolean segwit = keyChain.getOutputScriptType() == Script.ScriptType.P2WPKH;
+            for (DeterministicKey key : keyChain.getLeafKeys()) {
+                scripts.add(segwit ? ScriptBuilder.createP2WPKHOutputScript(key).getProgram()
+                        : ScriptBuilder.createP2PKHOutputScript(key).getProgram());
+                scripts.add(ScriptBuilder.createP2PKOutputScript(key).getProgram());
+            }
+        }
+        for (ECKey key : wallet.getImportedKeys()) {
+            scripts.add(ScriptBuilder.createP2PKHOutputScript(key).getProgram());
+            scripts.add(ScriptBuilder.createP2PKOutputScript(key).getProgram());
+            if (key.isCompressed()) {
+                scripts.add(ScriptBuilder.createP2WPKHOutputScript(key).getProgram());
+            }
+        }
+        for (Script script : wallet.getWatchedScripts()) {
+            scripts.add(script.getProgram());
+        }
+    }
+
+    private int scriptsVersion() {
+        int version = wallet.getKeyChainGroupSize() + wallet.getWatchedScripts().size() + watchedAddressIndex.size();
+        for (Wallet tenant : tenantWallets) {
+            version += tenant.getKeyChainGroupSize() + tenant.getWatchedScripts().size();
+        }
+        return version + tenantWallets.size();
+    }
+
+    private CompactFilterClient client(Peer peer) throws IOException {
+        InetSocketAddress address = peer.getAddress().getSocketAddress();
+        if (client != null && (client.isClosed() || !client.address().equals(address))) {
+            closeClient();
+        }
+        CompactFilterClient current = client;
+        if (current == null) {
+            current = CompactFilterClient.connect(params, address, chain.getBestChainHeight());
+            client = current;
+            clientBytesCounted = 0;
+        }
+        return current;
+    }
+
+    private void closeClient() {
+        CompactFilterClient current = client;
+        client = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.debug("Closing the compact filter connection failed", e);
+            }
+        }
+    }
+
+    private static final class HeadersOnlyPeerGroup extends PeerGroup {
+
+        HeadersOnlyPeerGroup(NetworkParameters params, AbstractBlockChain chain) {
+            super(params, chain);
+            setFastCatchupTimeSecs(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void setFastCatchupTimeSecs(long secondsSinceEpoch) {
+            super.setFastCatchupTimeSecs(Long.MAX_VALUE); // o recálculo pelos wallets não liga o download de blocos
+        }
+
+        @Override
+        protected Peer createPeer(PeerAddress address, VersionMessage ver) {
+            ver.relayTxesBeforeFilter = false;
+            return new HeadersOnlyPeer(params, ver, address, chain);
+        }
+    }
+
+    private static final class HeadersOnlyPeer extends Peer {
+
+        private final NetworkParameters params;
+        private final AbstractBlockChain chain;
+
+        HeadersOnlyPeer(NetworkParameters params, VersionMessage ver, PeerAddress address, AbstractBlockChain chain) {
+            super(params, ver, address, chain, CompactFilterClient.NODE_COMPACT_FILTERS, 0);
+            this.params = params;
+            this.chain = chain;
+        }
+
+        // O Peer passa a pedir blocos inteiros quando a cadeia alcança a altura do version do peer; os cabeçalhos
+        // recebidos provam que ele tem pelo menos essa altura a mais
+        @Override
+        protected void processHeaders(HeadersMessage headers) throws ProtocolException {
+            VersionMessage version = getPeerVersionMessage();
+            version.bestHeight = Math.max(version.bestHeight,
+                    chain.getBestChainHeight() + headers.getBlockHeaders().size());
+            super.processHeaders(headers);
+        }
+
+        // Anúncios de bloco viram getheaders: o Peer pediria o bloco inteiro mesmo no modo só de cabeçalhos
+        @Override
+        protected void processInv(InventoryMessage inv) {
+            InventoryMessage rest = new InventoryMessage(params);
+            boolean blockAnnounced = false;
+            for (InventoryItem item : inv.getItems()) {
+                if (item.type == InventoryItem.Type.BLOCK || item.type == InventoryItem.Type.WITNESS_BLOCK) {
+                    blockAnnounced = true;
+                } else {
+                    rest.addItem(item);
+                }
+            }
+            if (!rest.getItems().isEmpty()) {
+                super.processInv(rest);
+            }
+            if (blockAnnounced && isDownloadData()) {
+                requestHeaders();
+            }
+        }
+
+        private void requestHeaders() {
+            BlockLocator locator = new BlockLocator();
+            try {
+                BlockStore store = chain.getBlockStore();
+                StoredBlock block = chain.getChainHead();
+                for (int i = 0; block != null && i < LOCATOR_BLOCKS; i++) {
+                    locator = locator.add(block.getHeader().getHash());
+                    block = block.getPrev(store);
+                }
+            } catch (BlockStoreException e) {
+                log.warn("Reading the block locator failed", e);
+            }
+            locator = locator.add(params.getGenesisBlock().getHash());
+            sendMessage(new GetHeadersMessage(params, locator, Sha256Hash.ZERO_HASH));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.mcd.wallet.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Open-addressing map from 20-byte hash160 to an int, packed into a single {@code long[]}: three longs
+ * per slot (bytes 0-7, bytes 8-15, bytes 16-19 followed by the value). About 30 bytes per entry at the
+ * maximum load factor, no per-entry objects. Keys are uniformly distributed hashes, so their first bytes
+ * are used directly as the slot hash. Not thread-safe: {@link WatchedAddressIndex} guards it.
+ */
+final class Hash160Table {
+
+    static final int KEY_LENGTH = 20;
+
+    private static final int LONGS_PER_SLOT = 3;
+    private static final double MAX_LOAD = 0.8;
+    private static final int MIN_CAPACITY = 1024;
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private long[] slots;
+    private int capacity;
+    private int size;
+
+    Hash160Table() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long memoryBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    /**
+     * Grows once so that {@code expectedSize} entries fit without further rehashing (bulk loads).
+     */
+    void ensureCapacity(int expectedSize) {
+        int required = (int) Math.min(Integer.MAX_VALUE / LONGS_PER_SLOT, (long) Math.ceil(expectedSize / MAX_LOAD));
+        if (required > capacity) {
+            rehash(required);
+        }
+    }
+
+    /**
+     * Returns the value mapped to {@code hash160}, or -1.
+     */
+    int get(byte[] hash160) {
+        checkKey(hash160);
+        return get(hash160, 0);
+    }
+
+    /**
+     * Same as {@link #get(byte[])} for the 20 bytes at {@code offset}, e.g. straight out of a scriptPubKey.
+     */
+    int get(byte[] bytes, int offset) {
+        long k0 = (long) LONG.get(bytes, offset);
+        long k1 = (long) LONG.get(bytes, offset + 8);
+        int k2 = (int) INT.get(bytes, offset + 16);
+        long[] table = slots;
+        int slotCount = table.length / LONGS_PER_SLOT;
+        for (int slot = home(k0, slotCount); ; slot = next(slot, slotCount)) {
+            int base = slot * LONGS_PER_SLOT;
+            if (isEmpty(table, base)) {
+                return -1;
+            }
+            if (table[base] == k0 && table[base + 1] == k1 && (int) (table[base + 2] >>> 32) == k2) {
+                return (int) table[base + 2];
+            }
+        }
+    }
+
+    /**
+     * Maps {@code hash160} to {@code value} (kept if the key is already present).
+     *
+     * @return true if the key was added
+     */
+    boolean add(byte[] hash160, int value) {
+        checkKey(hash160);
+        long k0 = (long) LONG.get(hash160, 0);
+        long k1 = (long) LONG.get(hash160, 8);
+        if (k0 == 0 && k1 == 0) {
+            // Reservado para slot vazio; probabilidade 2^-128 para um hash real
+            throw new IllegalArgumentException("Unsupported hash160 with 16 leading zero bytes");
+        }
+        long k2 = ((long) (int) INT.get(hash160, 16) << 32) | (value & 0xFFFFFFFFL);
+        if (size + 1 > capacity * MAX_LOAD) {
+            rehash(capacity + (capacity >> 1));
+        }
+        return insert(slots, capacity, k0, k1, k2);
+    }
+
+    /**
+     * Visits every entry; the key array is reused between calls.
+     */
+    void forEach(ObjIntConsumer<byte[]> consumer) {
+        byte[] key = new byte[KEY_LENGTH];
+        for (int base = 0; base < slots.length; base += LONGS_PER_SLOT) {
+            if (!isEmpty(slots, base)) {
+                LONG.set(key, 0, slots[base]);
+                LONG.set(key, 8, slots[base + 1]);
+                INT.set(key, 16, (int) (slots[base + 2] >>> 32));
+                consumer.accept(key, (int) slots[base + 2]);
+            }
+        }
+    }
+
+    private boolean insert(long[] table, int slotCount, long k0, long k1, long k2) {
+        for (int slot = home(k0, slotCount); ; slot = next(slot, slotCount)) {
+            int base = slot * LONGS_PER_SLOT;
+            if (isEmpty(table, base)) {
+                table[base] = k0;
+                table[base + 1] = k1;
+                table[base + 2] = k2;
+                size++;
+                return true;
+            }
+            if (table[base] == k0 && table[base + 1] == k1 && (table[base + 2] >>> 32) == (k2 >>> 32)) {
+                return false;
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        allocate(Math.max(newCapacity, MIN_CAPACITY));
+        size = 0;
+        for (int base = 0; base < old.length; base += LONGS_PER_SLOT) {
+            if (!isEmpty(old, base)) {
+                insert(slots, capacity, old[base], old[base + 1], old[base + 2]);
+            }
+        }
+    }
+
+    private void allocate(int slotCount) {
+        capacity = slotCount;
+        slots = new long[slotCount * LONGS_PER_SLOT];
+    }
+
+    // Redução multiplicativa (sem módulo) do hash para [0, slotCount), qualquer capacidade
+    private static int home(long k0, int slotCount) {
+        return (int) (((k0 >>> 32) * slotCount) >>> 32);
+    }
+
+    private static int next(int slot, int slotCount) {
+        return slot + 1 == slotCount ? 0 : slot + 1;
+    }
+
+    private static boolean isEmpty(long[] table, int base) {
+        return table[base] == 0 && table[base + 1] == 0;
+    }
+
+    private static void checkKey(byte[] hash160) {
+        if (hash160.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("Expected a 20-byte hash160, got " + hash160.length + " bytes");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.mcd.wallet.service;
+
+/**
+ * A payout does not fit in the available balance minus the payouts already queued. Mapped to
+ * 400 INSUFFICIENT_FUNDS by the API.
+ */
+public class InsufficientFundsException extends IllegalStateException {
+
+    public InsufficientFundsException() {
+        super("Insufficient wallet balance");
+    }
+}
@@ -1,9 +1,38 @@
 package com.mcd.wallet.service;
 
+import com.mcd.wallet.service.model.DerivedAddress;
 import org.bitcoinj.core.Address;
+import org.bitcoinj.script.Script;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface KeyDerivationService {
     List<Address> deriveAddresses(byte[] seed, int count);
+
+    /**
+     * Derives {@code count} receive addresses starting at child index {@code fromIndex},
+     * e.g. addresses 10 000–10 100 without re-deriving the ones before them.
+     */
+    List<Address> deriveAddresses(byte[] seed, int fromIndex, int count);
+
+    /**
+     * Bulk mode: derives the range in parallel chunks and hands each address to {@code consumer}
+     * in index order, on the calling thread. Only a bounded number of chunks is held in memory.
+     * P2PKH uses BIP-44 (m/44'), P2WPKH uses BIP-84 (m/84'), P2TR uses BIP-86 (m/86').
+     */
+    void streamAddresses(byte[] seed, int fromIndex, int count, Script.ScriptType scriptType,
+                         Consumer<DerivedAddress> consumer);
+
+    /**
+     * First receive address (index 0 of the external chain) of {@code seed}. Does not go through the
+     * account-key cache, so one-off seeds (e.g. freshly provisioned wallets) don't evict the hot entries.
+     */
+    Address firstReceiveAddress(byte[] seed, Script.ScriptType scriptType);
+
+    /**
+     * scriptPubKeys of children {@code fromIndex .. fromIndex + count - 1} of m/purpose'/coin'/account'/chain
+     * ({@code chain} 0 = receive, 1 = change; purpose by script type as in {@link #streamAddresses}).
+     */
+    List<byte[]> deriveScripts(byte[] seed, Script.ScriptType scriptType, int account, int chain, int fromIndex, int count);
 }
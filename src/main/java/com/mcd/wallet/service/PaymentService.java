@@ -0,0 +1,26 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.Payment;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+
+import java.util.Optional;
+
+public interface PaymentService {
+
+    /**
+     * Queues a payout; it is sent together with other queued payouts in one multi-output transaction.
+     * The amount is reserved against the available balance atomically with other submitters.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     * @throws InsufficientFundsException if the available balance minus the queued payouts does not cover it
+     */
+    Payment submit(Address address, Coin amount);
+
+    Optional<Payment> find(String paymentId);
+
+    /**
+     * Sum of payouts accepted but not yet committed to a transaction (or failed).
+     */
+    Coin queuedAmount();
+}
@@ -0,0 +1,15 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.ScriptActivity;
+
+/**
+ * Collects every scriptPubKey paid since a height in one pass over the chain data, which is what makes gap-limit
+ * discovery cheap: each window of derived scripts is then checked in memory instead of costing another pass.
+ */
+public interface ScriptActivitySource {
+
+    /**
+     * The scripts paid at or after {@code fromHeight}, as far back as the chain data reaches.
+     */
+    ScriptActivity scan(int fromHeight);
+}
@@ -0,0 +1,116 @@
+package com.mcd.wallet.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chain download and peer state, fed by {@link BlockchainService}'s listeners and exported as Micrometer meters:
+ * {@code bitcoin.sync.blocks.remaining}, {@code bitcoin.sync.blocks.per.second} (over the last
+ * {@value #RATE_WINDOW_SECONDS}s), {@code bitcoin.sync.blocks.downloaded}, {@code bitcoin.sync.progress}
+ * and {@code bitcoin.peers.connected}.
+ */
+@Service
+public class SyncMonitor {
+
+    static final int RATE_WINDOW_SECONDS = 10;
+
+    private final AtomicInteger blocksLeft = new AtomicInteger(-1); // -1: download ainda não começou
+    private final AtomicInteger connectedPeers = new AtomicInteger();
+    private final Counter blocksDownloaded;
+    private volatile double progressPercent;
+    private volatile boolean downloadDone;
+
+    // Blocos por segundo: um balde por segundo, janela circular
+    private final long[] bucketSecond = new long[RATE_WINDOW_SECONDS];
+    private final long[] bucketBlocks = new long[RATE_WINDOW_SECONDS];
+
+    public SyncMonitor(MeterRegistry meterRegistry) {
+        this.blocksDownloaded = Counter.builder("bitcoin.sync.blocks.downloaded")
+                .description("Blocks downloaded from peers")
+                .register(meterRegistry);
+        Gauge.builder("bitcoin.sync.blocks.remaining", blocksLeft, AtomicInteger::get)
+                .description("Blocks left to download, -1 before the download starts")
+                .register(meterRegistry);
+        Gauge.builder("bitcoin.sync.blocks.per.second", this, SyncMonitor::blocksPerSecond)
+                .description("Blocks downloaded per second")
+                .register(meterRegistry);
+        Gauge.builder("bitcoin.sync.progress", this, monitor -> monitor.progressPercent)
+                .description("Chain download progress reported by bitcoinj")
+                .baseUnit("percent")
+                .register(meterRegistry);
+        Gauge.builder("bitcoin.peers.connected", connectedPeers, AtomicInteger::get)
+                .description("Connected peers")
+                .register(meterRegistry);
+    }
+
+    public void onBlockDownloaded(int blocksLeft) {
+        onBlocksDownloaded(1, blocksLeft);
+    }
+
+    /**
+     * A batch of {@code count} blocks (coalesced by {@link ChainEventBus}); {@code blocksLeft} after the last one.
+     */
+    public void onBlocksDownloaded(int count, int blocksLeft) {
+        this.blocksLeft.set(blocksLeft);
+        blocksDownloaded.increment(count);
+        recordBlocks(currentSecond(), count);
+    }
+
+    public void onProgress(double percent) {
+        this.progressPercent = percent;
+    }
+
+    public void onDownloadDone() {
+        this.blocksLeft.set(0);
+        this.progressPercent = 100;
+        this.downloadDone = true;
+    }
+
+    public void onPeerCountChanged(int peerCount) {
+        connectedPeers.set(peerCount);
+    }
+
+    /**
+     * True once the initial chain download has finished (bitcoinj's {@code doneDownload}).
+     */
+    public boolean isInSync() {
+        return downloadDone;
+    }
+
+    public int blocksLeft() {
+        return blocksLeft.get();
+    }
+
+    public int connectedPeers() {
+        return connectedPeers.get();
+    }
+
+    public synchronized double blocksPerSecond() {
+        long now = currentSecond();
+        long blocks = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (now - bucketSecond[i] < RATE_WINDOW_SECONDS) {
+                blocks += bucketBlocks[i];
+            }
+        }
+        return (double) blocks / RATE_WINDOW_SECONDS;
+    }
+
+    private synchronized void recordBlocks(long second, int count) {
+        int bucket = (int) (second % RATE_WINDOW_SECONDS);
+        if (bucketSecond[bucket] != second) {
+            bucketSecond[bucket] = second;
+            bucketBlocks[bucket] = 0;
+        }
+        bucketBlocks[bucket] += count;
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+}
@@ -0,0 +1,164 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.TransactionRecord;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Wallet transactions ordered by update time (newest first), kept up to date from the wallet's listeners
+ * so that reads never copy the wallet's transaction set or take the wallet lock.
+ */
+@Service
+public class TransactionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionIndex.class);
+
+    private static final Comparator<IndexKey> NEWEST_FIRST = Comparator
+            .comparingLong(IndexKey::updateTimeMillis).reversed()
+            .thenComparing(IndexKey::txId);
+
+    private static final String BUILDING = TransactionConfidence.ConfidenceType.BUILDING.name();
+
+    // Trocado inteiro no rebuild: leitores sem lock nunca veem o índice vazio ou pela metade
+    private volatile Entries entries = new Entries();
+
+    /**
+     * Indexes the wallet's current transactions and follows subsequent changes.
+     * Listeners run on bitcoinj's user thread.
+     */
+    public void bind(Wallet wallet) {
+        wallet.addCoinsReceivedEventListener((w, tx, prevBalance, newBalance) -> update(w, tx));
+        wallet.addCoinsSentEventListener((w, tx, prevBalance, newBalance) -> update(w, tx));
+        wallet.addTransactionConfidenceEventListener(this::confidenceChanged);
+        wallet.addReorganizeEventListener(this::rebuild);
+        rebuild(wallet);
+    }
+
+    /**
+     * Every new block reports a confidence change for every building transaction of the wallet. A record keeps
+     * the inclusion height, not the depth, so those depth-only changes leave it valid and are skipped without
+     * taking the index lock; readers derive the depth from the chain height.
+     */
+    void confidenceChanged(Wallet wallet, Transaction tx) {
+        TransactionConfidence confidence = tx.getConfidence();
+        if (confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING) {
+            Entries current = entries;
+            IndexKey key = current.keysByTxId.get(tx.getTxId().toString());
+            TransactionRecord txRecord = key != null ? current.byUpdateTime.get(key) : null;
+            if (txRecord != null && txRecord.height() == confidence.getAppearedAtChainHeight()
+                    && BUILDING.equals(txRecord.confidence())
+                    && key.updateTimeMillis() == TransactionRecord.updateTime(tx).toEpochMilli()) {
+                return;
+            }
+        }
+        update(wallet, tx);
+    }
+
+    public synchronized void rebuild(Wallet wallet) {
+        Entries rebuilt = new Entries();
+        for (Transaction tx : wallet.getTransactions(false)) {
+            rebuilt.put(TransactionRecord.of(wallet, tx));
+        }
+        entries = rebuilt;
+        log.debug("Transaction index rebuilt with {} entries", rebuilt.byUpdateTime.size());
+    }
+
+    public synchronized void update(Wallet wallet, Transaction tx) {
+        entries.put(TransactionRecord.of(wallet, tx));
+    }
+
+    public int size() {
+        return entries.byUpdateTime.size();
+    }
+
+    /**
+     * Returns up to {@code limit} records after {@code cursor} (exclusive) with {@code from <= updateTime < to}.
+     * Any of {@code cursor}, {@code from} and {@code to} may be null.
+     */
+    public Page page(String cursor, Instant from, Instant to, int limit) {
+        IndexKey start = null;
+        boolean inclusive = true;
+        if (to != null) {
+            start = new IndexKey(to.toEpochMilli() - 1, "");
+        }
+        if (cursor != null) {
+            IndexKey after = IndexKey.decode(cursor);
+            if (start == null || NEWEST_FIRST.compare(after, start) >= 0) {
+                start = after;
+                inclusive = false;
+            }
+        }
+
+        ConcurrentSkipListMap<IndexKey, TransactionRecord> byUpdateTime = entries.byUpdateTime;
+        NavigableMap<IndexKey, TransactionRecord> view = start != null ? byUpdateTime.tailMap(start, inclusive) : byUpdateTime;
+        long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+
+        List<TransactionRecord> items = new ArrayList<>(Math.min(limit, 256));
+        IndexKey last = null;
+        boolean hasMore = false;
+        for (Map.Entry<IndexKey, TransactionRecord> entry : view.entrySet()) {
+            if (entry.getKey().updateTimeMillis() < fromMillis) {
+                break;
+            }
+            if (items.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            items.add(entry.getValue());
+            last = entry.getKey();
+        }
+        return new Page(items, hasMore ? last.encode() : null);
+    }
+
+    private static final class Entries {
+
+        final ConcurrentSkipListMap<IndexKey, TransactionRecord> byUpdateTime = new ConcurrentSkipListMap<>(NEWEST_FIRST);
+        final Map<String, IndexKey> keysByTxId = new ConcurrentHashMap<>();
+
+        void put(TransactionRecord txRecord) {
+            IndexKey key = new IndexKey(txRecord.updateTime().toEpochMilli(), txRecord.txId());
+            IndexKey previous = keysByTxId.put(txRecord.txId(), key);
+            if (previous != null && !previous.equals(key)) {
+                byUpdateTime.remove(previous);
+            }
+            byUpdateTime.put(key, txRecord);
+        }
+    }
+
+    public record Page(List<TransactionRecord> items, String nextCursor) {
+    }
+
+    // Cursor opaco: base64url("updateTimeMillis:txId")
+    private record IndexKey(long updateTimeMillis, String txId) {
+
+        String encode() {
+            String raw = updateTimeMillis + ":" + txId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static IndexKey decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                int separator = raw.indexOf(':');
+                return new IndexKey(Long.parseLong(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+    }
+}
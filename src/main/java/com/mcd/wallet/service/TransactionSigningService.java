@@ -0,0 +1,41 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.PsbtSignResult;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcaster;
+import org.bitcoinj.wallet.KeyBag;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.jetbrains.annotations.Nullable;
+
+public interface TransactionSigningService {
+
+    /**
+     * Drop-in for {@link Wallet#sendCoins(TransactionBroadcaster, SendRequest)}: completes the request without
+     * signing, signs its inputs with {@link #signInputs}, then commits and broadcasts. The wallet lock is not held
+     * while signing; instead spends through this method are serialized, so coin selection never sees outputs
+     * another unfinished spend already took. Signs with {@code request.aesKey} on an encrypted wallet.
+     */
+    Wallet.SendResult sendCoins(Wallet wallet, TransactionBroadcaster broadcaster, SendRequest request)
+            throws InsufficientMoneyException;
+
+    /**
+     * Signs, with SIGHASH_ALL, every input of {@code tx} that spends a P2PKH, P2PK or P2WPKH output whose key is in
+     * {@code keyBag}. Inputs must be connected to the outputs they spend. Sighashes come from one shared cache and the
+     * ECDSA work is spread over the signing pool.
+     *
+     * @return how many inputs were signed
+     */
+    int signInputs(Transaction tx, KeyBag keyBag, @Nullable KeyParameter aesKey);
+
+    /**
+     * BIP-174 signer: adds a partial signature to each SIGHASH_ALL input whose spent output (witness or non-witness
+     * UTXO record) pays a key in {@code keyBag}. Finalized inputs and inputs already signed by that key are left
+     * alone.
+     *
+     * @throws IllegalArgumentException when {@code psbt} is not a well-formed version 0 PSBT
+     */
+    PsbtSignResult signPsbt(byte[] psbt, KeyBag keyBag, @Nullable KeyParameter aesKey);
+}
@@ -0,0 +1,195 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.config.ContextThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the wallet's smallest confirmed outputs back into one output of its own once the UTXO count passes
+ * {@code utxo-threshold}, and keeps going (on later runs too) until it is down to {@code target-count}.
+ * Each transaction spends at most {@code max-inputs} outputs and pays {@code max-fee-rate}; outputs worth less
+ * than the fee to spend them at that rate are left alone. Runs every {@code interval} on its own thread.
+ */
+@Service
+public class UtxoConsolidator {
+
+    private static final Logger log = LoggerFactory.getLogger(UtxoConsolidator.class);
+
+    // Entrada P2PKH assinada: outpoint + scriptSig (assinatura + chave comprimida) + sequence
+    private static final int P2PKH_INPUT_BYTES = 148;
+
+    private final BlockchainService blockchainService;
+    private final UtxoIndex utxoIndex;
+    private final WalletKeySession keySession;
+    private final TransactionSigningService signingService;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int utxoThreshold;
+    private final int targetCount;
+    private final int maxInputs;
+    private final int maxTransactionsPerRun;
+    private final Coin feePerKb;
+    private final long minInputValue;
+    private final Counter transactions;
+    private final Counter inputs;
+    private final Counter fees;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile boolean consolidating;
+
+    public UtxoConsolidator(BlockchainService blockchainService,
+                            UtxoIndex utxoIndex,
+                            WalletKeySession keySession,
+                            TransactionSigningService signingService,
+                            Context bitcoinContext,
+                            MeterRegistry meterRegistry,
+                            @Value("${wallet.consolidation.enabled:true}") boolean enabled,
+                            @Value("${wallet.consolidation.interval:10m}") Duration interval,
+                            @Value("${wallet.consolidation.utxo-threshold:500}") int utxoThreshold,
+                            @Value("${wallet.consolidation.target-count:100}") int targetCount,
+                            @Value("${wallet.consolidation.max-inputs:200}") int maxInputs,
+                            @Value("${wallet.consolidation.max-transactions-per-run:10}") int maxTransactionsPerRun,
+                            @Value("${wallet.consolidation.max-fee-rate:1000}") long maxFeeRate) {
+        if (targetCount >= utxoThreshold || maxInputs < 2) {
+            throw new IllegalArgumentException("wallet.consolidation needs target-count < utxo-threshold and max-inputs >= 2");
+        }
+        this.blockchainService = blockchainService;
+        this.utxoIndex = utxoIndex;
+        this.keySession = keySession;
+        this.signingService = signingService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ContextThreadFactory(bitcoinContext, "utxo-consolidator"));
+        this.feePerKb = Coin.valueOf(maxFeeRate);
+        // Abaixo da taxa mínima de relay o bitcoinj subiria a taxa por conta própria, passando do teto
+        this.enabled = enabled && !feePerKb.isLessThan(Transaction.REFERENCE_DEFAULT_MIN_TX_FEE);
+        if (enabled && !this.enabled) {
+            log.warn("UTXO consolidation disabled: max-fee-rate {} sat/kB is below the minimum relay fee", maxFeeRate);
+        }
+        this.interval = interval;
+        this.utxoThreshold = utxoThreshold;
+        this.targetCount = targetCount;
+        this.maxInputs = maxInputs;
+        this.maxTransactionsPerRun = maxTransactionsPerRun;
+        this.minInputValue = feePerKb.value * P2PKH_INPUT_BYTES / 1000;
+        this.transactions = Counter.builder("wallet.consolidation.transactions")
+                .description("Consolidation transactions sent")
+                .register(meterRegistry);
+        this.inputs = Counter.builder("wallet.consolidation.inputs")
+                .description("Outputs merged by consolidation transactions")
+                .register(meterRegistry);
+        this.fees = Counter.builder("wallet.consolidation.fees")
+                .description("Fees paid by consolidation transactions")
+                .baseUnit("satoshis")
+                .register(meterRegistry);
+        meterRegistry.gauge("wallet.consolidation.remaining", remaining);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            long intervalMillis = interval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void run() {
+        try {
+            consolidate();
+        } catch (RuntimeException e) {
+            // Exceção não tratada cancelaria as próximas execuções agendadas
+            log.error("UTXO consolidation run failed", e);
+        }
+    }
+
+    /**
+     * One consolidation run; returns the transactions sent (none while below the threshold).
+     */
+    public List<Transaction> consolidate() {
+        if (!blockchainService.isWalletReady() || keySession.isLocked()) {
+            return List.of(); // carteira criptografada e bloqueada: fica para uma execução com sessão ativa
+        }
+        int count = utxoIndex.size();
+        if (!consolidating && count > utxoThreshold) {
+            log.info("{} UTXOs (threshold {}): consolidating down to {}", count, utxoThreshold, targetCount);
+            consolidating = true;
+        }
+        List<Transaction> sent = new ArrayList<>();
+        while (consolidating && sent.size() < maxTransactionsPerRun) {
+            count = utxoIndex.size();
+            // Cada transação tira k - 1 saídas; não passar do alvo
+            int limit = Math.min(maxInputs, count - targetCount + 1);
+            List<TransactionOutput> outputs = limit < 2 ? List.of() : utxoIndex.smallestConfirmed(limit, minInputValue);
+            if (outputs.size() < 2) {
+                break; // o resto está pendente (ou não paga a própria taxa): tentar de novo na próxima execução
+            }
+            Transaction tx = send(outputs);
+            if (tx == null) {
+                break;
+            }
+            sent.add(tx);
+        }
+        count = utxoIndex.size();
+        if (count <= targetCount) {
+            consolidating = false;
+        }
+        remaining.set(consolidating ? count - targetCount : 0);
+        return sent;
+    }
+
+    private Transaction send(List<TransactionOutput> outputs) {
+        WalletAppKit kit = blockchainService.getWalletAppKit();
+        Wallet wallet = kit.wallet();
+        SendRequest request = SendRequest.emptyWallet(wallet.currentChangeAddress());
+        request.feePerKb = feePerKb;
+        // Chamado sob o lock do wallet: descarta o que um pagamento gastou desde a busca no índice
+        request.coinSelector = (target, candidates) -> {
+            List<TransactionOutput> available = outputs.stream().filter(TransactionOutput::isAvailableForSpending).toList();
+            return new CoinSelection(available.stream().map(TransactionOutput::getValue).reduce(Coin.ZERO, Coin::add), available);
+        };
+        try {
+            Wallet.SendResult result = keySession.withKey(key -> {
+                request.aesKey = key;
+                return signingService.sendCoins(wallet, kit.peerGroup(), request);
+            });
+            Coin fee = result.tx.getFee();
+            transactions.increment();
+            inputs.increment(result.tx.getInputs().size());
+            fees.increment(fee == null ? 0 : fee.value);
+            log.info("Consolidated {} outputs into TX {} (fee {})", result.tx.getInputs().size(), result.tx.getTxId(),
+                    fee == null ? "?" : fee.toFriendlyString());
+            return result.tx;
+        } catch (InsufficientMoneyException | Wallet.DustySendRequested | Wallet.CouldNotAdjustDownwards
+                 | WalletLockedException e) {
+            log.warn("Skipping consolidation of {} outputs: {}", outputs.size(), e.toString());
+            return null;
+        }
+    }
+}
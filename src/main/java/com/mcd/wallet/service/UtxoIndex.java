@@ -0,0 +1,343 @@
+package com.mcd.wallet.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+import org.bitcoinj.wallet.DefaultCoinSelector;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The wallet's unspent outputs ordered by value, kept up to date from the wallet's listeners, and a
+ * {@link CoinSelector} over them (set it on {@code SendRequest.coinSelector}).
+ * <p>
+ * Selection never sorts the wallet's outputs. It tries, in order:
+ * <ol>
+ *   <li>branch and bound over the largest {@value #MAX_POOL} outputs not above {@code target + dust}, looking
+ *       for a set whose excess is dust, i.e. a transaction without a change output;</li>
+ *   <li>the smallest single output covering the target;</li>
+ *   <li>the largest outputs until the target is covered;</li>
+ *   <li>bitcoinj's {@link DefaultCoinSelector} over the wallet's candidates, when the index misses outputs
+ *       (the index is then rebuilt from those candidates).</li>
+ * </ol>
+ * Outputs are checked for spendability when visited, so entries that went stale between a wallet change and
+ * its listener are skipped rather than selected.
+ */
+@Service
+public class UtxoIndex implements CoinSelector {
+
+    private static final Logger log = LoggerFactory.getLogger(UtxoIndex.class);
+
+    // Excesso abaixo disso vira taxa no bitcoinj (troco P2PKH seria dust): seleção sem troco
+    private static final long CHANGELESS_WINDOW = new TransactionOutput(MainNetParams.get(), null, Coin.ZERO,
+            ScriptBuilder.createP2PKHOutputScript(new byte[20]).getProgram()).getMinNonDustValue().value - 1;
+    // Sem solução nesse orçamento, os fallbacks abaixo resolvem em O(log n)
+    private static final int MAX_TRIES = 20_000;
+    static final int MAX_POOL = 2_000;
+
+    // Maior valor primeiro: o pool e o largest-first percorrem o skip list para frente (descendo custa O(log n) por passo)
+    private static final Comparator<Utxo> LARGEST_FIRST = Comparator
+            .comparingLong(Utxo::value).reversed()
+            .thenComparing(Utxo::txId)
+            .thenComparingLong(Utxo::index);
+
+    private final ConcurrentSkipListMap<Utxo, TransactionOutput> byValue = new ConcurrentSkipListMap<>(LARGEST_FIRST);
+    private final Map<TransactionOutPoint, Utxo> keysByOutPoint = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public UtxoIndex(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("wallet.utxo.count", List.of(), byValue);
+    }
+
+    /**
+     * Indexes the wallet's current unspent outputs and follows subsequent changes.
+     * Listeners run on bitcoinj's user thread.
+     */
+    public void bind(Wallet wallet) {
+        wallet.addCoinsReceivedEventListener((w, tx, prevBalance, newBalance) -> update(w, tx));
+        wallet.addCoinsSentEventListener((w, tx, prevBalance, newBalance) -> update(w, tx));
+        wallet.addTransactionConfidenceEventListener(this::confidenceChanged);
+        wallet.addReorganizeEventListener(w -> rebuild(w.getUnspents()));
+        rebuild(wallet.getUnspents());
+    }
+
+    public synchronized void rebuild(Collection<TransactionOutput> unspents) {
+        byValue.clear();
+        keysByOutPoint.clear();
+        for (TransactionOutput output : unspents) {
+            add(output);
+        }
+        log.debug("UTXO index rebuilt with {} entries", byValue.size());
+    }
+
+    /**
+     * Every new block reports a confidence change for every building transaction of the wallet. When the index
+     * already reflects such a transaction, the change is only in depth and is skipped without taking the lock.
+     */
+    void confidenceChanged(Wallet wallet, Transaction tx) {
+        if (tx.getConfidence().getConfidenceType() != TransactionConfidence.ConfidenceType.BUILDING
+                || !isIndexed(wallet, tx)) {
+            update(wallet, tx);
+        }
+    }
+
+    private boolean isIndexed(Wallet wallet, Transaction tx) {
+        for (TransactionInput input : tx.getInputs()) {
+            if (keysByOutPoint.containsKey(input.getOutpoint())) {
+                return false;
+            }
+        }
+        for (TransactionOutput output : tx.getOutputs()) {
+            boolean indexed = keysByOutPoint.containsKey(output.getOutPointFor());
+            if (!output.isAvailableForSpending()) {
+                if (indexed) {
+                    return false;
+                }
+            } else if (!indexed && output.isMine(wallet)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the outputs {@code tx} spends and adds its own outputs that the wallet can spend.
+     */
+    public synchronized void update(Wallet wallet, Transaction tx) {
+        for (TransactionInput input : tx.getInputs()) {
+            remove(input.getOutpoint());
+        }
+        for (TransactionOutput output : tx.getOutputs()) {
+            if (output.isAvailableForSpending() && output.isMine(wallet)) {
+                add(output);
+            } else {
+                remove(output.getOutPointFor());
+            }
+        }
+    }
+
+    public int size() {
+        return byValue.size();
+    }
+
+    /**
+     * Up to {@code limit} spendable outputs from confirmed transactions worth more than {@code minValue}
+     * satoshis, smallest first.
+     */
+    public List<TransactionOutput> smallestConfirmed(int limit, long minValue) {
+        List<TransactionOutput> outputs = new ArrayList<>(limit);
+        for (TransactionOutput output : byValue.headMap(new Utxo(minValue, Sha256Hash.ZERO_HASH, Long.MIN_VALUE))
+                .descendingMap().values()) {
+            if (outputs.size() == limit) {
+                break;
+            }
+            if (isSpendable(output)
+                    && output.getParentTransaction().getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING) {
+                outputs.add(output);
+            }
+        }
+        return outputs;
+    }
+
+    @Override
+    public CoinSelection select(Coin target, List<TransactionOutput> candidates) {
+        if (target.compareTo(NetworkParameters.MAX_MONEY) >= 0) {
+            return DefaultCoinSelector.get().select(target, candidates); // emptyWallet: tudo
+        }
+        long value = target.value;
+        List<TransactionOutput> selected = branchAndBound(value);
+        String strategy = "bnb";
+        if (selected == null) {
+            selected = smallestCovering(value);
+            strategy = "single";
+        }
+        if (selected == null) {
+            selected = largestFirst(value);
+            strategy = "largest-first";
+        }
+        if (selected == null) {
+            CoinSelection fallback = DefaultCoinSelector.get().select(target, candidates);
+            if (fallback.valueGathered.compareTo(target) >= 0) {
+                // O índice ficou para trás do wallet (ex.: transação morta liberou saídas); refazer a partir dos candidatos
+                rebuild(candidates);
+            }
+            meterRegistry.counter("wallet.coin.selection", "strategy", "default").increment();
+            return fallback;
+        }
+        meterRegistry.counter("wallet.coin.selection", "strategy", strategy).increment();
+        return new CoinSelection(Coin.valueOf(sum(selected)), selected);
+    }
+
+    /**
+     * Depth-first search over the pool (descending value) for a subset in {@code [target, target + window]}.
+     * Returns the first one found (largest outputs first, so few inputs); any excess in the window is dust and
+     * goes to the fee. Null when none is found within {@value #MAX_TRIES} steps.
+     */
+    private List<TransactionOutput> branchAndBound(long target) {
+        long upper = target + CHANGELESS_WINDOW;
+        List<TransactionOutput> pool = new ArrayList<>();
+        for (TransactionOutput output : byValue.tailMap(new Utxo(upper, Sha256Hash.ZERO_HASH, Long.MIN_VALUE)).values()) {
+            if (pool.size() == MAX_POOL) {
+                break;
+            }
+            pool.add(output);
+        }
+        int size = pool.size();
+        long[] values = new long[size];
+        long[] available = new long[size + 1]; // available[i] = soma de values[i..]
+        for (int i = size - 1; i >= 0; i--) {
+            values[i] = pool.get(i).getValue().value;
+            available[i] = available[i + 1] + values[i];
+        }
+        if (available[0] < target) {
+            return null;
+        }
+
+        // Elegibilidade só é verificada quando a saída entraria no conjunto: 0 = não verificada, 1 = ok, 2 = não
+        byte[] spendable = new byte[size];
+        int[] stack = new int[size];
+        int depth = 0;
+        long current = 0;
+        int next = 0;
+        for (int tries = 0; tries < MAX_TRIES; tries++) {
+            if (current >= target) {
+                List<TransactionOutput> selected = new ArrayList<>(depth);
+                for (int i = 0; i < depth; i++) {
+                    selected.add(pool.get(stack[i]));
+                }
+                return selected;
+            }
+            // Pula as saídas que estourariam a janela: primeira com valor <= upper - current
+            int candidate = firstAtMost(values, next, upper - current);
+            if (candidate < size && current + available[candidate] >= target) {
+                if (isSpendable(pool, spendable, candidate)) {
+                    stack[depth++] = candidate;
+                    current += values[candidate];
+                }
+                next = candidate + 1;
+                continue;
+            }
+            if (depth == 0) {
+                return null; // busca completa
+            }
+            int omitted = stack[--depth];
+            current -= values[omitted];
+            next = omitted + 1;
+            // Omitir uma saída e incluir outra de mesmo valor daria o mesmo conjunto
+            while (next < size && values[next] == values[omitted]) {
+                next++;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSpendable(List<TransactionOutput> pool, byte[] spendable, int index) {
+        if (spendable[index] == 0) {
+            spendable[index] = isSpendable(pool.get(index)) ? (byte) 1 : (byte) 2;
+        }
+        return spendable[index] == 1;
+    }
+
+    // Busca binária no array decrescente a partir de from; values.length quando nenhum cabe
+    private static int firstAtMost(long[] values, int from, long limit) {
+        int low = from;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= limit) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private List<TransactionOutput> smallestCovering(long target) {
+        for (TransactionOutput output : byValue.headMap(new Utxo(target - 1, Sha256Hash.ZERO_HASH, Long.MIN_VALUE))
+                .descendingMap().values()) {
+            if (isSpendable(output)) {
+                return List.of(output);
+            }
+        }
+        return null;
+    }
+
+    private List<TransactionOutput> largestFirst(long target) {
+        List<TransactionOutput> selected = new ArrayList<>();
+        long gathered = 0;
+        for (TransactionOutput output : byValue.values()) {
+            if (isSpendable(output)) {
+                selected.add(output);
+                gathered += output.getValue().value;
+                if (gathered >= target) {
+                    return selected;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Mesmas regras do DefaultCoinSelector, avaliadas só nas saídas visitadas
+    private boolean isSpendable(TransactionOutput output) {
+        Transaction parent = output.getParentTransaction();
+        if (!output.isAvailableForSpending() || parent == null) {
+            evict(output.getOutPointFor()); // gasta desde a última atualização
+            return false;
+        }
+        return parent.isMature() && DefaultCoinSelector.isSelectable(parent);
+    }
+
+    private void add(TransactionOutput output) {
+        TransactionOutPoint outPoint = output.getOutPointFor();
+        Utxo key = new Utxo(output.getValue().value, outPoint.getHash(), outPoint.getIndex());
+        Utxo previous = keysByOutPoint.put(outPoint, key);
+        if (previous != null && !previous.equals(key)) {
+            byValue.remove(previous);
+        }
+        byValue.put(key, output);
+    }
+
+    private synchronized void evict(TransactionOutPoint outPoint) {
+        remove(outPoint);
+    }
+
+    private void remove(TransactionOutPoint outPoint) {
+        Utxo key = keysByOutPoint.remove(outPoint);
+        if (key != null) {
+            byValue.remove(key);
+        }
+    }
+
+    private static long sum(List<TransactionOutput> outputs) {
+        long total = 0;
+        for (TransactionOutput output : outputs) {
+            total += output.getValue().value;
+        }
+        return total;
+    }
+
+    private record Utxo(long value, Sha256Hash txId, long index) {
+    }
+}
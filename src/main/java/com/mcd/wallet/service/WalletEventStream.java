@@ -0,0 +1,183 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.WalletEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fan-out of wallet events to push subscribers (the {@code /api/wallet/events} stream).
+ * <p>
+ * The last {@code wallet.events.history-size} events are kept so that a reconnecting client resumes from its
+ * last event id. Each subscriber has a queue of {@code wallet.events.subscriber-buffer} events: a new balance
+ * event replaces the one still queued, and a subscriber that falls further behind is disconnected, to resume
+ * from the history when it reconnects. Publishing never blocks on a subscriber.
+ */
+@Service
+public class WalletEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletEventStream.class);
+
+    private final WalletEvent[] history;
+    private final int bufferSize;
+    private final long firstId;
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter published;
+    private final Counter disconnected;
+    private long lastId;
+
+    public WalletEventStream(MeterRegistry meterRegistry,
+                             @Value("${wallet.events.history-size:1024}") int historySize,
+                             @Value("${wallet.events.subscriber-buffer:256}") int bufferSize) {
+        this.history = new WalletEvent[historySize];
+        this.bufferSize = bufferSize;
+        // Ids de uma execução anterior ficam abaixo do primeiro id desta: o cliente recebe reset
+        this.firstId = System.currentTimeMillis() * 1000;
+        this.lastId = firstId;
+        this.published = Counter.builder("wallet.events.published")
+                .description("Events pushed to wallet event subscribers")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("wallet.events.disconnected")
+                .description("Event subscribers dropped for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("wallet.events.subscribers", subscribers, Set::size)
+                .description("Open wallet event streams")
+                .register(meterRegistry);
+    }
+
+    public synchronized WalletEvent publish(String type, Object data) {
+        WalletEvent event = new WalletEvent(++lastId, type, data);
+        history[slot(event.id())] = event;
+        for (Subscription subscription : subscribers) {
+            subscription.offer(event, true);
+        }
+        published.increment();
+        return event;
+    }
+
+    /**
+     * Opens a subscription. With {@code lastEventId}, the events published after it are queued first; when they
+     * are no longer in the history the subscription starts with a {@link WalletEvent#RESET} event.
+     */
+    public synchronized Subscription subscribe(Long lastEventId) {
+        Subscription subscription = new Subscription();
+        if (lastEventId != null && lastEventId != lastId) {
+            long oldest = Math.max(firstId + 1, lastId - history.length + 1);
+            if (lastEventId + 1 < oldest || lastEventId > lastId) {
+                subscription.offer(new WalletEvent(lastId, WalletEvent.RESET, Map.of()), false);
+            } else {
+                for (long id = lastEventId + 1; id <= lastId; id++) {
+                    subscription.offer(history[slot(id)], false);
+                }
+            }
+        }
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private int slot(long id) {
+        return (int) (id % history.length);
+    }
+
+    /**
+     * One subscriber's queue. Read by a single consumer thread; {@link #close()} when the client goes away.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        // Lock explícito: o consumidor roda numa virtual thread e não deve ficar preso ao carrier em wait()
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final ArrayDeque<WalletEvent> queue = new ArrayDeque<>();
+        private WalletEvent queuedBalance;
+        private volatile boolean closed;
+
+        /**
+         * Next event, or null when none arrives within {@code timeout} or the subscription is closed.
+         */
+        public WalletEvent poll(Duration timeout) throws InterruptedException {
+            long remaining = timeout.toNanos();
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
+                WalletEvent event = queue.poll();
+                if (event == queuedBalance) {
+                    queuedBalance = null;
+                }
+                return event;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            subscribers.remove(this);
+            lock.lock();
+            try {
+                closeLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // bounded = false para o histórico de retomada, que pode passar do buffer
+        private void offer(WalletEvent event, boolean bounded) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                boolean balance = WalletEvent.BALANCE.equals(event.type());
+                if (balance && queuedBalance != null) {
+                    // Só o saldo mais recente interessa: substitui o que ainda não foi entregue
+                    queue.removeFirstOccurrence(queuedBalance);
+                } else if (bounded && queue.size() >= bufferSize) {
+                    log.debug("Event subscriber {} events behind; disconnecting it", queue.size());
+                    disconnected.increment();
+                    subscribers.remove(this);
+                    closeLocked();
+                    return;
+                }
+                queue.add(event);
+                if (balance) {
+                    queuedBalance = event;
+                }
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void closeLocked() {
+            closed = true;
+            queue.clear();
+            queuedBalance = null;
+            notEmpty.signalAll();
+        }
+    }
+}
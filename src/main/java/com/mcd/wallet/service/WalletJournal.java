@@ -0,0 +1,594 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.config.ContextThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.listeners.TransactionReceivedInBlockListener;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.DeterministicKeyChain;
+import org.bitcoinj.wallet.KeyChain;
+import org.bitcoinj.wallet.UnreadableWalletException;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change log of the main wallet, replacing bitcoinj's autosave (which rewrites the whole
+ * protobuf file every few seconds while blocks arrive).
+ * <p>
+ * Records: pending transactions, transactions in a block, block references for already known transactions,
+ * new best blocks, issued key counts and double spends (transactions killed by a block transaction the wallet
+ * does not keep, and conflicting pending transactions). They are buffered and written with one fsync per
+ * {@code wallet.journal.flush-interval} (group commit). Once the journal passes
+ * {@code wallet.journal.compact-threshold}, or after a reorg, it is compacted in the background into a full
+ * wallet snapshot. After a crash the snapshot is loaded and the journal replayed; replay is idempotent, so a
+ * record that also made it into the snapshot is skipped. A clean shutdown saves the snapshot and drops the
+ * journal.
+ * <p>
+ * Record layout: {@code int payloadLength | byte type | payload | int crc32(type, payload)}; a torn or
+ * corrupt tail ends the replay.
+ */
+@Service
+public class WalletJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletJournal.class);
+
+    static final byte PENDING = 1;
+    static final byte IN_BLOCK = 2;
+    static final byte BLOCK_REF = 3;
+    static final byte BEST_BLOCK = 4;
+    static final byte KEYS = 5;
+    static final byte DEAD = 6;
+    static final byte IN_CONFLICT = 7;
+
+    private static final int MAX_PAYLOAD = 8 * 1024 * 1024;
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    private final Context context;
+    private final Duration flushInterval;
+    private final long compactThreshold;
+    private final Counter journalBytes;
+    private final Counter snapshotBytes;
+    private final Timer syncTimer;
+    private final Timer snapshotTimer;
+
+    // Registros ainda não escritos; protegido por "this"
+    private byte[] buffer = new byte[64 * 1024];
+    private int buffered;
+
+    // Arquivo e compactação: só a thread do journal (ou close) mexe
+    private final Object fileLock = new Object();
+    private Wallet wallet;
+    private File walletFile;
+    private File journalFile;
+    private FileChannel channel;
+    private ScheduledExecutorService journalThread;
+
+    // Transação do bloco atual que matou uma da carteira -> a transação morta; esvaziado a cada bloco
+    private final Map<Sha256Hash, Sha256Hash> killedBy = new ConcurrentHashMap<>();
+
+    public WalletJournal(Context context, MeterRegistry meterRegistry,
+                         @Value("${wallet.journal.flush-interval:100ms}") Duration flushInterval,
+                         @Value("${wallet.journal.compact-threshold:1MB}") DataSize compactThreshold) {
+        this.context = context;
+        this.flushInterval = flushInterval;
+        this.compactThreshold = compactThreshold.toBytes();
+        this.journalBytes = Counter.builder("wallet.journal.written")
+                .description("Bytes appended to the wallet journal")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.snapshotBytes = Counter.builder("wallet.snapshot.written")
+                .description("Bytes written by full wallet snapshots")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("wallet.journal.sync")
+                .description("Journal write + fsync per flush")
+                .register(meterRegistry);
+        this.snapshotTimer = Timer.builder("wallet.snapshot.duration")
+                .description("Full wallet snapshot (compaction) time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Brings {@code walletFile} up to date with a journal left by an unclean shutdown, then removes the journal.
+     * Call before the wallet file is loaded.
+     */
+    public void recover(NetworkParameters params, File walletFile, File journalFile) throws IOException {
+        File compacting = compactingFile(journalFile);
+        if (!journalFile.exists() && !compacting.exists()) {
+            return;
+        }
+        if (!walletFile.exists()) {
+            log.warn("Wallet journal found without a wallet snapshot; ignoring it");
+            deleteJournal(journalFile);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Context.propagate(context);
+        Wallet recovered;
+        try {
+            recovered = Wallet.loadFromFile(walletFile);
+        } catch (UnreadableWalletException e) {
+            throw new IOException("Cannot load wallet snapshot for journal replay", e);
+        }
+        int records = 0;
+        for (File file : new File[]{compacting, journalFile}) {
+            if (file.exists()) {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    records += replay(params, recovered, in);
+                }
+            }
+        }
+        saveSnapshot(recovered, walletFile);
+        deleteJournal(journalFile);
+        log.info("Replayed {} wallet journal records in {} ms (last block {})", records,
+                (System.nanoTime() - start) / 1_000_000, recovered.getLastBlockSeenHeight());
+    }
+
+    /**
+     * Starts journaling {@code wallet}, whose current state is already in {@code walletFile}.
+     */
+    public void start(Wallet wallet, File walletFile, File journalFile) throws IOException {
+        synchronized (fileLock) {
+            this.wallet = wallet;
+            this.walletFile = walletFile;
+            this.journalFile = journalFile;
+            this.channel = openChannel(journalFile);
+        }
+        journalThread = Executors.newSingleThreadScheduledExecutor(new ContextThreadFactory(context, "wallet-journal"));
+        long intervalMillis = Math.max(1, flushInterval.toMillis());
+        journalThread.scheduleWithFixedDelay(this::flushAndMaybeCompact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records every wallet change coming from {@code chain} and the wallet itself. Listeners run on the
+     * notifying thread and only append to the in-memory buffer.
+     */
+    public void follow(AbstractBlockChain chain) {
+        chain.addTransactionReceivedListener(Threading.SAME_THREAD, blockTransactionListener());
+        chain.addNewBestBlockListener(Threading.SAME_THREAD, this::recordBestBlock);
+        followWallet();
+    }
+
+    /**
+     * Same as {@link #follow(AbstractBlockChain)} when the wallet is fed by {@link CompactFilterSync}: the chain
+     * then only carries headers, ahead of the blocks the wallet has seen.
+     */
+    public void follow(CompactFilterSync filterSync) {
+        filterSync.addTransactionReceivedListener(blockTransactionListener());
+        filterSync.addNewBestBlockListener(this::recordBestBlock);
+        followWallet();
+    }
+
+    // A carteira recebe o bloco antes deste listener: quando ele roda, ela já processou a tx
+    private TransactionReceivedInBlockListener blockTransactionListener() {
+        return new TransactionReceivedInBlockListener() {
+            @Override
+            public void receiveFromBlock(Transaction tx, StoredBlock block, AbstractBlockChain.NewBlockType blockType,
+                                         int relativityOffset) {
+                if (blockType != AbstractBlockChain.NewBlockType.BEST_CHAIN) {
+                    return;
+                }
+                if (wallet.getTransaction(tx.getTxId()) != null) {
+                    recordInBlock(tx, block, relativityOffset);
+                } else {
+                    // Gasto duplo que a carteira não guarda: sem este registro a morta voltaria como pendente
+                    Sha256Hash dead = killedBy.remove(tx.getTxId());
+                    if (dead != null) {
+                        recordDead(dead, tx, block, relativityOffset);
+                    }
+                }
+            }
+
+            @Override
+            public boolean notifyTransactionIsInBlock(Sha256Hash txHash, StoredBlock block,
+                                                      AbstractBlockChain.NewBlockType blockType, int relativityOffset) {
+                if (blockType == AbstractBlockChain.NewBlockType.BEST_CHAIN && wallet.getTransaction(txHash) != null) {
+                    recordBlockRef(txHash, block, relativityOffset);
+                }
+                return false;
+            }
+        };
+    }
+
+    private void followWallet() {
+        wallet.addCoinsReceivedEventListener(Threading.SAME_THREAD, (w, tx, prev, next) -> recordIfPending(tx));
+        wallet.addCoinsSentEventListener(Threading.SAME_THREAD, (w, tx, prev, next) -> recordIfPending(tx));
+        wallet.addKeyChainEventListener(Threading.SAME_THREAD, keys -> recordKeys());
+        wallet.addCurrentKeyChangeEventListener(Threading.SAME_THREAD, this::recordKeys);
+        wallet.addTransactionConfidenceEventListener(Threading.SAME_THREAD, (w, tx) -> recordIfDoubleSpent(tx));
+        // Reorg não é reproduzível pelo journal: vira snapshot imediato
+        wallet.addReorganizeEventListener(Threading.SAME_THREAD, w -> requestCompaction());
+    }
+
+    public void recordPending(Transaction tx) {
+        byte[] txBytes = tx.bitcoinSerialize();
+        ByteBuffer payload = ByteBuffer.allocate(txBytes.length).put(txBytes);
+        append(PENDING, payload);
+    }
+
+    public void recordInBlock(Transaction tx, StoredBlock block, int relativityOffset) {
+        byte[] txBytes = tx.bitcoinSerialize();
+        ByteBuffer payload = ByteBuffer.allocate(StoredBlock.COMPACT_SERIALIZED_SIZE + 4 + txBytes.length);
+        block.serializeCompact(payload);
+        payload.putInt(relativityOffset).put(txBytes);
+        append(IN_BLOCK, payload);
+    }
+
+    public void recordBlockRef(Sha256Hash txHash, StoredBlock block, int relativityOffset) {
+        ByteBuffer payload = ByteBuffer.allocate(32 + StoredBlock.COMPACT_SERIALIZED_SIZE + 4);
+        payload.put(txHash.getBytes());
+        block.serializeCompact(payload);
+        payload.putInt(relativityOffset);
+        append(BLOCK_REF, payload);
+    }
+
+    /**
+     * {@code deadTxHash} was killed by {@code overriding}, a transaction of {@code block} the wallet did not keep.
+     */
+    public void recordDead(Sha256Hash deadTxHash, Transaction overriding, StoredBlock block, int relativityOffset) {
+        byte[] txBytes = overriding.bitcoinSerialize();
+        ByteBuffer payload = ByteBuffer.allocate(32 + StoredBlock.COMPACT_SERIALIZED_SIZE + 4 + txBytes.length);
+        payload.put(deadTxHash.getBytes());
+        block.serializeCompact(payload);
+        payload.putInt(relativityOffset).put(txBytes);
+        append(DEAD, payload);
+    }
+
+    public void recordInConflict(Transaction tx) {
+        byte[] txBytes = tx.bitcoinSerialize();
+        ByteBuffer payload = ByteBuffer.allocate(txBytes.length).put(txBytes);
+        append(IN_CONFLICT, payload);
+    }
+
+    public void recordBestBlock(StoredBlock block) {
+        killedBy.clear();
+        ByteBuffer payload = ByteBuffer.allocate(StoredBlock.COMPACT_SERIALIZED_SIZE);
+        block.serializeCompact(payload);
+        append(BEST_BLOCK, payload);
+    }
+
+    public void recordKeys() {
+        DeterministicKeyChain keyChain = wallet.getActiveKeyChain();
+        ByteBuffer payload = ByteBuffer.allocate(8)
+                .putInt(keyChain.getIssuedExternalKeys())
+                .putInt(keyChain.getIssuedInternalKeys());
+        append(KEYS, payload);
+    }
+
+    /**
+     * Writes buffered records and fsyncs them (normally done by the journal thread every flush interval).
+     */
+    public void flush() throws IOException {
+        synchronized (fileLock) {
+            if (channel == null) {
+                return;
+            }
+            byte[] pending;
+            int length;
+            synchronized (this) {
+                if (buffered == 0) {
+                    return;
+                }
+                pending = buffer;
+                length = buffered;
+                buffer = new byte[Math.max(64 * 1024, length)];
+                buffered = 0;
+            }
+            long start = System.nanoTime();
+            ByteBuffer out = ByteBuffer.wrap(pending, 0, length);
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+            syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            journalBytes.increment(length);
+        }
+    }
+
+    /**
+     * Rotates the journal and writes a full snapshot; records appended meanwhile go to the new journal.
+     * A {@code .compacting} file left by a failed compaction is not in any snapshot yet: the journal is appended
+     * to it instead of replacing it.
+     *
+     * @throws IOException when the snapshot was not written; the journal is then kept for replay
+     */
+    public void compact() throws IOException {
+        synchronized (fileLock) {
+            if (channel == null) {
+                return;
+            }
+            flush();
+            File compacting = compactingFile(journalFile);
+            channel.close();
+            try {
+                rotate(journalFile, compacting);
+            } finally {
+                channel = openChannel(journalFile);
+            }
+
+            long start = System.nanoTime();
+            saveSnapshot(wallet, walletFile);
+            snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Files.delete(compacting.toPath());
+            log.debug("Wallet journal compacted into a {} kB snapshot", walletFile.length() / 1024);
+        }
+    }
+
+    /**
+     * Stops journaling. When {@code snapshotSaved} (the wallet was just saved in full) the journal is deleted,
+     * otherwise it is flushed and kept for the next start.
+     */
+    public void close(boolean snapshotSaved) {
+        if (journalThread != null) {
+            journalThread.shutdown();
+            try {
+                journalThread.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (fileLock) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                flush();
+                channel.close();
+                channel = null;
+                if (snapshotSaved) {
+                    deleteJournal(journalFile);
+                }
+            } catch (IOException e) {
+                log.error("Failed to close the wallet journal", e);
+            }
+        }
+    }
+
+    public long size() {
+        synchronized (fileLock) {
+            return journalFile != null ? journalFile.length() : 0;
+        }
+    }
+
+    private void flushAndMaybeCompact() {
+        try {
+            flush();
+            if (size() >= compactThreshold) {
+                compactQuietly();
+            }
+        } catch (IOException e) {
+            log.error("Wallet journal flush failed", e);
+        }
+    }
+
+    private void requestCompaction() {
+        ScheduledExecutorService executor = journalThread;
+        if (executor != null && !executor.isShutdown()) {
+            executor.execute(this::compactQuietly);
+        }
+    }
+
+    // Compactação em background: a falha não perde nada, o journal segue valendo e a próxima tenta de novo
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            log.error("Wallet journal compaction failed; journal kept for replay", e);
+        }
+    }
+
+    private void recordIfPending(Transaction tx) {
+        if (tx.getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.PENDING) {
+            recordPending(tx);
+        }
+    }
+
+    // Chamado para toda transação a cada bloco (profundidade): só um switch no caso comum
+    private void recordIfDoubleSpent(Transaction tx) {
+        TransactionConfidence confidence = tx.getConfidence();
+        switch (confidence.getConfidenceType()) {
+            case DEAD -> {
+                Transaction overriding = confidence.getOverridingTransaction();
+                if (overriding != null) {
+                    killedBy.putIfAbsent(overriding.getTxId(), tx.getTxId());
+                }
+            }
+            // O conflitante pode não pagar nem gastar da carteira: nenhum evento de moedas o registraria
+            case IN_CONFLICT -> recordInConflict(tx);
+            default -> {
+            }
+        }
+    }
+
+    private synchronized void append(byte type, ByteBuffer payload) {
+        int payloadLength = payload.position();
+        int recordLength = 4 + 1 + payloadLength + 4;
+        if (buffered + recordLength > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, buffered + recordLength));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload.array(), 0, payloadLength);
+        ByteBuffer.wrap(buffer, buffered, recordLength)
+                .putInt(payloadLength)
+                .put(type)
+                .put(payload.array(), 0, payloadLength)
+                .putInt((int) crc.getValue());
+        buffered += recordLength;
+    }
+
+    /**
+     * Applies the records of {@code in} to {@code wallet}; returns how many were read.
+     */
+    static int replay(NetworkParameters params, Wallet wallet, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int records = 0;
+        while (true) {
+            byte type;
+            byte[] payload;
+            try {
+                int length = data.readInt();
+                if (length < 0 || length > MAX_PAYLOAD) {
+                    log.warn("Corrupt wallet journal record after {} records; ignoring the rest", records);
+                    return records;
+                }
+                type = data.readByte();
+                payload = new byte[length];
+                data.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(type);
+                crc.update(payload);
+                if (data.readInt() != (int) crc.getValue()) {
+                    log.warn("Wallet journal checksum mismatch after {} records; ignoring the rest", records);
+                    return records;
+                }
+            } catch (EOFException e) {
+                return records; // fim do arquivo (ou registro incompleto de um crash)
+            }
+            apply(params, wallet, type, ByteBuffer.wrap(payload));
+            records++;
+        }
+    }
+
+    private static void apply(NetworkParameters params, Wallet wallet, byte type, ByteBuffer payload) {
+        switch (type) {
+            case PENDING, IN_CONFLICT -> {
+                Transaction tx = params.getDefaultSerializer().makeTransaction(remaining(payload));
+                if (wallet.getTransaction(tx.getTxId()) == null) {
+                    wallet.receivePending(tx, null); // reencontra o gasto duplo e marca os dois como IN_CONFLICT
+                }
+            }
+            case IN_BLOCK -> {
+                StoredBlock block = StoredBlock.deserializeCompact(params, payload);
+                int offset = payload.getInt();
+                Transaction tx = params.getDefaultSerializer().makeTransaction(remaining(payload));
+                if (!isInBlock(wallet.getTransaction(tx.getTxId()), block)) {
+                    wallet.receiveFromBlock(tx, block, AbstractBlockChain.NewBlockType.BEST_CHAIN, offset);
+                }
+            }
+            case BLOCK_REF -> {
+                byte[] hash = new byte[32];
+                payload.get(hash);
+                Sha256Hash txHash = Sha256Hash.wrap(hash);
+                StoredBlock block = StoredBlock.deserializeCompact(params, payload);
+                int offset = payload.getInt();
+                Transaction known = wallet.getTransaction(txHash);
+                if (known != null && !isInBlock(known, block)) {
+                    wallet.notifyTransactionIsInBlock(txHash, block, AbstractBlockChain.NewBlockType.BEST_CHAIN, offset);
+                }
+            }
+            case DEAD -> {
+                byte[] hash = new byte[32];
+                payload.get(hash);
+                Transaction dead = wallet.getTransaction(Sha256Hash.wrap(hash));
+                StoredBlock block = StoredBlock.deserializeCompact(params, payload);
+                int offset = payload.getInt();
+                Transaction overriding = params.getDefaultSerializer().makeTransaction(remaining(payload));
+                // Mesmo caminho do bloco original: a carteira mata a transação e libera as entradas
+                if (dead != null && dead.getConfidence().getConfidenceType() != TransactionConfidence.ConfidenceType.DEAD
+                        && !isInBlock(wallet.getTransaction(overriding.getTxId()), block)) {
+                    wallet.receiveFromBlock(overriding, block, AbstractBlockChain.NewBlockType.BEST_CHAIN, offset);
+                }
+            }
+            case BEST_BLOCK -> {
+                StoredBlock block = StoredBlock.deserializeCompact(params, payload);
+                if (block.getHeight() > wallet.getLastBlockSeenHeight()) {
+                    wallet.notifyNewBestBlock(block);
+                }
+            }
+            case KEYS -> {
+                DeterministicKeyChain keyChain = wallet.getActiveKeyChain();
+                int external = payload.getInt() - keyChain.getIssuedExternalKeys();
+                int internal = payload.getInt() - keyChain.getIssuedInternalKeys();
+                if (external > 0) {
+                    wallet.freshKeys(KeyChain.KeyPurpose.RECEIVE_FUNDS, external);
+                }
+                if (internal > 0) {
+                    wallet.freshKeys(KeyChain.KeyPurpose.CHANGE, internal);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown wallet journal record type " + type);
+        }
+    }
+
+    private static boolean isInBlock(Transaction tx, StoredBlock block) {
+        return tx != null && tx.getAppearsInHashes() != null
+                && tx.getAppearsInHashes().containsKey(block.getHeader().getHash());
+    }
+
+    private static byte[] remaining(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return bytes;
+    }
+
+    private void saveSnapshot(Wallet wallet, File walletFile) throws IOException {
+        File temp = File.createTempFile("wallet", ".tmp", walletFile.getAbsoluteFile().getParentFile());
+        wallet.saveToFile(temp, walletFile);
+        snapshotBytes.increment(walletFile.length());
+    }
+
+    private static void rotate(File journalFile, File compacting) throws IOException {
+        if (!compacting.exists()) {
+            Files.move(journalFile.toPath(), compacting.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        // Registros repetidos num crash no meio da cópia são ignorados no replay, registros perdidos não
+        try (FileChannel source = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+             FileChannel target = openChannel(compacting)) {
+            long size = source.size();
+            for (long position = 0; position < size; ) {
+                position += source.transferTo(position, size - position, target);
+            }
+            target.force(false);
+        }
+        Files.delete(journalFile.toPath());
+    }
+
+    private static FileChannel openChannel(File journalFile) throws IOException {
+        return FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static File compactingFile(File journalFile) {
+        return new File(journalFile.getPath() + COMPACTING_SUFFIX);
+    }
+
+    private static void deleteJournal(File journalFile) throws IOException {
+        Files.deleteIfExists(compactingFile(journalFile).toPath());
+        Files.deleteIfExists(journalFile.toPath());
+    }
+}
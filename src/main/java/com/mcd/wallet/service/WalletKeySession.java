@@ -0,0 +1,224 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.config.ContextThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.crypto.KeyCrypter;
+import org.bitcoinj.crypto.KeyCrypterException;
+import org.bitcoinj.wallet.Wallet;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Unlocked-key session for an encrypted wallet. {@link #unlock} runs the wallet's KDF (scrypt) once and keeps the
+ * AES key until the TTL expires or {@link #lock} is called; the key bytes are then overwritten with zeros.
+ * Signers use the key through {@link #withKey}, which holds the session open for the duration of the call, so a
+ * concurrent lock or expiry waits for an in-flight signature instead of zeroing the key under it.
+ * On an unencrypted wallet {@link #withKey} passes {@code null}, which bitcoinj treats as "no key needed".
+ */
+@Service
+public class WalletKeySession {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletKeySession.class);
+
+    private final BlockchainService blockchainService;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final ScheduledExecutorService expiry;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Timer derivationTimer;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Protegidos por lock
+    private KeyParameter key;
+    private Instant unlockedUntil;
+    private ScheduledFuture<?> expiryTask;
+
+    public WalletKeySession(BlockchainService blockchainService,
+                            Context bitcoinContext,
+                            MeterRegistry meterRegistry,
+                            @Value("${wallet.unlock.default-ttl:5m}") Duration defaultTtl,
+                            @Value("${wallet.unlock.max-ttl:1h}") Duration maxTtl) {
+        this.blockchainService = blockchainService;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.expiry = Executors.newSingleThreadScheduledExecutor(new ContextThreadFactory(bitcoinContext, "wallet-key-session"));
+        this.derivationTimer = Timer.builder("wallet.key.derivation")
+                .description("Key derivation (KDF) time for encrypting or unlocking the wallet")
+                .register(meterRegistry);
+        this.hits = sessionCounter(meterRegistry, "hit");
+        this.misses = sessionCounter(meterRegistry, "miss");
+    }
+
+    private static Counter sessionCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("wallet.key.session")
+                .description("Signing requests served by the unlocked-key session (miss = wallet locked)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        lock();
+        expiry.shutdownNow();
+    }
+
+    /**
+     * Encrypts the wallet's private keys with {@code password} and saves the wallet in full; the session stays
+     * locked. Fails if the wallet is already encrypted.
+     */
+    public void encrypt(CharSequence password) throws IOException {
+        Wallet wallet = blockchainService.requireWalletAppKit().wallet();
+        if (wallet.isEncrypted()) {
+            throw new IllegalStateException("Wallet is already encrypted");
+        }
+        long start = System.nanoTime();
+        wallet.encrypt(password);
+        derivationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        blockchainService.saveWallet();
+        log.info("Wallet encrypted");
+    }
+
+    /**
+     * Derives the AES key from {@code password} and keeps it for {@code ttl} (default {@code wallet.unlock.default-ttl},
+     * capped at {@code wallet.unlock.max-ttl}). Unlocking again replaces the session. Returns the expiry.
+     *
+     * @throws KeyCrypterException.InvalidCipherText when the password does not decrypt the wallet
+     * @throws IllegalArgumentException when {@code ttl} is not positive or above the cap
+     */
+    public Instant unlock(CharSequence password, Duration ttl) {
+        Wallet wallet = blockchainService.requireWalletAppKit().wallet();
+        KeyCrypter keyCrypter = wallet.getKeyCrypter();
+        if (keyCrypter == null) {
+            throw new IllegalStateException("Wallet is not encrypted");
+        }
+        Duration sessionTtl = ttl == null ? defaultTtl : ttl;
+        if (sessionTtl.isNegative() || sessionTtl.isZero() || sessionTtl.compareTo(maxTtl) > 0) {
+            throw new IllegalArgumentException("ttl must be between 1s and " + maxTtl);
+        }
+
+        // KDF fora do lock: assinaturas com a sessão atual continuam enquanto o scrypt roda
+        long start = System.nanoTime();
+        KeyParameter derived = keyCrypter.deriveKey(password);
+        derivationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!wallet.checkAESKey(derived)) {
+            zero(derived);
+            throw new KeyCrypterException.InvalidCipherText("Wrong wallet password");
+        }
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            key = derived;
+            unlockedUntil = Instant.now().plus(sessionTtl);
+            expiryTask = expiry.schedule(this::lock, sessionTtl.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Wallet unlocked until {}", unlockedUntil);
+            return unlockedUntil;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ends the session and zeroes the cached key. No-op when already locked.
+     */
+    public void lock() {
+        lock.writeLock().lock();
+        try {
+            if (key != null) {
+                clear();
+                log.info("Wallet locked");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * False while the wallet is still loading; callers that need the wallet check readiness themselves.
+     */
+    public boolean isEncrypted() {
+        return blockchainService.isWalletReady() && blockchainService.getWalletAppKit().wallet().isEncrypted();
+    }
+
+    /**
+     * True when the wallet is encrypted and there is no live session, i.e. {@link #withKey} would throw.
+     */
+    public boolean isLocked() {
+        return isEncrypted() && unlockedUntil().isEmpty();
+    }
+
+    public Optional<Instant> unlockedUntil() {
+        lock.readLock().lock();
+        try {
+            return key != null && Instant.now().isBefore(unlockedUntil) ? Optional.of(unlockedUntil) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} with the session key ({@code null} for an unencrypted wallet) while holding the session
+     * open. Do not keep the key after the call returns: it may be zeroed right after.
+     *
+     * @throws WalletLockedException when the wallet is encrypted and locked
+     */
+    public <T, E extends Exception> T withKey(KeyAction<T, E> action) throws E {
+        if (!isEncrypted()) {
+            return action.apply(null);
+        }
+        lock.readLock().lock();
+        try {
+            if (key == null || !Instant.now().isBefore(unlockedUntil)) {
+                misses.increment();
+                throw new WalletLockedException();
+            }
+            hits.increment();
+            return action.apply(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @FunctionalInterface
+    public interface KeyAction<T, E extends Exception> {
+        T apply(KeyParameter key) throws E;
+    }
+
+    // Chamado com o write lock
+    private void clear() {
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+            expiryTask = null;
+        }
+        if (key != null) {
+            zero(key);
+            key = null;
+        }
+        unlockedUntil = null;
+    }
+
+    // KeyParameter.getKey() devolve o próprio array interno (BouncyCastle 1.73), não uma cópia
+    private static void zero(KeyParameter keyParameter) {
+        Arrays.fill(keyParameter.getKey(), (byte) 0);
+    }
+}
@@ -0,0 +1,12 @@
+package com.mcd.wallet.service;
+
+/**
+ * The wallet is encrypted and no unlocked session is active (never unlocked, locked again or expired), so keys
+ * cannot sign. Mapped to 423 WALLET_LOCKED by the API.
+ */
+public class WalletLockedException extends IllegalStateException {
+
+    public WalletLockedException() {
+        super("Wallet is encrypted and locked; unlock it before sending");
+    }
+}
@@ -0,0 +1,12 @@
+package com.mcd.wallet.service;
+
+/**
+ * The wallet service is still starting (wallet file and block store not loaded yet), so chain-dependent
+ * operations cannot run. Mapped to 503 SYNCING by the API.
+ */
+public class WalletNotReadyException extends IllegalStateException {
+
+    public WalletNotReadyException() {
+        super("Wallet is starting; chain-dependent operations are not available yet");
+    }
+}
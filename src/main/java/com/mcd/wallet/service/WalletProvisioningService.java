@@ -0,0 +1,18 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.ProvisionedWallet;
+import org.bitcoinj.script.Script;
+
+import java.util.function.Consumer;
+
+public interface WalletProvisioningService {
+
+    /**
+     * Generates {@code count} new wallets (12-word mnemonic + first receive address) in parallel on the
+     * seed-derivation pool and hands each one to {@code consumer} on the calling thread.
+     * Only a bounded number of wallets is held in memory; nothing secret is logged.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the seed pool stays full
+     */
+    void provision(int count, String passphrase, Script.ScriptType scriptType, Consumer<ProvisionedWallet> consumer);
+}
@@ -0,0 +1,522 @@
+package com.mcd.wallet.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.mcd.wallet.config.ContextThreadFactory;
+import com.mcd.wallet.service.model.ManagedWallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.UnreadableWalletException;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many tenant wallets in one process on top of {@link BlockchainService}'s {@link PeerGroup} and block chain.
+ * Wallets live in {@code <directory>/<id>.wallet}; they are loaded on first access and saved and detached again
+ * when idle or when more than {@code max-active} are loaded, so the Bloom filter, memory and listener cost follow
+ * the active wallets only. {@link #withWallet} pins the wallet while the caller uses it: a wallet evicted while
+ * pinned stays attached until the last caller is done, and a request for it in the meantime gets the same instance
+ * back instead of a second copy loaded from disk.
+ *
+ * <p>A wallet that was unloaded misses the blocks that arrived meanwhile. On load, up to
+ * {@code max-catch-up-blocks} of them are fetched as full blocks from a connected peer and replayed into the wallet
+ * before it is attached, on the {@code wallet-loader} threads (one load per wallet id at a time); a second pass after attaching replays the blocks that reached the chain in between.
+ * Longer gaps (or no peer / headers no longer in the SPV store) leave the wallet {@link ManagedWallet#stale() stale}:
+ * it keeps following new blocks, and the missed height range is kept in {@code <id>.stale} and retried on every
+ * load until it is replayed or the wallet is rescanned.
+ * The shared chain is never rolled back for a single wallet, since that would replay blocks into every other one.
+ *
+ * <p>In {@code bitcoin.sync-mode=filters} the chain only carries headers: wallets are attached to
+ * {@link CompactFilterSync} instead, which matches their scripts against the block filters and feeds them the
+ * matching blocks.
+ */
+@Service
+public class WalletRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletRegistry.class);
+
+    private static final Pattern WALLET_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final long BLOCK_FETCH_TIMEOUT_SECONDS = 30;
+    private static final int LOADER_THREADS = 4;
+
+    private final BlockchainService blockchainService;
+    private final CompactFilterSync compactFilterSync;
+    private final NetworkParameters params;
+    private final Context context;
+    private final File directory;
+    private final int maxCatchUpBlocks;
+    private final Cache<String, Loaded> loaded;
+    // Uma carga por id: pedidos concorrentes pela mesma carteira esperam o mesmo future
+    private final ConcurrentMap<String, CompletableFuture<Loaded>> loading = new ConcurrentHashMap<>();
+    // Removidas do cache mas ainda em uso: descarregadas quando o último pino é liberado
+    private final ConcurrentMap<String, Loaded> retiring = new ConcurrentHashMap<>();
+    private final ExecutorService loader;
+    private final ScheduledExecutorService janitor;
+    private final Counter loads;
+    private final Counter unloads;
+
+    public WalletRegistry(BlockchainService blockchainService,
+                          CompactFilterSync compactFilterSync,
+                          NetworkParameters params,
+                          Context bitcoinContext,
+                          MeterRegistry meterRegistry,
+                          @Value("${wallet.registry.directory:}") String directory,
+                          @Value("${wallet.registry.max-active:1000}") long maxActive,
+                          @Value("${wallet.registry.idle-timeout:30m}") Duration idleTimeout,
+                          @Value("${wallet.registry.max-catch-up-blocks:144}") int maxCatchUpBlocks) {
+        this.blockchainService = blockchainService;
+        this.compactFilterSync = compactFilterSync;
+        this.params = params;
+        this.context = bitcoinContext;
+        this.directory = directory.isEmpty() ? new File(blockchainService.getDataDirectory(), "wallets") : new File(directory);
+        this.maxCatchUpBlocks = maxCatchUpBlocks;
+        this.loaded = CacheBuilder.newBuilder()
+                .maximumSize(maxActive)
+                .expireAfterAccess(idleTimeout)
+                .removalListener(this::retire)
+                .build();
+        this.loader = Executors.newFixedThreadPool(LOADER_THREADS, new ContextThreadFactory(bitcoinContext, "wallet-loader-%d"));
+        this.janitor = Executors.newSingleThreadScheduledExecutor(new ContextThreadFactory(bitcoinContext, "wallet-registry"));
+        this.loads = Counter.builder("wallet.registry.loads").description("Tenant wallets loaded from disk").register(meterRegistry);
+        this.unloads = Counter.builder("wallet.registry.unloads").description("Tenant wallets saved and detached").register(meterRegistry);
+        Gauge.builder("wallet.registry.active", loaded, Cache::size)
+                .description("Tenant wallets currently loaded")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create wallet directory " + directory.getAbsolutePath());
+        }
+        // Expiração do Guava só acontece em operações do cache: varrer periodicamente os ociosos
+        janitor.scheduleWithFixedDelay(loaded::cleanUp, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        janitor.shutdown();
+        janitor.awaitTermination(10, TimeUnit.SECONDS);
+        loader.shutdownNow(); // catch-up interrompido: a lacuna fica gravada em <id>.stale
+        loader.awaitTermination(10, TimeUnit.SECONDS);
+        loaded.invalidateAll(); // salva e desanexa todas as carteiras ativas (as fixadas, ao serem liberadas)
+        loaded.cleanUp();
+    }
+
+    /**
+     * Creates a new P2PKH wallet, attaches it and returns it. It starts at the current chain head.
+     */
+    public ManagedWallet create() {
+        Context.propagate(context);
+        String id = UUID.randomUUID().toString();
+        Wallet wallet = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+
+        // Carteira nova não tem histórico: marca como vista até o topo atual para não disparar catch-up
+        StoredBlock head = kit().chain().getChainHead();
+        wallet.setLastBlockSeenHash(head.getHeader().getHash());
+        wallet.setLastBlockSeenHeight(head.getHeight());
+        wallet.setLastBlockSeenTimeSecs(head.getHeader().getTimeSeconds());
+        try {
+            wallet.saveToFile(walletFile(id));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot save new wallet " + id, e);
+        }
+
+        attach(id, wallet);
+        ManagedWallet managed = new ManagedWallet(id, wallet, false);
+        loaded.put(id, new Loaded(managed));
+        log.info("Created wallet {}", id);
+        return managed;
+    }
+
+    /**
+     * Runs {@code action} on {@code executor} with the wallet pinned, loading it first if needed (the load and its
+     * catch-up run on the loader threads, not on {@code executor}). Completes with empty if no such wallet exists.
+     */
+    public <T> CompletableFuture<Optional<T>> withWallet(String id, Function<ManagedWallet, T> action, Executor executor) {
+        if (!WALLET_ID.matcher(id).matches()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return acquire(id).thenComposeAsync(entry -> {
+            if (entry == null) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            if (!entry.pin()) {
+                return withWallet(id, action, executor); // descarregada entre a carga e a execução: carregar de novo
+            }
+            try {
+                return CompletableFuture.completedFuture(Optional.ofNullable(action.apply(entry.managed)));
+            } finally {
+                release(entry);
+            }
+        }, executor);
+    }
+
+    /**
+     * The wallet with this id, loading it from disk if needed; empty if no such wallet exists. The wallet is not
+     * pinned and may be unloaded at any time: use {@link #withWallet} to act on it.
+     */
+    public Optional<ManagedWallet> find(String id) {
+        if (!WALLET_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(acquire(id).join()).map(entry -> entry.managed);
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Cannot load wallet " + id, e.getCause());
+        }
+    }
+
+    /**
+     * Sends {@code value} to {@code to} from a tenant wallet through the shared peer group.
+     */
+    public Wallet.SendResult send(ManagedWallet managed, Address to, Coin value) throws InsufficientMoneyException {
+        Context.propagate(context);
+        return managed.wallet().sendCoins(kit().peerGroup(), to, value);
+    }
+
+    public long activeCount() {
+        return loaded.size();
+    }
+
+    // null no future: carteira inexistente
+    private CompletableFuture<Loaded> acquire(String id) {
+        Loaded entry = loaded.getIfPresent(id);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry);
+        }
+        CompletableFuture<Loaded> created = new CompletableFuture<>();
+        CompletableFuture<Loaded> pending = loading.putIfAbsent(id, created);
+        if (pending != null) {
+            return pending;
+        }
+        try {
+            loader.execute(() -> {
+                try {
+                    Loaded result = loaded.getIfPresent(id); // carregada entre o getIfPresent e o putIfAbsent
+                    if (result == null) {
+                        result = reviveOrLoad(id);
+                    }
+                    if (result != null) {
+                        loaded.put(id, result);
+                    }
+                    loading.remove(id, created);
+                    created.complete(result);
+                } catch (Exception e) {
+                    loading.remove(id, created);
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            loading.remove(id, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private Loaded reviveOrLoad(String id) throws UnreadableWalletException, IOException, InterruptedException {
+        Loaded retired = retiring.get(id);
+        if (retired != null) {
+            if (retired.revive()) {
+                retiring.remove(id, retired);
+                log.debug("Wallet {} still in use; kept loaded", id);
+                return retired;
+            }
+            retired.awaitUnloaded(); // estado pendente sendo gravado: ler o arquivo só depois
+        }
+        return walletFile(id).isFile() ? new Loaded(load(id)) : null;
+    }
+
+    private ManagedWallet load(String id) throws UnreadableWalletException, IOException {
+        Context.propagate(context);
+        Wallet wallet = Wallet.loadFromFile(walletFile(id));
+        Gap gap = readGap(id);
+        if (gap != null && catchUp(id, wallet, gap.from(), gap.to())) {
+            gap = null;
+        }
+        int from = wallet.getLastBlockSeenHeight() + 1;
+        int head = kit().chain().getChainHead().getHeight();
+        if (!catchUp(id, wallet, from, head)) {
+            gap = Gap.merge(gap, from, head);
+        }
+        // Lacuna gravada antes de anexar: o autosave pode avançar a última altura vista logo em seguida
+        writeGap(id, gap);
+
+        attach(id, wallet);
+        // Blocos que chegaram à cadeia entre o catch-up e o registro dos listeners
+        int attachedHead = kit().chain().getChainHead().getHeight();
+        if (attachedHead > head && !catchUp(id, wallet, head + 1, attachedHead)) {
+            gap = Gap.merge(gap, head + 1, attachedHead);
+            writeGap(id, gap);
+        }
+        loads.increment();
+        return new ManagedWallet(id, wallet, gap != null);
+    }
+
+    private void attach(String id, Wallet wallet) {
+        WalletAppKit kit = kit();
+        if (compactFilterSync.isStarted()) {
+            compactFilterSync.addWallet(wallet); // modo filters: a cadeia só tem cabeçalhos
+        } else {
+            // Mesmos listeners que BlockChain.addWallet registra, mas sem o rollback da cadeia compartilhada
+            AbstractBlockChain chain = kit.chain();
+            chain.addNewBestBlockListener(Threading.SAME_THREAD, wallet);
+            chain.addReorganizeListener(Threading.SAME_THREAD, wallet);
+            chain.addTransactionReceivedListener(Threading.SAME_THREAD, wallet);
+        }
+        kit.peerGroup().addWallet(wallet);
+        wallet.autosaveToFile(walletFile(id), 5, TimeUnit.SECONDS, null);
+    }
+
+    private void retire(RemovalNotification<String, Loaded> notification) {
+        Loaded entry = notification.getValue();
+        if (entry != null && entry.retire(retiring)) {
+            unload(entry);
+        }
+    }
+
+    private void release(Loaded entry) {
+        if (entry.unpin()) {
+            unload(entry);
+        }
+    }
+
+    private void unload(Loaded entry) {
+        ManagedWallet managed = entry.managed;
+        try {
+            WalletAppKit kit = kit();
+            kit.peerGroup().removeWallet(managed.wallet());
+            kit.chain().removeWallet(managed.wallet());
+            compactFilterSync.removeWallet(managed.wallet());
+            managed.wallet().shutdownAutosaveAndWait(); // grava o estado pendente
+        } finally {
+            entry.unloaded.countDown();
+            retiring.remove(managed.id(), entry);
+        }
+        unloads.increment();
+        log.debug("Unloaded wallet {}", managed.id());
+    }
+
+    /**
+     * Replays the blocks at heights {@code from..to} of the current chain into the wallet. Transactions the wallet
+     * already has in a block are skipped, so the range may overlap blocks it saw. Returns false if the range
+     * could not be replayed.
+     */
+    private boolean catchUp(String id, Wallet wallet, int from, int to) {
+        if (to < from) {
+            return true;
+        }
+        if (from < 1 || to - from + 1 > maxCatchUpBlocks) {
+            log.warn("Wallet {} missed blocks {}..{}; needs a rescan", id, from, to);
+            return false;
+        }
+
+        WalletAppKit kit = kit();
+        try {
+            Deque<StoredBlock> missed = new ArrayDeque<>();
+            BlockStore store = kit.store();
+            StoredBlock cursor = kit.chain().getChainHead();
+            while (cursor != null && cursor.getHeight() >= from) {
+                if (cursor.getHeight() <= to) {
+                    missed.push(cursor);
+                }
+                cursor = cursor.getPrev(store);
+            }
+            if (cursor == null || (from == wallet.getLastBlockSeenHeight() + 1
+                    && !cursor.getHeader().getHash().equals(wallet.getLastBlockSeenHash()))) {
+                log.warn("Wallet {} blocks {}..{} are not on the current chain; needs a rescan", id, from, to);
+                return false;
+            }
+
+            Peer peer = kit.peerGroup().getDownloadPeer();
+            if (peer == null) {
+                log.warn("No peer to catch up wallet {} (blocks {}..{})", id, from, to);
+                return false;
+            }
+            for (StoredBlock storedBlock : missed) {
+                Block block = peer.getBlock(storedBlock.getHeader().getHash())
+                        .get(BLOCK_FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                replay(wallet, storedBlock, block);
+            }
+            log.info("Wallet {} caught up blocks {}..{}", id, from, to);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (BlockStoreException | ExecutionException | TimeoutException | RuntimeException e) {
+            log.warn("Catch-up of wallet {} (blocks {}..{}) failed; needs a rescan", id, from, to, e);
+            return false;
+        }
+    }
+
+    // Mesma sequência da cadeia; um bloco abaixo da última altura vista só acrescenta transações
+    private static void replay(Wallet wallet, StoredBlock storedBlock, Block block) {
+        List<Transaction> received = new ArrayList<>();
+        int relativityOffset = 0;
+        for (Transaction tx : block.getTransactions()) {
+            Transaction known = wallet.getTransaction(tx.getTxId());
+            if (known == null && wallet.isTransactionRelevant(tx)) {
+                wallet.receiveFromBlock(tx, storedBlock, AbstractBlockChain.NewBlockType.BEST_CHAIN, relativityOffset);
+                received.add(tx);
+            } else if (known != null && known.getConfidence().getConfidenceType() != TransactionConfidence.ConfidenceType.BUILDING) {
+                wallet.notifyTransactionIsInBlock(tx.getTxId(), storedBlock, AbstractBlockChain.NewBlockType.BEST_CHAIN, relativityOffset);
+                received.add(known);
+            }
+            relativityOffset++;
+        }
+        int bestHeight = wallet.getLastBlockSeenHeight();
+        if (storedBlock.getHeight() > bestHeight) {
+            wallet.notifyNewBestBlock(storedBlock);
+        } else {
+            for (Transaction tx : received) {
+                wallet.getTransaction(tx.getTxId()).getConfidence().setDepthInBlocks(bestHeight - storedBlock.getHeight() + 1);
+            }
+        }
+    }
+
+    private Gap readGap(String id) throws IOException {
+        File file = gapFile(id);
+        if (!file.isFile()) {
+            return null;
+        }
+        String[] heights = Files.readString(file.toPath()).trim().split(" ");
+        return new Gap(Integer.parseInt(heights[0]), Integer.parseInt(heights[1]));
+    }
+
+    private void writeGap(String id, Gap gap) throws IOException {
+        File file = gapFile(id);
+        if (gap == null) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+        File tmp = new File(directory, id + ".stale.tmp");
+        Files.writeString(tmp.toPath(), gap.from() + " " + gap.to() + "\n");
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Estado de uma carteira carregada; transições sob o monitor da própria entrada (curtas, sem espera)
+    private static final class Loaded {
+
+        final ManagedWallet managed;
+        final CountDownLatch unloaded = new CountDownLatch(1);
+        private int pins;
+        private boolean evicted;
+        private boolean unloading;
+
+        Loaded(ManagedWallet managed) {
+            this.managed = managed;
+        }
+
+        synchronized boolean pin() {
+            if (unloading) {
+                return false;
+            }
+            pins++;
+            return true;
+        }
+
+        // true: o chamador é o último e a carteira já saiu do cache, então deve descarregá-la
+        synchronized boolean unpin() {
+            pins--;
+            if (pins > 0 || !evicted || unloading) {
+                return false;
+            }
+            unloading = true;
+            return true;
+        }
+
+        // true: ninguém a está usando, descarregar agora; senão fica em retiring até o último unpin
+        synchronized boolean retire(ConcurrentMap<String, Loaded> retiring) {
+            evicted = true;
+            if (pins > 0) {
+                retiring.put(managed.id(), this);
+                return false;
+            }
+            unloading = true;
+            return true;
+        }
+
+        // De volta ao cache, se ainda não começou a ser descarregada
+        synchronized boolean revive() {
+            if (unloading) {
+                return false;
+            }
+            evicted = false;
+            return true;
+        }
+
+        void awaitUnloaded() throws InterruptedException {
+            unloaded.await();
+        }
+    }
+
+    // Alturas (inclusivas) dos blocos que a carteira não recebeu
+    private record Gap(int from, int to) {
+
+        static Gap merge(Gap gap, int from, int to) {
+            return gap == null ? new Gap(from, to) : new Gap(Math.min(gap.from, from), Math.max(gap.to, to));
+        }
+    }
+
+    private WalletAppKit kit() {
+        return blockchainService.requireWalletAppKit();
+    }
+
+    private File walletFile(String id) {
+        return new File(directory, id + ".wallet");
+    }
+
+    private File gapFile(String id) {
+        return new File(directory, id + ".stale");
+    }
+}
@@ -1,6 +1,16 @@
 package com.mcd.wallet.service;
 
+import com.mcd.wallet.service.model.DerivedSeed;
+
+import java.util.List;
+
 public interface WalletService {
     String generateMnemonic();
     byte[] deriveSeed(String mnemonic, String passphrase);
+
+    /**
+     * Derives the seeds of many mnemonics (same passphrase) in parallel on the seed-derivation pool.
+     * Results are in the same order as {@code mnemonics}; an invalid mnemonic fails only its own entry.
+     */
+    List<DerivedSeed> deriveSeeds(List<String> mnemonics, String passphrase);
 }
@@ -0,0 +1,355 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.DepositMatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.BloomFilter;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerFilterProvider;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.SegwitAddress;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.listeners.TransactionReceivedInBlockListener;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.utils.Threading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Deposit addresses watched outside the bitcoinj wallet: a {@link Hash160Table} of key hashes (P2PKH and
+ * P2WPKH share the hash160) mapped to their derivation index, so millions of addresses cost ~30 bytes each
+ * and matching an output is one hash probe on the scriptPubKey bytes.
+ * <p>
+ * Also a {@link PeerFilterProvider}: the index is merged into the peer bloom filter while the merged filter
+ * stays under {@code wallet.watch.max-false-positive-rate}; past that (BIP-37 caps filters at 36 kB) it asks
+ * for a match-all filter instead of one that matches almost everything by accident. Large deployments should
+ * run with {@code bitcoin.bloom-filtering=false} and let the index do the filtering on full blocks.
+ */
+@Service
+public class WatchedAddressIndex implements PeerFilterProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(WatchedAddressIndex.class);
+
+    private static final int LOAD_BATCH = 1024;
+    private static final int P2PKH_LENGTH = 25;  // OP_DUP OP_HASH160 <20> OP_EQUALVERIFY OP_CHECKSIG
+    private static final int P2WPKH_LENGTH = 22; // OP_0 <20>
+
+    private final NetworkParameters params;
+    private final KeyDerivationService keyDerivationService;
+    private final double maxFalsePositiveRate;
+    private final Counter matchCounter;
+    private final List<Consumer<DepositMatch>> listeners = new CopyOnWriteArrayList<>();
+
+    private final StampedLock lock = new StampedLock();
+    private final Hash160Table table = new Hash160Table();
+
+    // Filtro da última rodada e chaves adicionadas desde então (atualização incremental)
+    private BloomFilter filter;
+    private int filterElements;
+    private double filterFalsePositiveRate;
+    private long filterTweak;
+    private byte[] pendingKeys = new byte[0];
+    private int pendingCount;
+    private boolean matchAll;
+
+    private volatile PeerGroup peerGroup;
+
+    public WatchedAddressIndex(NetworkParameters params, KeyDerivationService keyDerivationService,
+                               MeterRegistry meterRegistry,
+                               @Value("${wallet.watch.max-false-positive-rate:0.001}") double maxFalsePositiveRate) {
+        this.params = params;
+        this.keyDerivationService = keyDerivationService;
+        this.maxFalsePositiveRate = maxFalsePositiveRate;
+        this.matchCounter = Counter.builder("wallet.watch.matches")
+                .description("Transaction outputs paying a watched address")
+                .register(meterRegistry);
+        Gauge.builder("wallet.watch.addresses", this, WatchedAddressIndex::size)
+                .description("Watched deposit addresses")
+                .register(meterRegistry);
+        Gauge.builder("wallet.watch.memory", this, WatchedAddressIndex::memoryBytes)
+                .description("Heap used by the watched-address table")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts matching block and mempool transactions and contributes to the peer bloom filter.
+     */
+    public void bind(AbstractBlockChain chain, PeerGroup peerGroup) {
+        chain.addTransactionReceivedListener(Threading.SAME_THREAD, new TransactionReceivedInBlockListener() {
+            @Override
+            public void receiveFromBlock(Transaction tx, StoredBlock block, AbstractBlockChain.NewBlockType blockType,
+                                         int relativityOffset) {
+                if (blockType == AbstractBlockChain.NewBlockType.BEST_CHAIN) {
+                    match(tx, block.getHeight());
+                }
+            }
+
+            @Override
+            public boolean notifyTransactionIsInBlock(Sha256Hash txHash, StoredBlock block,
+                                                      AbstractBlockChain.NewBlockType blockType, int relativityOffset) {
+                return false; // só casamos pelo conteúdo da transação
+            }
+        });
+        peerGroup.addOnTransactionBroadcastListener(Threading.SAME_THREAD, (peer, tx) -> match(tx, -1));
+        peerGroup.addPeerFilterProvider(this);
+        this.peerGroup = peerGroup;
+    }
+
+    public void addMatchListener(Consumer<DepositMatch> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Derives {@code count} addresses from {@code fromIndex} and watches them. Returns how many were new.
+     */
+    public int watch(byte[] seed, int fromIndex, int count, Script.ScriptType scriptType) {
+        long writeStamp = lock.writeLock();
+        try {
+            table.ensureCapacity(table.size() + count);
+        } finally {
+            lock.unlockWrite(writeStamp);
+        }
+
+        // Inserção em lotes para não segurar o lock de escrita durante a derivação
+        byte[][] hashes = new byte[LOAD_BATCH][];
+        int[] indexes = new int[LOAD_BATCH];
+        int[] batchSize = {0};
+        int[] added = {0};
+        keyDerivationService.streamAddresses(seed, fromIndex, count, scriptType, derived -> {
+            hashes[batchSize[0]] = derived.address().getHash();
+            indexes[batchSize[0]] = derived.index();
+            if (++batchSize[0] == LOAD_BATCH) {
+                added[0] += addAll(hashes, indexes, batchSize[0]);
+                batchSize[0] = 0;
+            }
+        });
+        added[0] += addAll(hashes, indexes, batchSize[0]);
+
+        log.info("Watching {} new addresses ({} total, {} kB)", added[0], size(), memoryBytes() / 1024);
+        PeerGroup group = peerGroup;
+        if (group != null && added[0] > 0) {
+            group.recalculateFastCatchupAndFilter(PeerGroup.FilterRecalculateMode.SEND_IF_CHANGED);
+        }
+        return added[0];
+    }
+
+    /**
+     * Derivation index of a watched address, or -1.
+     */
+    public int indexOf(Address address) {
+        byte[] hash = address.getHash();
+        if (hash.length != Hash160Table.KEY_LENGTH) {
+            return -1;
+        }
+        return lookup(hash, 0);
+    }
+
+    /**
+     * Outputs of {@code tx} paying watched addresses; listeners are notified of each one.
+     */
+    public List<DepositMatch> match(Transaction tx, int height) {
+        List<DepositMatch> matches = null;
+        for (TransactionOutput output : tx.getOutputs()) {
+            byte[] script = output.getScriptBytes();
+            int derivationIndex;
+            Address address;
+            if (isP2PKH(script)) {
+                derivationIndex = lookup(script, 3);
+                address = derivationIndex < 0 ? null : LegacyAddress.fromPubKeyHash(params, Arrays.copyOfRange(script, 3, 23));
+            } else if (isP2WPKH(script)) {
+                derivationIndex = lookup(script, 2);
+                address = derivationIndex < 0 ? null : SegwitAddress.fromHash(params, Arrays.copyOfRange(script, 2, 22));
+            } else {
+                continue;
+            }
+            if (address == null) {
+                continue;
+            }
+            if (matches == null) {
+                matches = new ArrayList<>(2);
+            }
+            matches.add(new DepositMatch(tx.getTxId().toString(), output.getIndex(), address.toString(),
+                    derivationIndex, output.getValue().toPlainString(), height));
+        }
+        if (matches == null) {
+            return List.of();
+        }
+        for (DepositMatch deposit : matches) {
+            matchCounter.increment();
+            log.info("Deposit to watched address {} (index {}): {} BTC in {}", deposit.address(),
+                    deposit.derivationIndex(), deposit.amount(), deposit.txId());
+            listeners.forEach(listener -> listener.accept(deposit));
+        }
+        return matches;
+    }
+
+    /**
+     * Calls {@code consumer} with every watched hash160 under the read lock. The array is reused between calls.
+     */
+    public void forEachHash(Consumer<byte[]> consumer) {
+        long stamp = lock.readLock();
+        try {
+            table.forEach((key, value) -> consumer.accept(key));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return table.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return table.memoryBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isFilterMatchAll() {
+        long stamp = lock.readLock();
+        try {
+            return matchAll;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long getEarliestKeyCreationTime() {
+        return Long.MAX_VALUE; // endereços novos: não antecipa o fast catch-up da carteira
+    }
+
+    @Override
+    public void beginBloomFilterCalculation() {
+    }
+
+    @Override
+    public int getBloomFilterElementCount() {
+        return size();
+    }
+
+    @Override
+    public BloomFilter getBloomFilter(int size, double falsePositiveRate, long nTweak) {
+        long stamp = lock.writeLock();
+        try {
+            boolean sameShape = filter != null && filterElements == size
+                    && filterFalsePositiveRate == falsePositiveRate && filterTweak == nTweak;
+            if (!sameShape) {
+                filter = new BloomFilter(size, falsePositiveRate, nTweak);
+                filterElements = size;
+                filterFalsePositiveRate = falsePositiveRate;
+                filterTweak = nTweak;
+                pendingCount = 0;
+                boolean overBound = filter.getFalsePositiveRate(size) > maxFalsePositiveRate;
+                if (overBound) {
+                    filter.setMatchAll();
+                } else {
+                    table.forEach((key, value) -> filter.insert(key));
+                }
+                if (overBound != matchAll) {
+                    log.warn(overBound
+                            ? "Watched addresses exceed the bloom filter capacity at fp rate {}: requesting all transactions"
+                            : "Watched addresses fit the bloom filter again at fp rate {}", maxFalsePositiveRate);
+                }
+                matchAll = overBound;
+            } else if (!matchAll) {
+                byte[] key = new byte[Hash160Table.KEY_LENGTH];
+                for (int i = 0; i < pendingCount; i++) {
+                    System.arraycopy(pendingKeys, i * Hash160Table.KEY_LENGTH, key, 0, Hash160Table.KEY_LENGTH);
+                    filter.insert(key);
+                }
+            }
+            pendingCount = 0;
+            return filter;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void endBloomFilterCalculation() {
+    }
+
+    private int lookup(byte[] bytes, int offset) {
+        long stamp = lock.tryOptimisticRead();
+        int value = table.get(bytes, offset);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return table.get(bytes, offset);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int addAll(byte[][] hashes, int[] indexes, int count) {
+        int added = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (table.add(hashes[i], indexes[i])) {
+                    added++;
+                    trackPending(hashes[i]);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return added;
+    }
+
+    // Chaves ainda não inseridas no filtro atual; se acumular demais, a próxima rodada reconstrói do zero
+    private void trackPending(byte[] hash) {
+        if (filter == null || matchAll) {
+            return;
+        }
+        if (pendingCount >= Math.max(1024, table.size() / 4)) {
+            filter = null;
+            pendingCount = 0;
+            pendingKeys = new byte[0];
+            return;
+        }
+        int offset = pendingCount * Hash160Table.KEY_LENGTH;
+        if (offset + Hash160Table.KEY_LENGTH > pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, Math.max(offset + Hash160Table.KEY_LENGTH, pendingKeys.length * 2));
+        }
+        System.arraycopy(hash, 0, pendingKeys, offset, Hash160Table.KEY_LENGTH);
+        pendingCount++;
+    }
+
+    private static boolean isP2PKH(byte[] script) {
+        return script.length == P2PKH_LENGTH && script[0] == (byte) 0x76 && script[1] == (byte) 0xa9
+                && script[2] == 20 && script[23] == (byte) 0x88 && script[24] == (byte) 0xac;
+    }
+
+    private static boolean isP2WPKH(byte[] script) {
+        return script.length == P2WPKH_LENGTH && script[0] == 0 && script[1] == 20;
+    }
+}
@@ -0,0 +1,212 @@
+package com.mcd.wallet.service.impl;
+
+import com.mcd.wallet.service.AccountDiscoveryService;
+import com.mcd.wallet.service.KeyDerivationService;
+import com.mcd.wallet.service.ScriptActivitySource;
+import com.mcd.wallet.service.model.DiscoveredChain;
+import com.mcd.wallet.service.model.DiscoveryResult;
+import com.mcd.wallet.service.model.ScriptActivity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.script.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Gap-limit discovery over every open chain at once. The chain data is read once by the
+ * {@link ScriptActivitySource}; each round then derives the next window of every chain whose unused tail is
+ * shorter than the gap limit (in parallel on the derivation pool) and checks all of them in memory. Windows grow
+ * to twice the used range, so a chain with n used addresses needs O(log n) passes instead of n / gap.
+ */
+@Service
+public class AccountDiscoveryServiceImpl implements AccountDiscoveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountDiscoveryServiceImpl.class);
+
+    private static final int CHAINS_PER_ACCOUNT = 2; // 0: recebimento, 1: troco
+
+    private final KeyDerivationService keyDerivationService;
+    private final ScriptActivitySource activitySource;
+    private final ExecutorService derivationExecutor;
+    private final int coinType;
+    private final int gapLimit;
+    private final int accountLookahead;
+    private final int maxIndex;
+    private final Timer discoveryTimer;
+    private final Timer passTimer;
+
+    public AccountDiscoveryServiceImpl(KeyDerivationService keyDerivationService,
+                                       ScriptActivitySource activitySource,
+                                       @Qualifier("derivationExecutor") ExecutorService derivationExecutor,
+                                       NetworkParameters networkParameters,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${wallet.discovery.gap-limit:20}") int gapLimit,
+                                       @Value("${wallet.discovery.account-lookahead:1}") int accountLookahead,
+                                       @Value("${wallet.discovery.max-index:1000000}") int maxIndex) {
+        if (gapLimit < 1 || accountLookahead < 1) {
+            throw new IllegalArgumentException("wallet.discovery needs gap-limit >= 1 and account-lookahead >= 1");
+        }
+        this.keyDerivationService = keyDerivationService;
+        this.activitySource = activitySource;
+        this.derivationExecutor = derivationExecutor;
+        this.coinType = networkParameters.getId().equals(NetworkParameters.ID_MAINNET) ? 0 : 1;
+        this.gapLimit = gapLimit;
+        this.accountLookahead = accountLookahead;
+        this.maxIndex = maxIndex;
+        this.discoveryTimer = Timer.builder("wallet.discovery")
+                .description("Account discovery time per restore")
+                .register(meterRegistry);
+        this.passTimer = Timer.builder("wallet.discovery.pass")
+                .description("Derivation and check of one round of discovery windows")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public DiscoveryResult discover(byte[] seed, List<Script.ScriptType> scriptTypes, int fromHeight) {
+        long start = System.nanoTime();
+        List<Chain> chains = new ArrayList<>();
+        Map<Script.ScriptType, Integer> openAccounts = new EnumMap<>(Script.ScriptType.class);
+        for (Script.ScriptType scriptType : scriptTypes) {
+            openAccounts.put(scriptType, 0);
+            openAccounts(chains, openAccounts, scriptType, accountLookahead);
+        }
+
+        ScriptActivity activity = activitySource.scan(fromHeight);
+        int passes = 0;
+        long scriptsChecked = 0;
+        List<Window> windows;
+        while (!(windows = nextWindows(chains)).isEmpty()) {
+            long passStart = System.nanoTime();
+            List<byte[]> scripts = derive(seed, windows);
+            BitSet used = activity.findUsed(scripts);
+            passTimer.record(Duration.ofNanos(System.nanoTime() - passStart));
+            passes++;
+            scriptsChecked += scripts.size();
+
+            int offset = 0;
+            for (Window window : windows) {
+                for (int i = used.nextSetBit(offset); i >= 0 && i < offset + window.count(); i = used.nextSetBit(i + 1)) {
+                    window.chain().markUsed(window.fromIndex() + i - offset);
+                }
+                window.chain().checkedTo = window.fromIndex() + window.count();
+                offset += window.count();
+            }
+            // Conta usada abre as próximas (account-lookahead contas vazias depois da última usada)
+            for (Script.ScriptType scriptType : scriptTypes) {
+                int lastUsedAccount = chains.stream()
+                        .filter(chain -> chain.scriptType == scriptType && chain.lastUsed >= 0)
+                        .mapToInt(chain -> chain.account)
+                        .max().orElse(-1);
+                openAccounts(chains, openAccounts, scriptType, lastUsedAccount + 1 + accountLookahead);
+            }
+        }
+
+        List<DiscoveredChain> discovered = chains.stream()
+                .filter(chain -> chain.lastUsed >= 0)
+                .sorted(Comparator.comparing((Chain chain) -> chain.scriptType)
+                        .thenComparingInt(chain -> chain.account)
+                        .thenComparingInt(chain -> chain.chain))
+                .map(chain -> new DiscoveredChain(chain.scriptType, path(chain), chain.account, chain.chain,
+                        chain.usedCount, chain.lastUsed))
+                .toList();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        discoveryTimer.record(elapsed);
+        log.info("Account discovery: {} used chains, {} passes, {} scripts checked from height {} in {} ms",
+                discovered.size(), passes, scriptsChecked, activity.scannedFromHeight(), elapsed.toMillis());
+        return new DiscoveryResult(discovered, passes, scriptsChecked, activity.scannedFromHeight(), elapsed);
+    }
+
+    private void openAccounts(List<Chain> chains, Map<Script.ScriptType, Integer> openAccounts,
+                              Script.ScriptType scriptType, int accounts) {
+        for (int account = openAccounts.get(scriptType); account < accounts; account++) {
+            for (int chain = 0; chain < CHAINS_PER_ACCOUNT; chain++) {
+                chains.add(new Chain(scriptType, account, chain));
+            }
+            openAccounts.put(scriptType, account + 1);
+        }
+    }
+
+    private List<Window> nextWindows(List<Chain> chains) {
+        List<Window> windows = new ArrayList<>();
+        for (Chain chain : chains) {
+            int needed = Math.min(maxIndex, chain.lastUsed + 1 + gapLimit);
+            if (chain.checkedTo < needed) {
+                // Dobra a faixa usada: cadeias longas fecham em O(log n) passadas
+                int to = Math.min(maxIndex, Math.max(needed, 2 * (chain.lastUsed + 1)));
+                windows.add(new Window(chain, chain.checkedTo, to - chain.checkedTo));
+            }
+        }
+        return windows;
+    }
+
+    private List<byte[]> derive(byte[] seed, List<Window> windows) {
+        List<Future<List<byte[]>>> futures = new ArrayList<>(windows.size());
+        for (Window window : windows) {
+            Chain chain = window.chain();
+            futures.add(derivationExecutor.submit(() -> keyDerivationService.deriveScripts(
+                    seed, chain.scriptType, chain.account, chain.chain, window.fromIndex(), window.count())));
+        }
+        List<byte[]> scripts = new ArrayList<>();
+        try {
+            for (Future<List<byte[]>> future : futures) {
+                scripts.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Account discovery interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Address derivation failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return scripts;
+    }
+
+    private String path(Chain chain) {
+        int purpose = switch (chain.scriptType) {
+            case P2PKH -> 44;
+            case P2WPKH -> 84;
+            case P2TR -> 86;
+            default -> throw new IllegalArgumentException("Unsupported script type: " + chain.scriptType);
+        };
+        return "m/" + purpose + "'/" + coinType + "'/" + chain.account + "'/" + chain.chain;
+    }
+
+    private static final class Chain {
+        final Script.ScriptType scriptType;
+        final int account;
+        final int chain;
+        int checkedTo;
+        int lastUsed = -1;
+        int usedCount;
+
+        Chain(Script.ScriptType scriptType, int account, int chain) {
+            this.scriptType = scriptType;
+            this.account = account;
+            this.chain = chain;
+        }
+
+        void markUsed(int index) {
+            usedCount++;
+            lastUsed = Math.max(lastUsed, index);
+        }
+    }
+
+    private record Window(Chain chain, int fromIndex, int count) {
+    }
+}
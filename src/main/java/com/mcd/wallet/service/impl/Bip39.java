@@ -0,0 +1,220 @@
+package com.mcd.wallet.service.impl;
+
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.crypto.MnemonicCode;
+import org.bitcoinj.crypto.MnemonicException;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BIP-39 helpers that work directly on the space-separated phrase.
+ * Produces the same results as bitcoinj's {@code MnemonicCode.check} / {@code DeterministicSeed}
+ * without splitting the phrase into lists, and uses the JCE PBKDF2 instead of bitcoinj's pure-Java one.
+ */
+final class Bip39 {
+
+    private static final int PBKDF2_ROUNDS = 2048;
+    private static final int SEED_BITS = 512;
+
+    // Lista inglesa BIP-39, em ordem alfabética (permite busca binária sem criar substrings)
+    private static final String[] WORDS = MnemonicCode.INSTANCE.getWordList().toArray(new String[0]);
+
+    // Um CSPRNG por thread: sem contenção no lock do SecureRandom compartilhado e sem re-seed a cada chamada
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private static final ThreadLocal<SecretKeyFactory> PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA512 not available", e);
+        }
+    });
+
+    static {
+        if (!isSorted(MnemonicCode.INSTANCE.getWordList())) {
+            throw new IllegalStateException("BIP-39 word list is expected to be sorted");
+        }
+    }
+
+    private Bip39() {
+    }
+
+    /**
+     * New mnemonic from {@code entropyBytes} (16 → 12 words, 32 → 24 words) of the calling thread's CSPRNG.
+     */
+    static String newMnemonic(int entropyBytes) {
+        byte[] entropy = new byte[entropyBytes];
+        RANDOM.get().nextBytes(entropy);
+        try {
+            return toMnemonic(entropy);
+        } finally {
+            Arrays.fill(entropy, (byte) 0);
+        }
+    }
+
+    /**
+     * Same words as {@code MnemonicCode.toMnemonic}, joined by single spaces.
+     */
+    static String toMnemonic(byte[] entropy) {
+        if (entropy.length < 16 || entropy.length > 32 || entropy.length % 4 != 0) {
+            throw new IllegalArgumentException("Entropy must be 16-32 bytes and a multiple of 4");
+        }
+        byte[] hash = Sha256Hash.hash(entropy);
+        int entropyBits = entropy.length * 8;
+        int wordCount = (entropyBits + entropyBits / 32) / 11;
+
+        StringBuilder mnemonic = new StringBuilder(wordCount * 9);
+        for (int word = 0; word < wordCount; word++) {
+            int index = 0;
+            for (int bit = word * 11; bit < word * 11 + 11; bit++) {
+                boolean set = bit < entropyBits
+                        ? (entropy[bit >>> 3] & (1 << (7 - (bit & 7)))) != 0
+                        : (hash[(bit - entropyBits) >>> 3] & (1 << (7 - ((bit - entropyBits) & 7)))) != 0;
+                index = (index << 1) | (set ? 1 : 0);
+            }
+            if (word > 0) {
+                mnemonic.append(' ');
+            }
+            mnemonic.append(WORDS[index]);
+        }
+        return mnemonic.toString();
+    }
+
+    /**
+     * The phrase with leading and trailing whitespace removed and each run of whitespace between words replaced
+     * by a single space. Returns {@code mnemonic} itself when it is already in that form.
+     */
+    static String normalize(String mnemonic) {
+        int length = mnemonic.length();
+        boolean normalized = length > 0 && mnemonic.charAt(0) != ' ' && mnemonic.charAt(length - 1) != ' ';
+        for (int i = 0; i < length && normalized; i++) {
+            char c = mnemonic.charAt(i);
+            normalized = c == ' ' ? mnemonic.charAt(i - 1) != ' ' : !Character.isWhitespace(c);
+        }
+        if (normalized) {
+            return mnemonic;
+        }
+        StringBuilder words = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            char c = mnemonic.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                words.append(c);
+            } else if (!words.isEmpty() && words.charAt(words.length() - 1) != ' ') {
+                words.append(' ');
+            }
+        }
+        if (!words.isEmpty() && words.charAt(words.length() - 1) == ' ') {
+            words.setLength(words.length() - 1);
+        }
+        return words.toString();
+    }
+
+    /**
+     * Validates word count, words and checksum of a phrase whose words are separated by single spaces.
+     */
+    static void check(String mnemonic) throws MnemonicException {
+        int wordCount = 1;
+        for (int i = 0; i < mnemonic.length(); i++) {
+            if (mnemonic.charAt(i) == ' ') {
+                wordCount++;
+            }
+        }
+        if (mnemonic.isEmpty() || wordCount % 3 != 0) {
+            throw new MnemonicException.MnemonicLengthException("Word list size must be multiple of three words.");
+        }
+
+        int totalBits = wordCount * 11;
+        int checksumBits = totalBits / 33;
+        int entropyBytes = (totalBits - checksumBits) / 8;
+        byte[] bits = new byte[(totalBits + 7) / 8];
+
+        int bitPosition = 0;
+        int start = 0;
+        while (start <= mnemonic.length()) {
+            int end = mnemonic.indexOf(' ', start);
+            if (end < 0) {
+                end = mnemonic.length();
+            }
+            int index = indexOf(mnemonic, start, end);
+            if (index < 0) {
+                throw new MnemonicException.MnemonicWordException(mnemonic.substring(start, end));
+            }
+            for (int bit = 10; bit >= 0; bit--, bitPosition++) {
+                if ((index & (1 << bit)) != 0) {
+                    bits[bitPosition >>> 3] |= (byte) (1 << (7 - (bitPosition & 7)));
+                }
+            }
+            start = end + 1;
+        }
+
+        byte[] hash = Sha256Hash.hash(bits, 0, entropyBytes);
+        for (int i = 0; i < checksumBits; i++) {
+            int position = entropyBytes * 8 + i;
+            boolean expected = (hash[i >>> 3] & (1 << (7 - (i & 7)))) != 0;
+            boolean actual = (bits[position >>> 3] & (1 << (7 - (position & 7)))) != 0;
+            if (expected != actual) {
+                throw new MnemonicException.MnemonicChecksumException();
+            }
+        }
+    }
+
+    /**
+     * PBKDF2-HMAC-SHA512(mnemonic, "mnemonic" + passphrase, 2048). Like bitcoinj, no NFKD normalization is applied.
+     */
+    static byte[] toSeed(String mnemonic, String passphrase) {
+        PBEKeySpec spec = new PBEKeySpec(mnemonic.toCharArray(),
+                ("mnemonic" + passphrase).getBytes(StandardCharsets.UTF_8), PBKDF2_ROUNDS, SEED_BITS);
+        try {
+            return PBKDF2.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 failed", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static int indexOf(String mnemonic, int start, int end) {
+        int low = 0;
+        int high = WORDS.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(WORDS[mid], mnemonic, start, end);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Equivalente a word.compareTo(mnemonic.substring(start, end)), sem alocar
+    private static int compare(String word, String mnemonic, int start, int end) {
+        int length = end - start;
+        int limit = Math.min(word.length(), length);
+        for (int i = 0; i < limit; i++) {
+            int diff = word.charAt(i) - mnemonic.charAt(start + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return word.length() - length;
+    }
+
+    private static boolean isSorted(List<String> words) {
+        for (int i = 1; i < words.size(); i++) {
+            if (words.get(i - 1).compareTo(words.get(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package com.mcd.wallet.service.impl;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
+import org.bitcoinj.core.Sha256Hash;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * BIP-86 key-path-only taproot outputs, which bitcoinj 0.16 can decode but not derive: the internal key is
+ * tweaked with {@code TapTweak(x(P))} and no script tree, and the x-only output key becomes a witness v1 program.
+ */
+final class Bip86 {
+
+    // Prefixo do tagged hash BIP-340: SHA256(tag) || SHA256(tag)
+    private static final byte[] TAP_TWEAK_TAG = Sha256Hash.hash("TapTweak".getBytes(StandardCharsets.US_ASCII));
+
+    private Bip86() {
+    }
+
+    static SegwitAddress address(NetworkParameters params, ECKey internalKey) {
+        return SegwitAddress.fromProgram(params, 1, outputKey(internalKey));
+    }
+
+    /**
+     * 32-byte x-only output key {@code Q = lift_x(x(P)) + int(TapTweak(x(P)))·G}.
+     */
+    static byte[] outputKey(ECKey internalKey) {
+        ECPoint p = internalKey.getPubKeyPoint().normalize();
+        if (p.getAffineYCoord().testBitZero()) {
+            p = p.negate(); // lift_x: a chave interna é a de Y par com o mesmo X
+        }
+        byte[] x = p.getAffineXCoord().getEncoded();
+
+        MessageDigest sha256 = Sha256Hash.newDigest();
+        sha256.update(TAP_TWEAK_TAG);
+        sha256.update(TAP_TWEAK_TAG);
+        sha256.update(x);
+        BigInteger tweak = new BigInteger(1, sha256.digest());
+        if (tweak.compareTo(ECKey.CURVE.getN()) >= 0) {
+            throw new IllegalArgumentException("Taproot tweak out of range"); // probabilidade ~2^-128
+        }
+
+        ECPoint q = ECKey.CURVE.getG().multiply(tweak).add(p).normalize();
+        return q.getAffineXCoord().getEncoded();
+    }
+}
@@ -1,50 +1,227 @@
 package com.mcd.wallet.service.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.mcd.wallet.service.KeyDerivationService;
+import com.mcd.wallet.service.model.DerivedAddress;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.crypto.ChildNumber;
 import org.bitcoinj.crypto.DeterministicHierarchy;
 import org.bitcoinj.crypto.DeterministicKey;
 import org.bitcoinj.crypto.HDKeyDerivation;
 import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Service
 public class KeyDerivationServiceImpl implements KeyDerivationService {
 
+    private static final int CHUNK_SIZE = 512;
+
     private final NetworkParameters networkParameters;
+    private final ExecutorService derivationExecutor;
+    private final int maxChunksInFlight;
+    private final Timer deriveTimer;
+    private final Timer streamTimer;
+
+    // Chave pública estendida (xpub) da cadeia m/purpose'/coin'/account'/chain, por fingerprint da seed.
+    // Nunca guarda material privado: só a chave pública e o chain code.
+    private final Cache<AccountCacheKey, DeterministicKey> accountKeys;
 
-    public KeyDerivationServiceImpl(NetworkParameters networkParameters) {
+    public KeyDerivationServiceImpl(NetworkParameters networkParameters,
+                                    @Value("${wallet.derivation.account-cache-size:1024}") long accountCacheSize,
+                                    @Qualifier("derivationExecutor") ExecutorService derivationExecutor,
+                                    MeterRegistry meterRegistry) {
         this.networkParameters = networkParameters;
+        this.derivationExecutor = derivationExecutor;
+        this.maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        this.deriveTimer = derivationTimer(meterRegistry, "list");
+        this.streamTimer = derivationTimer(meterRegistry, "stream");
+        this.accountKeys = CacheBuilder.newBuilder()
+                .maximumSize(accountCacheSize)
+                .recordStats()
+                .build();
     }
 
     @Override
     public List<Address> deriveAddresses(byte[] seed, int count) {
-        // 1. Criar chave-mestre (BIP-32)
+        return deriveAddresses(seed, 0, count);
+    }
+
+    @Override
+    public List<Address> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        checkRange(fromIndex, count);
+        return deriveTimer.record(() -> deriveRange(seed, fromIndex, count));
+    }
+
+    @Override
+    public void streamAddresses(byte[] seed, int fromIndex, int count, Script.ScriptType scriptType,
+                                Consumer<DerivedAddress> consumer) {
+        checkRange(fromIndex, count);
+        streamTimer.record(() -> streamRange(seed, fromIndex, count, scriptType, consumer));
+    }
+
+    @Override
+    public Address firstReceiveAddress(byte[] seed, Script.ScriptType scriptType) {
+        DeterministicKey externalChain = deriveChainKey(seed, purpose(scriptType), 0, 0);
+        DeterministicKey firstKey = HDKeyDerivation.deriveChildKey(externalChain, ChildNumber.ZERO);
+        return address(firstKey, scriptType);
+    }
+
+    @Override
+    public List<byte[]> deriveScripts(byte[] seed, Script.ScriptType scriptType, int account, int chain,
+                                      int fromIndex, int count) {
+        checkRange(fromIndex, count);
+        if (account < 0 || (chain != 0 && chain != 1)) {
+            throw new IllegalArgumentException("account must not be negative and chain must be 0 or 1");
+        }
+        DeterministicKey chainKey = chainKey(seed, scriptType, account, chain);
+        List<byte[]> scripts = new ArrayList<>(count);
+        for (int i = fromIndex; i < fromIndex + count; i++) {
+            DeterministicKey childKey = HDKeyDerivation.deriveChildKey(chainKey, new ChildNumber(i));
+            scripts.add(ScriptBuilder.createOutputScript(address(childKey, scriptType)).getProgram());
+        }
+        return scripts;
+    }
+
+    /**
+     * Hit/miss/eviction counters of the account-level xpub cache.
+     */
+    public CacheStats accountKeyCacheStats() {
+        return accountKeys.stats();
+    }
+
+    private List<Address> deriveRange(byte[] seed, int fromIndex, int count) {
+        // 1. Obter a xpub da cadeia externa (cache ou derivação completa)
+        DeterministicKey externalChain = chainKey(seed, Script.ScriptType.P2PKH, 0, 0);
+
+        // 2. Derivar endereços apenas com derivação pública (não-hardened)
+        List<Address> addresses = new ArrayList<>(count);
+        for (DerivedAddress derived : deriveChunk(externalChain, Script.ScriptType.P2PKH, fromIndex, fromIndex + count)) {
+            addresses.add(derived.address());
+        }
+
+        return addresses;
+    }
+
+    private void streamRange(byte[] seed, int fromIndex, int count, Script.ScriptType scriptType,
+                             Consumer<DerivedAddress> consumer) {
+        DeterministicKey externalChain = chainKey(seed, scriptType, 0, 0);
+
+        // Janela limitada de chunks em paralelo; consumidos na ordem dos índices
+        Deque<Future<List<DerivedAddress>>> inFlight = new ArrayDeque<>();
+        int next = fromIndex;
+        int end = fromIndex + count;
+        try {
+            while (next < end || !inFlight.isEmpty()) {
+                while (next < end && inFlight.size() < maxChunksInFlight) {
+                    int chunkStart = next;
+                    int chunkEnd = Math.min(end, chunkStart + CHUNK_SIZE);
+                    inFlight.add(derivationExecutor.submit(
+                            () -> deriveChunk(externalChain, scriptType, chunkStart, chunkEnd)));
+                    next = chunkEnd;
+                }
+                inFlight.poll().get().forEach(consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Address derivation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Address derivation failed", e.getCause());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private List<DerivedAddress> deriveChunk(DeterministicKey externalChain, Script.ScriptType scriptType,
+                                             int fromIndex, int toIndex) {
+        List<DerivedAddress> chunk = new ArrayList<>(toIndex - fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            DeterministicKey childKey = HDKeyDerivation.deriveChildKey(externalChain, new ChildNumber(i));
+            chunk.add(new DerivedAddress(i, address(childKey, scriptType)));
+        }
+        return chunk;
+    }
+
+    private DeterministicKey chainKey(byte[] seed, Script.ScriptType scriptType, int account, int chain) {
+        AccountCacheKey cacheKey = new AccountCacheKey(Sha256Hash.of(seed), purpose(scriptType), coinType(), account, chain);
+        DeterministicKey cached = accountKeys.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        DeterministicKey chainKey = deriveChainKey(seed, cacheKey.purpose(), account, chain);
+        accountKeys.put(cacheKey, chainKey);
+        return chainKey;
+    }
+
+    private DeterministicKey deriveChainKey(byte[] seed, int purpose, int account, int chain) {
+        // Criar chave-mestre (BIP-32) e percorrer o caminho: m/purpose'/coin_type'/account'/chain
         DeterministicKey masterKey = HDKeyDerivation.createMasterPrivateKey(seed);
         DeterministicHierarchy hierarchy = new DeterministicHierarchy(masterKey);
-
-        // 2. Definir caminho BIP-44: m/44'/coin_type'/0'/0
-        int coinType = networkParameters.getId().equals("org.bitcoin.production") ? 0 : 1; // 0: mainnet, 1: testnet
         List<ChildNumber> accountPath = List.of(
-                new ChildNumber(44, true),        // purpose'
-                new ChildNumber(coinType, true),  // coin_type'
-                ChildNumber.ZERO_HARDENED,        // account'
-                ChildNumber.ZERO                  // external chain
+                new ChildNumber(purpose, true),     // purpose'
+                new ChildNumber(coinType(), true),  // coin_type'
+                new ChildNumber(account, true),     // account'
+                new ChildNumber(chain)              // 0: externa, 1: troco
         );
+        return hierarchy.get(accountPath, false, true)
+                .dropPrivateBytes()
+                .dropParent();
+    }
+
+    private static Timer derivationTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("wallet.address.derivation")
+                .description("Address derivation time per request")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Address address(DeterministicKey key, Script.ScriptType scriptType) {
+        return scriptType == Script.ScriptType.P2TR
+                ? Bip86.address(networkParameters, key)
+                : Address.fromKey(networkParameters, key, scriptType);
+    }
+
+    private static int purpose(Script.ScriptType scriptType) {
+        return switch (scriptType) {
+            case P2PKH -> 44;  // BIP-44
+            case P2WPKH -> 84; // BIP-84
+            case P2TR -> 86;   // BIP-86 (somente key path)
+            default -> throw new IllegalArgumentException("Unsupported script type: " + scriptType);
+        };
+    }
 
-        // 3. Derivar endereços
-        List<Address> addresses = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            DeterministicKey childKey = hierarchy.deriveChild(accountPath, false, true, new ChildNumber(i));
-            Address address = Address.fromKey(networkParameters, childKey, Script.ScriptType.P2PKH);
-            addresses.add(address);
+    private static void checkRange(int fromIndex, int count) {
+        if (fromIndex < 0 || count < 0) {
+            throw new IllegalArgumentException("fromIndex and count must not be negative");
+        }
+        if ((long) fromIndex + count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Index range exceeds the non-hardened child space");
         }
+    }
 
-        return addresses;
+    private int coinType() {
+        return networkParameters.getId().equals(NetworkParameters.ID_MAINNET) ? 0 : 1; // 0: mainnet, 1: testnet
+    }
+
+    private record AccountCacheKey(Sha256Hash seedFingerprint, int purpose, int coinType, int account, int chain) {
     }
 }
@@ -0,0 +1,342 @@
+package com.mcd.wallet.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.mcd.wallet.config.ContextThreadFactory;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.InsufficientFundsException;
+import com.mcd.wallet.service.PaymentService;
+import com.mcd.wallet.service.TransactionSigningService;
+import com.mcd.wallet.service.UtxoIndex;
+import com.mcd.wallet.service.WalletKeySession;
+import com.mcd.wallet.service.WalletLockedException;
+import com.mcd.wallet.service.model.Payment;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects payouts and sends them as one multi-output transaction every {@code batch-window},
+ * or as soon as {@code max-batch-size} payouts are waiting. All sends run on a single batcher thread.
+ * <p>
+ * A batch the wallet cannot fund is split in halves and each half retried, so only the payouts that do not fit
+ * fail. Dust payouts fail on their own before the batch is built.
+ */
+@Service
+public class PaymentServiceImpl implements PaymentService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentServiceImpl.class);
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final BlockchainService blockchainService;
+    private final UtxoIndex utxoIndex;
+    private final WalletKeySession keySession;
+    private final TransactionSigningService signingService;
+    private final boolean indexedCoinSelection;
+    private final Duration batchWindow;
+    private final int maxBatchSize;
+    private final BlockingQueue<Payment> queue;
+    private final Cache<String, Payment> payments;
+    private final AtomicLong queuedSatoshis = new AtomicLong();
+    private final ScheduledExecutorService batcher;
+    private final MeterRegistry meterRegistry;
+    private final Timer sendTimer;
+    private final DistributionSummary batchSizes;
+    private volatile boolean stopping;
+
+    public PaymentServiceImpl(BlockchainService blockchainService,
+                              UtxoIndex utxoIndex,
+                              WalletKeySession keySession,
+                              TransactionSigningService signingService,
+                              Context bitcoinContext,
+                              MeterRegistry meterRegistry,
+                              @Value("${wallet.send.batch-window:2s}") Duration batchWindow,
+                              @Value("${wallet.send.max-batch-size:50}") int maxBatchSize,
+                              @Value("${wallet.send.max-queue-size:10000}") int maxQueueSize,
+                              @Value("${wallet.send.status-retention:24h}") Duration statusRetention,
+                              @Value("${wallet.send.indexed-coin-selection:true}") boolean indexedCoinSelection) {
+        this.blockchainService = blockchainService;
+        this.utxoIndex = utxoIndex;
+        this.keySession = keySession;
+        this.signingService = signingService;
+        this.indexedCoinSelection = indexedCoinSelection;
+        this.batcher = Executors.newSingleThreadScheduledExecutor(new ContextThreadFactory(bitcoinContext, "payment-batcher"));
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(maxQueueSize);
+        this.payments = CacheBuilder.newBuilder()
+                .expireAfterWrite(statusRetention)
+                .build();
+        this.meterRegistry = meterRegistry;
+        this.sendTimer = Timer.builder("wallet.payment.send")
+                .description("Building, signing and committing a batch transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("wallet.payment.batch.size")
+                .description("Payments per batch transaction")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("wallet.payment.queue.size", List.of(), queue);
+    }
+
+    @PostConstruct
+    public void start() {
+        long windowMillis = batchWindow.toMillis();
+        batcher.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends what is still queued as final batches (the payments were already accepted), waiting at most
+     * {@link #SHUTDOWN_TIMEOUT}. Payments that could not be sent are marked FAILED with {@code SHUTDOWN} and logged.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (stopping) {
+            return;
+        }
+        stopping = true;
+        batcher.execute(() -> {
+            while (!queue.isEmpty() && blockchainService.isWalletReady()) {
+                flush();
+            }
+        });
+        batcher.shutdown();
+        if (!batcher.awaitTermination(SHUTDOWN_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            log.warn("Payment batcher did not finish in {}", SHUTDOWN_TIMEOUT);
+            batcher.shutdownNow();
+        }
+        failQueued("SHUTDOWN");
+    }
+
+    @Override
+    public Payment submit(Address address, Coin amount) {
+        if (keySession.isLocked()) {
+            throw new WalletLockedException();
+        }
+        if (stopping) {
+            throw new RejectedExecutionException("Payment service is shutting down");
+        }
+        reserve(amount);
+        Payment payment = Payment.queued(UUID.randomUUID().toString(), address, amount);
+        payments.put(payment.id(), payment);
+        if (!queue.offer(payment)) {
+            payments.invalidate(payment.id());
+            queuedSatoshis.addAndGet(-amount.value);
+            throw new RejectedExecutionException("Payment queue is full");
+        }
+
+        if (queue.size() >= maxBatchSize) {
+            try {
+                batcher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // stop() em andamento: o pagamento já está na fila e sai no lote final ou é marcado como falho
+            }
+        }
+        return payment;
+    }
+
+    @Override
+    public Optional<Payment> find(String paymentId) {
+        return Optional.ofNullable(payments.getIfPresent(paymentId));
+    }
+
+    @Override
+    public Coin queuedAmount() {
+        return Coin.valueOf(queuedSatoshis.get());
+    }
+
+    // Compare-and-set: dois envios simultâneos nunca reservam o mesmo saldo
+    private void reserve(Coin amount) {
+        long available = blockchainService.getSnapshot().availableBalance().value;
+        long queued;
+        do {
+            queued = queuedSatoshis.get();
+            if (available - queued < amount.value) {
+                throw new InsufficientFundsException();
+            }
+        } while (!queuedSatoshis.compareAndSet(queued, queued + amount.value));
+    }
+
+    private void flush() {
+        if (!blockchainService.isWalletReady()) {
+            return; // carteira ainda carregando: os pagamentos continuam na fila
+        }
+        List<Payment> batch = new ArrayList<>(maxBatchSize);
+        queue.drainTo(batch, maxBatchSize);
+        if (batch.isEmpty()) {
+            return;
+        }
+        Wallet wallet = blockchainService.getWalletAppKit().wallet();
+        List<Payment> sendable = new ArrayList<>(batch.size());
+        for (Payment payment : batch) {
+            if (new TransactionOutput(wallet.getNetworkParameters(), null, payment.amount(), payment.address()).isDust()) {
+                fail(List.of(payment), "DUST_OUTPUT");
+            } else {
+                sendable.add(payment);
+            }
+        }
+        if (!sendable.isEmpty()) {
+            send(wallet, sendable);
+        }
+    }
+
+    private void send(Wallet wallet, List<Payment> batch) {
+        Timer.Sample sendSample = Timer.start(meterRegistry);
+        try {
+            Transaction tx = new Transaction(wallet.getNetworkParameters());
+            for (Payment payment : batch) {
+                tx.addOutput(payment.amount(), payment.address());
+            }
+
+            SendRequest request = SendRequest.forTx(tx);
+            if (indexedCoinSelection) {
+                request.coinSelector = utxoIndex;
+            }
+            // Chave da sessão desbloqueada (null em carteira sem criptografia): sem KDF por envio
+            Wallet.SendResult result = keySession.withKey(key -> {
+                request.aesKey = key;
+                return signingService.sendCoins(wallet, blockchainService.getWalletAppKit().peerGroup(), request);
+            });
+            sendSample.stop(sendTimer);
+            batchSizes.record(batch.size());
+            Timer.Sample broadcastSample = Timer.start(meterRegistry);
+            List<Payment> sent = markSent(batch, result.tx);
+            log.info("Sent batch of {} payments in TX {}", sent.size(), result.tx.getTxId());
+
+            Futures.addCallback(result.broadcastComplete, new FutureCallback<>() {
+                @Override
+                public void onSuccess(Transaction broadcastTx) {
+                    broadcastSample.stop(broadcastTimer("success"));
+                    sent.forEach(payment -> payments.put(payment.id(), payment.broadcast()));
+                }
+
+                @Override
+                public void onFailure(@NotNull Throwable t) {
+                    broadcastSample.stop(broadcastTimer("failure"));
+                    log.error("Broadcast of TX {} failed", result.tx.getTxId(), t);
+                    sent.forEach(payment -> payments.put(payment.id(), payment.failed("BROADCAST_FAILED")));
+                }
+            }, MoreExecutors.directExecutor());
+        } catch (InsufficientMoneyException e) {
+            if (batch.size() > 1) {
+                split(wallet, batch);
+                return;
+            }
+            log.warn("Insufficient funds for payment {} (missing {})", batch.get(0).id(), e.missing);
+            fail(batch, "INSUFFICIENT_FUNDS");
+        } catch (Wallet.DustySendRequested e) {
+            if (batch.size() > 1) {
+                split(wallet, batch);
+                return;
+            }
+            fail(batch, "DUST_OUTPUT");
+        } catch (WalletLockedException e) {
+            log.warn("Wallet locked before batch of {} payments was signed", batch.size());
+            fail(batch, "WALLET_LOCKED");
+        } catch (RuntimeException e) {
+            log.error("Error sending batch of {} payments", batch.size(), e);
+            fail(batch, "SEND_FAILED");
+        }
+    }
+
+    // Metades independentes: a primeira que couber é gasta antes de a segunda ser montada
+    private void split(Wallet wallet, List<Payment> batch) {
+        int half = batch.size() / 2;
+        log.info("Batch of {} payments is not affordable, retrying as {} + {}", batch.size(), half, batch.size() - half);
+        send(wallet, List.copyOf(batch.subList(0, half)));
+        send(wallet, List.copyOf(batch.subList(half, batch.size())));
+    }
+
+    private Timer broadcastTimer(String outcome) {
+        return Timer.builder("wallet.payment.broadcast")
+                .description("Time from commit until peers accepted the batch transaction")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // As saídas são embaralhadas pelo wallet: localizar cada pagamento pelo par (endereço, valor)
+    private List<Payment> markSent(List<Payment> batch, Transaction tx) {
+        boolean[] assigned = new boolean[tx.getOutputs().size()];
+        List<Payment> sent = new ArrayList<>(batch.size());
+        List<Payment> unmatched = new ArrayList<>();
+        for (Payment payment : batch) {
+            boolean matched = false;
+            for (TransactionOutput output : tx.getOutputs()) {
+                int index = output.getIndex();
+                if (!assigned[index] && output.getValue().equals(payment.amount())
+                        && payment.address().equals(output.getScriptPubKey().getToAddress(tx.getParams()))) {
+                    assigned[index] = true;
+                    Payment updated = payment.sent(tx.getTxId().toString(), index);
+                    payments.put(updated.id(), updated);
+                    sent.add(updated);
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                log.error("Payment {} of {} to {} has no output in TX {}", payment.id(),
+                        payment.amount().toFriendlyString(), payment.address(), tx.getTxId());
+                unmatched.add(payment);
+            }
+        }
+        queuedSatoshis.addAndGet(-sum(sent));
+        fail(unmatched, "OUTPUT_NOT_FOUND");
+        return sent;
+    }
+
+    // Sem lote possível: cada pagamento aceito fica registrado como falho, com id para reenvio
+    private void failQueued(String error) {
+        List<Payment> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        fail(remaining, error);
+        for (Payment payment : remaining) {
+            log.error("Payment {} of {} to {} not sent before shutdown", payment.id(),
+                    payment.amount().toFriendlyString(), payment.address());
+        }
+    }
+
+    // Libera a reserva feita em submit
+    private void fail(List<Payment> failed, String error) {
+        queuedSatoshis.addAndGet(-sum(failed));
+        failed.forEach(payment -> payments.put(payment.id(), payment.failed(error)));
+    }
+
+    private static long sum(List<Payment> batch) {
+        return batch.stream().mapToLong(payment -> payment.amount().value).sum();
+    }
+}
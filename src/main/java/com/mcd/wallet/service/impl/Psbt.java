@@ -0,0 +1,230 @@
+package com.mcd.wallet.service.impl;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.ProtocolException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.core.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Just enough of BIP-174 (version 0) for the signer role: parses the key-value maps, exposes the unsigned
+ * transaction and the outputs its inputs spend, adds partial signatures and writes the PSBT back with every other
+ * record untouched, unknown types included.
+ */
+final class Psbt {
+
+    private static final byte[] MAGIC = {0x70, 0x73, 0x62, 0x74, (byte) 0xff};
+
+    private static final int GLOBAL_UNSIGNED_TX = 0x00;
+    private static final int GLOBAL_VERSION = 0xfb;
+    private static final int IN_NON_WITNESS_UTXO = 0x00;
+    private static final int IN_WITNESS_UTXO = 0x01;
+    private static final int IN_PARTIAL_SIG = 0x02;
+    private static final int IN_SIGHASH_TYPE = 0x03;
+    private static final int IN_FINAL_SCRIPTSIG = 0x07;
+    private static final int IN_FINAL_SCRIPTWITNESS = 0x08;
+
+    record Entry(byte[] key, byte[] value) {
+
+        int type() {
+            return key[0] & 0xff;
+        }
+    }
+
+    private final Transaction tx;
+    private final List<Entry> global;
+    private final List<List<Entry>> inputs;
+    private final List<List<Entry>> outputs;
+
+    private Psbt(Transaction tx, List<Entry> global, List<List<Entry>> inputs, List<List<Entry>> outputs) {
+        this.tx = tx;
+        this.global = global;
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the bytes are not a well-formed version 0 PSBT
+     */
+    static Psbt parse(NetworkParameters params, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not a PSBT (bad magic)");
+            }
+            List<Entry> global = readMap(buffer);
+            Transaction tx = null;
+            for (Entry entry : global) {
+                if (entry.type() == GLOBAL_UNSIGNED_TX && entry.key().length == 1) {
+                    tx = new Transaction(params, entry.value());
+                } else if (entry.type() == GLOBAL_VERSION && entry.value().length == 4
+                        && Utils.readUint32(entry.value(), 0) != 0) {
+                    throw new IllegalArgumentException("Only PSBT version 0 is supported");
+                }
+            }
+            if (tx == null) {
+                throw new IllegalArgumentException("PSBT has no unsigned transaction");
+            }
+            for (TransactionInput input : tx.getInputs()) {
+                if (input.getScriptBytes().length > 0 || input.hasWitness()) {
+                    throw new IllegalArgumentException("PSBT transaction must be unsigned");
+                }
+            }
+            List<List<Entry>> inputs = new ArrayList<>();
+            for (int i = 0; i < tx.getInputs().size(); i++) {
+                inputs.add(readMap(buffer));
+            }
+            List<List<Entry>> outputs = new ArrayList<>();
+            for (int i = 0; i < tx.getOutputs().size(); i++) {
+                outputs.add(readMap(buffer));
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after PSBT");
+            }
+            return new Psbt(tx, global, inputs, outputs);
+        } catch (BufferUnderflowException | ProtocolException e) {
+            throw new IllegalArgumentException("Truncated or malformed PSBT", e);
+        }
+    }
+
+    Transaction transaction() {
+        return tx;
+    }
+
+    /**
+     * The output input {@code index} spends, from its witness UTXO or, failing that, its full previous
+     * transaction (checked against the outpoint); null when the PSBT carries neither.
+     */
+    TransactionOutput spentOutput(int index) {
+        try {
+            return readSpentOutput(index);
+        } catch (BufferUnderflowException | ProtocolException e) {
+            throw new IllegalArgumentException("Malformed UTXO record for input " + index, e);
+        }
+    }
+
+    private TransactionOutput readSpentOutput(int index) {
+        for (Entry entry : inputs.get(index)) {
+            if (entry.type() == IN_WITNESS_UTXO) {
+                ByteBuffer value = ByteBuffer.wrap(entry.value());
+                byte[] amount = new byte[8];
+                value.get(amount);
+                byte[] script = new byte[checkedLength(readCompactSize(value), value)];
+                value.get(script);
+                return new TransactionOutput(tx.getParams(), null, Coin.valueOf(Utils.readInt64(amount, 0)), script);
+            }
+        }
+        TransactionOutPoint outpoint = tx.getInput(index).getOutpoint();
+        for (Entry entry : inputs.get(index)) {
+            if (entry.type() == IN_NON_WITNESS_UTXO) {
+                Transaction previous = new Transaction(tx.getParams(), entry.value());
+                if (!previous.getTxId().equals(outpoint.getHash())) {
+                    throw new IllegalArgumentException("Previous transaction of input " + index + " does not match its outpoint");
+                }
+                if (outpoint.getIndex() >= previous.getOutputs().size()) {
+                    throw new IllegalArgumentException("Input " + index + " spends a missing output");
+                }
+                return previous.getOutput(outpoint.getIndex());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * False when the input is already finalized or asks for a sighash type other than SIGHASH_ALL.
+     */
+    boolean signableWithSighashAll(int index) {
+        for (Entry entry : inputs.get(index)) {
+            if (entry.type() == IN_FINAL_SCRIPTSIG || entry.type() == IN_FINAL_SCRIPTWITNESS) {
+                return false;
+            }
+            if (entry.type() == IN_SIGHASH_TYPE
+                    && (entry.value().length != 4 || Utils.readUint32(entry.value(), 0) != Transaction.SigHash.ALL.value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hasPartialSignature(int index, byte[] pubKey) {
+        return inputs.get(index).stream()
+                .anyMatch(entry -> entry.type() == IN_PARTIAL_SIG && Arrays.equals(entry.key(), partialSigKey(pubKey)));
+    }
+
+    /**
+     * @param signature DER signature followed by the sighash type byte
+     */
+    void addPartialSignature(int index, byte[] pubKey, byte[] signature) {
+        inputs.get(index).add(new Entry(partialSigKey(pubKey), signature));
+    }
+
+    byte[] serialize() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(MAGIC);
+        writeMap(out, global);
+        inputs.forEach(map -> writeMap(out, map));
+        outputs.forEach(map -> writeMap(out, map));
+        return out.toByteArray();
+    }
+
+    private static byte[] partialSigKey(byte[] pubKey) {
+        byte[] key = new byte[pubKey.length + 1];
+        key[0] = IN_PARTIAL_SIG;
+        System.arraycopy(pubKey, 0, key, 1, pubKey.length);
+        return key;
+    }
+
+    private static List<Entry> readMap(ByteBuffer buffer) {
+        List<Entry> map = new ArrayList<>();
+        long keyLength;
+        while ((keyLength = readCompactSize(buffer)) != 0) {
+            byte[] key = new byte[checkedLength(keyLength, buffer)];
+            buffer.get(key);
+            byte[] value = new byte[checkedLength(readCompactSize(buffer), buffer)];
+            buffer.get(value);
+            map.add(new Entry(key, value));
+        }
+        return map;
+    }
+
+    private static void writeMap(ByteArrayOutputStream out, List<Entry> map) {
+        for (Entry entry : map) {
+            out.writeBytes(new VarInt(entry.key().length).encode());
+            out.writeBytes(entry.key());
+            out.writeBytes(new VarInt(entry.value().length).encode());
+            out.writeBytes(entry.value());
+        }
+        out.write(0);
+    }
+
+    private static long readCompactSize(ByteBuffer buffer) {
+        int first = buffer.get() & 0xff;
+        return switch (first) {
+            case 0xfd -> buffer.get() & 0xff | (buffer.get() & 0xff) << 8;
+            case 0xfe -> Integer.toUnsignedLong(Integer.reverseBytes(buffer.getInt()));
+            case 0xff -> Long.reverseBytes(buffer.getLong());
+            default -> first;
+        };
+    }
+
+    // Tamanho declarado nunca passa do que resta: evita alocar gigabytes por um prefixo forjado
+    private static int checkedLength(long length, ByteBuffer buffer) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("PSBT record longer than the remaining data");
+        }
+        return (int) length;
+    }
+}
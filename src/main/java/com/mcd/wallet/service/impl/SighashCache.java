@@ -0,0 +1,138 @@
+package com.mcd.wallet.service.impl;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.core.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * SIGHASH_ALL digests of every input of one transaction, built from its serialization once instead of copying the
+ * transaction per input as {@link Transaction#hashForSignature} and {@link Transaction#hashForWitnessSignature} do.
+ * Legacy inputs resume from the SHA-256 midstate of the blank inputs before them; BIP-143 inputs share
+ * {@code hashPrevouts}, {@code hashSequence} and {@code hashOutputs}. Immutable after construction, so any number
+ * of threads may compute digests concurrently. The transaction must not change while the cache is in use.
+ */
+final class SighashCache {
+
+    private static final byte[] SIGHASH_ALL = {1, 0, 0, 0};
+    private static final int OUTPOINT_LENGTH = 36;
+
+    private final byte[] version = new byte[4];
+    private final byte[] lockTime = new byte[4];
+    // Entrada i em branco (outpoint, script vazio, sequence) ocupa blankInputs[offsets[i], offsets[i + 1])
+    private final byte[] blankInputs;
+    private final int[] offsets;
+    private final byte[] outputsAndLockTime;
+    // Estado do SHA-256 após versão, contagem e entradas 0..i-1 em branco
+    private final MessageDigest[] legacyMidstates;
+    private final byte[] hashPrevouts;
+    private final byte[] hashSequence;
+    private final byte[] hashOutputs;
+
+    SighashCache(Transaction tx) {
+        Utils.uint32ToByteArrayLE(tx.getVersion(), version, 0);
+        Utils.uint32ToByteArrayLE(tx.getLockTime(), lockTime, 0);
+        int inputCount = tx.getInputs().size();
+
+        ByteArrayOutputStream inputs = new ByteArrayOutputStream(inputCount * (OUTPOINT_LENGTH + 5));
+        ByteArrayOutputStream prevouts = new ByteArrayOutputStream(inputCount * OUTPOINT_LENGTH);
+        ByteArrayOutputStream sequences = new ByteArrayOutputStream(inputCount * 4);
+        offsets = new int[inputCount + 1];
+        byte[] sequence = new byte[4];
+        for (int i = 0; i < inputCount; i++) {
+            TransactionInput input = tx.getInput(i);
+            offsets[i] = inputs.size();
+            byte[] outpoint = input.getOutpoint().bitcoinSerialize();
+            Utils.uint32ToByteArrayLE(input.getSequenceNumber(), sequence, 0);
+            inputs.writeBytes(outpoint);
+            inputs.write(0);
+            inputs.writeBytes(sequence);
+            prevouts.writeBytes(outpoint);
+            sequences.writeBytes(sequence);
+        }
+        offsets[inputCount] = inputs.size();
+        blankInputs = inputs.toByteArray();
+
+        ByteArrayOutputStream outputs = new ByteArrayOutputStream();
+        outputs.writeBytes(new VarInt(tx.getOutputs().size()).encode());
+        int countLength = outputs.size();
+        for (TransactionOutput output : tx.getOutputs()) {
+            outputs.writeBytes(output.bitcoinSerialize());
+        }
+        int outputsLength = outputs.size();
+        outputs.writeBytes(lockTime);
+        outputsAndLockTime = outputs.toByteArray();
+
+        legacyMidstates = new MessageDigest[inputCount];
+        MessageDigest running = Sha256Hash.newDigest();
+        running.update(version);
+        running.update(new VarInt(inputCount).encode());
+        for (int i = 0; i < inputCount; i++) {
+            legacyMidstates[i] = copy(running);
+            running.update(blankInputs, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+
+        hashPrevouts = Sha256Hash.hashTwice(prevouts.toByteArray());
+        hashSequence = Sha256Hash.hashTwice(sequences.toByteArray());
+        // BIP-143: hashOutputs cobre as saídas sem a contagem
+        hashOutputs = Sha256Hash.hashTwice(outputsAndLockTime, countLength, outputsLength - countLength);
+    }
+
+    int inputCount() {
+        return legacyMidstates.length;
+    }
+
+    /**
+     * Pre-segwit digest of input {@code index} with {@code scriptCode} (the spent scriptPubKey) in its script slot.
+     */
+    Sha256Hash legacy(int index, byte[] scriptCode) {
+        MessageDigest digest = copy(legacyMidstates[index]);
+        int start = offsets[index];
+        int end = offsets[index + 1];
+        digest.update(blankInputs, start, OUTPOINT_LENGTH);
+        digest.update(new VarInt(scriptCode.length).encode());
+        digest.update(scriptCode);
+        digest.update(blankInputs, end - 4, 4);
+        digest.update(blankInputs, end, blankInputs.length - end);
+        digest.update(outputsAndLockTime);
+        digest.update(SIGHASH_ALL);
+        return Sha256Hash.wrap(Sha256Hash.hash(digest.digest()));
+    }
+
+    /**
+     * BIP-143 digest of input {@code index} spending {@code value} with {@code scriptCode}.
+     */
+    Sha256Hash witnessV0(int index, byte[] scriptCode, Coin value) {
+        int start = offsets[index];
+        int end = offsets[index + 1];
+        byte[] amount = new byte[8];
+        Utils.int64ToByteArrayLE(value.value, amount, 0);
+        MessageDigest digest = Sha256Hash.newDigest();
+        digest.update(version);
+        digest.update(hashPrevouts);
+        digest.update(hashSequence);
+        digest.update(blankInputs, start, OUTPOINT_LENGTH);
+        digest.update(new VarInt(scriptCode.length).encode());
+        digest.update(scriptCode);
+        digest.update(amount);
+        digest.update(blankInputs, end - 4, 4);
+        digest.update(hashOutputs);
+        digest.update(lockTime);
+        digest.update(SIGHASH_ALL);
+        return Sha256Hash.wrap(Sha256Hash.hash(digest.digest()));
+    }
+
+    private static MessageDigest copy(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 provider cannot checkpoint its state", e);
+        }
+    }
+}
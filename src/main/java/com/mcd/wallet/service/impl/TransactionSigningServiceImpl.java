@@ -0,0 +1,283 @@
+package com.mcd.wallet.service.impl;
+
+import com.mcd.wallet.service.TransactionSigningService;
+import com.mcd.wallet.service.model.PsbtSignResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.InsufficientMoneyException;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcaster;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.script.ScriptException;
+import org.bitcoinj.script.ScriptPattern;
+import org.bitcoinj.wallet.DecryptingKeyBag;
+import org.bitcoinj.wallet.KeyBag;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Signing stage shared by payouts, consolidation and the PSBT endpoint. bitcoinj's {@code LocalTransactionSigner}
+ * signs one input after another and rebuilds the whole transaction for every sighash, which is quadratic in the
+ * input count; here all sighashes come from one {@link SighashCache} and the inputs are signed in chunks on the
+ * signing pool, the calling thread taking the first chunk.
+ */
+@Service
+public class TransactionSigningServiceImpl implements TransactionSigningService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionSigningServiceImpl.class);
+
+    // Abaixo disso o repasse entre threads custa mais que as assinaturas
+    private static final int MIN_INPUTS_PER_TASK = 8;
+
+    private final NetworkParameters params;
+    private final ThreadPoolExecutor signingExecutor;
+    private final Timer signingTimer;
+    private final ReentrantLock spendLock = new ReentrantLock();
+
+    public TransactionSigningServiceImpl(NetworkParameters params,
+                                         @Qualifier("signingExecutor") ThreadPoolExecutor signingExecutor,
+                                         MeterRegistry meterRegistry) {
+        this.params = params;
+        this.signingExecutor = signingExecutor;
+        this.signingTimer = Timer.builder("wallet.signing")
+                .description("Sighash computation and signing of one transaction's inputs")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Wallet.SendResult sendCoins(Wallet wallet, TransactionBroadcaster broadcaster, SendRequest request)
+            throws InsufficientMoneyException {
+        Transaction tx = request.tx;
+        spendLock.lock();
+        try {
+            request.signInputs = false;
+            wallet.completeTx(request);
+            int signed = signInputs(tx, wallet, request.aesKey);
+            if (signed < tx.getInputs().size()) {
+                // Script que este estágio não conhece: o signer do bitcoinj completa (e valida o que já foi assinado)
+                log.info("Signed {} of {} inputs of TX {}, completing with the wallet signer", signed,
+                        tx.getInputs().size(), tx.getTxId());
+                wallet.signTransaction(request);
+            }
+            if (tx.unsafeBitcoinSerialize().length > Transaction.MAX_STANDARD_TX_SIZE) {
+                throw new Wallet.ExceededMaxTransactionSize();
+            }
+            wallet.commitTx(tx);
+        } finally {
+            spendLock.unlock();
+        }
+        return new Wallet.SendResult(tx, broadcaster.broadcastTransaction(tx));
+    }
+
+    @Override
+    public int signInputs(Transaction tx, KeyBag keyBag, @Nullable KeyParameter aesKey) {
+        List<TransactionOutput> spent = new ArrayList<>(tx.getInputs().size());
+        for (TransactionInput input : tx.getInputs()) {
+            spent.add(input.getConnectedOutput());
+        }
+        Signature[] signatures = sign(tx, spent, keyBag, aesKey);
+
+        // Mutações da transação ficam nesta thread: o cache de serialização do bitcoinj não é thread-safe
+        int signed = 0;
+        for (int i = 0; i < signatures.length; i++) {
+            Signature signature = signatures[i];
+            if (signature == null) {
+                continue;
+            }
+            TransactionInput input = tx.getInput(i);
+            switch (signature.scriptType()) {
+                case P2PKH -> input.setScriptSig(ScriptBuilder.createInputScript(signature.signature(), signature.key()));
+                case P2PK -> input.setScriptSig(ScriptBuilder.createInputScript(signature.signature()));
+                case P2WPKH -> {
+                    input.setScriptSig(ScriptBuilder.createEmpty());
+                    input.setWitness(TransactionWitness.redeemP2WPKH(signature.signature(), signature.key()));
+                }
+                default -> throw new IllegalStateException("Unexpected script type " + signature.scriptType());
+            }
+            signed++;
+        }
+        return signed;
+    }
+
+    @Override
+    public PsbtSignResult signPsbt(byte[] bytes, KeyBag keyBag, @Nullable KeyParameter aesKey) {
+        Psbt psbt = Psbt.parse(params, bytes);
+        Transaction tx = psbt.transaction();
+        List<TransactionOutput> spent = new ArrayList<>(tx.getInputs().size());
+        for (int i = 0; i < tx.getInputs().size(); i++) {
+            spent.add(psbt.signableWithSighashAll(i) ? psbt.spentOutput(i) : null);
+        }
+        Signature[] signatures = sign(tx, spent, keyBag, aesKey);
+
+        List<Integer> signedInputs = new ArrayList<>();
+        for (int i = 0; i < signatures.length; i++) {
+            Signature signature = signatures[i];
+            if (signature != null && !psbt.hasPartialSignature(i, signature.key().getPubKey())) {
+                psbt.addPartialSignature(i, signature.key().getPubKey(), signature.signature().encodeToBitcoin());
+                signedInputs.add(i);
+            }
+        }
+        return new PsbtSignResult(psbt.serialize(), signedInputs);
+    }
+
+    private record Signature(Script.ScriptType scriptType, ECKey key, TransactionSignature signature) {
+    }
+
+    // Posição i: assinatura da entrada i, ou null se a saída gasta for desconhecida, de outro tipo ou de outra carteira
+    private Signature[] sign(Transaction tx, List<TransactionOutput> spent, KeyBag keyBag, @Nullable KeyParameter aesKey) {
+        long started = System.nanoTime();
+        int inputCount = tx.getInputs().size();
+        Signature[] signatures = new Signature[inputCount];
+        SighashCache sighashes = new SighashCache(tx);
+        Keys keys = new Keys(new DecryptingKeyBag(keyBag, aesKey));
+
+        int tasks = Math.min(signingExecutor.getMaximumPoolSize() + 1,
+                (inputCount + MIN_INPUTS_PER_TASK - 1) / MIN_INPUTS_PER_TASK);
+        try {
+            signAll(sighashes, spent, keys, signatures, tasks);
+        } finally {
+            keys.clear();
+        }
+        signingTimer.record(Duration.ofNanos(System.nanoTime() - started));
+        return signatures;
+    }
+
+    private void signAll(SighashCache sighashes, List<TransactionOutput> spent, Keys keys, Signature[] signatures,
+                         int tasks) {
+        int inputCount = signatures.length;
+        if (tasks <= 1) {
+            signRange(sighashes, spent, keys, signatures, 0, inputCount);
+        } else {
+            int chunk = (inputCount + tasks - 1) / tasks;
+            List<Future<?>> futures = new ArrayList<>(tasks - 1);
+            try {
+                for (int from = chunk; from < inputCount; from += chunk) {
+                    int start = from;
+                    int end = Math.min(inputCount, from + chunk);
+                    futures.add(signingExecutor.submit(() -> signRange(sighashes, spent, keys, signatures, start, end)));
+                }
+                signRange(sighashes, spent, keys, signatures, 0, Math.min(chunk, inputCount));
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Signing interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause; // p.ex. KeyIsEncryptedException / KeyCrypterException de senha errada
+                }
+                throw new IllegalStateException("Signing failed", e.getCause());
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    private static void signRange(SighashCache sighashes, List<TransactionOutput> spent, Keys keys,
+                                  Signature[] signatures, int from, int to) {
+        for (int i = from; i < to; i++) {
+            TransactionOutput output = spent.get(i);
+            if (output != null) {
+                signatures[i] = signInput(sighashes, i, output, keys);
+            }
+        }
+    }
+
+    private static Signature signInput(SighashCache sighashes, int index, TransactionOutput output, Keys keys) {
+        Script script;
+        try {
+            script = output.getScriptPubKey();
+        } catch (ScriptException e) {
+            return null;
+        }
+        ECKey key;
+        Sha256Hash sighash;
+        Script.ScriptType scriptType;
+        if (ScriptPattern.isP2PKH(script)) {
+            scriptType = Script.ScriptType.P2PKH;
+            key = keys.byHash(ScriptPattern.extractHashFromP2PKH(script), scriptType);
+            sighash = key == null ? null : sighashes.legacy(index, output.getScriptBytes());
+        } else if (ScriptPattern.isP2WPKH(script)) {
+            scriptType = Script.ScriptType.P2WPKH;
+            byte[] hash = ScriptPattern.extractHashFromP2WH(script);
+            key = keys.byHash(hash, scriptType);
+            // BIP-143: o scriptCode de P2WPKH é o P2PKH do mesmo hash
+            sighash = key == null ? null
+                    : sighashes.witnessV0(index, ScriptBuilder.createP2PKHOutputScript(hash).getProgram(), output.getValue());
+        } else if (ScriptPattern.isP2PK(script)) {
+            scriptType = Script.ScriptType.P2PK;
+            key = keys.byPubKey(ScriptPattern.extractKeyFromP2PK(script));
+            sighash = key == null ? null : sighashes.legacy(index, output.getScriptBytes());
+        } else {
+            return null;
+        }
+        if (key == null) {
+            return null;
+        }
+        // Só a chave pública sai daqui: a privada decifrada morre com o cache de Keys
+        return new Signature(scriptType, ECKey.fromPublicOnly(key),
+                new TransactionSignature(key.sign(sighash), Transaction.SigHash.ALL, false));
+    }
+
+    /**
+     * Key lookups (and decryption, on an encrypted wallet) once per distinct key for the whole transaction;
+     * consolidations often spend many outputs of the same address. {@link #clear()} drops the decrypted keys
+     * as soon as the transaction is signed.
+     */
+    private static final class Keys {
+
+        // scriptType null: busca por chave pública (P2PK)
+        private record Lookup(Script.ScriptType scriptType, ByteBuffer bytes) {
+        }
+
+        private final KeyBag keyBag;
+        private final Map<Lookup, Optional<ECKey>> cache = new ConcurrentHashMap<>();
+
+        Keys(KeyBag keyBag) {
+            this.keyBag = keyBag;
+        }
+
+        ECKey byHash(byte[] hash, Script.ScriptType scriptType) {
+            return cache.computeIfAbsent(new Lookup(scriptType, ByteBuffer.wrap(hash)),
+                    k -> Optional.ofNullable(keyBag.findKeyFromPubKeyHash(hash, scriptType))).orElse(null);
+        }
+
+        ECKey byPubKey(byte[] pubKey) {
+            return cache.computeIfAbsent(new Lookup(null, ByteBuffer.wrap(pubKey)),
+                    k -> Optional.ofNullable(keyBag.findKeyFromPubKey(pubKey))).orElse(null);
+        }
+
+        // O ECKey guarda a privada num BigInteger imutável: não há como zerar, só soltar as referências
+        void clear() {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mcd.wallet.service.impl;
+
+import com.mcd.wallet.service.KeyDerivationService;
+import com.mcd.wallet.service.WalletProvisioningService;
+import com.mcd.wallet.service.model.ProvisionedWallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bitcoinj.script.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Service
+public class WalletProvisioningServiceImpl implements WalletProvisioningService {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletProvisioningServiceImpl.class);
+
+    // ~8 PBKDF2 por tarefa: amortiza o custo de agendamento sem segurar um worker por muito tempo
+    private static final int CHUNK_SIZE = 8;
+    private static final long RETRY_MILLIS = 20;
+
+    private final KeyDerivationService keyDerivationService;
+    private final ThreadPoolExecutor seedExecutor;
+    private final Duration capacityWait;
+    private final Counter provisionedWallets;
+
+    public WalletProvisioningServiceImpl(KeyDerivationService keyDerivationService,
+                                         @Qualifier("seedExecutor") ThreadPoolExecutor seedExecutor,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${wallet.provisioning.capacity-wait:5s}") Duration capacityWait) {
+        this.keyDerivationService = keyDerivationService;
+        this.seedExecutor = seedExecutor;
+        this.capacityWait = capacityWait;
+        this.provisionedWallets = Counter.builder("wallet.provisioning.wallets")
+                .description("Wallets generated by bulk provisioning (rate = wallets/s)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * PBKDF2 always runs on the seed pool. When the pool has no room and none of this call's chunks is in flight,
+     * waits up to {@code wallet.provisioning.capacity-wait} for a slot, then rethrows the rejection.
+     */
+    @Override
+    public void provision(int count, String passphrase, Script.ScriptType scriptType,
+                          Consumer<ProvisionedWallet> consumer) {
+        long start = System.nanoTime();
+        int maxChunksInFlight = seedExecutor.getMaximumPoolSize();
+        Deque<Future<List<ProvisionedWallet>>> inFlight = new ArrayDeque<>();
+        int remaining = count;
+        long rejectedSince = 0;
+        try {
+            while (remaining > 0 || !inFlight.isEmpty()) {
+                while (remaining > 0 && inFlight.size() < maxChunksInFlight) {
+                    int size = Math.min(CHUNK_SIZE, remaining);
+                    Callable<List<ProvisionedWallet>> chunk = () -> provisionChunk(size, passphrase, scriptType);
+                    try {
+                        inFlight.add(seedExecutor.submit(chunk));
+                        rejectedSince = 0;
+                    } catch (RejectedExecutionException e) {
+                        if (!inFlight.isEmpty()) {
+                            break; // fila cheia: consumir o chunk mais antigo antes de tentar de novo
+                        }
+                        // Nada em andamento para esperar: aguardar vaga no pool, nunca derivar no thread da requisição
+                        long now = System.nanoTime();
+                        if (rejectedSince == 0) {
+                            rejectedSince = now;
+                        } else if (now - rejectedSince >= capacityWait.toNanos()) {
+                            throw e;
+                        }
+                        Thread.sleep(RETRY_MILLIS);
+                        continue;
+                    }
+                    remaining -= size;
+                }
+                List<ProvisionedWallet> wallets = inFlight.poll().get();
+                wallets.forEach(consumer);
+                provisionedWallets.increment(wallets.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Wallet provisioning interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Wallet provisioning failed", e.getCause());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        log.info("Provisioned {} wallets in {} ms ({} wallets/s)",
+                count, Math.round(seconds * 1000), Math.round(count / Math.max(seconds, 1e-9)));
+    }
+
+    private List<ProvisionedWallet> provisionChunk(int size, String passphrase, Script.ScriptType scriptType) {
+        List<ProvisionedWallet> wallets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String mnemonic = Bip39.newMnemonic(16); // 128 bits → 12 words
+            byte[] seed = Bip39.toSeed(mnemonic, passphrase);
+            try {
+                wallets.add(new ProvisionedWallet(mnemonic, keyDerivationService.firstReceiveAddress(seed, scriptType)));
+            } finally {
+                Arrays.fill(seed, (byte) 0);
+            }
+        }
+        return wallets;
+    }
+}
@@ -1,65 +1,135 @@
 package com.mcd.wallet.service.impl;
 
 import com.mcd.wallet.service.WalletService;
-import org.bitcoinj.crypto.MnemonicCode;
+import com.mcd.wallet.service.model.DerivedSeed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.bitcoinj.crypto.MnemonicException;
 
-import org.bitcoinj.wallet.DeterministicSeed;
-import org.bitcoinj.wallet.UnreadableWalletException;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class WalletServiceImpl implements WalletService {
 
     private static final Logger log = LoggerFactory.getLogger(WalletServiceImpl.class);
-    private static final long SEED_CREATION_TIME = 0L; // For deterministic behavior
+
+    // PBKDF2 (2048 rounds) is CPU-bound: it runs on a core-sized pool with a bounded queue, never on request threads
+    private final ThreadPoolExecutor seedExecutor;
+    private final Timer derivationTimer;
+    private final Timer queueWaitTimer;
+
+    public WalletServiceImpl(@Qualifier("seedExecutor") ThreadPoolExecutor seedExecutor, MeterRegistry meterRegistry) {
+        this.seedExecutor = seedExecutor;
+        this.derivationTimer = Timer.builder("wallet.seed.derivation")
+                .description("PBKDF2 seed derivation time on the seed pool")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("wallet.seed.queue.wait")
+                .description("Time seed derivations wait for a free worker")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("wallet.seed.queue.size", seedExecutor, executor -> executor.getQueue().size());
+    }
 
     @Override
     public String generateMnemonic() {
-        try {
-            byte[] entropy = new byte[16]; // 128 bits → 12 words
-            new SecureRandom().nextBytes(entropy);
-
-            List<String> mnemonicWords = MnemonicCode.INSTANCE.toMnemonic(entropy);
-            String mnemonic = String.join(" ", mnemonicWords);
-            log.debug("Generated mnemonic: {}", mnemonic); // Optional: log only if safe
+        return Bip39.newMnemonic(16); // 128 bits → 12 words
+    }
 
-            return mnemonic;
-        } catch (Exception e) {
-            throw new WalletException("Failed to generate mnemonic", e);
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException if the seed pool queue is full
+     */
+    @Override
+    public byte[] deriveSeed(String mnemonic, String passphrase) {
+        SeedGenerationParameters params = new SeedGenerationParameters(mnemonic, passphrase);
+        Derivation derivation = await(submit(List.of(params))).get(0);
+        if (derivation.failure() != null) {
+            throw new WalletException("Invalid mnemonic provided", derivation.failure());
         }
+        byte[] seed = derivation.seed();
+        log.debug("Derived seed with length: {}", seed.length); // Log seed length (not the seed itself)
+        return seed;
     }
 
     @Override
-    public byte[] deriveSeed(String mnemonic, String passphrase) {
+    public List<DerivedSeed> deriveSeeds(List<String> mnemonics, String passphrase) {
+        List<SeedGenerationParameters> params = mnemonics.stream()
+                .map(mnemonic -> new SeedGenerationParameters(mnemonic, passphrase))
+                .toList();
+
+        // Um bloco contíguo por worker: o lote ocupa no máximo N posições da fila, qualquer que seja o tamanho
+        int workers = seedExecutor.getMaximumPoolSize();
+        int chunkSize = Math.max(1, (params.size() + workers - 1) / workers);
+        List<Future<List<Derivation>>> chunks = new ArrayList<>();
         try {
-            SeedGenerationParameters params = new SeedGenerationParameters(mnemonic, passphrase);
-            byte[] seed = createDeterministicSeed(params);
-            log.debug("Derived seed with length: {}", seed.length); // Log seed length (not the seed itself)
-            return seed;
-        } catch (MnemonicException | UnreadableWalletException e) {
-            throw new WalletException("Invalid mnemonic provided", e);
+            for (int from = 0; from < params.size(); from += chunkSize) {
+                chunks.add(submit(params.subList(from, Math.min(params.size(), from + chunkSize))));
+            }
+            List<DerivedSeed> seeds = new ArrayList<>(params.size());
+            for (Future<List<Derivation>> chunk : chunks) {
+                for (Derivation derivation : await(chunk)) {
+                    seeds.add(derivation.failure() == null
+                            ? DerivedSeed.of(derivation.seed())
+                            : DerivedSeed.failed("Invalid mnemonic provided"));
+                }
+            }
+            return seeds;
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
         }
     }
 
-    private byte[] createDeterministicSeed(@NotNull SeedGenerationParameters params) throws MnemonicException, UnreadableWalletException {
-        // Validate mnemonic format
-        MnemonicCode.INSTANCE.check(List.of(params.mnemonic().split(" ")));
-
-        DeterministicSeed seed = new DeterministicSeed(
-                params.mnemonic(),
-                null,
-                params.passphrase(),
-                SEED_CREATION_TIME
-        );
-        return seed.getSeedBytes();
+    private Future<List<Derivation>> submit(List<SeedGenerationParameters> batch) {
+        long queuedAt = System.nanoTime();
+        return seedExecutor.submit(() -> {
+            queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            List<Derivation> seeds = new ArrayList<>(batch.size());
+            for (SeedGenerationParameters params : batch) {
+                long start = System.nanoTime();
+                try {
+                    seeds.add(new Derivation(createDeterministicSeed(params), null));
+                } catch (MnemonicException e) {
+                    seeds.add(new Derivation(null, e)); // só esta frase falha; o resto do bloco segue
+                }
+                derivationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return seeds;
+        });
+    }
+
+    private static List<Derivation> await(Future<List<Derivation>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalletException("Seed derivation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new WalletException("Seed derivation failed", e.getCause());
+        }
+    }
+
+    private byte[] createDeterministicSeed(@NotNull SeedGenerationParameters params) throws MnemonicException {
+        // Espaços extras (duplos, no início ou no fim) são aceitos como antes: a semente sai da frase normalizada
+        String mnemonic = Bip39.normalize(params.mnemonic());
+        // Validate mnemonic format (words + checksum) without splitting into a list
+        Bip39.check(mnemonic);
+        return Bip39.toSeed(mnemonic, params.passphrase());
+    }
+
+    private record Derivation(byte[] seed, MnemonicException failure) {
     }
 
     // record instead of class for brevity
@@ -76,4 +146,4 @@ public class WalletServiceImpl implements WalletService {
             super(message, cause);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.mcd.wallet.service.model;
+
+/**
+ * Balances after a change, as plain BTC strings (same format as {@code /summary}).
+ */
+public record BalanceChange(String availableBalance, String estimatedBalance, int lastBlockHeight) {
+
+    public static BalanceChange of(WalletSnapshot snapshot) {
+        return new BalanceChange(
+                snapshot.availableBalance().toPlainString(),
+                snapshot.estimatedBalance().toPlainString(),
+                snapshot.lastBlockHeight()
+        );
+    }
+}
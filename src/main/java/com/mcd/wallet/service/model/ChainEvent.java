@@ -0,0 +1,29 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.core.Coin;
+
+/**
+ * Block, peer and coin notifications dispatched by {@link com.mcd.wallet.service.ChainEventBus} off the bitcoinj
+ * threads.
+ */
+public sealed interface ChainEvent {
+
+    /**
+     * Blocks downloaded since the previous delivery; {@code lastHash} and {@code blocksLeft} are those of the
+     * newest one.
+     */
+    record BlocksDownloaded(int count, String lastHash, int blocksLeft) implements ChainEvent {
+    }
+
+    record PeerConnected(String address, int peerCount) implements ChainEvent {
+    }
+
+    record PeerDisconnected(String address, int peerCount) implements ChainEvent {
+    }
+
+    record CoinsReceived(String txId, Coin newBalance) implements ChainEvent {
+    }
+
+    record CoinsSent(String txId, Coin newBalance) implements ChainEvent {
+    }
+}
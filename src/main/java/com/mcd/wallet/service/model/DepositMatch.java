@@ -0,0 +1,8 @@
+package com.mcd.wallet.service.model;
+
+/**
+ * An output paying one of the watched deposit addresses. {@code height} is -1 while unconfirmed.
+ */
+public record DepositMatch(String txId, int outputIndex, String address, int derivationIndex, String amount,
+                           int height) {
+}
@@ -0,0 +1,6 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.core.Address;
+
+public record DerivedAddress(int index, Address address) {
+}
@@ -0,0 +1,19 @@
+package com.mcd.wallet.service.model;
+
+/**
+ * Outcome of one mnemonic in a batch derivation: the 64-byte seed, or why the mnemonic was rejected.
+ */
+public record DerivedSeed(byte[] seed, String error) {
+
+    public static DerivedSeed of(byte[] seed) {
+        return new DerivedSeed(seed, null);
+    }
+
+    public static DerivedSeed failed(String error) {
+        return new DerivedSeed(null, error);
+    }
+
+    public boolean isValid() {
+        return seed != null;
+    }
+}
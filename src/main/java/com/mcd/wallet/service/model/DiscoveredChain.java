@@ -0,0 +1,10 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.script.Script;
+
+/**
+ * A used derivation chain found by account discovery: {@code chain} 0 is the receive chain, 1 the change chain.
+ */
+public record DiscoveredChain(Script.ScriptType scriptType, String path, int account, int chain, int usedCount,
+                              int lastUsedIndex) {
+}
@@ -0,0 +1,12 @@
+package com.mcd.wallet.service.model;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of an account discovery: the used chains, how many derivation passes it took, how many derived
+ * scripts were checked in total and the first block height the chain data covered.
+ */
+public record DiscoveryResult(List<DiscoveredChain> chains, int passes, long scriptsChecked, int scannedFromHeight,
+                              Duration elapsed) {
+}
@@ -0,0 +1,11 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.wallet.Wallet;
+
+/**
+ * A tenant wallet loaded by {@link com.mcd.wallet.service.WalletRegistry}.
+ * {@code stale} means blocks it missed while unloaded could not be replayed; its history may be incomplete
+ * until it is rescanned.
+ */
+public record ManagedWallet(String id, Wallet wallet, boolean stale) {
+}
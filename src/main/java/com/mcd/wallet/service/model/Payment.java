@@ -0,0 +1,38 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+
+import java.time.Instant;
+
+/**
+ * Immutable state of a queued payout. {@code txId}/{@code outputIndex} are set once the payment was
+ * included in a batch transaction; {@code error} is set when it failed.
+ */
+public record Payment(String id, Address address, Coin amount, Status status, String txId, Integer outputIndex,
+                      String error, Instant createdAt, Instant updatedAt) {
+
+    public enum Status {
+        QUEUED,     // aguardando o próximo lote
+        SENT,       // transação criada e entregue aos peers
+        BROADCAST,  // propagação confirmada pelos peers
+        FAILED
+    }
+
+    public static Payment queued(String id, Address address, Coin amount) {
+        Instant now = Instant.now();
+        return new Payment(id, address, amount, Status.QUEUED, null, null, null, now, now);
+    }
+
+    public Payment sent(String txId, int outputIndex) {
+        return new Payment(id, address, amount, Status.SENT, txId, outputIndex, null, createdAt, Instant.now());
+    }
+
+    public Payment broadcast() {
+        return new Payment(id, address, amount, Status.BROADCAST, txId, outputIndex, null, createdAt, Instant.now());
+    }
+
+    public Payment failed(String error) {
+        return new Payment(id, address, amount, Status.FAILED, txId, outputIndex, error, createdAt, Instant.now());
+    }
+}
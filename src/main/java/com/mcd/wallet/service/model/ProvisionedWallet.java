@@ -0,0 +1,9 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.core.Address;
+
+/**
+ * A newly generated wallet: its BIP-39 mnemonic and the first receive address (index 0).
+ */
+public record ProvisionedWallet(String mnemonic, Address receiveAddress) {
+}
@@ -0,0 +1,9 @@
+package com.mcd.wallet.service.model;
+
+import java.util.List;
+
+/**
+ * A PSBT after the signer role ran over it, and the indexes of the inputs that received a wallet signature.
+ */
+public record PsbtSignResult(byte[] psbt, List<Integer> signedInputs) {
+}
@@ -0,0 +1,66 @@
+package com.mcd.wallet.service.model;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The scriptPubKeys paid in a scanned range of the chain, kept as sorted 64-bit fingerprints so that a scan of
+ * millions of outputs stays a flat array. A false match needs two scripts colliding on 64 bits; it would only
+ * widen the discovery window of one chain.
+ */
+public final class ScriptActivity {
+
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+
+    private final long[] fingerprints;
+    private final int scannedFromHeight;
+
+    /**
+     * @param fingerprints      {@link #fingerprint(byte[])} of the paid scripts; only the first {@code count}
+     *                          are used, and the array is sorted in place
+     * @param scannedFromHeight first height actually scanned
+     */
+    public ScriptActivity(long[] fingerprints, int count, int scannedFromHeight) {
+        Arrays.sort(fingerprints, 0, count);
+        this.fingerprints = count == fingerprints.length ? fingerprints : Arrays.copyOf(fingerprints, count);
+        this.scannedFromHeight = scannedFromHeight;
+    }
+
+    public static ScriptActivity of(Collection<byte[]> scripts, int scannedFromHeight) {
+        long[] fingerprints = scripts.stream().mapToLong(ScriptActivity::fingerprint).toArray();
+        return new ScriptActivity(fingerprints, fingerprints.length, scannedFromHeight);
+    }
+
+    public static long fingerprint(byte[] script) {
+        return FINGERPRINT.hashBytes(script).asLong();
+    }
+
+    /**
+     * Bit {@code i} is set when {@code scripts.get(i)} was paid in the scanned range.
+     */
+    public BitSet findUsed(List<byte[]> scripts) {
+        BitSet used = new BitSet(scripts.size());
+        for (int i = 0; i < scripts.size(); i++) {
+            if (Arrays.binarySearch(fingerprints, fingerprint(scripts.get(i))) >= 0) {
+                used.set(i);
+            }
+        }
+        return used;
+    }
+
+    /**
+     * First height actually scanned: above the requested one when the chain data does not reach back that far.
+     */
+    public int scannedFromHeight() {
+        return scannedFromHeight;
+    }
+
+    public int size() {
+        return fingerprints.length;
+    }
+}
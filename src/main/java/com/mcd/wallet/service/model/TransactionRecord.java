@@ -0,0 +1,37 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.wallet.Wallet;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of a wallet transaction, computed once when the wallet reports a change.
+ * Amounts are plain BTC strings (same format accepted by {@code /send}); {@code fee} is null when unknown.
+ * {@code height} is the inclusion height (-1 unless BUILDING): the depth changes with every block and is
+ * {@code chainHeight - height + 1} at read time, so it is not stored.
+ */
+public record TransactionRecord(String txId, String amount, String fee, Instant updateTime,
+                                String confidence, int height) {
+
+    public static TransactionRecord of(Wallet wallet, Transaction tx) {
+        Coin fee = tx.getFee();
+        TransactionConfidence confidence = tx.getConfidence();
+        int height = confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING
+                ? confidence.getAppearedAtChainHeight() : -1;
+        return new TransactionRecord(
+                tx.getTxId().toString(),
+                tx.getValue(wallet).toPlainString(),
+                fee != null ? fee.toPlainString() : null,
+                updateTime(tx),
+                confidence.getConfidenceType().name(),
+                height
+        );
+    }
+
+    public static Instant updateTime(Transaction tx) {
+        return tx.getUpdateTime() != null ? tx.getUpdateTime().toInstant() : Instant.EPOCH;
+    }
+}
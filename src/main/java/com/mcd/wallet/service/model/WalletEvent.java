@@ -0,0 +1,17 @@
+package com.mcd.wallet.service.model;
+
+/**
+ * A wallet change pushed to event-stream subscribers. {@code id} is the SSE event id clients resume from;
+ * {@code data} is a {@link BalanceChange}, {@link TransactionRecord} or {@link DepositMatch}, depending on
+ * {@code type}.
+ */
+public record WalletEvent(long id, String type, Object data) {
+
+    public static final String BALANCE = "balance";
+    public static final String TRANSACTION = "transaction";
+    public static final String DEPOSIT = "deposit";
+    /**
+     * The events after the client's last id are no longer available: reload the balance and transactions.
+     */
+    public static final String RESET = "reset";
+}
@@ -0,0 +1,37 @@
+package com.mcd.wallet.service.model;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.wallet.Wallet;
+
+import java.time.Instant;
+
+/**
+ * Immutable read model of the wallet, republished by {@link com.mcd.wallet.service.BlockchainService}
+ * whenever the wallet changes. Reading it never takes the bitcoinj wallet lock.
+ * {@code version} grows by one with every republished snapshot; it is the wallet state version behind the
+ * ETags of the read endpoints.
+ */
+public record WalletSnapshot(Coin availableBalance, Coin estimatedBalance, int txCount, int utxoCount,
+                             int lastBlockHeight, long version, Instant updatedAt) {
+
+    public static final WalletSnapshot EMPTY = new WalletSnapshot(Coin.ZERO, Coin.ZERO, 0, 0, -1, 0, Instant.EPOCH);
+
+    /**
+     * Snapshot of a wallet without a {@code UtxoIndex}; counting its unspent outputs copies them all.
+     */
+    public static WalletSnapshot of(Wallet wallet, int txCount) {
+        return of(wallet, txCount, wallet.getUnspents().size(), 0);
+    }
+
+    public static WalletSnapshot of(Wallet wallet, int txCount, int utxoCount, long version) {
+        return new WalletSnapshot(
+                wallet.getBalance(Wallet.BalanceType.AVAILABLE),
+                wallet.getBalance(Wallet.BalanceType.ESTIMATED),
+                txCount,
+                utxoCount,
+                wallet.getLastBlockSeenHeight(),
+                version,
+                Instant.now()
+        );
+    }
+}
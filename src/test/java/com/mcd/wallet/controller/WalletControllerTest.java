@@ -0,0 +1,176 @@
+package com.mcd.wallet.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.SyncMonitor;
+import com.mcd.wallet.service.TransactionIndex;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletControllerTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+    private static final Comparator<JsonNode> SAME_NUMBER = (a, b) -> a.isNumber() && b.isNumber()
+            ? a.decimalValue().compareTo(b.decimalValue())
+            : a.equals(b) ? 0 : 1;
+
+    private Wallet wallet;
+    private TransactionIndex transactionIndex;
+    private ObjectMapper objectMapper;
+    private WalletController controller;
+    private volatile WalletSnapshot snapshot;
+    private int received;
+
+    @BeforeEach
+    void setUp() {
+        Context context = new Context(PARAMS);
+        Context.propagate(context);
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        transactionIndex = new TransactionIndex();
+        transactionIndex.bind(wallet);
+        for (int i = 0; i < 5; i++) {
+            receive(Coin.MILLICOIN.multiply(i + 1));
+        }
+        publish();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BlockchainService blockchainService = new BlockchainService(PARAMS, context, transactionIndex, null, null,
+                null, null, null, new SyncMonitor(meterRegistry), meterRegistry, new DefaultResourceLoader(),
+                "", "", List.of(), true, null, "bloom", false) {
+            @Override
+            public WalletSnapshot getSnapshot() {
+                return snapshot;
+            }
+
+            @Override
+            public boolean isWalletReady() {
+                return true;
+            }
+        };
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        controller = new WalletController(blockchainService, transactionIndex, null, null, objectMapper, Runnable::run,
+                meterRegistry, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void shouldAnswerMatchingETagWithNotModifiedUntilTheWalletChanges() {
+        ServletWebRequest first = request(null, null);
+        assertEquals(snapshot.availableBalance().toFriendlyString(), controller.getBalance(first));
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\""), "strong ETag expected: " + etag);
+
+        ServletWebRequest poll = request(null, etag);
+        assertNull(controller.getBalance(poll));
+        assertEquals(304, poll.getResponse().getStatus());
+
+        receive(Coin.MILLICOIN);
+        publish();
+        ServletWebRequest afterChange = request(null, etag);
+        assertNotNull(controller.getBalance(afterChange));
+        assertEquals(200, afterChange.getResponse().getStatus());
+        assertNotEquals(etag, afterChange.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void shouldServeTransactionsAsCborWithItsOwnETag() throws IOException {
+        ServletWebRequest jsonRequest = request(null, null);
+        ResponseEntity<StreamingResponseBody> json = controller.getTransactions(100, null, null, null, jsonRequest);
+        ServletWebRequest cborRequest = request("application/json;q=0.5, application/cbor", null);
+        ResponseEntity<StreamingResponseBody> cbor = controller.getTransactions(100, null, null, null, cborRequest);
+
+        assertEquals(MediaType.APPLICATION_JSON, json.getHeaders().getContentType());
+        assertEquals(MediaType.APPLICATION_CBOR, cbor.getHeaders().getContentType());
+        assertEquals(HttpHeaders.ACCEPT, cborRequest.getResponse().getHeader(HttpHeaders.VARY));
+        String jsonETag = jsonRequest.getResponse().getHeader(HttpHeaders.ETAG);
+        String cborETag = cborRequest.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(jsonETag, cborETag);
+
+        byte[] jsonBody = render(json.getBody());
+        byte[] cborBody = render(cbor.getBody());
+        JsonNode fromCbor = new ObjectMapper(new CBORFactory()).readTree(cborBody);
+        // Instantes vêm como decimal no CBOR e como double ao reler o JSON (inteiro num segundo exato): comparar pelo valor
+        assertTrue(objectMapper.readTree(jsonBody).equals(SAME_NUMBER, fromCbor));
+        assertEquals(5, fromCbor.get("items").size());
+        assertTrue(cborBody.length < jsonBody.length);
+
+        // O ETag do JSON não vale para a representação CBOR
+        ServletWebRequest crossed = request(MediaType.APPLICATION_CBOR_VALUE, jsonETag);
+        assertNotNull(controller.getTransactions(100, null, null, null, crossed));
+        ServletWebRequest revalidated = request(MediaType.APPLICATION_CBOR_VALUE, cborETag);
+        assertNull(controller.getTransactions(100, null, null, null, revalidated));
+        assertEquals(304, revalidated.getResponse().getStatus());
+    }
+
+    @Test
+    void shouldPreferJsonForWildcardsAndPlainAccept() {
+        ServletWebRequest wildcard = request("*/*", null);
+        assertEquals(MediaType.APPLICATION_JSON,
+                controller.getTransactions(10, null, null, null, wildcard).getHeaders().getContentType());
+        ServletWebRequest rankedBelow = request("application/cbor;q=0.2, application/json", null);
+        assertEquals(MediaType.APPLICATION_JSON, controller.getSummary(rankedBelow).getHeaders().getContentType());
+    }
+
+    private void publish() {
+        long version = snapshot == null ? 1 : snapshot.version() + 1;
+        snapshot = WalletSnapshot.of(wallet, transactionIndex.size(), wallet.getUnspents().size(), version);
+    }
+
+    private void receive(Coin value) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{(byte) received++}))));
+        tx.addOutput(value, wallet.freshReceiveAddress());
+        wallet.receivePending(tx, null);
+        Threading.waitForUserCode();
+    }
+
+    private static byte[] render(StreamingResponseBody body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        body.writeTo(buffer);
+        return buffer.toByteArray();
+    }
+
+    private static ServletWebRequest request(String accept, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/wallet");
+        if (accept != null) {
+            request.addHeader(HttpHeaders.ACCEPT, accept);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,169 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import com.mcd.wallet.service.AccountDiscoveryService;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.KeyDerivationService;
+import com.mcd.wallet.service.ScriptActivitySource;
+import com.mcd.wallet.service.WalletService;
+import com.mcd.wallet.service.model.DiscoveredChain;
+import com.mcd.wallet.service.model.DiscoveryResult;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Restore-time account discovery against a {@link StandInPeer} chain in which one mnemonic used several accounts,
+ * change chains and script types. Compares the batched discovery with a sequential gap-limit walk (one chain
+ * after the other, one 20-address window per pass) over the same block-scan source.
+ * Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups= -Dtest=AccountDiscoveryLoadTest}
+ */
+@Tag("load")
+class AccountDiscoveryLoadTest {
+
+    private static final int BLOCKS = 200;
+    private static final int PAYMENTS_PER_BLOCK = 10;
+    private static final int GAP_LIMIT = 20;
+    private static final List<Script.ScriptType> SCRIPT_TYPES =
+            List.of(Script.ScriptType.P2PKH, Script.ScriptType.P2WPKH, Script.ScriptType.P2TR);
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    // Uso simulado: tipo, conta, cadeia, quantidade de endereços usados (índices 0..n-1)
+    private record Usage(Script.ScriptType scriptType, int account, int chain, int used) {
+    }
+
+    private static final List<Usage> USAGE = List.of(
+            new Usage(Script.ScriptType.P2PKH, 0, 0, 400),
+            new Usage(Script.ScriptType.P2PKH, 0, 1, 150),
+            new Usage(Script.ScriptType.P2WPKH, 0, 0, 200),
+            new Usage(Script.ScriptType.P2WPKH, 1, 0, 60),
+            new Usage(Script.ScriptType.P2TR, 0, 0, 40));
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void compareBatchedAndSequentialDiscovery() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+        Wallet other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+
+        try (StandInPeer peer = new StandInPeer(params, other.currentReceiveAddress(), other.currentReceiveAddress(),
+                BLOCKS, 0);
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                     .run("--server.port=0",
+                             "--bitcoin.network=regtest",
+                             "--bitcoin.data-directory=" + dataDirectory,
+                             "--bitcoin.peers=localhost:" + peer.port(),
+                             "--bitcoin.bloom-filtering=false",
+                             "--wallet.discovery.gap-limit=" + GAP_LIMIT,
+                             "--logging.level.com.mcd.wallet=INFO")) {
+            BlockchainService blockchainService = context.getBean(BlockchainService.class);
+            KeyDerivationService keyDerivationService = context.getBean(KeyDerivationService.class);
+            WalletService walletService = context.getBean(WalletService.class);
+            byte[] seed = walletService.deriveSeed(walletService.generateMnemonic(), "");
+
+            List<Address> payees = new ArrayList<>();
+            for (Usage usage : USAGE) {
+                for (byte[] script : keyDerivationService.deriveScripts(seed, usage.scriptType(), usage.account(),
+                        usage.chain(), 0, usage.used())) {
+                    payees.add(new Script(script).getToAddress(params));
+                }
+            }
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (!blockchainService.isWalletReady() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            int blocks = (payees.size() + PAYMENTS_PER_BLOCK - 1) / PAYMENTS_PER_BLOCK;
+            peer.mine(blocks, payees, PAYMENTS_PER_BLOCK, Coin.valueOf(10_000));
+            while (blockchainService.requireWalletAppKit().chain().getBestChainHeight() < BLOCKS + blocks
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            ScriptActivitySource source = context.getBean(ScriptActivitySource.class);
+            source.scan(0); // aquecimento: JIT e primeira leitura dos blocos fora da medição
+            DiscoveryResult batched = context.getBean(AccountDiscoveryService.class).discover(seed, SCRIPT_TYPES, 0);
+            Sequential sequential = sequential(source, keyDerivationService, seed);
+
+            System.out.printf("%d used addresses in %d blocks%n", payees.size(), BLOCKS + blocks);
+            System.out.println("mode         passes   scripts      ms");
+            System.out.printf("batched    %8d %9d %7d%n", batched.passes(), batched.scriptsChecked(), batched.elapsed().toMillis());
+            System.out.printf("sequential %8d %9d %7d%n", sequential.passes, sequential.scripts, sequential.millis);
+            batched.chains().forEach(System.out::println);
+
+            assertEquals(USAGE.size(), batched.chains().size());
+            for (int i = 0; i < USAGE.size(); i++) {
+                Usage usage = USAGE.get(i);
+                DiscoveredChain chain = batched.chains().get(i);
+                assertEquals(List.of(usage.scriptType(), usage.account(), usage.chain(), usage.used()),
+                        List.of(chain.scriptType(), chain.account(), chain.chain(), chain.usedCount()));
+            }
+            assertEquals(sequential.found, USAGE.stream()
+                    .sorted(Comparator.comparing(Usage::scriptType)).map(Usage::used).toList());
+        }
+    }
+
+    private static final class Sequential {
+        int passes;
+        long scripts;
+        long millis;
+        final List<Integer> found = new ArrayList<>();
+    }
+
+    // Referência: BIP-44 literal, uma cadeia por vez e uma leitura dos blocos por janela de GAP_LIMIT
+    private static Sequential sequential(ScriptActivitySource source, KeyDerivationService keyDerivationService,
+                                         byte[] seed) {
+        Sequential result = new Sequential();
+        long start = System.nanoTime();
+        for (Script.ScriptType scriptType : SCRIPT_TYPES) {
+            for (int account = 0; ; account++) {
+                boolean accountUsed = false;
+                for (int chain = 0; chain < 2; chain++) {
+                    int used = 0;
+                    int lastUsed = -1;
+                    int checkedTo = 0;
+                    while (checkedTo < lastUsed + 1 + GAP_LIMIT) {
+                        List<byte[]> window = keyDerivationService.deriveScripts(seed, scriptType, account, chain,
+                                checkedTo, GAP_LIMIT);
+                        BitSet hits = source.scan(0).findUsed(window);
+                        result.passes++;
+                        result.scripts += window.size();
+                        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                            used++;
+                            lastUsed = checkedTo + i;
+                        }
+                        checkedTo += GAP_LIMIT;
+                    }
+                    if (used > 0) {
+                        result.found.add(used);
+                        accountUsed = true;
+                    }
+                }
+                if (!accountUsed) {
+                    break;
+                }
+            }
+        }
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+}
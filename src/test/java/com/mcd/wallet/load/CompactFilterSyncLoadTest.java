@@ -0,0 +1,150 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.WalletRegistry;
+import com.mcd.wallet.service.model.ManagedWallet;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Catching up on {@link #BLOCKS} new blocks against a {@link StandInPeer} in each sync mode: BIP-37 filtered
+ * blocks, full blocks ({@code bitcoin.bloom-filtering=false}) and BIP-157/158 compact filters. Every block carries
+ * {@link #PAYMENTS_PER_BLOCK} payments and one block in ten pays the wallet. Reports the bytes the peer sent and
+ * the time until the published snapshot reaches the tip with the expected balance.
+ * {@link #tenantWalletReceivesPaymentsInFiltersMode} checks that {@link WalletRegistry} wallets are fed in filters mode.
+ * Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups= -Dtest=CompactFilterSyncLoadTest}
+ */
+@Tag("load")
+class CompactFilterSyncLoadTest {
+
+    private static final int BLOCKS = 2_000;
+    private static final int PAYMENTS_PER_BLOCK = 20;
+    private static final int OTHER_PAYEES = 199;
+    private static final int INITIAL_BLOCKS = 10;
+    private static final Coin AMOUNT = Coin.COIN;
+    private static final Duration SYNC_TIMEOUT = Duration.ofMinutes(5);
+
+    private record Result(String mode, long bytes, long millis, Coin balance) {
+    }
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void compareSyncModes() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+        Wallet other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+        List<Address> others = new ArrayList<>(OTHER_PAYEES);
+        for (int i = 0; i < OTHER_PAYEES; i++) {
+            others.add(other.freshReceiveAddress());
+        }
+
+        List<Result> results = List.of(
+                sync(params, others, "bloom", true),
+                sync(params, others, "bloom", false),
+                sync(params, others, "filters", true));
+
+        for (Result result : results) {
+            System.out.printf("%-12s | %,12d bytes | %6d ms | balance %s%n", result.mode(), result.bytes(),
+                    result.millis(), result.balance().toFriendlyString());
+        }
+        for (Result result : results) {
+            assertEquals(results.get(0).balance(), result.balance(), result.mode());
+        }
+    }
+
+    private Result sync(NetworkParameters params, List<Address> others, String syncMode, boolean bloomFiltering)
+            throws Exception {
+        String mode = syncMode.equals("filters") ? "filters" : bloomFiltering ? "bip37" : "full-blocks";
+        try (StandInPeer peer = new StandInPeer(params, others.get(0), others.get(0), INITIAL_BLOCKS, 0);
+             ConfigurableApplicationContext context = startWallet(peer, mode, syncMode, bloomFiltering)) {
+            BlockchainService blockchainService = context.getBean(BlockchainService.class);
+            long deadline = System.nanoTime() + SYNC_TIMEOUT.toNanos();
+            awaitHeight(blockchainService, INITIAL_BLOCKS, deadline);
+            WalletAppKit kit = blockchainService.requireWalletAppKit();
+
+            // Um pagador em cada PAYEES: a carteira recebe um pagamento a cada 10 blocos
+            List<Address> payees = new ArrayList<>(others);
+            payees.add(0, kit.wallet().currentReceiveAddress());
+            long bytesBefore = peer.bytesSent();
+            int payments = peer.mine(BLOCKS, payees, PAYMENTS_PER_BLOCK, AMOUNT);
+            long start = System.nanoTime();
+            Coin expected = AMOUNT.multiply((payments + payees.size() - 1) / payees.size());
+            while (System.nanoTime() < deadline
+                    && (blockchainService.getSnapshot().lastBlockHeight() < peer.height()
+                    || !kit.wallet().getBalance(Wallet.BalanceType.ESTIMATED).equals(expected))) {
+                Thread.sleep(5);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(peer.height(), blockchainService.getSnapshot().lastBlockHeight(), mode);
+            return new Result(mode, peer.bytesSent() - bytesBefore, millis,
+                    kit.wallet().getBalance(Wallet.BalanceType.ESTIMATED));
+        }
+    }
+
+    @Test
+    void tenantWalletReceivesPaymentsInFiltersMode() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+        Address other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH).currentReceiveAddress();
+        try (StandInPeer peer = new StandInPeer(params, other, other, INITIAL_BLOCKS, 0);
+             ConfigurableApplicationContext context = startWallet(peer, "tenant", "filters", true)) {
+            BlockchainService blockchainService = context.getBean(BlockchainService.class);
+            long deadline = System.nanoTime() + SYNC_TIMEOUT.toNanos();
+            awaitHeight(blockchainService, INITIAL_BLOCKS, deadline);
+            ManagedWallet tenant = context.getBean(WalletRegistry.class).create();
+
+            // Um pagamento ao tenant e um a terceiros por bloco; a carteira principal não recebe nada
+            int payments = peer.mine(10, List.of(tenant.wallet().currentReceiveAddress(), other), 2, AMOUNT);
+            Coin expected = AMOUNT.multiply(payments / 2);
+            while (System.nanoTime() < deadline
+                    && !tenant.wallet().getBalance(Wallet.BalanceType.ESTIMATED).equals(expected)) {
+                Thread.sleep(5);
+            }
+            assertEquals(expected, tenant.wallet().getBalance(Wallet.BalanceType.ESTIMATED));
+            assertEquals(peer.height(), tenant.wallet().getLastBlockSeenHeight());
+            assertEquals(Coin.ZERO, blockchainService.requireWalletAppKit().wallet().getBalance(Wallet.BalanceType.ESTIMATED));
+        }
+    }
+
+    private ConfigurableApplicationContext startWallet(StandInPeer peer, String mode, String syncMode,
+                                                       boolean bloomFiltering) {
+        return new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                .run("--server.port=0",
+                        "--bitcoin.network=regtest",
+                        "--bitcoin.data-directory=" + dataDirectory.resolve(mode),
+                        "--bitcoin.peers=localhost:" + peer.port(),
+                        "--bitcoin.checkpoints=none",
+                        "--bitcoin.sync-mode=" + syncMode,
+                        "--bitcoin.bloom-filtering=" + bloomFiltering,
+                        "--logging.level.com.mcd.wallet=INFO");
+    }
+
+    private static void awaitHeight(BlockchainService blockchainService, int height, long deadline)
+            throws InterruptedException {
+        while (System.nanoTime() < deadline
+                && (!blockchainService.isWalletReady() || blockchainService.getSnapshot().lastBlockHeight() < height)) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.UtxoIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.DeterministicSeed;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UTXO consolidation end to end: a {@link StandInPeer} pays {@value #PAID_BLOCKS} mature coinbases to the
+ * service's wallet and the scheduled job has to bring the UTXO count down to its target.
+ * Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups= -Dtest=ConsolidationLoadTest}
+ */
+@Tag("load")
+class ConsolidationLoadTest {
+
+    private static final int BLOCKS = 400;
+    private static final int PAID_BLOCKS = 300; // todos maduros (coinbase precisa de 100 confirmações)
+    private static final int TARGET_COUNT = 10;
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void consolidateCoinbaseOutputs() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+        DeterministicSeed seed = new DeterministicSeed(new SecureRandom(), DeterministicSeed.DEFAULT_SEED_ENTROPY_BITS, "");
+        seed.setCreationTimeSeconds(params.getGenesisBlock().getTimeSeconds());
+        Wallet wallet = Wallet.fromSeed(params, seed, Script.ScriptType.P2PKH);
+        wallet.saveToFile(new File(dataDirectory.toFile(), "wallet.wallet"));
+        Wallet other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+
+        try (StandInPeer peer = new StandInPeer(params, wallet.currentReceiveAddress(), other.currentReceiveAddress(),
+                BLOCKS, PAID_BLOCKS);
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                     .run("--server.port=0",
+                             "--bitcoin.network=regtest",
+                             "--bitcoin.data-directory=" + dataDirectory,
+                             "--bitcoin.peers=localhost:" + peer.port(),
+                             "--bitcoin.bloom-filtering=false",
+                             "--wallet.consolidation.interval=1s",
+                             "--wallet.consolidation.utxo-threshold=100",
+                             "--wallet.consolidation.target-count=" + TARGET_COUNT,
+                             "--wallet.consolidation.max-inputs=50",
+                             "--logging.level.com.mcd.wallet=INFO")) {
+            BlockchainService blockchainService = context.getBean(BlockchainService.class);
+            UtxoIndex utxoIndex = context.getBean(UtxoIndex.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            // O job já roda durante o sync, a cada segundo, sobre as coinbases que amadurecem
+            long start = System.nanoTime();
+            long deadline = start + TIMEOUT.toNanos();
+            while (!blockchainService.isWalletReady() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            WalletAppKit kit = blockchainService.requireWalletAppKit();
+            while (kit.chain().getBestChainHeight() < BLOCKS && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            long synced = System.nanoTime();
+            while (utxoIndex.size() > TARGET_COUNT && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            long done = System.nanoTime();
+            int after = utxoIndex.size();
+
+            System.out.printf("coinbases %d -> utxos %d | %.0f transactions | %.0f inputs | fees %.0f sat | "
+                            + "sync %d ms | done %d ms after sync%n", PAID_BLOCKS, after,
+                    meterRegistry.get("wallet.consolidation.transactions").counter().count(),
+                    meterRegistry.get("wallet.consolidation.inputs").counter().count(),
+                    meterRegistry.get("wallet.consolidation.fees").counter().count(),
+                    (synced - start) / 1_000_000, (done - synced) / 1_000_000);
+            assertTrue(after <= TARGET_COUNT, "UTXO count " + after + " above target");
+        }
+    }
+}
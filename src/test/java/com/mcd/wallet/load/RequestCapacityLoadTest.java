@@ -0,0 +1,118 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent-request capacity with platform vs virtual request threads, same endpoints and load.
+ * Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups=}
+ */
+@Tag("load")
+class RequestCapacityLoadTest {
+
+    private static final int REQUESTS = 4000;
+    private static final int CONCURRENCY = 400;
+    private static final String[] PATHS = {
+            "/api/wallet/summary",
+            "/api/wallet/balance",
+            "/api/wallet/transactions?limit=50",
+            "/api/wallet/receive-address"
+    };
+
+    @Test
+    void compareRequestThreadModels() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.println("threads    req/s     p50 ms   p99 ms   statuses");
+        System.out.println(platform);
+        System.out.println(virtual);
+        assertTrue(virtual.completed() == REQUESTS && platform.completed() == REQUESTS);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                .properties("server.port=0",
+                        "bitcoin.network=regtest",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "logging.level.com.mcd.wallet=INFO")
+                .run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            return drive(virtualThreads ? "virtual " : "platform", port);
+        }
+    }
+
+    private Result drive(String label, int port) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        long[] latencies = new long[REQUESTS];
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        List<Future<?>> futures = new ArrayList<>(REQUESTS);
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                int n = i;
+                inFlight.acquire();
+                futures.add(clients.submit(() -> {
+                    try {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + port + PATHS[n % PATHS.length])).build();
+                        long sent = System.nanoTime();
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        latencies[n] = System.nanoTime() - sent;
+                        statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                    } catch (Exception e) {
+                        statuses.computeIfAbsent(-1, s -> new AtomicInteger()).incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(label, REQUESTS * 1e9 / elapsed,
+                latencies[REQUESTS / 2] / 1e6, latencies[REQUESTS * 99 / 100] / 1e6, new TreeMap<>(statuses));
+    }
+
+    private record Result(String label, double throughput, double p50Millis, double p99Millis,
+                          Map<Integer, AtomicInteger> statuses) {
+
+        int completed() {
+            return statuses.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %8.0f %9.1f %8.1f   %s", label, throughput, p50Millis, p99Millis, statuses);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.mcd.wallet.load;
+
+import com.google.common.io.CountingOutputStream;
+import com.mcd.wallet.service.CompactBlockFilter;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.BitcoinSerializer;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BloomFilter;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.EmptyMessage;
+import org.bitcoinj.core.FilteredBlock;
+import org.bitcoinj.core.GetBlocksMessage;
+import org.bitcoinj.core.GetDataMessage;
+import org.bitcoinj.core.GetHeadersMessage;
+import org.bitcoinj.core.HeadersMessage;
+import org.bitcoinj.core.InventoryItem;
+import org.bitcoinj.core.InventoryMessage;
+import org.bitcoinj.core.Message;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.NotFoundMessage;
+import org.bitcoinj.core.PartialMerkleTree;
+import org.bitcoinj.core.PeerSocketHandler;
+import org.bitcoinj.core.Ping;
+import org.bitcoinj.core.Pong;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.core.VarInt;
+import org.bitcoinj.core.VersionAck;
+import org.bitcoinj.core.VersionMessage;
+import org.bitcoinj.net.NioServer;
+import org.bitcoinj.params.RegTestParams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Minimal regtest node for startup and throughput measurements: serves a pre-mined chain over the P2P protocol
+ * (version handshake, ping, getheaders, getblocks and getdata) without a bitcoind. Serves BIP-37 filtered blocks
+ * to clients that load a bloom filter and BIP-158 basic filters ({@code getcfilters}), and counts the protocol
+ * bytes it sends.
+ * The first {@code paidBlocks} coinbases pay {@code payee}, the rest a throwaway address; {@link #mine} appends
+ * blocks full of payments while clients are connected.
+ */
+class StandInPeer implements AutoCloseable {
+
+    private static final int MAX_HEADERS = 2000;
+    private static final int MAX_INV = 500;
+    private static final long NODE_COMPACT_FILTERS = 1 << 6;
+
+    private final NetworkParameters params;
+    private final Address other;
+    // Lida pela thread de rede enquanto mine() acrescenta blocos
+    private final List<Block> chain = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Sha256Hash, Integer> heights = new ConcurrentHashMap<>();
+    private final Set<Handler> handlers = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, CompactBlockFilter> filters = new ConcurrentHashMap<>();
+    private final LongAdder bytesSent = new LongAdder();
+    private final NetworkParameters wireParams = new WireParams();
+    private long fakeOutPoints;
+    private final NioServer server;
+    private final int port;
+    private volatile CompletableFuture<Void> blocksReleased = CompletableFuture.completedFuture(null);
+
+    StandInPeer(NetworkParameters params, Address payee, Address other, int blocks, int paidBlocks) throws IOException {
+        this.params = params;
+        this.other = other;
+        Block tip = params.getGenesisBlock();
+        add(tip);
+        // Blocos com horário recente para cair depois do fast catch-up da carteira (download completo)
+        long time = System.currentTimeMillis() / 1000 - blocks;
+        for (int height = 1; height <= blocks; height++) {
+            tip = tip.createNextBlock(height <= paidBlocks ? payee : other, Block.BLOCK_VERSION_BIP65, time + height, height);
+            add(tip);
+        }
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new NioServer((inetAddress, remotePort) -> new Handler(new InetSocketAddress(inetAddress, remotePort)),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.startAsync().awaitRunning();
+    }
+
+    int port() {
+        return port;
+    }
+
+    /**
+     * Defers answers to getblocks until {@link #releaseBlocks()}, so a measurement can start before the download.
+     */
+    void holdBlocks() {
+        blocksReleased = new CompletableFuture<>();
+    }
+
+    void releaseBlocks() {
+        blocksReleased.complete(null);
+    }
+
+    int height() {
+        return chain.size() - 1;
+    }
+
+    /**
+     * Protocol bytes sent to all clients so far, message headers included.
+     */
+    long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Appends {@code blocks} blocks, each with {@code paymentsPerBlock} transactions paying {@code amount} to
+     * {@code payees} in turn (inputs spend made-up outpoints, which an SPV wallet does not check), and announces
+     * the new tip to connected clients. Returns the number of payments mined.
+     */
+    int mine(int blocks, List<Address> payees, int paymentsPerBlock, Coin amount) {
+        int payments = 0;
+        Block tip;
+        synchronized (chain) {
+            tip = chain.get(height());
+            for (int i = 0; i < blocks; i++) {
+                long time = Math.max(System.currentTimeMillis() / 1000, tip.getTimeSeconds() + 1);
+                tip = tip.createNextBlock(other, Block.BLOCK_VERSION_BIP65, time, chain.size());
+                for (int j = 0; j < paymentsPerBlock; j++) {
+                    Transaction tx = new Transaction(params);
+                    tx.addInput(new TransactionInput(params, tx, new byte[0], new TransactionOutPoint(params, 0,
+                            Sha256Hash.of(ByteBuffer.allocate(Long.BYTES).putLong(fakeOutPoints++).array()))));
+                    tx.addOutput(amount, payees.get(payments++ % payees.size()));
+                    tip.addTransaction(tx);
+                }
+                tip.solve();
+                add(tip);
+            }
+        }
+        InventoryMessage inv = new InventoryMessage(params);
+        inv.addBlock(tip);
+        handlers.forEach(handler -> handler.sendMessage(inv));
+        return payments;
+    }
+
+    private void add(Block block) {
+        heights.put(block.getHash(), chain.size());
+        chain.add(block);
+    }
+
+    // Pagamentos gastam outpoints inventados: só as saídas do bloco entram no filtro
+    private CompactBlockFilter filter(int height) {
+        return filters.computeIfAbsent(height, h -> CompactBlockFilter.build(chain.get(h), List.of()));
+    }
+
+    // Primeiro hash do locator que pertence à cadeia; genesis quando nenhum é conhecido
+    private int forkPoint(GetBlocksMessage message) {
+        for (Sha256Hash hash : message.getLocator().getHashes()) {
+            Integer height = heights.get(hash);
+            if (height != null) {
+                return height;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stopAsync().awaitTerminated(10, TimeUnit.SECONDS);
+    }
+
+    private class Handler extends PeerSocketHandler {
+
+        // Último bloco de um inv cheio: ao entregá-lo anunciamos o topo, como o hashContinue do bitcoind,
+        // para o bitcoinj pedir o próximo lote
+        private volatile Sha256Hash hashContinue;
+
+        private volatile BloomFilter bloomFilter;
+
+        Handler(InetSocketAddress remote) {
+            super(wireParams, remote);
+        }
+
+        @Override
+        public void connectionOpened() {
+            // o cliente fala primeiro (version); respondemos em processMessage
+            handlers.add(this);
+        }
+
+        @Override
+        public void connectionClosed() {
+            handlers.remove(this);
+        }
+
+        @Override
+        protected void processMessage(Message message) {
+            if (message instanceof VersionMessage) {
+                VersionMessage version = new VersionMessage(params, height());
+                version.localServices = VersionMessage.NODE_NETWORK | VersionMessage.NODE_BLOOM | VersionMessage.NODE_WITNESS
+                        | NODE_COMPACT_FILTERS;
+                sendMessage(version);
+                sendMessage(new VersionAck());
+            } else if (message instanceof Ping ping) {
+                sendMessage(new Pong(ping.getNonce()));
+            } else if (message instanceof GetHeadersMessage getHeaders) {
+                List<Block> headers = new ArrayList<>();
+                for (int height = forkPoint(getHeaders) + 1; height < chain.size() && headers.size() < MAX_HEADERS; height++) {
+                    headers.add(chain.get(height).cloneAsHeader());
+                }
+                sendMessage(new HeadersMessage(params, headers));
+            } else if (message instanceof BloomFilter filter) {
+                bloomFilter = filter;
+            } else if (message instanceof RawMessage raw && raw.command.equals("getcfilters")) {
+                sendFilters(raw.payload);
+            } else if (message instanceof GetBlocksMessage getBlocks) {
+                blocksReleased.thenRun(() -> sendInventory(getBlocks));
+            } else if (message instanceof GetDataMessage getData) {
+                List<InventoryItem> missing = new ArrayList<>();
+                for (InventoryItem item : getData.getItems()) {
+                    Integer height = heights.get(item.hash);
+                    boolean full = item.type == InventoryItem.Type.BLOCK || item.type == InventoryItem.Type.WITNESS_BLOCK;
+                    boolean filtered = bloomFilter != null && (item.type == InventoryItem.Type.FILTERED_BLOCK
+                            || item.type == InventoryItem.Type.WITNESS_FILTERED_BLOCK);
+                    if (height != null && (full || filtered)) {
+                        if (full) {
+                            sendMessage(chain.get(height));
+                        } else {
+                            sendFilteredBlock(chain.get(height));
+                        }
+                        if (item.hash.equals(hashContinue)) {
+                            hashContinue = null;
+                            InventoryMessage tip = new InventoryMessage(params);
+                            tip.addBlock(chain.get(height()));
+                            sendMessage(tip);
+                        }
+                    } else {
+                        missing.add(item);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    sendMessage(new NotFoundMessage(params, missing));
+                }
+            }
+        }
+
+        // merkleblock seguido das transações casadas, como o bitcoind
+        private void sendFilteredBlock(Block block) {
+            List<Transaction> transactions = block.getTransactions();
+            List<Sha256Hash> txIds = new ArrayList<>(transactions.size());
+            byte[] matchBits = new byte[(transactions.size() + 7) / 8];
+            List<Transaction> matched = new ArrayList<>();
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction tx = transactions.get(i);
+                txIds.add(tx.getTxId());
+                if (matches(tx)) {
+                    Utils.setBitLE(matchBits, i);
+                    matched.add(tx);
+                }
+            }
+            sendMessage(new FilteredBlock(params, block.cloneAsHeader(),
+                    PartialMerkleTree.buildFromLeaves(params, matchBits, txIds)));
+            matched.forEach(this::sendMessage);
+        }
+
+        private boolean matches(Transaction tx) {
+            try {
+                return bloomFilter.applyAndUpdate(tx);
+            } catch (NullPointerException e) {
+                // BloomFilter do bitcoinj lê o push OP_N (sem dados) da altura no coinbase dos blocos 1 a 16;
+                // saídas já teriam casado antes de chegar às entradas
+                return false;
+            }
+        }
+
+        // getcfilters: tipo, altura inicial (uint32 LE) e hash do último bloco
+        private void sendFilters(byte[] request) {
+            Integer stopHeight = heights.get(Sha256Hash.wrapReversed(Arrays.copyOfRange(request, 5, 37)));
+            if (request[0] != 0 || stopHeight == null) {
+                return;
+            }
+            for (int height = (int) Utils.readUint32(request, 1); height <= stopHeight; height++) {
+                CompactBlockFilter filter = filter(height);
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                payload.write(0);
+                payload.writeBytes(filter.blockHash().getReversedBytes());
+                payload.writeBytes(new VarInt(filter.encoded().length).encode());
+                payload.writeBytes(filter.encoded());
+                sendMessage(new RawMessage("cfilter", payload.toByteArray()));
+            }
+        }
+
+        private void sendInventory(GetBlocksMessage getBlocks) {
+            InventoryMessage inv = new InventoryMessage(params);
+            for (int height = forkPoint(getBlocks) + 1; height < chain.size() && inv.getItems().size() < MAX_INV; height++) {
+                inv.addBlock(chain.get(height));
+            }
+            if (!inv.getItems().isEmpty()) {
+                if (inv.getItems().size() == MAX_INV) {
+                    hashContinue = inv.getItems().get(MAX_INV - 1).hash;
+                }
+                sendMessage(inv);
+            }
+        }
+    }
+
+    // Mensagens BIP-157 que o serializer do bitcoinj 0.16 não conhece, com o payload cru
+    private static final class RawMessage extends EmptyMessage {
+
+        private final String command;
+        private final byte[] payload;
+
+        RawMessage(String command, byte[] payload) {
+            this.command = command;
+            this.payload = payload;
+        }
+    }
+
+    private final class WireParams extends RegTestParams {
+
+        @Override
+        public BitcoinSerializer getSerializer(boolean parseRetain) {
+            return new WireSerializer(this, parseRetain);
+        }
+    }
+
+    private final class WireSerializer extends BitcoinSerializer {
+
+        WireSerializer(NetworkParameters params, boolean parseRetain) {
+            super(params, parseRetain);
+        }
+
+        @Override
+        public Message deserializePayload(BitcoinPacketHeader header, ByteBuffer in) {
+            if (header.command.equals("getcfilters")) {
+                byte[] payload = new byte[header.size];
+                in.get(payload);
+                return new RawMessage(header.command, payload);
+            }
+            return super.deserializePayload(header, in);
+        }
+
+        @Override
+        public void serialize(Message message, OutputStream out) throws IOException {
+            CountingOutputStream counting = new CountingOutputStream(out);
+            if (message instanceof RawMessage raw) {
+                super.serialize(raw.command, raw.payload, counting);
+            } else {
+                super.serialize(message, counting);
+            }
+            bytesSent.add(counting.getCount());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.DeterministicSeed;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Time to a usable service, cold (empty block store) and warm (store and wallet already on disk), against a
+ * {@link StandInPeer} serving a regtest chain. Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups=}
+ */
+@Tag("load")
+class StartupTimeLoadTest {
+
+    private static final int BLOCKS = 300;
+    private static final int PAID_BLOCKS = 10;
+    private static final Duration BALANCE_TIMEOUT = Duration.ofMinutes(2);
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void measureColdAndWarmStart() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+
+        // Carteira pré-criada: os primeiros blocos pagam para ela, então o saldo esperado é conhecido
+        DeterministicSeed seed = new DeterministicSeed(new SecureRandom(), DeterministicSeed.DEFAULT_SEED_ENTROPY_BITS, "");
+        seed.setCreationTimeSeconds(params.getGenesisBlock().getTimeSeconds());
+        Wallet wallet = Wallet.fromSeed(params, seed, Script.ScriptType.P2PKH);
+        wallet.saveToFile(new File(dataDirectory.toFile(), "wallet.wallet"));
+        Wallet other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+        String expected = Coin.FIFTY_COINS.multiply(PAID_BLOCKS).toFriendlyString();
+
+        try (StandInPeer peer = new StandInPeer(params, wallet.currentReceiveAddress(), other.currentReceiveAddress(),
+                BLOCKS, PAID_BLOCKS)) {
+            Result cold = run("cold", peer, expected);
+            Result warm = run("warm", peer, expected);
+
+            System.out.println("start   context ms   balance ms");
+            System.out.println(cold);
+            System.out.println(warm);
+            assertTrue(warm.balanceMillis() <= cold.balanceMillis());
+        }
+    }
+
+    private Result run(String label, StandInPeer peer, String expectedBalance) throws Exception {
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                .run("--server.port=0",
+                        "--bitcoin.network=regtest",
+                        "--bitcoin.data-directory=" + dataDirectory,
+                        "--bitcoin.peers=localhost:" + peer.port(),
+                        "--bitcoin.bloom-filtering=false",
+                        "--logging.level.com.mcd.wallet=INFO")) {
+            long contextMillis = (System.nanoTime() - start) / 1_000_000;
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            awaitBalance(port, expectedBalance);
+            long balanceMillis = (System.nanoTime() - start) / 1_000_000;
+            return new Result(label, contextMillis, balanceMillis);
+        }
+    }
+
+    private void awaitBalance(int port, String expected) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/wallet/balance")).build();
+        long deadline = System.nanoTime() + BALANCE_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200 && response.body().contains(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Balance " + expected + " not available within " + BALANCE_TIMEOUT);
+    }
+
+    private record Result(String label, long contextMillis, long balanceMillis) {
+
+        @Override
+        public String toString() {
+            return String.format("%s %12d %12d", label, contextMillis, balanceMillis);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import com.mcd.wallet.service.BlockchainService;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Initial block download rate against a {@link StandInPeer}, with the application's block and peer listeners
+ * registered: chain blocks/s, and how long the published snapshot trails the chain head.
+ * Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups= -Dtest=SyncThroughputLoadTest}
+ */
+@Tag("load")
+class SyncThroughputLoadTest {
+
+    private static final int BLOCKS = 10_000;
+    private static final Duration SYNC_TIMEOUT = Duration.ofMinutes(5);
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void measureInitialSync() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+        Wallet other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+
+        try (StandInPeer peer = new StandInPeer(params, other.currentReceiveAddress(), other.currentReceiveAddress(),
+                BLOCKS, 0)) {
+            // O download só começa depois do contexto no ar, para medir a partir do primeiro bloco
+            peer.holdBlocks();
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                    .run("--server.port=0",
+                            "--bitcoin.network=regtest",
+                            "--bitcoin.data-directory=" + dataDirectory,
+                            "--bitcoin.peers=localhost:" + peer.port(),
+                            "--bitcoin.checkpoints=none",
+                            "--bitcoin.bloom-filtering=false",
+                            "--logging.level.com.mcd.wallet=INFO")) {
+                BlockchainService blockchainService = context.getBean(BlockchainService.class);
+                long deadline = System.nanoTime() + SYNC_TIMEOUT.toNanos();
+                while (!blockchainService.isWalletReady() && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                WalletAppKit kit = blockchainService.requireWalletAppKit();
+
+                long start = System.nanoTime();
+                peer.releaseBlocks();
+                long chainSynced = 0;
+                while (System.nanoTime() < deadline) {
+                    if (chainSynced == 0 && kit.chain().getBestChainHeight() == BLOCKS) {
+                        chainSynced = System.nanoTime();
+                    }
+                    if (chainSynced != 0 && blockchainService.getSnapshot().lastBlockHeight() == BLOCKS) {
+                        break;
+                    }
+                    Thread.sleep(5);
+                }
+                long snapshotSynced = System.nanoTime();
+                assertEquals(BLOCKS, blockchainService.getSnapshot().lastBlockHeight());
+
+                double seconds = (chainSynced - start) / 1e9;
+                System.out.printf("blocks %d | chain %.2f s (%.0f blocks/s) | snapshot lag %d ms%n",
+                        BLOCKS, seconds, BLOCKS / seconds, (snapshotSynced - chainSynced) / 1_000_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.mcd.wallet.load;
+
+import com.mcd.wallet.SpringMcdWalletApplication;
+import com.mcd.wallet.service.BlockchainService;
+import com.mcd.wallet.service.PaymentService;
+import com.mcd.wallet.service.TransactionIndex;
+import com.mcd.wallet.service.model.Payment;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.DeterministicSeed;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Offline receive/send throughput: the service on regtest against a {@link StandInPeer} that mines blocks full of
+ * payments to {@value #ADDRESSES} of the wallet's addresses, then concurrent {@code /api/wallet/send} calls.
+ * Reports ingest rate and heap as the wallet grows, and send latency (HTTP accept, and until the payout is in a
+ * sent batch). Replaces the testnet-bound {@code BlockchainIntegrationTest} for throughput work.
+ * Opt-in: {@code ./mvnw test -Dgroups=load -Dsurefire.excludedGroups= -Dtest=WalletThroughputLoadTest}
+ */
+@Tag("load")
+class WalletThroughputLoadTest {
+
+    private static final int ADDRESSES = 1000;
+    private static final int FUNDING_BLOCKS = 200;
+    private static final int PAID_BLOCKS = 100; // coinbases maduras que financiam os envios
+    private static final int PHASES = 5;
+    private static final int BLOCKS_PER_PHASE = 10;
+    private static final int PAYMENTS_PER_BLOCK = 200;
+    private static final Coin PAYMENT = Coin.valueOf(20_000);
+    private static final int SENDS = 1000;
+    private static final int CONCURRENCY = 100;
+    private static final String SEND_AMOUNT = "0.0001";
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+    private static final Pattern PAYMENT_ID = Pattern.compile("\"paymentId\"\\s*:\\s*\"([^\"]+)\"");
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void receiveAndSendThroughput() throws Exception {
+        NetworkParameters params = RegTestParams.get();
+        Context.propagate(new Context(params));
+        DeterministicSeed seed = new DeterministicSeed(new SecureRandom(), DeterministicSeed.DEFAULT_SEED_ENTROPY_BITS, "");
+        seed.setCreationTimeSeconds(params.getGenesisBlock().getTimeSeconds());
+        Wallet wallet = Wallet.fromSeed(params, seed, Script.ScriptType.P2PKH);
+        // Endereços já emitidos: o wallet reconhece os pagamentos sem depender do lookahead
+        List<Address> payees = new ArrayList<>(ADDRESSES);
+        for (int i = 0; i < ADDRESSES; i++) {
+            payees.add(wallet.freshReceiveAddress());
+        }
+        wallet.saveToFile(new File(dataDirectory.toFile(), "wallet.wallet"));
+        Wallet other = Wallet.createDeterministic(params, Script.ScriptType.P2PKH);
+
+        try (StandInPeer peer = new StandInPeer(params, wallet.currentReceiveAddress(), other.currentReceiveAddress(),
+                FUNDING_BLOCKS, PAID_BLOCKS);
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringMcdWalletApplication.class)
+                     .run("--server.port=0",
+                             "--bitcoin.network=regtest",
+                             "--bitcoin.data-directory=" + dataDirectory,
+                             "--bitcoin.peers=localhost:" + peer.port(),
+                             "--bitcoin.bloom-filtering=false",
+                             "--wallet.send.batch-window=200ms",
+                             "--wallet.consolidation.enabled=false",
+                             "--logging.level.com.mcd.wallet=INFO")) {
+            BlockchainService blockchainService = context.getBean(BlockchainService.class);
+            TransactionIndex transactionIndex = context.getBean(TransactionIndex.class);
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (!blockchainService.isWalletReady() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            WalletAppKit kit = blockchainService.requireWalletAppKit();
+            while ((kit.chain().getBestChainHeight() < FUNDING_BLOCKS || transactionIndex.size() < PAID_BLOCKS)
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            System.out.println("phase  wallet txs     tx/s   heap MB");
+            int expected = transactionIndex.size();
+            for (int phase = 1; phase <= PHASES; phase++) {
+                long start = System.nanoTime();
+                expected += peer.mine(BLOCKS_PER_PHASE, payees, PAYMENTS_PER_BLOCK, PAYMENT);
+                while (transactionIndex.size() < expected && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("%5d %11d %8.0f %9.1f%n", phase, transactionIndex.size(),
+                        BLOCKS_PER_PHASE * PAYMENTS_PER_BLOCK * 1e9 / elapsed, usedHeapMegabytes());
+                assertEquals(expected, transactionIndex.size(), "phase " + phase + " not ingested in time");
+            }
+
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            SendResult result = send(params, port, context.getBean(PaymentService.class));
+            System.out.println("sends   req/s   accept p50 ms   p99 ms   sent p50 ms   p99 ms   statuses   outcomes");
+            System.out.println(result);
+            assertEquals(SENDS, result.outcomes().values().stream().mapToInt(AtomicInteger::get).sum());
+            assertTrue(result.outcomes().keySet().stream()
+                    .allMatch(status -> status == Payment.Status.SENT || status == Payment.Status.BROADCAST),
+                    "payments left unsent: " + result.outcomes());
+        }
+    }
+
+    private SendResult send(NetworkParameters params, int port, PaymentService paymentService) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        Map<Payment.Status, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+        long[] accepted = new long[SENDS];
+        long[] sent = new long[SENDS];
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        List<Future<?>> futures = new ArrayList<>(SENDS);
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SENDS; i++) {
+                int n = i;
+                String body = "{\"address\":\"" + Address.fromKey(params, new ECKey(), Script.ScriptType.P2PKH)
+                        + "\",\"amount\":\"" + SEND_AMOUNT + "\"}";
+                inFlight.acquire();
+                futures.add(clients.submit(() -> {
+                    String paymentId = null;
+                    long submitted = System.nanoTime();
+                    try {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/wallet/send"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        accepted[n] = System.nanoTime() - submitted;
+                        statuses.computeIfAbsent(response.statusCode(), s -> new AtomicInteger()).incrementAndGet();
+                        Matcher matcher = PAYMENT_ID.matcher(response.body());
+                        paymentId = matcher.find() ? matcher.group(1) : null;
+                    } catch (Exception e) {
+                        statuses.computeIfAbsent(-1, s -> new AtomicInteger()).incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                    // Fora do semáforo: a espera pelo lote não conta como requisição em voo
+                    Payment.Status status = paymentId == null ? Payment.Status.FAILED : awaitBatch(paymentService, paymentId);
+                    sent[n] = System.nanoTime() - submitted;
+                    outcomes.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(accepted);
+        Arrays.sort(sent);
+        return new SendResult(SENDS * 1e9 / elapsed,
+                accepted[SENDS / 2] / 1e6, accepted[SENDS * 99 / 100] / 1e6,
+                sent[SENDS / 2] / 1e6, sent[SENDS * 99 / 100] / 1e6,
+                new TreeMap<>(statuses), new TreeMap<>(outcomes));
+    }
+
+    private static Payment.Status awaitBatch(PaymentService paymentService, String paymentId) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            Optional<Payment> payment = paymentService.find(paymentId);
+            if (payment.isPresent() && payment.get().status() != Payment.Status.QUEUED) {
+                return payment.get().status();
+            }
+            Thread.sleep(20);
+        }
+        return Payment.Status.QUEUED;
+    }
+
+    private static double usedHeapMegabytes() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+    }
+
+    private record SendResult(double throughput, double acceptP50Millis, double acceptP99Millis,
+                              double sentP50Millis, double sentP99Millis,
+                              Map<Integer, AtomicInteger> statuses, Map<Payment.Status, AtomicInteger> outcomes) {
+
+        @Override
+        public String toString() {
+            return String.format("%5d %7.0f %15.1f %8.1f %13.1f %8.1f   %s   %s", SENDS, throughput,
+                    acceptP50Millis, acceptP99Millis, sentP50Millis, sentP99Millis, statuses, outcomes);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.impl.AccountDiscoveryServiceImpl;
+import com.mcd.wallet.service.impl.KeyDerivationServiceImpl;
+import com.mcd.wallet.service.model.DiscoveredChain;
+import com.mcd.wallet.service.model.DiscoveryResult;
+import com.mcd.wallet.service.model.ScriptActivity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountDiscoveryServiceTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final KeyDerivationService keyDerivationService =
+            new KeyDerivationServiceImpl(PARAMS, 64, executor, new SimpleMeterRegistry());
+    private final byte[] seed = new byte[64];
+    private final Set<ByteBuffer> paid = new HashSet<>();
+    private int scans;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldFindUsedChainsAcrossAccountsAndScriptTypes() {
+        new SecureRandom().nextBytes(seed);
+        pay(Script.ScriptType.P2PKH, 0, 0, IntStream.range(0, 100).toArray());
+        pay(Script.ScriptType.P2PKH, 0, 0, 119);  // 19 livres antes: dentro do gap
+        pay(Script.ScriptType.P2PKH, 0, 0, 300);  // além do gap depois de 119: não encontrado
+        pay(Script.ScriptType.P2PKH, 0, 1, 0, 5);
+        pay(Script.ScriptType.P2WPKH, 0, 0, 0);
+        pay(Script.ScriptType.P2WPKH, 1, 0, 7);   // conta 1 só é aberta porque a 0 tem uso
+        pay(Script.ScriptType.P2TR, 1, 0, 0);     // conta 0 de P2TR vazia: a 1 nunca é examinada
+
+        DiscoveryResult result = discoveryService().discover(seed,
+                List.of(Script.ScriptType.P2PKH, Script.ScriptType.P2WPKH, Script.ScriptType.P2TR), 0);
+
+        assertEquals(List.of(
+                new DiscoveredChain(Script.ScriptType.P2PKH, "m/44'/1'/0'/0", 0, 0, 101, 119),
+                new DiscoveredChain(Script.ScriptType.P2PKH, "m/44'/1'/0'/1", 0, 1, 2, 5),
+                new DiscoveredChain(Script.ScriptType.P2WPKH, "m/84'/1'/0'/0", 0, 0, 1, 0),
+                new DiscoveredChain(Script.ScriptType.P2WPKH, "m/84'/1'/1'/0", 1, 0, 1, 7)
+        ), result.chains());
+        // Janelas dobradas: 0-20, 20-40, 40-80, 80-160 na cadeia mais longa, as demais no mesmo lote
+        assertEquals(4, result.passes());
+        assertEquals(1, scans, "blocks are read once for every pass");
+        assertEquals(0, result.scannedFromHeight());
+    }
+
+    @Test
+    void shouldStopAfterOneEmptyWindowPerChain() {
+        new SecureRandom().nextBytes(seed);
+
+        DiscoveryResult result = discoveryService().discover(seed, List.of(Script.ScriptType.P2WPKH), 0);
+
+        assertTrue(result.chains().isEmpty());
+        assertEquals(1, result.passes());
+        assertEquals(2 * 20, result.scriptsChecked(), "receive and change chain of account 0");
+    }
+
+    private AccountDiscoveryService discoveryService() {
+        ScriptActivitySource source = fromHeight -> {
+            scans++;
+            return ScriptActivity.of(paid.stream().map(ByteBuffer::array).toList(), fromHeight);
+        };
+        return new AccountDiscoveryServiceImpl(keyDerivationService, source, executor, PARAMS,
+                new SimpleMeterRegistry(), 20, 1, 1_000_000);
+    }
+
+    private void pay(Script.ScriptType scriptType, int account, int chain, int... indices) {
+        for (int index : indices) {
+            paid.add(ByteBuffer.wrap(keyDerivationService.deriveScripts(seed, scriptType, account, chain, index, 1).get(0)));
+        }
+    }
+}
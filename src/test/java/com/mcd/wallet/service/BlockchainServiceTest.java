@@ -0,0 +1,163 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.BalanceChange;
+import com.mcd.wallet.service.model.WalletEvent;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BlockchainServiceTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private Wallet wallet;
+    private WalletEventStream walletEventStream;
+    private BlockchainService blockchainService;
+
+    @BeforeEach
+    void setUp() {
+        Context context = new Context(PARAMS);
+        Context.propagate(context);
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        walletEventStream = mock(WalletEventStream.class);
+        blockchainService = new BlockchainService(PARAMS, context, new TransactionIndex(),
+                new UtxoIndex(new SimpleMeterRegistry()), mock(WatchedAddressIndex.class), mock(WalletJournal.class),
+                walletEventStream, mock(ChainEventBus.class), mock(SyncMonitor.class), new SimpleMeterRegistry(),
+                mock(ResourceLoader.class), "", "", List.of(), true, mock(CompactFilterSync.class), "bloom", false);
+    }
+
+    @Test
+    void shouldPublishSnapshotOnBind() {
+        blockchainService.bindWallet(wallet);
+        awaitSnapshot();
+
+        WalletSnapshot snapshot = blockchainService.getSnapshot();
+        assertTrue(blockchainService.isWalletReady());
+        assertEquals(Coin.ZERO, snapshot.estimatedBalance());
+        assertEquals(0, snapshot.txCount());
+        assertEquals(0, snapshot.utxoCount());
+        assertEquals(1, snapshot.version());
+    }
+
+    @Test
+    void shouldRepublishSnapshotWhenWalletChanges() throws Exception {
+        blockchainService.bindWallet(wallet);
+        awaitSnapshot();
+
+        Transaction received = receivePending(Coin.COIN);
+        WalletSnapshot pending = blockchainService.getSnapshot();
+        assertEquals(Coin.COIN, pending.estimatedBalance());
+        assertEquals(Coin.ZERO, pending.availableBalance());
+        assertEquals(1, pending.txCount());
+        assertEquals(1, pending.utxoCount());
+        verify(walletEventStream).publish(eq(WalletEvent.BALANCE), any(BalanceChange.class));
+
+        confirm(received);
+        WalletSnapshot confirmed = blockchainService.getSnapshot();
+        assertEquals(Coin.COIN, confirmed.availableBalance());
+        assertEquals(1, confirmed.lastBlockHeight());
+        assertTrue(confirmed.version() > pending.version());
+
+        Transaction sent = wallet.createSend(Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH), Coin.CENT);
+        wallet.commitTx(sent);
+        awaitSnapshot();
+        WalletSnapshot spent = blockchainService.getSnapshot();
+        assertEquals(2, spent.txCount());
+        assertEquals(1, spent.utxoCount()); // a saída recebida foi gasta; resta o troco
+        assertEquals(wallet.getBalance(Wallet.BalanceType.ESTIMATED), spent.estimatedBalance());
+        assertTrue(spent.estimatedBalance().isLessThan(Coin.COIN.subtract(Coin.CENT)));
+    }
+
+    @Test
+    void shouldPublishOneTransactionEventForATransactionReceivedInABlock() throws Exception {
+        blockchainService.bindWallet(wallet);
+        awaitSnapshot();
+
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of("block".getBytes()))));
+        tx.addOutput(Coin.COIN, wallet.freshReceiveAddress());
+        confirm(tx);
+
+        assertEquals(Coin.COIN, blockchainService.getSnapshot().availableBalance());
+        verify(walletEventStream, times(1)).publish(eq(WalletEvent.TRANSACTION), any());
+    }
+
+    @Test
+    void shouldPublishPendingAndConfirmedTransactionOnce() throws Exception {
+        blockchainService.bindWallet(wallet);
+        awaitSnapshot();
+
+        Transaction received = receivePending(Coin.COIN);
+        verify(walletEventStream, times(1)).publish(eq(WalletEvent.TRANSACTION), any());
+
+        confirm(received);
+        verify(walletEventStream, times(2)).publish(eq(WalletEvent.TRANSACTION), any());
+    }
+
+    @Test
+    void shouldFailSaveWhenTheJournalCannotCompact() throws Exception {
+        WalletJournal walletJournal = mock(WalletJournal.class);
+        doThrow(new IOException("disk full")).when(walletJournal).compact();
+        BlockchainService journaled = new BlockchainService(PARAMS, Context.get(), new TransactionIndex(),
+                new UtxoIndex(new SimpleMeterRegistry()), mock(WatchedAddressIndex.class), walletJournal,
+                walletEventStream, mock(ChainEventBus.class), mock(SyncMonitor.class), new SimpleMeterRegistry(),
+                mock(ResourceLoader.class), "", "", List.of(), true, mock(CompactFilterSync.class), "bloom", true);
+        assertThrows(WalletNotReadyException.class, journaled::saveWallet);
+
+        journaled.bindWallet(wallet);
+        awaitSnapshot();
+        assertThrows(IOException.class, journaled::saveWallet);
+    }
+
+    // Os listeners agendam a reconstrução do snapshot na própria user thread: esperar duas rodadas
+    private static void awaitSnapshot() {
+        Threading.waitForUserCode();
+        Threading.waitForUserCode();
+    }
+
+    private Transaction receivePending(Coin value) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(value.toString().getBytes()))));
+        tx.addOutput(value, wallet.freshReceiveAddress());
+        wallet.receivePending(tx, null);
+        awaitSnapshot();
+        return tx;
+    }
+
+    private void confirm(Transaction tx) throws Exception {
+        Block genesis = PARAMS.getGenesisBlock();
+        StoredBlock block = new StoredBlock(genesis, genesis.getWork(), 0);
+        block = block.build(block.getHeader().createNextBlock(wallet.currentReceiveAddress()));
+        wallet.receiveFromBlock(tx, block, AbstractBlockChain.NewBlockType.BEST_CHAIN, 0);
+        wallet.notifyNewBestBlock(block);
+        awaitSnapshot();
+    }
+}
@@ -0,0 +1,94 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.ChainEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.params.RegTestParams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainEventBusTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ChainEventBus bus = new ChainEventBus(new Context(RegTestParams.get()), meterRegistry, 4);
+
+    @AfterEach
+    void tearDown() {
+        bus.stop();
+    }
+
+    @Test
+    void shouldCoalesceBlocksAndDeliverOnlySubscribedTypes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<ChainEvent.BlocksDownloaded> batches = new CopyOnWriteArrayList<>();
+        List<ChainEvent.PeerConnected> peers = new CopyOnWriteArrayList<>();
+        bus.subscribe(ChainEvent.PeerConnected.class, event -> {
+            peers.add(event);
+            await(release); // segura o despachante enquanto os blocos chegam
+        });
+        bus.subscribe(ChainEvent.BlocksDownloaded.class, batches::add);
+        bus.start();
+
+        bus.publish(new ChainEvent.PeerConnected("peer", 1));
+        for (int left = 99; left >= 0; left--) {
+            bus.blockDownloaded("hash" + left, left);
+        }
+        release.countDown();
+
+        waitUntil(() -> batches.stream().mapToInt(ChainEvent.BlocksDownloaded::count).sum() == 100);
+        assertEquals(1, peers.size());
+        assertTrue(batches.size() < 100, "blocks were merged while the dispatcher was busy");
+        ChainEvent.BlocksDownloaded last = batches.get(batches.size() - 1);
+        assertEquals("hash0", last.lastHash());
+        assertEquals(0, last.blocksLeft());
+    }
+
+    @Test
+    void shouldDropWithoutBlockingWhenTheRingIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch busy = new CountDownLatch(1);
+        List<ChainEvent> delivered = new CopyOnWriteArrayList<>();
+        bus.subscribe(ChainEvent.class, event -> {
+            busy.countDown();
+            await(release);
+            delivered.add(event);
+        });
+        bus.start();
+
+        bus.publish(new ChainEvent.PeerConnected("peer0", 1));
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(bus.publish(new ChainEvent.PeerConnected("peer" + i, 1)));
+        }
+        assertFalse(bus.publish(new ChainEvent.PeerDisconnected("peer5", 0)), "capacity is 4");
+        assertEquals(1.0, meterRegistry.get("wallet.chain.events.dropped").counter().count());
+        release.countDown();
+
+        waitUntil(() -> delivered.size() == 5);
+        assertTrue(delivered.stream().noneMatch(ChainEvent.PeerDisconnected.class::isInstance));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
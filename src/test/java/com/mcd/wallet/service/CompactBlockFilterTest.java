@@ -0,0 +1,76 @@
+package com.mcd.wallet.service;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactBlockFilterTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    @Test
+    void shouldEncodeTheBip158TestVectorOfTheTestnetGenesisBlock() {
+        Context.propagate(new Context(TestNet3Params.get()));
+        Block genesis = TestNet3Params.get().getGenesisBlock();
+
+        CompactBlockFilter filter = CompactBlockFilter.build(genesis, List.of());
+
+        assertEquals("019dfca8", Utils.HEX.encode(filter.encoded()));
+        byte[] coinbaseScript = genesis.getTransactions().get(0).getOutput(0).getScriptBytes();
+        assertTrue(filter.matchesAny(List.of(coinbaseScript)));
+    }
+
+    @Test
+    void shouldMatchCreatedAndSpentScriptsOnly() {
+        Context.propagate(new Context(PARAMS));
+        Block block = PARAMS.getGenesisBlock().createNextBlock(Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2WPKH));
+        List<byte[]> paid = new ArrayList<>();
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(block.getTransactions().get(0).getOutput(0));
+        for (int i = 0; i < 200; i++) {
+            Address address = Address.fromKey(PARAMS, new ECKey(), i % 2 == 0 ? Script.ScriptType.P2PKH : Script.ScriptType.P2WPKH);
+            tx.addOutput(Coin.CENT, address);
+            paid.add(ScriptBuilder.createOutputScript(address).getProgram());
+        }
+        tx.addOutput(Coin.ZERO, ScriptBuilder.createOpReturnScript(new byte[]{1, 2, 3}));
+        block.addTransaction(tx);
+        byte[] spent = ScriptBuilder.createP2PKHOutputScript(new ECKey()).getProgram();
+
+        CompactBlockFilter filter = CompactBlockFilter.build(block, List.of(spent));
+        CompactBlockFilter parsed = new CompactBlockFilter(block.getHash(), filter.encoded());
+
+        for (byte[] script : paid) {
+            assertTrue(parsed.matchesAny(List.of(script)));
+        }
+        assertTrue(parsed.matchesAny(List.of(spent)));
+        assertFalse(parsed.matchesAny(List.of(tx.getOutput(200).getScriptBytes())), "OP_RETURN is left out");
+
+        List<byte[]> unrelated = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            unrelated.add(ScriptBuilder.createP2WPKHOutputScript(new ECKey()).getProgram());
+        }
+        int falsePositives = 0;
+        for (byte[] script : unrelated) {
+            falsePositives += parsed.matchesAny(List.of(script)) ? 1 : 0;
+        }
+        assertTrue(falsePositives <= 2, "false positives: " + falsePositives);
+        unrelated.add(paid.get(123));
+        assertTrue(parsed.matchesAny(unrelated));
+        assertFalse(new CompactBlockFilter(block.getHash(), new byte[]{0}).matchesAny(paid), "empty filter");
+    }
+}
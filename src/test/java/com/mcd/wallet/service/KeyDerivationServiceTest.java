@@ -1,9 +1,20 @@
 package com.mcd.wallet.service;
 
+import com.mcd.wallet.service.impl.KeyDerivationServiceImpl;
+import com.mcd.wallet.service.model.DerivedAddress;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bitcoinj.core.Address;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicHierarchy;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
 import org.bitcoinj.crypto.MnemonicCode;
 
 import org.bitcoinj.crypto.MnemonicException;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
 import org.bitcoinj.wallet.DeterministicSeed;
 import org.bitcoinj.wallet.UnreadableWalletException;
 import org.junit.jupiter.api.Test;
@@ -11,7 +22,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +35,9 @@ class KeyDerivationServiceTest {
     @Autowired
     private KeyDerivationService keyDerivationService;
 
+    @Autowired
+    private NetworkParameters networkParameters;
+
     @Test
     void shouldDeriveAddressesFromSeed() throws MnemonicException.MnemonicLengthException, UnreadableWalletException {
         // Gerar mnemonic de 12 palavras (128 bits)
@@ -44,4 +61,96 @@ class KeyDerivationServiceTest {
             System.out.println("Derived Address: " + address);
         });
     }
+
+    @Test
+    void shouldMatchFullPathDerivationWhenUsingCachedAccountKey() throws Exception {
+        byte[] seedBytes = randomSeed();
+
+        // Derivação de referência: m/44'/1'/0'/0/i a partir da chave-mestre
+        DeterministicHierarchy hierarchy = new DeterministicHierarchy(HDKeyDerivation.createMasterPrivateKey(seedBytes));
+        List<ChildNumber> externalChain = List.of(
+                new ChildNumber(44, true), new ChildNumber(1, true), ChildNumber.ZERO_HARDENED, ChildNumber.ZERO);
+
+        List<Address> first = keyDerivationService.deriveAddresses(seedBytes, 3);
+        List<Address> second = keyDerivationService.deriveAddresses(seedBytes, 3);
+
+        for (int i = 0; i < 3; i++) {
+            DeterministicKey expected = hierarchy.deriveChild(externalChain, false, true, new ChildNumber(i));
+            assertEquals(Address.fromKey(networkParameters, expected, Script.ScriptType.P2PKH), first.get(i));
+        }
+        assertEquals(first, second);
+    }
+
+    @Test
+    void shouldDeriveIncrementalRangeFromCachedAccountKey() throws Exception {
+        byte[] seedBytes = randomSeed();
+        KeyDerivationServiceImpl service = (KeyDerivationServiceImpl) keyDerivationService;
+
+        List<Address> all = service.deriveAddresses(seedBytes, 20);
+        long hitsBefore = service.accountKeyCacheStats().hitCount();
+
+        List<Address> range = service.deriveAddresses(seedBytes, 10, 5);
+
+        assertEquals(all.subList(10, 15), range);
+        assertEquals(hitsBefore + 1, service.accountKeyCacheStats().hitCount());
+    }
+
+    @Test
+    void shouldStreamAddressesInIndexOrder() throws Exception {
+        byte[] seedBytes = randomSeed();
+        List<Address> expected = keyDerivationService.deriveAddresses(seedBytes, 100, 2000);
+
+        List<DerivedAddress> streamed = new ArrayList<>();
+        keyDerivationService.streamAddresses(seedBytes, 100, 2000, Script.ScriptType.P2PKH, streamed::add);
+
+        assertEquals(2000, streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            assertEquals(100 + i, streamed.get(i).index());
+            assertEquals(expected.get(i), streamed.get(i).address());
+        }
+    }
+
+    @Test
+    void shouldStreamSegwitAddresses() throws Exception {
+        List<DerivedAddress> streamed = new ArrayList<>();
+        keyDerivationService.streamAddresses(randomSeed(), 0, 3, Script.ScriptType.P2WPKH, streamed::add);
+
+        assertEquals(3, streamed.size());
+        streamed.forEach(derived ->
+                assertEquals(Script.ScriptType.P2WPKH, derived.address().getOutputScriptType()));
+    }
+
+    @Test
+    void shouldDeriveBip84AndBip86ScriptsOnAnyChain() throws Exception {
+        // Vetores dos BIPs 84 e 86 (mainnet) para "abandon ... about"
+        byte[] seedBytes = new DeterministicSeed("abandon abandon abandon abandon abandon abandon abandon abandon "
+                + "abandon abandon abandon about", null, "", 0L).getSeedBytes();
+        NetworkParameters mainNet = MainNetParams.get();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            KeyDerivationService mainNetService = new KeyDerivationServiceImpl(mainNet, 16, executor, new SimpleMeterRegistry());
+
+            assertArrayEquals(script(mainNet, "bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu"),
+                    mainNetService.deriveScripts(seedBytes, Script.ScriptType.P2WPKH, 0, 0, 0, 1).get(0));
+            assertArrayEquals(script(mainNet, "bc1q8c6fshw2dlwun7ekn9qwf37cu2rn755upcp6el"),
+                    mainNetService.deriveScripts(seedBytes, Script.ScriptType.P2WPKH, 0, 1, 0, 1).get(0));
+            assertArrayEquals(script(mainNet, "bc1p5cyxnuxmeuwuvkwfem96lqzszd02n6xdcjrs20cac6yqjjwudpxqkedrcr"),
+                    mainNetService.deriveScripts(seedBytes, Script.ScriptType.P2TR, 0, 0, 0, 1).get(0));
+            assertArrayEquals(script(mainNet, "bc1p3qkhfews2uk44qtvauqyr2ttdsw7svhkl9nkm9s9c3x4ax5h60wqwruhk7"),
+                    mainNetService.deriveScripts(seedBytes, Script.ScriptType.P2TR, 0, 1, 0, 1).get(0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] script(NetworkParameters params, String address) {
+        return ScriptBuilder.createOutputScript(Address.fromString(params, address)).getProgram();
+    }
+
+    private byte[] randomSeed() throws MnemonicException.MnemonicLengthException, UnreadableWalletException {
+        byte[] entropy = new byte[16];
+        new SecureRandom().nextBytes(entropy);
+        String mnemonic = String.join(" ", MnemonicCode.INSTANCE.toMnemonic(entropy));
+        return new DeterministicSeed(mnemonic, null, "", 0L).getSeedBytes();
+    }
 }
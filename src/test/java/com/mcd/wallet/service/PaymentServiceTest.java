@@ -0,0 +1,192 @@
+package com.mcd.wallet.service;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.mcd.wallet.service.impl.PaymentServiceImpl;
+import com.mcd.wallet.service.impl.TransactionSigningServiceImpl;
+import com.mcd.wallet.service.model.Payment;
+import com.mcd.wallet.service.model.WalletSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcast;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentServiceTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final SettableFuture<Transaction> broadcastFuture = SettableFuture.create();
+    private final ThreadPoolExecutor signingExecutor =
+            new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private Wallet wallet;
+    private BlockchainService blockchainService;
+    private PaymentServiceImpl paymentService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Context context = new Context(PARAMS);
+        Context.propagate(context);
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        fund(Coin.COIN);
+        UtxoIndex utxoIndex = new UtxoIndex(new SimpleMeterRegistry());
+        utxoIndex.bind(wallet);
+
+        TransactionBroadcast broadcast = mock(TransactionBroadcast.class);
+        when(broadcast.future()).thenReturn(broadcastFuture);
+        PeerGroup peerGroup = mock(PeerGroup.class);
+        when(peerGroup.broadcastTransaction(any(Transaction.class))).thenReturn(broadcast);
+        WalletAppKit kit = mock(WalletAppKit.class);
+        when(kit.wallet()).thenReturn(wallet);
+        when(kit.peerGroup()).thenReturn(peerGroup);
+        blockchainService = mock(BlockchainService.class);
+        when(blockchainService.getWalletAppKit()).thenReturn(kit);
+        when(blockchainService.isWalletReady()).thenReturn(true);
+        when(blockchainService.getSnapshot()).thenAnswer(invocation -> WalletSnapshot.of(wallet, 0));
+
+        // Janela longa: o lote só sai quando atingir 3 pagamentos
+        WalletKeySession keySession = new WalletKeySession(blockchainService, context, new SimpleMeterRegistry(),
+                Duration.ofMinutes(5), Duration.ofHours(1));
+        TransactionSigningService signingService =
+                new TransactionSigningServiceImpl(PARAMS, signingExecutor, new SimpleMeterRegistry());
+        paymentService = new PaymentServiceImpl(blockchainService, utxoIndex, keySession, signingService, context,
+                new SimpleMeterRegistry(), Duration.ofHours(1), 3, 100, Duration.ofHours(1), true);
+        paymentService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        paymentService.stop();
+        signingExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldSendQueuedPaymentsInOneTransaction() {
+        List<Payment> queued = List.of(
+                paymentService.submit(randomAddress(), Coin.CENT),
+                paymentService.submit(randomAddress(), Coin.CENT.multiply(2)),
+                paymentService.submit(randomAddress(), Coin.CENT.multiply(3)));
+        queued.forEach(payment -> assertEquals(Payment.Status.QUEUED, payment.status()));
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> queued.stream()
+                .allMatch(payment -> status(payment) == Payment.Status.SENT));
+
+        List<Payment> sent = queued.stream().map(payment -> paymentService.find(payment.id()).orElseThrow()).toList();
+        assertEquals(1, sent.stream().map(Payment::txId).distinct().count());
+        assertEquals(3, sent.stream().map(Payment::outputIndex).distinct().count());
+        assertEquals(Coin.ZERO, paymentService.queuedAmount());
+
+        broadcastFuture.set(null);
+        await().atMost(Duration.ofSeconds(10)).until(() -> queued.stream()
+                .allMatch(payment -> status(payment) == Payment.Status.BROADCAST));
+    }
+
+    @Test
+    void shouldRejectPaymentsBeyondAvailableBalance() {
+        paymentService.submit(randomAddress(), Coin.CENT.multiply(60));
+
+        assertThrows(InsufficientFundsException.class, () -> paymentService.submit(randomAddress(), Coin.CENT.multiply(60)));
+        assertEquals(Coin.CENT.multiply(60), paymentService.queuedAmount());
+    }
+
+    @Test
+    void shouldSendAffordablePaymentsWhenBatchIsNotAffordable() {
+        // Snapshot atrasado em relação à carteira: o lote passa na reserva mas não cabe no saldo real
+        when(blockchainService.getSnapshot()).thenReturn(new WalletSnapshot(Coin.valueOf(3, 0), Coin.valueOf(3, 0),
+                0, 1, 1, 1, Instant.now()));
+        Payment unaffordable = paymentService.submit(randomAddress(), Coin.COIN);
+        List<Payment> affordable = List.of(
+                paymentService.submit(randomAddress(), Coin.CENT),
+                paymentService.submit(randomAddress(), Coin.CENT.multiply(2)));
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> affordable.stream()
+                .allMatch(payment -> status(payment) == Payment.Status.SENT));
+        Payment failed = paymentService.find(unaffordable.id()).orElseThrow();
+        assertEquals(Payment.Status.FAILED, failed.status());
+        assertEquals("INSUFFICIENT_FUNDS", failed.error());
+        assertEquals(Coin.ZERO, paymentService.queuedAmount());
+    }
+
+    @Test
+    void shouldFailDustPaymentAlone() {
+        Payment dust = paymentService.submit(randomAddress(), Coin.SATOSHI);
+        List<Payment> queued = List.of(
+                paymentService.submit(randomAddress(), Coin.CENT),
+                paymentService.submit(randomAddress(), Coin.CENT.multiply(2)));
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> queued.stream()
+                .allMatch(payment -> status(payment) == Payment.Status.SENT));
+        assertEquals("DUST_OUTPUT", paymentService.find(dust.id()).orElseThrow().error());
+        assertEquals(Coin.ZERO, paymentService.queuedAmount());
+    }
+
+    @Test
+    void shouldSendQueuedPaymentsOnStop() throws InterruptedException {
+        List<Payment> queued = List.of(
+                paymentService.submit(randomAddress(), Coin.CENT),
+                paymentService.submit(randomAddress(), Coin.CENT.multiply(2)));
+
+        paymentService.stop();
+
+        queued.forEach(payment -> assertEquals(Payment.Status.SENT, status(payment)));
+        assertEquals(Coin.ZERO, paymentService.queuedAmount());
+        assertThrows(RejectedExecutionException.class, () -> paymentService.submit(randomAddress(), Coin.CENT));
+    }
+
+    @Test
+    void shouldReportPaymentsThatCouldNotBeSentOnStop() throws InterruptedException {
+        Payment queued = paymentService.submit(randomAddress(), Coin.CENT);
+        when(blockchainService.isWalletReady()).thenReturn(false);
+
+        paymentService.stop();
+
+        Payment failed = paymentService.find(queued.id()).orElseThrow();
+        assertEquals(Payment.Status.FAILED, failed.status());
+        assertEquals("SHUTDOWN", failed.error());
+        assertEquals(Coin.ZERO, paymentService.queuedAmount());
+    }
+
+    private Payment.Status status(Payment payment) {
+        return paymentService.find(payment.id()).orElseThrow().status();
+    }
+
+    private static Address randomAddress() {
+        return Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH);
+    }
+
+    private void fund(Coin value) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{1}))));
+        tx.addOutput(value, wallet.currentReceiveAddress());
+        tx.getConfidence().setAppearedAtChainHeight(1);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+    }
+}
@@ -0,0 +1,52 @@
+package com.mcd.wallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncMonitorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SyncMonitor syncMonitor;
+    private BlockchainSyncHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        syncMonitor = new SyncMonitor(meterRegistry);
+        healthIndicator = new BlockchainSyncHealthIndicator(syncMonitor);
+    }
+
+    @Test
+    void shouldExportDownloadProgressAndPeers() {
+        syncMonitor.onPeerCountChanged(3);
+        syncMonitor.onBlockDownloaded(120);
+        syncMonitor.onBlockDownloaded(119);
+        syncMonitor.onBlockDownloaded(118);
+
+        assertEquals(118, meterRegistry.get("bitcoin.sync.blocks.remaining").gauge().value());
+        assertEquals(3, meterRegistry.get("bitcoin.sync.blocks.downloaded").counter().count());
+        assertEquals(3, meterRegistry.get("bitcoin.peers.connected").gauge().value());
+        // 3 blocos na janela de 10 s
+        assertEquals(3.0 / SyncMonitor.RATE_WINDOW_SECONDS, meterRegistry.get("bitcoin.sync.blocks.per.second").gauge().value());
+    }
+
+    @Test
+    void shouldReportSyncingUntilDownloadIsDone() {
+        syncMonitor.onBlockDownloaded(10);
+        Health syncing = healthIndicator.health();
+        assertEquals(BlockchainSyncHealthIndicator.SYNCING, syncing.getStatus());
+        assertEquals("syncing", syncing.getDetails().get("state"));
+        assertEquals(10, syncing.getDetails().get("blocksLeft"));
+
+        syncMonitor.onDownloadDone();
+        Health inSync = healthIndicator.health();
+        assertEquals(Status.UP, inSync.getStatus());
+        assertEquals("in sync", inSync.getDetails().get("state"));
+        assertEquals(0, inSync.getDetails().get("blocksLeft"));
+    }
+}
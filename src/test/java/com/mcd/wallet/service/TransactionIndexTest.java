@@ -0,0 +1,147 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.TransactionRecord;
+import org.bitcoinj.core.AbstractBlockChain;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionIndexTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private Wallet wallet;
+    private TransactionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Context.propagate(new Context(PARAMS));
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        index = new TransactionIndex();
+        index.bind(wallet);
+    }
+
+    @Test
+    void shouldFollowWalletAndPageNewestFirst() {
+        for (int i = 0; i < 25; i++) {
+            receive(Coin.MILLICOIN.multiply(i + 1), Instant.ofEpochSecond(1_700_000_000L + i));
+        }
+        assertEquals(25, index.size());
+
+        List<TransactionRecord> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionIndex.Page page = index.page(cursor, null, null, 10);
+            all.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(25, all.size());
+        Set<String> txIds = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertTrue(txIds.add(all.get(i).txId()));
+            if (i > 0) {
+                assertFalse(all.get(i).updateTime().isAfter(all.get(i - 1).updateTime()));
+            }
+        }
+        assertEquals("0.025", all.get(0).amount());
+    }
+
+    @Test
+    void shouldFilterByTimeRange() {
+        for (int i = 0; i < 10; i++) {
+            receive(Coin.MILLICOIN, Instant.ofEpochSecond(1_700_000_000L + i));
+        }
+
+        TransactionIndex.Page page = index.page(null,
+                Instant.ofEpochSecond(1_700_000_003L), Instant.ofEpochSecond(1_700_000_007L), 100);
+
+        assertEquals(4, page.items().size());
+        assertEquals(Instant.ofEpochSecond(1_700_000_006L), page.items().get(0).updateTime());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void shouldKeepBuildingRecordWhenOnlyDepthChanges() throws Exception {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{1}))));
+        tx.addOutput(Coin.COIN, wallet.freshReceiveAddress());
+        Block genesis = PARAMS.getGenesisBlock();
+        StoredBlock block = new StoredBlock(genesis, genesis.getWork(), 0);
+        block = block.build(block.getHeader().createNextBlock(wallet.currentReceiveAddress()));
+        wallet.receiveFromBlock(tx, block, AbstractBlockChain.NewBlockType.BEST_CHAIN, 0);
+        wallet.notifyNewBestBlock(block);
+        Threading.waitForUserCode();
+        TransactionRecord confirmed = index.page(null, null, null, 10).items().get(0);
+        assertEquals("BUILDING", confirmed.confidence());
+        assertEquals(1, confirmed.height());
+
+        for (int i = 0; i < 5; i++) {
+            block = block.build(block.getHeader().createNextBlock(wallet.currentReceiveAddress()));
+            wallet.notifyNewBestBlock(block);
+        }
+        Threading.waitForUserCode();
+
+        assertEquals(6, tx.getConfidence().getDepthInBlocks());
+        assertSame(confirmed, index.page(null, null, null, 10).items().get(0));
+    }
+
+    @Test
+    void shouldKeepServingTheCurrentIndexWhileRebuilding() {
+        for (int i = 0; i < 5; i++) {
+            receive(Coin.MILLICOIN, Instant.ofEpochSecond(1_700_000_000L + i));
+        }
+        int[] sizeDuringRebuild = new int[1];
+        Wallet rebuilding = mock(Wallet.class);
+        when(rebuilding.getTransactions(false)).thenAnswer(invocation -> {
+            sizeDuringRebuild[0] = index.page(null, null, null, 100).items().size();
+            return wallet.getTransactions(false);
+        });
+
+        index.rebuild(rebuilding);
+
+        assertEquals(5, sizeDuringRebuild[0]);
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> index.page("not-a-cursor", null, null, 10));
+    }
+
+    private void receive(Coin value, Instant updateTime) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(updateTime.toString().getBytes()))));
+        tx.addOutput(value, wallet.freshReceiveAddress());
+        wallet.receivePending(tx, null);
+        Threading.waitForUserCode();
+
+        // O wallet marca a transação com a hora atual; reindexar com uma hora controlada
+        tx.setUpdateTime(Date.from(updateTime));
+        index.update(wallet, tx);
+    }
+}
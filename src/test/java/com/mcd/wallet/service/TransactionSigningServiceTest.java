@@ -0,0 +1,189 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.impl.TransactionSigningServiceImpl;
+import com.mcd.wallet.service.model.PsbtSignResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.SignatureDecodeException;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.core.VarInt;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSigningServiceTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final ThreadPoolExecutor signingExecutor =
+            new ThreadPoolExecutor(3, 3, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private TransactionSigningService signingService;
+    private int fundings;
+
+    @BeforeEach
+    void setUp() {
+        Context.propagate(new Context(PARAMS));
+        signingService = new TransactionSigningServiceImpl(PARAMS, signingExecutor, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        signingExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldProduceValidLegacyAndSegwitSignaturesOnAnEncryptedWallet() {
+        for (Script.ScriptType scriptType : List.of(Script.ScriptType.P2PKH, Script.ScriptType.P2WPKH)) {
+            Wallet wallet = Wallet.createDeterministic(PARAMS, scriptType);
+            List<TransactionOutput> spent = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                // Endereços repetidos de 4 em 4: a chave é buscada uma vez por transação
+                spent.add(fund(wallet, i % 4 == 0 ? wallet.freshReceiveAddress() : wallet.currentReceiveAddress(), 10_000 + i));
+            }
+            wallet.encrypt("correct horse");
+            KeyParameter aesKey = wallet.getKeyCrypter().deriveKey("correct horse");
+
+            Transaction tx = new Transaction(PARAMS);
+            spent.forEach(tx::addInput);
+            tx.addOutput(Coin.valueOf(300_000), Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH));
+
+            assertThrows(ECKey.KeyIsEncryptedException.class, () -> signingService.signInputs(tx, wallet, null));
+            assertEquals(40, signingService.signInputs(tx, wallet, aesKey));
+            for (int i = 0; i < tx.getInputs().size(); i++) {
+                TransactionInput input = tx.getInput(i);
+                input.getScriptSig().correctlySpends(tx, i, input.getWitness(), spent.get(i).getValue(),
+                        spent.get(i).getScriptPubKey(), Script.ALL_VERIFY_FLAGS);
+            }
+            assertEquals(scriptType == Script.ScriptType.P2WPKH, tx.hasWitnesses());
+        }
+    }
+
+    @Test
+    void shouldAddPartialSignaturesForWalletInputsOnly() throws SignatureDecodeException {
+        Wallet wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2WPKH);
+        Wallet other = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2WPKH);
+        List<TransactionOutput> spent = List.of(
+                fund(wallet, wallet.freshReceiveAddress(), 50_000),
+                fund(other, other.freshReceiveAddress(), 60_000),
+                fund(wallet, wallet.freshReceiveAddress(), 70_000));
+        Transaction unsigned = new Transaction(PARAMS);
+        for (TransactionOutput output : spent) {
+            unsigned.addInput(new TransactionInput(PARAMS, unsigned, new byte[0], output.getOutPointFor()));
+        }
+        unsigned.addOutput(Coin.valueOf(170_000), Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2WPKH));
+        byte[] psbt = psbt(unsigned, spent);
+
+        PsbtSignResult result = signingService.signPsbt(psbt, wallet, null);
+
+        assertEquals(List.of(0, 2), result.signedInputs());
+        List<List<byte[][]>> inputMaps = inputMaps(result.psbt(), unsigned);
+        assertTrue(inputMaps.get(1).stream().noneMatch(entry -> entry[0][0] == 0x02));
+        for (int i : result.signedInputs()) {
+            byte[][] partialSig = inputMaps.get(i).stream().filter(entry -> entry[0][0] == 0x02).findFirst().orElseThrow();
+            ECKey key = ECKey.fromPublicOnly(Arrays.copyOfRange(partialSig[0], 1, partialSig[0].length));
+            Transaction finalized = new Transaction(PARAMS, unsigned.bitcoinSerialize());
+            finalized.getInput(i).setWitness(TransactionWitness.redeemP2WPKH(
+                    TransactionSignature.decodeFromBitcoin(partialSig[1], true, true), key));
+            finalized.getInput(i).getScriptSig().correctlySpends(finalized, i, finalized.getInput(i).getWitness(),
+                    spent.get(i).getValue(), spent.get(i).getScriptPubKey(), Script.ALL_VERIFY_FLAGS);
+        }
+
+        // Assinar de novo não duplica as assinaturas parciais
+        assertEquals(List.of(), signingService.signPsbt(result.psbt(), wallet, null).signedInputs());
+        assertThrows(IllegalArgumentException.class,
+                () -> signingService.signPsbt(Arrays.copyOf(psbt, psbt.length - 3), wallet, null));
+    }
+
+    private TransactionOutput fund(Wallet wallet, Address address, long sats) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(ByteBuffer.allocate(4).putInt(fundings++).array()))));
+        TransactionOutput output = tx.addOutput(Coin.valueOf(sats), address);
+        tx.getConfidence().setAppearedAtChainHeight(1);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+        return output;
+    }
+
+    // PSBT v0 mínimo: transação sem assinaturas no mapa global, WITNESS_UTXO em cada entrada, saídas sem registros
+    private static byte[] psbt(Transaction unsigned, List<TransactionOutput> spent) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{0x70, 0x73, 0x62, 0x74, (byte) 0xff});
+        writeRecord(out, new byte[]{0x00}, unsigned.bitcoinSerialize());
+        out.write(0);
+        for (TransactionOutput output : spent) {
+            ByteArrayOutputStream utxo = new ByteArrayOutputStream();
+            byte[] amount = new byte[8];
+            Utils.int64ToByteArrayLE(output.getValue().value, amount, 0);
+            utxo.writeBytes(amount);
+            utxo.writeBytes(new VarInt(output.getScriptBytes().length).encode());
+            utxo.writeBytes(output.getScriptBytes());
+            writeRecord(out, new byte[]{0x01}, utxo.toByteArray());
+            out.write(0);
+        }
+        unsigned.getOutputs().forEach(output -> out.write(0));
+        return out.toByteArray();
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte[] key, byte[] value) {
+        out.writeBytes(new VarInt(key.length).encode());
+        out.writeBytes(key);
+        out.writeBytes(new VarInt(value.length).encode());
+        out.writeBytes(value);
+    }
+
+    // Registros (chave, valor) de cada mapa de entrada; tamanhos sempre < 0xfd neste teste
+    private static List<List<byte[][]>> inputMaps(byte[] psbt, Transaction unsigned) {
+        ByteBuffer buffer = ByteBuffer.wrap(psbt, 5, psbt.length - 5);
+        readMap(buffer);
+        List<List<byte[][]>> maps = new ArrayList<>();
+        for (int i = 0; i < unsigned.getInputs().size(); i++) {
+            maps.add(readMap(buffer));
+        }
+        return maps;
+    }
+
+    private static List<byte[][]> readMap(ByteBuffer buffer) {
+        List<byte[][]> map = new ArrayList<>();
+        int keyLength;
+        while ((keyLength = buffer.get() & 0xff) != 0) {
+            byte[] key = new byte[keyLength];
+            buffer.get(key);
+            int valueLength = buffer.get() & 0xff;
+            if (valueLength == 0xfd) {
+                valueLength = Short.toUnsignedInt(Short.reverseBytes(buffer.getShort()));
+            }
+            byte[] value = new byte[valueLength];
+            buffer.get(value);
+            map.add(new byte[][]{key, value});
+        }
+        return map;
+    }
+}
@@ -0,0 +1,121 @@
+package com.mcd.wallet.service;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.mcd.wallet.service.impl.TransactionSigningServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionBroadcast;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UtxoConsolidatorTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolExecutor signingExecutor =
+            new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private Wallet wallet;
+    private UtxoIndex utxoIndex;
+    private int fundings;
+
+    @BeforeEach
+    void setUp() {
+        Context.propagate(new Context(PARAMS));
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        utxoIndex = new UtxoIndex(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        signingExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldMergeSmallestConfirmedOutputsDownToTarget() {
+        for (int i = 0; i < 30; i++) {
+            fund(100_000 + i);
+        }
+        fund(100); // não paga a própria taxa a 1000 sat/kB: fica de fora
+        fund(120);
+        utxoIndex.bind(wallet);
+        // Limiar 20, alvo 5, até 10 entradas por transação
+        UtxoConsolidator consolidator = consolidator(20, 5, 10);
+
+        List<Transaction> sent = consolidator.consolidate();
+
+        assertEquals(3, sent.size(), "30 confirmed outputs in batches of 10; the change outputs are still pending");
+        for (Transaction tx : sent) {
+            assertEquals(10, tx.getInputs().size());
+            assertEquals(1, tx.getOutputs().size());
+            // O bitcoinj estima assinaturas de tamanho máximo: a taxa real fica até ~2% acima do teto
+            assertTrue(tx.getFee().value * 1000 / tx.getMessageSize() <= 1020, "fee rate stays at the ceiling");
+            assertTrue(tx.getInputs().stream().allMatch(input -> input.getValue().value >= 100_000));
+        }
+        assertEquals(5, wallet.getUnspents().size());
+        assertEquals(30.0, meterRegistry.get("wallet.consolidation.inputs").counter().count());
+        assertTrue(consolidator.consolidate().isEmpty(), "back at the target");
+    }
+
+    @Test
+    void shouldWaitForTheThreshold() {
+        for (int i = 0; i < 20; i++) {
+            fund(100_000 + i);
+        }
+        utxoIndex.bind(wallet);
+
+        assertTrue(consolidator(20, 5, 10).consolidate().isEmpty());
+        assertEquals(20, wallet.getUnspents().size());
+    }
+
+    private UtxoConsolidator consolidator(int threshold, int target, int maxInputs) {
+        TransactionBroadcast broadcast = mock(TransactionBroadcast.class);
+        when(broadcast.future()).thenReturn(SettableFuture.create());
+        PeerGroup peerGroup = mock(PeerGroup.class);
+        when(peerGroup.broadcastTransaction(any(Transaction.class))).thenReturn(broadcast);
+        WalletAppKit kit = mock(WalletAppKit.class);
+        when(kit.wallet()).thenReturn(wallet);
+        when(kit.peerGroup()).thenReturn(peerGroup);
+        BlockchainService blockchainService = mock(BlockchainService.class);
+        when(blockchainService.getWalletAppKit()).thenReturn(kit);
+        when(blockchainService.isWalletReady()).thenReturn(true);
+        WalletKeySession keySession = new WalletKeySession(blockchainService, Context.get(), meterRegistry,
+                Duration.ofMinutes(5), Duration.ofHours(1));
+        TransactionSigningService signingService = new TransactionSigningServiceImpl(PARAMS, signingExecutor, meterRegistry);
+        return new UtxoConsolidator(blockchainService, utxoIndex, keySession, signingService, Context.get(), meterRegistry,
+                true, Duration.ofHours(1), threshold, target, maxInputs, 10, 1000);
+    }
+
+    private void fund(long sats) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(ByteBuffer.allocate(4).putInt(fundings++).array()))));
+        tx.addOutput(Coin.valueOf(sats), wallet.currentReceiveAddress());
+        tx.getConfidence().setAppearedAtChainHeight(1);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+    }
+}
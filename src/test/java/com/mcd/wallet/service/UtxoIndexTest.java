@@ -0,0 +1,132 @@
+package com.mcd.wallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class UtxoIndexTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UtxoIndex index = new UtxoIndex(meterRegistry);
+    private Wallet wallet;
+    private int fundings;
+
+    @BeforeEach
+    void setUp() {
+        Context.propagate(new Context(PARAMS));
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+    }
+
+    @Test
+    void shouldPreferChangelessSelectionAndFallBackToFewestInputs() {
+        for (long sats : new long[]{70_000, 50_000, 30_000, 20_000, 11_000, 5_000}) {
+            fund(sats);
+        }
+        index.bind(wallet);
+        assertEquals(6, index.size());
+
+        // 50k + 30k + 5k: excesso zero, sem troco
+        assertSelection(index.select(Coin.valueOf(85_000), candidates()), 50_000, 30_000, 5_000);
+        // Nenhuma combinação cabe na janela de dust: a menor saída que cobre o valor
+        assertSelection(index.select(Coin.valueOf(67_000), candidates()), 70_000);
+        // Nenhuma saída sozinha cobre: as maiores primeiro
+        assertSelection(index.select(Coin.valueOf(150_001), candidates()), 70_000, 50_000, 30_000, 20_000);
+
+        CoinSelection tooMuch = index.select(Coin.valueOf(500_000), candidates());
+        assertTrue(tooMuch.valueGathered.isLessThan(Coin.valueOf(500_000)));
+        assertEquals(1.0, meterRegistry.get("wallet.coin.selection").tag("strategy", "bnb").counter().count());
+        assertEquals(1.0, meterRegistry.get("wallet.coin.selection").tag("strategy", "default").counter().count());
+    }
+
+    @Test
+    void shouldFollowSpendsAndRecoverFromAStaleIndex() throws Exception {
+        fund(40_000);
+        fund(60_000);
+        index.bind(wallet);
+
+        SendRequest request = SendRequest.to(randomAddress(), Coin.valueOf(30_000));
+        request.feePerKb = Transaction.REFERENCE_DEFAULT_MIN_TX_FEE;
+        request.coinSelector = index;
+        wallet.completeTx(request);
+        wallet.commitTx(request.tx);
+        index.update(wallet, request.tx); // o listener do wallet roda na user thread; aqui direto
+
+        assertEquals(1, request.tx.getInputs().size());
+        assertEquals(40_000, request.tx.getInputs().get(0).getConnectedOutput().getValue().value);
+        // 60k intacta + troco pendente próprio
+        assertEquals(2, index.size());
+
+        // Índice vazio (ex.: nunca ligado ao wallet): cai no DefaultCoinSelector e reconstrói
+        index.rebuild(List.of());
+        CoinSelection selection = index.select(Coin.valueOf(50_000), candidates());
+        assertTrue(selection.valueGathered.isGreaterThan(Coin.valueOf(50_000)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void shouldSkipDepthOnlyConfidenceChanges() {
+        Transaction funding = fund(40_000);
+        index.bind(wallet);
+        assertEquals(1, index.size());
+
+        // Um wallet que não reconhece nada tiraria a saída do índice se a mudança fosse reprocessada
+        Wallet stranger = mock(Wallet.class);
+        index.confidenceChanged(stranger, funding);
+        assertEquals(1, index.size());
+        verifyNoInteractions(stranger);
+
+        funding.getConfidence().setConfidenceType(TransactionConfidence.ConfidenceType.PENDING);
+        index.confidenceChanged(stranger, funding);
+        assertEquals(0, index.size());
+    }
+
+    private void assertSelection(CoinSelection selection, long... expected) {
+        List<Long> values = selection.gathered.stream().map(output -> output.getValue().value).sorted().toList();
+        assertEquals(Arrays.stream(expected).sorted().boxed().toList(), values);
+    }
+
+    private List<TransactionOutput> candidates() {
+        return wallet.calculateAllSpendCandidates(true, true);
+    }
+
+    private Transaction fund(long sats) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(ByteBuffer.allocate(4).putInt(fundings++).array()))));
+        tx.addOutput(Coin.valueOf(sats), wallet.currentReceiveAddress());
+        tx.getConfidence().setAppearedAtChainHeight(1);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+        return tx;
+    }
+
+    private static Address randomAddress() {
+        return Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH);
+    }
+}
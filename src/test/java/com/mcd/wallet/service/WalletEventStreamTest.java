@@ -0,0 +1,106 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.WalletEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletEventStreamTest {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+
+    private WalletEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        stream = new WalletEventStream(new SimpleMeterRegistry(), 8, 4);
+    }
+
+    @Test
+    void shouldResumeAfterLastEventIdAndResetWhenHistoryIsGone() throws Exception {
+        WalletEvent first = stream.publish(WalletEvent.TRANSACTION, "a");
+        stream.publish(WalletEvent.TRANSACTION, "b");
+        stream.publish(WalletEvent.DEPOSIT, "c");
+
+        assertEquals(List.of("b", "c"), data(drain(stream.subscribe(first.id()))));
+        assertTrue(drain(stream.subscribe(null)).isEmpty(), "new subscribers only get live events");
+
+        for (int i = 0; i < 10; i++) {
+            stream.publish(WalletEvent.TRANSACTION, "x" + i);
+        }
+        List<WalletEvent> reset = drain(stream.subscribe(first.id()));
+        assertEquals(1, reset.size());
+        assertEquals(WalletEvent.RESET, reset.get(0).type());
+
+        // Id de outra execução do serviço
+        assertEquals(WalletEvent.RESET, drain(stream.subscribe(42L)).get(0).type());
+    }
+
+    @Test
+    void shouldCoalesceBalanceAndDisconnectSlowSubscribers() throws Exception {
+        WalletEventStream.Subscription subscription = stream.subscribe(null);
+        stream.publish(WalletEvent.BALANCE, "1");
+        stream.publish(WalletEvent.TRANSACTION, "t1");
+        stream.publish(WalletEvent.BALANCE, "2");
+        stream.publish(WalletEvent.BALANCE, "3");
+
+        List<WalletEvent> events = drain(subscription);
+        assertEquals(List.of("t1", "3"), data(events));
+        assertTrue(events.get(0).id() < events.get(1).id());
+
+        for (int i = 0; i < 5; i++) {
+            stream.publish(WalletEvent.TRANSACTION, "t" + i);
+        }
+        assertTrue(subscription.isClosed(), "buffer of 4 overflowed");
+        assertNull(subscription.poll(NO_WAIT));
+        assertEquals(0, stream.subscriberCount());
+    }
+
+    @Test
+    void shouldWakeWaitingPollOnPublishAndOnClose() throws Exception {
+        WalletEventStream.Subscription subscription = stream.subscribe(null);
+        CompletableFuture<WalletEvent> delivered = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                delivered.complete(subscription.poll(Duration.ofSeconds(10)));
+            } catch (InterruptedException e) {
+                delivered.completeExceptionally(e);
+            }
+        });
+        stream.publish(WalletEvent.TRANSACTION, "t1");
+        assertEquals("t1", delivered.get(5, TimeUnit.SECONDS).data());
+
+        CompletableFuture<WalletEvent> closed = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                closed.complete(subscription.poll(Duration.ofSeconds(10)));
+            } catch (InterruptedException e) {
+                closed.completeExceptionally(e);
+            }
+        });
+        subscription.close();
+        assertNull(closed.get(5, TimeUnit.SECONDS));
+        assertTrue(subscription.isClosed());
+        assertEquals(0, stream.subscriberCount());
+    }
+
+    private static List<WalletEvent> drain(WalletEventStream.Subscription subscription) throws InterruptedException {
+        List<WalletEvent> events = new ArrayList<>();
+        for (WalletEvent event = subscription.poll(NO_WAIT); event != null; event = subscription.poll(NO_WAIT)) {
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static List<Object> data(List<WalletEvent> events) {
+        return events.stream().map(WalletEvent::data).toList();
+    }
+}
@@ -0,0 +1,200 @@
+package com.mcd.wallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletJournalTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    @TempDir
+    File directory;
+
+    private Context context;
+    private Wallet wallet;
+    private BlockChain chain;
+    private Block tip;
+    private File walletFile;
+    private File journalFile;
+    private WalletJournal journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context = new Context(PARAMS);
+        Context.propagate(context);
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        walletFile = new File(directory, "wallet.wallet");
+        journalFile = new File(directory, "wallet.journal");
+        wallet.saveToFile(walletFile);
+
+        chain = new BlockChain(PARAMS, wallet, new MemoryBlockStore(PARAMS));
+        tip = PARAMS.getGenesisBlock();
+        // Flush manual: o intervalo nunca dispara durante o teste
+        journal = new WalletJournal(context, new SimpleMeterRegistry(), Duration.ofHours(1), DataSize.ofMegabytes(16));
+        journal.start(wallet, walletFile, journalFile);
+        journal.follow(chain);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close(false);
+    }
+
+    @Test
+    void shouldRecoverWalletFromSnapshotAndJournal() throws Exception {
+        mine(5, true);
+        mine(3, false);
+        journal.flush();
+
+        Wallet recovered = recover();
+
+        assertSameState(wallet, recovered);
+        assertFalse(journalFile.exists(), "journal is dropped once applied");
+    }
+
+    @Test
+    void shouldSkipRecordsAlreadyInTheSnapshotAndIgnoreATornTail() throws Exception {
+        mine(3, true);
+        journal.compact();
+        mine(2, true);
+        mine(2, false);
+        journal.flush();
+        // Registro pela metade, como num crash no meio da escrita
+        Files.write(journalFile.toPath(), new byte[]{0, 0, 0, 40, WalletJournal.IN_BLOCK, 1, 2}, StandardOpenOption.APPEND);
+
+        Wallet recovered = recover();
+
+        assertSameState(wallet, recovered);
+    }
+
+    @Test
+    void shouldKeepRecordsOfAFailedCompactionWhenCompactingAgain() throws Exception {
+        mine(3, true);
+        byte[] snapshot = Files.readAllBytes(walletFile.toPath());
+        // Snapshot impossível de gravar: o arquivo da carteira virou um diretório não vazio
+        Files.delete(walletFile.toPath());
+        assertTrue(new File(walletFile, "blocker").mkdirs());
+        assertThrows(IOException.class, journal::compact);
+        assertTrue(new File(directory, "wallet.journal.compacting").exists());
+
+        mine(2, true);
+        assertThrows(IOException.class, journal::compact);
+
+        Files.delete(new File(walletFile, "blocker").toPath());
+        Files.delete(walletFile.toPath());
+        Files.write(walletFile.toPath(), snapshot);
+        journal.flush();
+        Wallet recovered = recover();
+
+        assertSameState(wallet, recovered);
+    }
+
+    @Test
+    void shouldReplayPendingTransactionKilledByADoubleSpendTheWalletDoesNotKeep() throws Exception {
+        mine(2, true);
+        TransactionOutPoint payerOutput = new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{7}));
+        Transaction payment = spend(payerOutput, wallet.currentReceiveAddress());
+        wallet.receivePending(payment, null);
+        // O pagador gasta a mesma saída para outro endereço, e é isso que entra no bloco
+        Transaction doubleSpend = spend(payerOutput, otherAddress());
+        tip = tip.createNextBlock(otherAddress());
+        tip.addTransaction(doubleSpend);
+        tip.solve();
+        assertTrue(chain.add(tip));
+        assertEquals(TransactionConfidence.ConfidenceType.DEAD, payment.getConfidence().getConfidenceType());
+        assertNull(wallet.getTransaction(doubleSpend.getTxId()));
+        journal.flush();
+
+        Wallet recovered = recover();
+
+        assertSameState(wallet, recovered);
+        assertEquals(TransactionConfidence.ConfidenceType.DEAD,
+                recovered.getTransaction(payment.getTxId()).getConfidence().getConfidenceType());
+        assertEquals(1, recovered.getPoolSize(WalletTransaction.Pool.DEAD));
+    }
+
+    @Test
+    void shouldReplayConflictingPendingTransactions() throws Exception {
+        TransactionOutPoint payerOutput = new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{8}));
+        Transaction payment = spend(payerOutput, wallet.currentReceiveAddress());
+        wallet.receivePending(payment, null);
+        wallet.receivePending(spend(payerOutput, otherAddress()), null);
+        assertEquals(TransactionConfidence.ConfidenceType.IN_CONFLICT, payment.getConfidence().getConfidenceType());
+        journal.flush();
+
+        Wallet recovered = recover();
+
+        assertEquals(TransactionConfidence.ConfidenceType.IN_CONFLICT,
+                recovered.getTransaction(payment.getTxId()).getConfidence().getConfidenceType());
+        assertEquals(wallet.getBalance(Wallet.BalanceType.ESTIMATED), recovered.getBalance(Wallet.BalanceType.ESTIMATED));
+    }
+
+    private static Transaction spend(TransactionOutPoint outPoint, Address to) {
+        Transaction tx = new Transaction(PARAMS);
+        tx.addInput(new TransactionInput(PARAMS, tx, new byte[0], outPoint));
+        tx.addOutput(Coin.COIN, to);
+        return tx;
+    }
+
+    private static Address otherAddress() {
+        return Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH);
+    }
+
+    private Wallet recover() throws Exception {
+        WalletJournal restarted = new WalletJournal(context, new SimpleMeterRegistry(), Duration.ofHours(1),
+                DataSize.ofMegabytes(16));
+        restarted.recover(PARAMS, walletFile, journalFile);
+        return Wallet.loadFromFile(walletFile);
+    }
+
+    private void mine(int blocks, boolean toWallet) throws Exception {
+        for (int i = 0; i < blocks; i++) {
+            Address payee = toWallet ? wallet.freshReceiveAddress()
+                    : Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH).currentReceiveAddress();
+            tip = tip.createNextBlock(payee);
+            assertTrue(chain.add(tip));
+        }
+    }
+
+    private static void assertSameState(Wallet expected, Wallet actual) {
+        assertEquals(expected.getLastBlockSeenHeight(), actual.getLastBlockSeenHeight());
+        assertEquals(expected.getLastBlockSeenHash(), actual.getLastBlockSeenHash());
+        assertEquals(expected.getBalance(Wallet.BalanceType.ESTIMATED), actual.getBalance(Wallet.BalanceType.ESTIMATED));
+        assertEquals(expected.getTransactions(false).size(), actual.getTransactions(false).size());
+        assertEquals(expected.getActiveKeyChain().getIssuedExternalKeys(), actual.getActiveKeyChain().getIssuedExternalKeys());
+        for (Transaction tx : expected.getTransactions(false)) {
+            Transaction restored = actual.getTransaction(tx.getTxId());
+            assertNotNull(restored, tx.getTxId().toString());
+            assertEquals(tx.getConfidence().getDepthInBlocks(), restored.getConfidence().getDepthInBlocks());
+        }
+    }
+}
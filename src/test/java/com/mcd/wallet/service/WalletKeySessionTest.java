@@ -0,0 +1,116 @@
+package com.mcd.wallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.crypto.KeyCrypterException;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.SendRequest;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WalletKeySessionTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Wallet wallet;
+    private BlockchainService blockchainService;
+    private WalletKeySession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Context.propagate(new Context(PARAMS));
+        wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        Transaction funding = new Transaction(PARAMS);
+        funding.addInput(new TransactionInput(PARAMS, funding, new byte[0],
+                new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{1}))));
+        funding.addOutput(Coin.COIN, wallet.currentReceiveAddress());
+        funding.getConfidence().setAppearedAtChainHeight(1);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, funding));
+
+        WalletAppKit kit = mock(WalletAppKit.class);
+        when(kit.wallet()).thenReturn(wallet);
+        blockchainService = mock(BlockchainService.class);
+        when(blockchainService.getWalletAppKit()).thenReturn(kit);
+        when(blockchainService.requireWalletAppKit()).thenReturn(kit);
+        when(blockchainService.isWalletReady()).thenReturn(true);
+        session = new WalletKeySession(blockchainService, Context.get(), meterRegistry,
+                Duration.ofMinutes(5), Duration.ofHours(1));
+        session.encrypt("correct horse");
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.stop();
+    }
+
+    @Test
+    void shouldSignWithTheCachedKeyAndZeroItOnLock() throws Exception {
+        verify(blockchainService).saveWallet();
+        assertTrue(session.isLocked());
+        assertThrows(WalletLockedException.class, () -> session.withKey(key -> sign()));
+        assertThrows(KeyCrypterException.InvalidCipherText.class, () -> session.unlock("wrong", null));
+
+        session.unlock("correct horse", null);
+        AtomicReference<KeyParameter> used = new AtomicReference<>();
+        for (int i = 0; i < 3; i++) {
+            Transaction tx = session.withKey(key -> {
+                used.set(key);
+                return sign(key);
+            });
+            assertEquals(2, tx.getInput(0).getScriptSig().getChunks().size(), "signed");
+        }
+
+        // encrypt + senha errada + unlock: o KDF não roda nas assinaturas
+        assertEquals(3, meterRegistry.get("wallet.key.derivation").timer().count());
+        assertEquals(3.0, meterRegistry.get("wallet.key.session").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("wallet.key.session").tag("result", "miss").counter().count());
+
+        session.lock();
+        assertTrue(session.isLocked());
+        for (byte b : used.get().getKey()) {
+            assertEquals(0, b);
+        }
+    }
+
+    @Test
+    void shouldLockWhenTheTtlExpires() {
+        session.unlock("correct horse", Duration.ofMillis(200));
+        assertFalse(session.isLocked());
+
+        await().atMost(Duration.ofSeconds(5)).until(session::isLocked);
+        assertThrows(IllegalArgumentException.class, () -> session.unlock("correct horse", Duration.ofDays(1)));
+    }
+
+    private Transaction sign() throws Exception {
+        return sign(null);
+    }
+
+    private Transaction sign(KeyParameter key) throws Exception {
+        SendRequest request = SendRequest.to(Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH), Coin.CENT);
+        request.aesKey = key;
+        wallet.completeTx(request);
+        return request.tx;
+    }
+}
@@ -0,0 +1,129 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.impl.WalletProvisioningServiceImpl;
+import com.mcd.wallet.service.model.DerivedAddress;
+import com.mcd.wallet.service.model.ProvisionedWallet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.crypto.MnemonicCode;
+import org.bitcoinj.script.Script;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class WalletProvisioningServiceTest {
+
+    @Autowired
+    private WalletProvisioningService provisioningService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private KeyDerivationService keyDerivationService;
+
+    @Test
+    void shouldProvisionDistinctValidWallets() throws Exception {
+        List<ProvisionedWallet> wallets = new ArrayList<>();
+        provisioningService.provision(50, "", Script.ScriptType.P2PKH, wallets::add);
+
+        assertEquals(50, wallets.size());
+        Set<String> mnemonics = new HashSet<>();
+        for (ProvisionedWallet wallet : wallets) {
+            List<String> words = Arrays.asList(wallet.mnemonic().split(" "));
+            assertEquals(12, words.size());
+            MnemonicCode.INSTANCE.check(words);
+            assertTrue(mnemonics.add(wallet.mnemonic()));
+
+            byte[] seed = walletService.deriveSeed(wallet.mnemonic(), "");
+            assertEquals(keyDerivationService.deriveAddresses(seed, 1).get(0), wallet.receiveAddress());
+        }
+    }
+
+    @Test
+    void shouldUsePassphraseAndScriptType() {
+        List<ProvisionedWallet> wallets = new ArrayList<>();
+        provisioningService.provision(3, "secret", Script.ScriptType.P2WPKH, wallets::add);
+
+        assertEquals(3, wallets.size());
+        for (ProvisionedWallet wallet : wallets) {
+            byte[] seed = walletService.deriveSeed(wallet.mnemonic(), "secret");
+            List<DerivedAddress> first = new ArrayList<>();
+            keyDerivationService.streamAddresses(seed, 0, 1, Script.ScriptType.P2WPKH, first::add);
+            assertEquals(first.get(0).address(), wallet.receiveAddress());
+            assertEquals(Script.ScriptType.P2WPKH, wallet.receiveAddress().getOutputScriptType());
+        }
+    }
+
+    @Test
+    void shouldRejectWhenSeedPoolStaysFull() throws Exception {
+        ThreadPoolExecutor seedExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            seedExecutor.execute(() -> awaitQuietly(release)); // ocupa o único worker
+            WalletProvisioningService saturated = new WalletProvisioningServiceImpl(keyDerivationService, seedExecutor,
+                    new SimpleMeterRegistry(), Duration.ofMillis(200));
+            List<ProvisionedWallet> wallets = new ArrayList<>();
+
+            assertThrows(RejectedExecutionException.class,
+                    () -> saturated.provision(3, "", Script.ScriptType.P2PKH, wallets::add));
+            assertTrue(wallets.isEmpty());
+        } finally {
+            release.countDown();
+            seedExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldWaitForSeedPoolCapacity() throws Exception {
+        ThreadPoolExecutor seedExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            seedExecutor.execute(() -> awaitQuietly(release));
+            WalletProvisioningService saturated = new WalletProvisioningServiceImpl(keyDerivationService, seedExecutor,
+                    new SimpleMeterRegistry(), Duration.ofSeconds(10));
+            Thread.ofVirtual().start(() -> {
+                sleepQuietly(300);
+                release.countDown();
+            });
+            List<ProvisionedWallet> wallets = new ArrayList<>();
+
+            saturated.provision(3, "", Script.ScriptType.P2PKH, wallets::add);
+
+            assertEquals(3, wallets.size());
+        } finally {
+            release.countDown();
+            seedExecutor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.model.ManagedWallet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.google.common.util.concurrent.Futures;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Peer;
+import org.bitcoinj.core.PeerGroup;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.kits.WalletAppKit;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WalletRegistryTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    @TempDir
+    Path directory;
+
+    private PeerGroup peerGroup;
+    private BlockChain chain;
+    private WalletAppKit kit;
+    private WalletRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Context context = new Context(PARAMS);
+        Context.propagate(context);
+
+        chain = mock(BlockChain.class);
+        when(chain.getChainHead()).thenReturn(new StoredBlock(PARAMS.getGenesisBlock(), BigInteger.ONE, 1000));
+        peerGroup = mock(PeerGroup.class);
+        kit = mock(WalletAppKit.class);
+        when(kit.chain()).thenReturn(chain);
+        when(kit.peerGroup()).thenReturn(peerGroup);
+        BlockchainService blockchainService = mock(BlockchainService.class);
+        when(blockchainService.requireWalletAppKit()).thenReturn(kit);
+
+        // No máximo uma carteira ativa: criar a segunda descarrega a primeira
+        registry = new WalletRegistry(blockchainService, mock(CompactFilterSync.class), PARAMS, context, new SimpleMeterRegistry(),
+                directory.toString(), 1, Duration.ofMinutes(30), 144);
+        registry.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        registry.stop();
+    }
+
+    @Test
+    void shouldUnloadLeastRecentlyUsedWalletAndReloadItFromDisk() {
+        ManagedWallet first = registry.create();
+        String firstAddress = first.wallet().currentReceiveAddress().toString();
+        ManagedWallet second = registry.create();
+
+        assertEquals(1, registry.activeCount());
+        verify(peerGroup).removeWallet(first.wallet());
+        verify(chain).removeWallet(first.wallet());
+
+        ManagedWallet reloaded = registry.find(first.id()).orElseThrow();
+        assertNotSame(first.wallet(), reloaded.wallet());
+        assertEquals(firstAddress, reloaded.wallet().currentReceiveAddress().toString());
+        assertEquals(1000, reloaded.wallet().getLastBlockSeenHeight());
+        assertFalse(reloaded.stale());
+        verify(peerGroup).addWallet(reloaded.wallet());
+        verify(peerGroup).removeWallet(second.wallet());
+    }
+
+    @Test
+    void shouldKeepPinnedWalletAttachedUntilReleased() {
+        ManagedWallet first = registry.create();
+
+        Wallet inUse = registry.withWallet(first.id(), managed -> {
+            registry.create(); // expulsa a primeira do cache enquanto ainda está em uso
+            verify(peerGroup, never()).removeWallet(first.wallet());
+            return managed.wallet();
+        }, Runnable::run).join().orElseThrow();
+
+        assertSame(first.wallet(), inUse);
+        verify(peerGroup).removeWallet(first.wallet());
+        verify(chain).removeWallet(first.wallet());
+    }
+
+    @Test
+    void shouldReuseEvictedWalletStillInUseInsteadOfLoadingASecondCopy() {
+        ManagedWallet first = registry.create();
+
+        registry.withWallet(first.id(), managed -> {
+            ManagedWallet second = registry.create();
+            assertSame(first.wallet(), registry.find(first.id()).orElseThrow().wallet());
+            verify(peerGroup).removeWallet(second.wallet());
+            return managed;
+        }, Runnable::run).join();
+
+        verify(peerGroup, never()).removeWallet(first.wallet());
+        verify(peerGroup, times(1)).addWallet(first.wallet());
+        assertEquals(1, registry.activeCount());
+    }
+
+    @Test
+    void shouldMarkWalletTooFarBehindAsStale() throws Exception {
+        String id = UUID.randomUUID().toString();
+        Wallet behind = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        behind.setLastBlockSeenHeight(10); // 990 blocos atrás, acima de max-catch-up-blocks
+        behind.saveToFile(new File(directory.toFile(), id + ".wallet"));
+
+        ManagedWallet loaded = registry.find(id).orElseThrow();
+        assertTrue(loaded.stale());
+        verify(peerGroup).addWallet(loaded.wallet());
+    }
+
+    @Test
+    void shouldKeepWalletStaleAcrossReloadsAfterItFollowedNewBlocks() throws Exception {
+        String id = UUID.randomUUID().toString();
+        File file = new File(directory.toFile(), id + ".wallet");
+        Wallet behind = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        behind.setLastBlockSeenHeight(10);
+        behind.saveToFile(file);
+        ManagedWallet loaded = registry.find(id).orElseThrow();
+        assertTrue(loaded.stale());
+
+        // Seguiu a cadeia até o topo depois de anexada: a altura vista não revela mais a lacuna
+        loaded.wallet().setLastBlockSeenHeight(1000);
+        loaded.wallet().saveToFile(file);
+        registry.create();
+
+        assertTrue(registry.find(id).orElseThrow().stale());
+        assertTrue(new File(directory.toFile(), id + ".stale").isFile());
+    }
+
+    @Test
+    void shouldReplayPersistedGapOnReload() throws Exception {
+        String id = UUID.randomUUID().toString();
+        File file = new File(directory.toFile(), id + ".wallet");
+        Wallet wallet = Wallet.createDeterministic(PARAMS, Script.ScriptType.P2PKH);
+        Address other = Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH);
+
+        MemoryBlockStore store = new MemoryBlockStore(PARAMS);
+        Map<Sha256Hash, Block> blocks = new HashMap<>();
+        StoredBlock stored = store.getChainHead();
+        List<StoredBlock> chainBlocks = new ArrayList<>();
+        for (int height = 1; height <= 3; height++) {
+            Block block = stored.getHeader().createNextBlock(other);
+            if (height == 2) {
+                Transaction payment = new Transaction(PARAMS);
+                payment.addInput(new TransactionInput(PARAMS, payment, new byte[0],
+                        new TransactionOutPoint(PARAMS, 0, Sha256Hash.of(new byte[]{2}))));
+                payment.addOutput(Coin.COIN, wallet.currentReceiveAddress());
+                block.addTransaction(payment);
+            }
+            stored = stored.build(block);
+            store.put(stored);
+            blocks.put(block.getHash(), block);
+            chainBlocks.add(stored);
+        }
+        when(kit.store()).thenReturn(store);
+        when(chain.getChainHead()).thenReturn(stored);
+
+        wallet.setLastBlockSeenHash(chainBlocks.get(0).getHeader().getHash());
+        wallet.setLastBlockSeenHeight(1);
+        wallet.saveToFile(file);
+        ManagedWallet loaded = registry.find(id).orElseThrow();
+        assertTrue(loaded.stale(), "no peer to fetch blocks 2..3");
+
+        loaded.wallet().setLastBlockSeenHash(stored.getHeader().getHash());
+        loaded.wallet().setLastBlockSeenHeight(3);
+        loaded.wallet().saveToFile(file);
+        registry.create();
+        Peer peer = mock(Peer.class);
+        List<String> fetchThreads = new ArrayList<>();
+        when(peer.getBlock(any(Sha256Hash.class))).thenAnswer(invocation -> {
+            fetchThreads.add(Thread.currentThread().getName());
+            return Futures.immediateFuture(blocks.get(invocation.<Sha256Hash>getArgument(0)));
+        });
+        when(peerGroup.getDownloadPeer()).thenReturn(peer);
+
+        ManagedWallet reloaded = registry.find(id).orElseThrow();
+        assertFalse(reloaded.stale());
+        assertFalse(new File(directory.toFile(), id + ".stale").exists());
+        assertEquals(Coin.COIN, reloaded.wallet().getBalance());
+        assertEquals(3, reloaded.wallet().getLastBlockSeenHeight());
+        Transaction received = reloaded.wallet().getTransactions(false).iterator().next();
+        assertEquals(2, received.getConfidence().getDepthInBlocks());
+        // Catch-up fora do thread que pediu a carteira
+        assertFalse(fetchThreads.isEmpty());
+        assertTrue(fetchThreads.stream().allMatch(name -> name.startsWith("wallet-loader")));
+    }
+
+    @Test
+    void shouldNotFindUnknownOrMalformedIds() {
+        assertTrue(registry.find(UUID.randomUUID().toString()).isEmpty());
+        assertTrue(registry.find("../wallet").isEmpty());
+    }
+}
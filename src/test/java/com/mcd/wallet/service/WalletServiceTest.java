@@ -1,9 +1,14 @@
 package com.mcd.wallet.service;
 
+import com.mcd.wallet.service.model.DerivedSeed;
+import org.bitcoinj.wallet.DeterministicSeed;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -35,4 +40,50 @@ class WalletServiceTest {
         });
         assertTrue(exception.getMessage().contains("Invalid mnemonic"));
     }
+
+    @Test
+    void shouldMatchBitcoinjSeed() throws Exception {
+        String mnemonic = walletService.generateMnemonic();
+        DeterministicSeed reference = new DeterministicSeed(mnemonic, null, "TREZOR", 0L);
+        assertArrayEquals(reference.getSeedBytes(), walletService.deriveSeed(mnemonic, "TREZOR"));
+    }
+
+    @Test
+    void shouldDeriveSeedsInBatchInOrder() {
+        List<String> mnemonics = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            mnemonics.add(walletService.generateMnemonic());
+        }
+        List<DerivedSeed> seeds = walletService.deriveSeeds(mnemonics, "pass");
+        assertEquals(mnemonics.size(), seeds.size());
+        for (int i = 0; i < mnemonics.size(); i++) {
+            assertArrayEquals(walletService.deriveSeed(mnemonics.get(i), "pass"), seeds.get(i).seed());
+        }
+    }
+
+    @Test
+    void shouldReportInvalidMnemonicsPerItem() {
+        String valid = walletService.generateMnemonic();
+        List<DerivedSeed> seeds = walletService.deriveSeeds(List.of(valid, "this is an invalid mnemonic phrase", valid), "");
+
+        assertTrue(seeds.get(0).isValid());
+        assertFalse(seeds.get(1).isValid());
+        assertTrue(seeds.get(1).error().contains("Invalid mnemonic"));
+        assertArrayEquals(seeds.get(0).seed(), seeds.get(2).seed());
+    }
+
+    @Test
+    void shouldAcceptExtraWhitespaceBetweenWords() {
+        String mnemonic = walletService.generateMnemonic();
+        String spaced = " " + mnemonic.replaceFirst(" ", "  ").replaceFirst(" ", "\t") + "  ";
+        assertArrayEquals(walletService.deriveSeed(mnemonic, ""), walletService.deriveSeed(spaced, ""));
+    }
+
+    @Test
+    void shouldRejectMnemonicWithBadChecksum() {
+        // 12 palavras válidas, checksum errado
+        String badChecksum = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon";
+        Exception exception = assertThrows(RuntimeException.class, () -> walletService.deriveSeed(badChecksum, ""));
+        assertTrue(exception.getMessage().contains("Invalid mnemonic"));
+    }
 }
@@ -0,0 +1,124 @@
+package com.mcd.wallet.service;
+
+import com.mcd.wallet.service.impl.KeyDerivationServiceImpl;
+import com.mcd.wallet.service.model.DepositMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.BloomFilter;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchedAddressIndexTest {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    private final byte[] seed = new byte[64];
+    private ExecutorService executor;
+    private KeyDerivationService keyDerivationService;
+    private WatchedAddressIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Context.propagate(new Context(PARAMS));
+        new Random(42).nextBytes(seed);
+        executor = Executors.newFixedThreadPool(4);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        keyDerivationService = new KeyDerivationServiceImpl(PARAMS, 16, executor, meterRegistry);
+        index = new WatchedAddressIndex(PARAMS, keyDerivationService, meterRegistry, 0.001);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldMatchOutputsPayingWatchedAddresses() {
+        assertEquals(2000, index.watch(seed, 0, 2000, Script.ScriptType.P2WPKH));
+        assertEquals(100, index.watch(seed, 0, 100, Script.ScriptType.P2PKH));
+        assertEquals(0, index.watch(seed, 0, 100, Script.ScriptType.P2PKH), "already watched");
+        assertEquals(2100, index.size());
+
+        Address segwit = address(1234, Script.ScriptType.P2WPKH);
+        Address legacy = address(7, Script.ScriptType.P2PKH);
+        Address outside = address(5000, Script.ScriptType.P2WPKH);
+        assertEquals(1234, index.indexOf(segwit));
+        assertEquals(-1, index.indexOf(outside));
+
+        List<DepositMatch> notified = new ArrayList<>();
+        index.addMatchListener(notified::add);
+        Transaction tx = new Transaction(PARAMS);
+        tx.addOutput(Coin.COIN, outside);
+        tx.addOutput(Coin.CENT, segwit);
+        tx.addOutput(Coin.MILLICOIN, Address.fromKey(PARAMS, new ECKey(), Script.ScriptType.P2PKH));
+        tx.addOutput(Coin.FIFTY_COINS, legacy);
+
+        List<DepositMatch> matches = index.match(tx, 101);
+
+        assertEquals(2, matches.size());
+        assertEquals(new DepositMatch(tx.getTxId().toString(), 1, segwit.toString(), 1234, "0.01", 101), matches.get(0));
+        assertEquals(new DepositMatch(tx.getTxId().toString(), 3, legacy.toString(), 7, "50", 101), matches.get(1));
+        assertEquals(matches, notified);
+    }
+
+    @Test
+    void shouldUpdateBloomFilterIncrementallyAndFallBackToMatchAll() {
+        index.watch(seed, 0, 100, Script.ScriptType.P2PKH);
+        BloomFilter filter = index.getBloomFilter(200, 0.00001, 7);
+        assertFalse(filter.matchesAll());
+        assertTrue(filter.contains(address(99, Script.ScriptType.P2PKH).getHash()));
+
+        // Mesmo formato de filtro: só as chaves novas são inseridas
+        index.watch(seed, 100, 10, Script.ScriptType.P2PKH);
+        BloomFilter updated = index.getBloomFilter(200, 0.00001, 7);
+        assertSame(filter, updated);
+        assertTrue(updated.contains(address(105, Script.ScriptType.P2PKH).getHash()));
+
+        // 1M elementos não cabem em 36 kB com fp <= 0.001
+        assertTrue(index.getBloomFilter(1_000_000, 0.00001, 7).matchesAll());
+        assertTrue(index.isFilterMatchAll());
+        assertFalse(index.getBloomFilter(200, 0.00001, 7).matchesAll());
+    }
+
+    @Test
+    void shouldHoldAMillionHashesWellUnderBudget() {
+        Hash160Table table = new Hash160Table();
+        Random random = new Random(7);
+        byte[][] keys = new byte[1_000_000][Hash160Table.KEY_LENGTH];
+        for (int i = 0; i < keys.length; i++) {
+            random.nextBytes(keys[i]);
+            assertTrue(table.add(keys[i], i));
+        }
+
+        assertEquals(1_000_000, table.size());
+        assertTrue(table.memoryBytes() < 64L * 1024 * 1024, "table uses " + table.memoryBytes() + " bytes");
+        for (int i = 0; i < keys.length; i += 997) {
+            assertEquals(i, table.get(keys[i]));
+        }
+        byte[] missing = new byte[Hash160Table.KEY_LENGTH];
+        random.nextBytes(missing);
+        assertEquals(-1, table.get(missing));
+    }
+
+    private Address address(int derivationIndex, Script.ScriptType scriptType) {
+        List<Address> derived = new ArrayList<>(1);
+        keyDerivationService.streamAddresses(seed, derivationIndex, 1, scriptType, a -> derived.add(a.address()));
+        return derived.get(0);
+    }
+}